@@ -0,0 +1,125 @@
+package com.tverdokhlebd.minedin.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compares JMH results with checked-in baseline. Exits with code 1, if throughput of any benchmark falls or allocation per
+ * operation grows more than tolerance.
+ *
+ * Usage: {@code BaselineComparator <baseline.json> <result.json> [throughput tolerance] [allocation tolerance]}.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class BaselineComparator {
+
+    /** Default tolerance of throughput falling. */
+    private static final double THROUGHPUT_TOLERANCE = 0.2;
+    /** Default tolerance of allocation growing. */
+    private static final double ALLOCATION_TOLERANCE = 0.1;
+    /** Allocation growth in bytes, which is ignored as noise of profiler. */
+    private static final double ALLOCATION_NOISE = 16;
+    /** Names of allocation metric in different JMH versions. */
+    private static final String[] ALLOCATION_METRIC_ARRAY = { "·gc.alloc.rate.norm", "gc.alloc.rate.norm" };
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [throughput tolerance] [allocation tolerance]");
+            System.exit(2);
+        }
+        Map<String, JSONObject> baselineMap = readResults(args[0]);
+        Map<String, JSONObject> resultMap = readResults(args[1]);
+        double throughputTolerance = args.length > 2 ? Double.parseDouble(args[2]) : THROUGHPUT_TOLERANCE;
+        double allocationTolerance = args.length > 3 ? Double.parseDouble(args[3]) : ALLOCATION_TOLERANCE;
+        boolean regression = false;
+        System.out.println(String.format("%-90s %15s %15s %12s %12s", "Benchmark", "Baseline ops/s", "Result ops/s", "Baseline B/op",
+                                         "Result B/op"));
+        for (Map.Entry<String, JSONObject> entry : resultMap.entrySet()) {
+            JSONObject baseline = baselineMap.get(entry.getKey());
+            if (baseline == null) {
+                System.out.println(String.format("%-90s %15s", entry.getKey(), "no baseline"));
+                continue;
+            }
+            double baselineScore = getScore(baseline);
+            double resultScore = getScore(entry.getValue());
+            double baselineAllocation = getAllocation(baseline);
+            double resultAllocation = getAllocation(entry.getValue());
+            String status = "";
+            if (resultScore < baselineScore * (1 - throughputTolerance)) {
+                status += " THROUGHPUT REGRESSION";
+            }
+            if (baselineAllocation >= 0 && resultAllocation > baselineAllocation * (1 + allocationTolerance) + ALLOCATION_NOISE) {
+                status += " ALLOCATION REGRESSION";
+            }
+            regression |= !status.isEmpty();
+            System.out.println(String.format("%-90s %15.0f %15.0f %12.0f %12.0f%s",
+                                             entry.getKey(),
+                                             baselineScore,
+                                             resultScore,
+                                             baselineAllocation,
+                                             resultAllocation,
+                                             status));
+        }
+        System.exit(regression ? 1 : 0);
+    }
+
+    /**
+     * Reads JMH results by name of benchmark with parameters.
+     *
+     * @param file JSON file of JMH results
+     * @return results by name of benchmark with parameters
+     * @throws IOException if file cannot be read
+     */
+    private static Map<String, JSONObject> readResults(String file) throws IOException {
+        JSONArray resultArray = new JSONArray(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        Map<String, JSONObject> resultMap = new LinkedHashMap<>();
+        for (int i = 0; i < resultArray.length(); i++) {
+            JSONObject result = resultArray.getJSONObject(i);
+            String name = result.getString("benchmark");
+            JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                name += params.toString();
+            }
+            resultMap.put(name, result);
+        }
+        return resultMap;
+    }
+
+    /**
+     * Gets throughput.
+     *
+     * @param result JMH result
+     * @return throughput
+     */
+    private static double getScore(JSONObject result) {
+        return result.getJSONObject("primaryMetric").getDouble("score");
+    }
+
+    /**
+     * Gets allocation per operation.
+     *
+     * @param result JMH result
+     * @return allocation per operation or -1 if result is made without GC profiler
+     */
+    private static double getAllocation(JSONObject result) {
+        JSONObject secondaryMetrics = result.optJSONObject("secondaryMetrics");
+        if (secondaryMetrics != null) {
+            for (String metric : ALLOCATION_METRIC_ARRAY) {
+                JSONObject allocation = secondaryMetrics.optJSONObject(metric);
+                if (allocation != null) {
+                    return allocation.getDouble("score");
+                }
+            }
+        }
+        return -1;
+    }
+
+}
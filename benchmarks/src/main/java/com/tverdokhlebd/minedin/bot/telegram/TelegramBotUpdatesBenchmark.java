@@ -0,0 +1,91 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.trace.Tracer;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Benchmark of creating message about earnings.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Duser.language=en")
+public class TelegramBotUpdatesBenchmark {
+
+    /** Callback query data of calculated earnings. */
+    static final String CALLBACK_QUERY_DATA = "ETH-NANOPOOL-WHAT_TO_MINE-COIN_MARKET_CAP-WHAT_TO_MINE";
+    /** Handler of updates. */
+    private TelegramBotUpdates botUpdates;
+    /** Calculated earnings. */
+    private Earnings earnings;
+
+    @Setup
+    public void setUp() {
+        botUpdates = new TelegramBotUpdates("benchmark", new OkHttpClient(), null, new SimpleMeterRegistry(),
+                new Tracer(Long.MAX_VALUE, 1), 0);
+        earnings = createEarnings();
+    }
+
+    @Benchmark
+    public String createMinedEarningsMessage() {
+        TelegramContext context = new TelegramContext(null, new TelegramResponse(new TelegramStepData(CALLBACK_QUERY_DATA, false)));
+        botUpdates.createMinedEarningsMessage(context, earnings);
+        return context.getResponseMessage().getFormattedMessage();
+    }
+
+    /**
+     * Creates earnings.
+     *
+     * @return earnings
+     */
+    static Earnings createEarnings() {
+        Account account = new Account.Builder().setWalletAddress("0x0000000000000000000000000000000000000000")
+                                               .setWalletBalance(new BigDecimal("2.12345678"))
+                                               .setReportedHashrate(new BigDecimal("185000000"))
+                                               .build();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH)
+                                                  .setBlockTime(new BigDecimal("14.5"))
+                                                  .setBlockReward(new BigDecimal("3"))
+                                                  .setBlockCount(new BigDecimal("5700000"))
+                                                  .setDifficulty(new BigDecimal("3300000000000000"))
+                                                  .setNetworkHashrate(new BigDecimal("250000000000000"))
+                                                  .build();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("512.34")).build();
+        CoinReward coinReward = new CoinReward(CoinType.ETH,
+                                               new BigDecimal("185000000"),
+                                               new BigDecimal("0.0001"),
+                                               new BigDecimal("0.0024"),
+                                               new BigDecimal("0.0168"),
+                                               new BigDecimal("0.072"),
+                                               new BigDecimal("0.876"));
+        return new Earnings(account.getWalletBalance().multiply(coinMarket.getPrice()), account, coinInfo, coinMarket, coinReward);
+    }
+
+}
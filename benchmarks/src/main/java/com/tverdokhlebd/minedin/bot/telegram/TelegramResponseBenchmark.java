@@ -0,0 +1,82 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pengrad.telegrambot.BotUtils;
+import com.pengrad.telegrambot.model.Message;
+import com.tverdokhlebd.minedin.trace.Tracer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Benchmark of parsing previous result message and formatting of response, which happen on each press of "Update" button.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Duser.language=en")
+public class TelegramResponseBenchmark {
+
+    /** Previous result message. */
+    private Message resultMessage;
+
+    @Setup
+    public void setUp() {
+        TelegramBotUpdates botUpdates = new TelegramBotUpdates("benchmark", new OkHttpClient(), null, new SimpleMeterRegistry(),
+                new Tracer(Long.MAX_VALUE, 1), 0);
+        TelegramStepData stepData = new TelegramStepData(TelegramBotUpdatesBenchmark.CALLBACK_QUERY_DATA, false);
+        TelegramContext context = new TelegramContext(null, new TelegramResponse(stepData));
+        botUpdates.createMinedEarningsMessage(context, TelegramBotUpdatesBenchmark.createEarnings());
+        // Telegram returns text without HTML tags and with "pre" entities in place of them
+        String formattedMessage = context.getResponseMessage().getFormattedMessage();
+        StringBuilder text = new StringBuilder();
+        JSONArray entityArray = new JSONArray();
+        int index = 0;
+        while (index < formattedMessage.length()) {
+            int preStart = formattedMessage.indexOf("<pre>", index);
+            if (preStart == -1) {
+                text.append(formattedMessage.substring(index));
+                break;
+            }
+            int preEnd = formattedMessage.indexOf("</pre>", preStart);
+            text.append(formattedMessage, index, preStart);
+            String preText = formattedMessage.substring(preStart + 5, preEnd);
+            entityArray.put(new JSONObject().put("type", "pre").put("offset", text.length()).put("length", preText.length()));
+            text.append(preText);
+            index = preEnd + 6;
+        }
+        JSONObject message = new JSONObject().put("message_id", 1)
+                                             .put("chat", new JSONObject().put("id", 1))
+                                             .put("text", text.toString())
+                                             .put("entities", entityArray);
+        resultMessage = BotUtils.parseUpdate(new JSONObject().put("update_id", 1).put("message", message).toString()).message();
+    }
+
+    @Benchmark
+    public String parseAndFormat() {
+        TelegramStepData stepData = new TelegramStepData(TelegramBotUpdatesBenchmark.CALLBACK_QUERY_DATA, false);
+        TelegramResponse response = new TelegramResponse(stepData);
+        response.parsePreviousResultMessage(resultMessage);
+        return response.getFormattedMessage();
+    }
+
+}
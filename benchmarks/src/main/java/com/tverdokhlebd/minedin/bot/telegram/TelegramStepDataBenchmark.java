@@ -0,0 +1,37 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of parsing step data from callback query data.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelegramStepDataBenchmark {
+
+    /** Callback query data. */
+    private String callbackQueryData = TelegramBotUpdatesBenchmark.CALLBACK_QUERY_DATA;
+
+    @Benchmark
+    public TelegramStepData parseCallbackQueryData() {
+        return new TelegramStepData(callbackQueryData, false);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.tverdokhlebd.minedin.earnings;
+
+import static java.math.RoundingMode.DOWN;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.minedin.earnings.CompactEarnings.Period;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Benchmark of conversions of earnings to USD and BTC with decimals and with compact earnings.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Duser.language=en")
+public class CompactEarningsBenchmark {
+
+    /** Price of BTC in USD. */
+    private static final BigDecimal BTC_PRICE = new BigDecimal("8123.45");
+    /** Calculated earnings. */
+    private Earnings earnings;
+    /** Compact calculated earnings. */
+    private CompactEarnings compactEarnings;
+
+    @Setup
+    public void setUp() {
+        Account account = new Account.Builder().setWalletAddress("0x0000000000000000000000000000000000000000")
+                                               .setWalletBalance(new BigDecimal("2.123456789012345678"))
+                                               .setReportedHashrate(new BigDecimal("185000000"))
+                                               .build();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH)
+                                                  .setBlockTime(new BigDecimal("14.5"))
+                                                  .setBlockReward(new BigDecimal("3"))
+                                                  .setBlockCount(new BigDecimal("5700000"))
+                                                  .setDifficulty(new BigDecimal("3300000000000000"))
+                                                  .setNetworkHashrate(new BigDecimal("250000000000000"))
+                                                  .build();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("512.34")).build();
+        CoinReward coinReward = new CoinReward(CoinType.ETH,
+                                               new BigDecimal("185000000"),
+                                               new BigDecimal("0.0001"),
+                                               new BigDecimal("0.0024"),
+                                               new BigDecimal("0.0168"),
+                                               new BigDecimal("0.072"),
+                                               new BigDecimal("0.876"));
+        earnings = new Earnings(account.getWalletBalance().multiply(coinMarket.getPrice()), account, coinInfo, coinMarket, coinReward);
+        compactEarnings = new CompactEarnings(earnings);
+    }
+
+    @Benchmark
+    public void convertDecimals(Blackhole blackhole) {
+        BigDecimal coinPrice = earnings.getCoinMarket().getPrice().setScale(2, DOWN);
+        blackhole.consume(earnings.getAccount().getWalletBalance().setScale(8, DOWN));
+        blackhole.consume(earnings.getUsdBalance().setScale(2, DOWN));
+        CoinReward coinReward = earnings.getCoinReward();
+        blackhole.consume(coinReward.getRewardPerHour().setScale(6, DOWN).multiply(coinPrice).setScale(2, DOWN));
+        blackhole.consume(coinReward.getRewardPerDay().setScale(6, DOWN).multiply(coinPrice).setScale(2, DOWN));
+        blackhole.consume(coinReward.getRewardPerWeek().setScale(6, DOWN).multiply(coinPrice).setScale(2, DOWN));
+        blackhole.consume(coinReward.getRewardPerMonth().setScale(6, DOWN).multiply(coinPrice).setScale(2, DOWN));
+        blackhole.consume(coinReward.getRewardPerYear().setScale(6, DOWN).multiply(coinPrice).setScale(2, DOWN));
+        blackhole.consume(BTC_PRICE.divide(earnings.getCoinMarket().getPrice(), DOWN));
+    }
+
+    @Benchmark
+    public void convertCompactEarnings(Blackhole blackhole) {
+        blackhole.consume(compactEarnings.getWalletBalance(8));
+        blackhole.consume(compactEarnings.getUsdBalance(2));
+        for (Period period : Period.values()) {
+            blackhole.consume(compactEarnings.getUsdReward(period, 6, 2, 2));
+        }
+        blackhole.consume(compactEarnings.getCoinInBtc(BTC_PRICE));
+    }
+
+    @Benchmark
+    public CompactEarnings createCompactEarnings() {
+        return new CompactEarnings(earnings);
+    }
+
+}
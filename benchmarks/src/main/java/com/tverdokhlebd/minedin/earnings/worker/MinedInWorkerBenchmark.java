@@ -0,0 +1,81 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.math.BigDecimal;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Benchmark of earnings calculation with stubbed requestors. It measures orchestration and calculation overhead without
+ * network.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinedInWorkerBenchmark {
+
+    /** Wallet address. */
+    private static final String WALLET_ADDRESS = "0x0000000000000000000000000000000000000000";
+    /** Executor, which runs requests in calling thread. */
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+    /** Worker with stubbed requestors. */
+    private MinedInWorker worker;
+
+    @Setup
+    public void setUp() {
+        Account account = new Account.Builder().setWalletAddress(WALLET_ADDRESS)
+                                               .setWalletBalance(new BigDecimal("2.12345678"))
+                                               .setReportedHashrate(new BigDecimal("185000000"))
+                                               .build();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinTypeDescription.ETH.getCoinType())
+                                                  .setBlockTime(new BigDecimal("14.5"))
+                                                  .setBlockReward(new BigDecimal("3"))
+                                                  .setBlockCount(new BigDecimal("5700000"))
+                                                  .setDifficulty(new BigDecimal("3300000000000000"))
+                                                  .setNetworkHashrate(new BigDecimal("250000000000000"))
+                                                  .build();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinTypeDescription.ETH.getCoinType())
+                                                        .setPrice(new BigDecimal("512.34"))
+                                                        .build();
+        worker = new MinedInWorker((coinType, walletAddress) -> account,
+                                   coinType -> coinInfo,
+                                   coinType -> coinMarket,
+                                   (coinType, hashrate) -> new CoinReward(coinType,
+                                                                          hashrate,
+                                                                          new BigDecimal("0.0001"),
+                                                                          new BigDecimal("0.0024"),
+                                                                          new BigDecimal("0.0168"),
+                                                                          new BigDecimal("0.072"),
+                                                                          new BigDecimal("0.876")),
+                                   DIRECT_EXECUTOR);
+    }
+
+    @Benchmark
+    public Earnings calculate() throws Exception {
+        return worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.tverdokhlebd.minedin.utils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of converting hashrate to readable form.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Duser.language=en")
+public class ReadableHashrateUtilBenchmark {
+
+    /** Hashrate in H/s. */
+    @Param({ "950", "185000000", "250000000000000" })
+    private String hashrateValue;
+    /** Hashrate. */
+    private BigDecimal hashrate;
+
+    @Setup
+    public void setUp() {
+        hashrate = new BigDecimal(hashrateValue);
+    }
+
+    @Benchmark
+    public String convertToReadableHashPower() {
+        return ReadableHashrateUtil.convertToReadableHashPower(hashrate);
+    }
+
+}
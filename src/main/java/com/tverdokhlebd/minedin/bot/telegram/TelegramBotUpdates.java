@@ -2,16 +2,24 @@ package com.tverdokhlebd.minedin.bot.telegram;
 
 import static com.pengrad.telegrambot.model.request.ParseMode.HTML;
 import static com.tverdokhlebd.minedin.bot.telegram.TelegramStepData.Step.SELECTED_COIN_REWARD;
-import static java.math.RoundingMode.DOWN;
+import static com.tverdokhlebd.minedin.earnings.CompactEarnings.Period.DAY;
+import static com.tverdokhlebd.minedin.earnings.CompactEarnings.Period.HOUR;
+import static com.tverdokhlebd.minedin.earnings.CompactEarnings.Period.MONTH;
+import static com.tverdokhlebd.minedin.earnings.CompactEarnings.Period.WEEK;
+import static com.tverdokhlebd.minedin.earnings.CompactEarnings.Period.YEAR;
 
-import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 import com.pengrad.telegrambot.BotUtils;
 import com.pengrad.telegrambot.TelegramBot;
@@ -19,13 +27,14 @@ import com.pengrad.telegrambot.model.Message;
 import com.pengrad.telegrambot.model.Update;
 import com.pengrad.telegrambot.model.request.InlineKeyboardButton;
 import com.pengrad.telegrambot.model.request.InlineKeyboardMarkup;
+import com.pengrad.telegrambot.request.AnswerCallbackQuery;
+import com.pengrad.telegrambot.request.BaseRequest;
 import com.pengrad.telegrambot.request.EditMessageText;
 import com.pengrad.telegrambot.request.SendMessage;
 import com.pengrad.telegrambot.response.BaseResponse;
 import com.tverdokhlebd.coin.info.CoinInfo;
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
 import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
-import com.tverdokhlebd.coin.reward.CoinReward;
 import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
 import com.tverdokhlebd.minedin.bot.BotUpdates;
 import com.tverdokhlebd.minedin.description.CoinInfoDescription;
@@ -33,26 +42,43 @@ import com.tverdokhlebd.minedin.description.CoinMarketDescription;
 import com.tverdokhlebd.minedin.description.CoinRewardDescription;
 import com.tverdokhlebd.minedin.description.CoinTypeDescription;
 import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.CompactEarnings;
 import com.tverdokhlebd.minedin.earnings.Earnings;
 import com.tverdokhlebd.minedin.earnings.worker.EarningsWorkerFactory;
+import com.tverdokhlebd.minedin.trace.Trace;
+import com.tverdokhlebd.minedin.trace.TraceStage;
+import com.tverdokhlebd.minedin.trace.Tracer;
 import com.tverdokhlebd.minedin.utils.ReadableHashrateUtil;
 import com.tverdokhlebd.minedin.utils.ReadableTimeUtil;
 import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.OkHttpClient;
+
 /**
- * Handler of incoming updates from Telegram bot.
+ * Handler of incoming updates from Telegram bot. It has no per-update state, so one instance serves all updates concurrently.
  *
  * @author Dmitry Tverdokhleb
  *
  */
+@Component
 public class TelegramBotUpdates implements BotUpdates {
 
     /** Pengrad telegram bot. */
     private final TelegramBot bot;
-    /** Telegram incoming message. */
-    private Message incomingMessage;
-    /** Telegram response message. */
-    private TelegramResponse responseMessage;
+    /** Factory for creating earnings worker. */
+    private final EarningsWorkerFactory earningsWorkerFactory;
+    /** Registry of meters. */
+    private final MeterRegistry meterRegistry;
+    /** Timers of successful requests to Telegram by method, they are registered on the first request. */
+    private final ConcurrentMap<String, Timer> successTimerMap = new ConcurrentHashMap<>();
+    /** Timers of failed requests to Telegram by method, they are registered on the first request. */
+    private final ConcurrentMap<String, Timer> errorTimerMap = new ConcurrentHashMap<>();
+    /** Tracer of requests. */
+    private final Tracer tracer;
+    /** Deadline budget of calculation in milliseconds. */
+    private final long deadline;
     /** Logger. */
     private final static Logger LOG = LoggerFactory.getLogger(TelegramBotUpdates.class);
     /** Text resources. */
@@ -62,32 +88,74 @@ public class TelegramBotUpdates implements BotUpdates {
      * Creates instance.
      *
      * @param token telegram token
+     * @param httpClient shared HTTP client
+     * @param earningsWorkerFactory factory for creating earnings worker
+     * @param meterRegistry registry of meters
+     * @param tracer tracer of requests
+     * @param deadline deadline budget of calculation in milliseconds
      */
-    public TelegramBotUpdates(String token) {
+    public TelegramBotUpdates(@Value("${telegram.token}") String token, OkHttpClient httpClient,
+            EarningsWorkerFactory earningsWorkerFactory, MeterRegistry meterRegistry, Tracer tracer,
+            @Value("${earnings.deadline.bot:3000}") long deadline) {
         super();
-        bot = new TelegramBot(token);
+        bot = new TelegramBot.Builder(token).okHttpClient(httpClient).build();
+        this.earningsWorkerFactory = earningsWorkerFactory;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.deadline = deadline;
     }
 
     @Override
     public void process(String request) {
+        Update update;
+        try {
+            update = BotUtils.parseUpdate(request);
+        } catch (Exception e) {
+            LOG.error("Exception", e);
+            return;
+        }
+        process(update);
+    }
+
+    /**
+     * Processes parsed incoming update from bot.
+     *
+     * @param update incoming update
+     */
+    public void process(Update update) {
+        Trace trace = tracer.start(null, "telegram " + update.updateId());
+        try {
+            processTraced(update);
+        } finally {
+            tracer.finish(trace);
+        }
+    }
+
+    /**
+     * Processes parsed incoming update from bot within trace.
+     *
+     * @param update incoming update
+     */
+    private void processTraced(Update update) {
+        TelegramContext context = null;
         try {
-            Update update = BotUtils.parseUpdate(request);
             boolean simpleMessage = update.callbackQuery() == null;
-            incomingMessage = simpleMessage ? update.message() : update.callbackQuery().message();
+            Message incomingMessage = simpleMessage ? update.message() : update.callbackQuery().message();
             String data = simpleMessage ? incomingMessage.text() : update.callbackQuery().data();
             TelegramStepData stepData = new TelegramStepData(data, simpleMessage);
-            responseMessage = new TelegramResponse(stepData);
+            context = new TelegramContext(incomingMessage, new TelegramResponse(stepData));
+            TelegramResponse responseMessage = context.getResponseMessage();
             switch (stepData.getStep()) {
             case START: {
-                createStartMessage();
+                createStartMessage(context);
                 break;
             }
             case ENTERED_WALLET: {
-                createSupportingCoinsMessage();
+                createSupportingCoinsMessage(context);
                 break;
             }
             case SELECTED_COIN_TYPE: {
-                createSupportingPoolsMessage();
+                createSupportingPoolsMessage(context);
                 break;
             }
             case SELECTED_POOL_ACCOUNT: {
@@ -102,37 +170,61 @@ public class TelegramBotUpdates implements BotUpdates {
             case SELECTED_COIN_REWARD: {
                 responseMessage.parsePreviousResultMessage(incomingMessage);
                 String walletAddress = incomingMessage.replyToMessage().text();
-                Earnings earnings = calculateEarnings(walletAddress);
-                createMinedEarningsMessage(earnings);
+                Earnings earnings = calculateEarnings(context, walletAddress);
+                createMinedEarningsMessage(context, earnings);
                 break;
             }
             }
         } catch (AccountRequestorException | CoinInfoRequestorException | CoinMarketRequestorException | CoinRewardRequestorException e) {
-            responseMessage.setError(String.format(RESOURCES.getString(e.getClass().getSimpleName()), e.getMessage()));
+            context.getResponseMessage().setError(String.format(RESOURCES.getString(e.getClass().getSimpleName()), e.getMessage()));
             LOG.error("Request exception", e);
         } catch (Exception e) {
-            responseMessage.setError(String.format(RESOURCES.getString(e.getClass().getSimpleName()), e.getMessage()));
             LOG.error("Exception", e);
-        } finally {
-            if (responseMessage.onlySendMessage()) {
-                sendMessage();
-            } else {
-                editMessage();
+            if (context == null) {
+                // Update has no supported data, so there is no message to respond
+                return;
             }
+            // Unexpected exceptions have no own text resource, so the common one is used
+            String errorKey = RESOURCES.containsKey(e.getClass().getSimpleName()) ? e.getClass().getSimpleName() : "Exception";
+            context.getResponseMessage().setError(String.format(RESOURCES.getString(errorKey), e.getMessage()));
+        }
+        long sendStart = System.nanoTime();
+        if (context.getResponseMessage().onlySendMessage()) {
+            sendMessage(context);
+        } else {
+            editMessage(context);
+        }
+        Tracer.current().record(TraceStage.TELEGRAM_SEND, sendStart);
+    }
+
+    /**
+     * Answers callback query, so Telegram client stops showing progress on pressed button.
+     *
+     * @param callbackQueryId callback query id
+     */
+    public void answerCallbackQuery(String callbackQueryId) {
+        BaseResponse response = execute(new AnswerCallbackQuery(callbackQueryId), "answerCallbackQuery");
+        if (!response.isOk()) {
+            LOG.error(response.description());
         }
     }
 
     /**
      * Creates welcome message.
+     *
+     * @param context context of update
      */
-    private void createStartMessage() {
-        responseMessage.setMessage(RESOURCES.getString("start"));
+    private void createStartMessage(TelegramContext context) {
+        context.getResponseMessage().setMessage(RESOURCES.getString("start"));
     }
 
     /**
      * Creates supporting coin types message.
+     *
+     * @param context context of update
      */
-    private void createSupportingCoinsMessage() {
+    private void createSupportingCoinsMessage(TelegramContext context) {
+        TelegramResponse responseMessage = context.getResponseMessage();
         List<CoinTypeDescription> coinInfoList = Arrays.asList(CoinTypeDescription.values()).stream().filter(coin -> {
             return coin.isEnabled();
         }).collect(Collectors.toList());
@@ -148,8 +240,11 @@ public class TelegramBotUpdates implements BotUpdates {
 
     /**
      * Creates supporting pool types message.
+     *
+     * @param context context of update
      */
-    private void createSupportingPoolsMessage() {
+    private void createSupportingPoolsMessage(TelegramContext context) {
+        TelegramResponse responseMessage = context.getResponseMessage();
         CoinTypeDescription coinType = responseMessage.getStepData().getCoinType();
         List<PoolTypeDescription> poolTypeList = Arrays.asList(PoolTypeDescription.values()).stream().filter(pool -> {
             return pool.getPoolType().getCoinTypeList().indexOf(coinType.getCoinType()) != -1;
@@ -167,6 +262,7 @@ public class TelegramBotUpdates implements BotUpdates {
     /**
      * Calculates earnings.
      *
+     * @param context context of update
      * @param walletAddress wallet address
      * @return earnings
      * @throws AccountRequestorException if there is any error in account requesting
@@ -174,56 +270,50 @@ public class TelegramBotUpdates implements BotUpdates {
      * @throws CoinMarketRequestorException if there is any error in coin market requesting
      * @throws CoinRewardRequestorException if there is any error in coin reward requesting
      */
-    private Earnings calculateEarnings(String walletAddress)
+    private Earnings calculateEarnings(TelegramContext context, String walletAddress)
             throws AccountRequestorException, CoinInfoRequestorException, CoinMarketRequestorException, CoinRewardRequestorException {
-        TelegramStepData stepData = responseMessage.getStepData();
+        TelegramStepData stepData = context.getResponseMessage().getStepData();
         CoinTypeDescription coinType = stepData.getCoinType();
         CoinInfoDescription coinInfo = stepData.getCoinInfo();
         PoolTypeDescription poolType = stepData.getPoolType();
         CoinMarketDescription coinMarket = stepData.getCoinMarket();
         CoinRewardDescription coinReward = stepData.getCoinReward();
-        return EarningsWorkerFactory.create(poolType, coinInfo, coinMarket, coinReward).calculate(coinType, walletAddress);
+        return earningsWorkerFactory.create(poolType, coinInfo, coinMarket, coinReward, deadline).calculate(coinType, walletAddress);
     }
 
     /**
      * Creates message about earnings.
      *
+     * @param context context of update
      * @param earnings calculated earnings
      */
-    private void createMinedEarningsMessage(Earnings earnings) {
+    void createMinedEarningsMessage(TelegramContext context, Earnings earnings) {
+        TelegramResponse responseMessage = context.getResponseMessage();
         TelegramStepData stepData = responseMessage.getStepData();
-        BigDecimal coinBalance = earnings.getAccount().getWalletBalance().setScale(8, DOWN);
-        BigDecimal usdBalance = earnings.getUsdBalance().setScale(2, DOWN);
-        BigDecimal coinPrice = earnings.getCoinMarket().getPrice().setScale(2, DOWN);
+        CompactEarnings compactEarnings = new CompactEarnings(earnings);
         String balanceMessage = RESOURCES.getString("balance");
         balanceMessage = String.format(balanceMessage,
                                        stepData.getCoinMarket().getName(),
-                                       "$" + usdBalance,
-                                       "$" + coinPrice);
-        CoinReward coinReward = earnings.getCoinReward();
+                                       "$" + compactEarnings.getUsdBalance(2),
+                                       "$" + compactEarnings.getPrice(2));
         String accountMessage = RESOURCES.getString("account");
         accountMessage = String.format(accountMessage,
                                        stepData.getPoolType().getName(),
-                                       coinBalance + " " + stepData.getCoinType().name(),
-                                       ReadableHashrateUtil.convertToReadableHashPower(coinReward.getReportedHashrate()));
-        BigDecimal perHour = coinReward.getRewardPerHour().setScale(6, DOWN);
-        BigDecimal perDay = coinReward.getRewardPerDay().setScale(6, DOWN);
-        BigDecimal perWeek = coinReward.getRewardPerWeek().setScale(6, DOWN);
-        BigDecimal perMonth = coinReward.getRewardPerMonth().setScale(6, DOWN);
-        BigDecimal perYear = coinReward.getRewardPerYear().setScale(6, DOWN);
+                                       compactEarnings.getWalletBalance(8) + " " + stepData.getCoinType().name(),
+                                       ReadableHashrateUtil.convertToReadableHashPower(earnings.getCoinReward().getReportedHashrate()));
         String rewardMessage = RESOURCES.getString("reward");
         rewardMessage = String.format(rewardMessage,
                                       stepData.getCoinReward().getName(),
-                                      perHour,
-                                      "$" + perHour.multiply(coinPrice).setScale(2, DOWN),
-                                      perDay,
-                                      "$" + perDay.multiply(coinPrice).setScale(2, DOWN),
-                                      perWeek,
-                                      "$" + perWeek.multiply(coinPrice).setScale(2, DOWN),
-                                      perMonth,
-                                      "$" + perMonth.multiply(coinPrice).setScale(2, DOWN),
-                                      perYear,
-                                      "$" + perYear.multiply(coinPrice).setScale(2, DOWN));
+                                      compactEarnings.getReward(HOUR, 6),
+                                      "$" + compactEarnings.getUsdReward(HOUR, 6, 2, 2),
+                                      compactEarnings.getReward(DAY, 6),
+                                      "$" + compactEarnings.getUsdReward(DAY, 6, 2, 2),
+                                      compactEarnings.getReward(WEEK, 6),
+                                      "$" + compactEarnings.getUsdReward(WEEK, 6, 2, 2),
+                                      compactEarnings.getReward(MONTH, 6),
+                                      "$" + compactEarnings.getUsdReward(MONTH, 6, 2, 2),
+                                      compactEarnings.getReward(YEAR, 6),
+                                      "$" + compactEarnings.getUsdReward(YEAR, 6, 2, 2));
         String infoMessage = RESOURCES.getString("info");
         CoinInfo coinInfo = earnings.getCoinInfo();
         infoMessage = String.format(infoMessage,
@@ -232,20 +322,27 @@ public class TelegramBotUpdates implements BotUpdates {
                                     coinInfo.getBlockCount(),
                                     coinInfo.getBlockReward(),
                                     ReadableHashrateUtil.convertToReadableHashPower(coinInfo.getNetworkHashrate()));
+        if (earnings.isPartial()) {
+            infoMessage += RESOURCES.getString("partial");
+        }
         responseMessage.setMessage(balanceMessage + accountMessage + rewardMessage + infoMessage);
     }
 
     /**
      * Sends message.
+     *
+     * @param context context of update
      */
-    private void sendMessage() {
+    private void sendMessage(TelegramContext context) {
+        Message incomingMessage = context.getIncomingMessage();
+        TelegramResponse responseMessage = context.getResponseMessage();
         SendMessage request = new SendMessage(incomingMessage.chat().id(), responseMessage.getFormattedMessage());
         request.parseMode(HTML);
         if (responseMessage.getKeyboardMarkup() != null) {
             request.replyMarkup(responseMessage.getKeyboardMarkup());
         }
         request.replyToMessageId(incomingMessage.messageId());
-        BaseResponse sendResponse = bot.execute(request);
+        BaseResponse sendResponse = execute(request, "sendMessage");
         if (!sendResponse.isOk()) {
             LOG.error(sendResponse.description());
         }
@@ -253,18 +350,59 @@ public class TelegramBotUpdates implements BotUpdates {
 
     /**
      * Edits message.
+     *
+     * @param context context of update
      */
-    private void editMessage() {
+    private void editMessage(TelegramContext context) {
+        Message incomingMessage = context.getIncomingMessage();
+        TelegramResponse responseMessage = context.getResponseMessage();
         String finalMessage = responseMessage.getFormattedMessage();
         EditMessageText request = new EditMessageText(incomingMessage.chat().id(), incomingMessage.messageId(), finalMessage);
         request.parseMode(HTML);
         if (responseMessage.getKeyboardMarkup() != null) {
             request.replyMarkup(responseMessage.getKeyboardMarkup());
         }
-        BaseResponse response = bot.execute(request);
+        BaseResponse response = execute(request, "editMessage");
         if (!response.isOk()) {
             LOG.error(response.description());
         }
     }
 
+    /**
+     * Executes request to Telegram and records its time by method and outcome.
+     *
+     * @param request request to Telegram
+     * @param method name of method, e.g. "sendMessage"
+     * @return response of Telegram
+     */
+    @SuppressWarnings("rawtypes")
+    private <T extends BaseRequest, R extends BaseResponse> R execute(BaseRequest<T, R> request, String method) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            R response = bot.execute(request);
+            success = response.isOk();
+            return response;
+        } finally {
+            Timer timer = success ? successTimerMap.computeIfAbsent(method, name -> createTimer(name, "success"))
+                    : errorTimerMap.computeIfAbsent(method, name -> createTimer(name, "error"));
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Registers timer of requests to Telegram.
+     *
+     * @param method name of method, e.g. "sendMessage"
+     * @param outcome outcome of requests, e.g. "success"
+     * @return timer of requests
+     */
+    private Timer createTimer(String method, String outcome) {
+        return Timer.builder("telegram.requests")
+                    .description("Time of requests to Telegram")
+                    .tags("method", method, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
 }
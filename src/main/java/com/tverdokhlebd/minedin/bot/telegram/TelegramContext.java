@@ -0,0 +1,48 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import com.pengrad.telegrambot.model.Message;
+
+/**
+ * Context of processing one incoming update. It keeps per-update state, so handler of updates can be shared.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class TelegramContext {
+
+    /** Telegram incoming message. */
+    private final Message incomingMessage;
+    /** Telegram response message. */
+    private final TelegramResponse responseMessage;
+
+    /**
+     * Creates instance.
+     *
+     * @param incomingMessage telegram incoming message
+     * @param responseMessage telegram response message
+     */
+    public TelegramContext(Message incomingMessage, TelegramResponse responseMessage) {
+        super();
+        this.incomingMessage = incomingMessage;
+        this.responseMessage = responseMessage;
+    }
+
+    /**
+     * Gets incoming message.
+     *
+     * @return incoming message
+     */
+    public Message getIncomingMessage() {
+        return incomingMessage;
+    }
+
+    /**
+     * Gets response message.
+     *
+     * @return response message
+     */
+    public TelegramResponse getResponseMessage() {
+        return responseMessage;
+    }
+
+}
@@ -0,0 +1,481 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.pengrad.telegrambot.BotUtils;
+import com.pengrad.telegrambot.model.CallbackQuery;
+import com.pengrad.telegrambot.model.Message;
+import com.pengrad.telegrambot.model.Update;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil.ExecutionMode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded queue of incoming updates from Telegram bot. Updates are accepted immediately and processed by pool of workers, so
+ * webhook does not wait for requests to pools and markets.
+ *
+ * Updates of the same message (or of the same chat for simple messages) are processed in order on one lane. Repeated presses
+ * of the same button, which arrive while previous press is waiting or in progress, are merged into it and answered with its
+ * result.
+ *
+ * In virtual execution mode every lane is drained by its own virtual thread instead of fixed pool of workers, so slow requests to
+ * pools do not hold platform threads. Number of waiting updates is bounded by capacity of queue in both modes. Depth of queue
+ * and counters of updates are bound to registry of meters.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class TelegramUpdateQueue {
+
+    /**
+     * Enumeration of policies, when queue is full.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    public static enum OverflowPolicy {
+
+        /** The oldest waiting update is dropped in favor of the new one, its callback queries are answered without result. */
+        DROP_OLDEST,
+        /** The new update is rejected, so Telegram sends it again later. */
+        REJECT;
+
+    }
+
+    /** Handler of incoming updates. */
+    private final TelegramBotUpdates botUpdates;
+    /** Capacity of queue. */
+    private final int queueCapacity;
+    /** Policy, when queue is full. */
+    private final OverflowPolicy overflowPolicy;
+    /** Executor of lanes: pool of workers or executor of virtual threads. It has at most one task per lane. */
+    private final ExecutorService executor;
+    /** Number of lanes being drained. */
+    private final AtomicInteger activeCount = new AtomicInteger();
+    /** Lanes by key. */
+    private final ConcurrentMap<String, Lane> laneMap = new ConcurrentHashMap<>();
+    /** Waiting updates in order of arrival. */
+    private final Queue<PendingUpdate> arrivalQueue = new ConcurrentLinkedQueue<>();
+    /** Number of waiting updates. */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    /** Number of processed updates. */
+    private final AtomicLong processedCount = new AtomicLong();
+    /** Number of dropped updates. */
+    private final AtomicLong droppedCount = new AtomicLong();
+    /** Number of rejected updates. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+    /** Number of updates, which are merged into another one. */
+    private final AtomicLong coalescedCount = new AtomicLong();
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(TelegramUpdateQueue.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param botUpdates handler of incoming updates
+     * @param workers number of workers
+     * @param queueCapacity capacity of queue
+     * @param overflowPolicy policy, when queue is full
+     * @param executionMode mode of executing updates
+     * @param meterRegistry registry of meters
+     */
+    public TelegramUpdateQueue(TelegramBotUpdates botUpdates, @Value("${telegram.updates.workers:4}") int workers,
+            @Value("${telegram.updates.queue-capacity:100}") int queueCapacity,
+            @Value("${telegram.updates.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+            @Value("${execution.mode:PLATFORM}") ExecutionMode executionMode, MeterRegistry meterRegistry) {
+        super();
+        this.botUpdates = botUpdates;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        ExecutorService virtualExecutor = VirtualThreadUtil.newExecutor(executionMode, "telegram-update-");
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+        } else {
+            executor = new ThreadPoolExecutor(workers,
+                                              workers,
+                                              0L,
+                                              TimeUnit.MILLISECONDS,
+                                              new LinkedBlockingQueue<>(),
+                                              new CustomizableThreadFactory("telegram-update-"));
+        }
+        UpdateQueueMetrics.bind(meterRegistry, this);
+    }
+
+    /**
+     * Puts update to queue.
+     *
+     * @param request raw incoming update
+     * @return {@code true} if update is accepted, otherwise {@code false}
+     */
+    public boolean offer(String request) {
+        Update update;
+        try {
+            update = BotUtils.parseUpdate(request);
+        } catch (Exception e) {
+            // Telegram would send the same malformed update again, so it is accepted and skipped
+            LOG.error("Update parsing error", e);
+            return true;
+        }
+        CallbackQuery callbackQuery = update.callbackQuery();
+        Message message = callbackQuery == null ? update.message() : callbackQuery.message();
+        if (message == null) {
+            LOG.warn("Update {} has no message", update.updateId());
+            return true;
+        }
+        String key = callbackQuery == null ? String.valueOf(message.chat().id()) : message.chat().id() + ":" + message.messageId();
+        // Callback queries of dropped update are answered outside of lock of lane
+        List<String> droppedCallbackQueryIdList = new ArrayList<>();
+        try {
+            return enqueue(update, callbackQuery, key, droppedCallbackQueryIdList);
+        } finally {
+            answerCallbackQueries(droppedCallbackQueryIdList);
+        }
+    }
+
+    /**
+     * Puts parsed update to its lane.
+     *
+     * @param update incoming update
+     * @param callbackQuery callback query of update or {@code null} for simple message
+     * @param key key of lane
+     * @param droppedCallbackQueryIdList list, which receives ids of callback queries of update dropped by overflow policy
+     * @return {@code true} if update is accepted, otherwise {@code false}
+     */
+    private boolean enqueue(Update update, CallbackQuery callbackQuery, String key, List<String> droppedCallbackQueryIdList) {
+        while (true) {
+            Lane lane = laneMap.computeIfAbsent(key, Lane::new);
+            synchronized (lane) {
+                if (lane.retired) {
+                    continue;
+                }
+                if (callbackQuery != null && lane.coalesce(callbackQuery)) {
+                    coalescedCount.incrementAndGet();
+                    return true;
+                }
+                if (!reserve(droppedCallbackQueryIdList)) {
+                    return false;
+                }
+                PendingUpdate pending = new PendingUpdate(update);
+                lane.pendingQueue.add(pending);
+                arrivalQueue.add(pending);
+                if (!lane.scheduled) {
+                    try {
+                        executor.execute(() -> drain(lane));
+                    } catch (RejectedExecutionException e) {
+                        lane.pendingQueue.removeLast();
+                        arrivalQueue.remove(pending);
+                        queueDepth.decrementAndGet();
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    lane.scheduled = true;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets number of updates waiting in queue.
+     *
+     * @return number of updates waiting in queue
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Gets number of updates being processed.
+     *
+     * @return number of updates being processed
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Gets number of processed updates.
+     *
+     * @return number of processed updates
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Gets number of dropped updates.
+     *
+     * @return number of dropped updates
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets number of rejected updates.
+     *
+     * @return number of rejected updates
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets number of updates, which are merged into another one.
+     *
+     * @return number of updates, which are merged into another one
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Stops accepting updates and waits for processing of accepted ones.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            LOG.warn("{} updates were not processed before shutdown", queueDepth.get());
+        }
+    }
+
+    /**
+     * Reserves place in queue for new update according to overflow policy.
+     *
+     * @param droppedCallbackQueryIdList list, which receives ids of callback queries of dropped update
+     * @return {@code true} if place is reserved, otherwise {@code false}
+     */
+    private boolean reserve(List<String> droppedCallbackQueryIdList) {
+        if (queueDepth.incrementAndGet() <= queueCapacity) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            queueDepth.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            LOG.warn("Update queue is full, update is rejected");
+            return false;
+        }
+        PendingUpdate oldest;
+        while ((oldest = arrivalQueue.poll()) != null) {
+            if (oldest.state.compareAndSet(State.WAITING, State.DROPPED)) {
+                queueDepth.decrementAndGet();
+                droppedCount.incrementAndGet();
+                LOG.warn("Update queue is full, update {} is dropped", oldest.update.updateId());
+                // Presses merged into dropped update are not merged into another one, so they are answered here too
+                synchronized (oldest) {
+                    droppedCallbackQueryIdList.addAll(oldest.callbackQueryIdList);
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes updates of lane one by one, until lane is empty.
+     *
+     * @param lane lane of updates
+     */
+    private void drain(Lane lane) {
+        activeCount.incrementAndGet();
+        try {
+            drainLane(lane);
+        } finally {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Processes updates of lane one by one, until lane is empty.
+     *
+     * @param lane lane of updates
+     */
+    private void drainLane(Lane lane) {
+        while (true) {
+            PendingUpdate pending;
+            synchronized (lane) {
+                pending = lane.pendingQueue.peek();
+                while (pending != null && !pending.state.compareAndSet(State.WAITING, State.PROCESSING)) {
+                    // Dropped by overflow policy
+                    lane.pendingQueue.poll();
+                    pending = lane.pendingQueue.peek();
+                }
+                if (pending == null) {
+                    lane.scheduled = false;
+                    lane.retired = true;
+                    laneMap.remove(lane.key, lane);
+                    return;
+                }
+            }
+            queueDepth.decrementAndGet();
+            arrivalQueue.remove(pending);
+            try {
+                botUpdates.process(pending.update);
+            } catch (Exception e) {
+                LOG.error("Update processing error", e);
+            } finally {
+                processedCount.incrementAndGet();
+            }
+            List<String> callbackQueryIdList;
+            synchronized (lane) {
+                lane.pendingQueue.poll();
+                pending.state.set(State.DONE);
+                callbackQueryIdList = pending.callbackQueryIdList;
+            }
+            answerCallbackQueries(callbackQueryIdList);
+        }
+    }
+
+    /**
+     * Answers callback queries, so Telegram stops showing progress on their buttons.
+     *
+     * @param callbackQueryIdList ids of callback queries
+     */
+    private void answerCallbackQueries(List<String> callbackQueryIdList) {
+        for (String callbackQueryId : callbackQueryIdList) {
+            try {
+                botUpdates.answerCallbackQuery(callbackQueryId);
+            } catch (Exception e) {
+                LOG.error("Callback query answering error", e);
+            }
+        }
+    }
+
+    /**
+     * Enumeration of states of pending update.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private static enum State {
+
+        WAITING,
+        PROCESSING,
+        DROPPED,
+        DONE;
+
+    }
+
+    /**
+     * Update, which is waiting or being processed.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private static class PendingUpdate {
+
+        /** Incoming update. */
+        private final Update update;
+        /** Callback query data or {@code null} for simple message. */
+        private final String callbackQueryData;
+        /** Ids of callback queries, which are answered with result of update. Merging is guarded by pending update itself. */
+        private final List<String> callbackQueryIdList = new ArrayList<>();
+        /** Current state. */
+        private final AtomicReference<State> state = new AtomicReference<>(State.WAITING);
+
+        /**
+         * Creates instance.
+         *
+         * @param update incoming update
+         */
+        private PendingUpdate(Update update) {
+            super();
+            this.update = update;
+            CallbackQuery callbackQuery = update.callbackQuery();
+            callbackQueryData = callbackQuery == null ? null : callbackQuery.data();
+            if (callbackQuery != null) {
+                callbackQueryIdList.add(callbackQuery.id());
+            }
+        }
+
+    }
+
+    /**
+     * Lane of updates with the same key. Access is guarded by lane itself.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private static class Lane {
+
+        /** Key of lane. */
+        private final String key;
+        /** Updates in order of arrival. Head is being processed, if lane is scheduled. */
+        private final Deque<PendingUpdate> pendingQueue = new ArrayDeque<>();
+        /** Is lane scheduled for processing. */
+        private boolean scheduled;
+        /** Is lane removed from map of lanes. */
+        private boolean retired;
+
+        /**
+         * Creates instance.
+         *
+         * @param key key of lane
+         */
+        private Lane(String key) {
+            super();
+            this.key = key;
+        }
+
+        /**
+         * Merges callback query into waiting or being processed update with the same data. Callback query without data, e.g. of
+         * game, is never merged.
+         *
+         * @param callbackQuery callback query
+         * @return {@code true} if callback query is merged, otherwise {@code false}
+         */
+        private boolean coalesce(CallbackQuery callbackQuery) {
+            if (callbackQuery.data() == null) {
+                return false;
+            }
+            Iterator<PendingUpdate> iterator = pendingQueue.descendingIterator();
+            while (iterator.hasNext()) {
+                PendingUpdate pending = iterator.next();
+                if (!callbackQuery.data().equals(pending.callbackQueryData)) {
+                    continue;
+                }
+                // State is checked again under lock of pending update, so press is not merged into update after it is dropped
+                synchronized (pending) {
+                    State state = pending.state.get();
+                    if (state == State.WAITING || state == State.PROCESSING) {
+                        pending.callbackQueryIdList.add(callbackQuery.id());
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import java.util.function.ToLongFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Binder of depth and counters of queue of Telegram updates to registry of meters. Values are read on scrape, so queue is not
+ * slowed down by metrics.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class UpdateQueueMetrics {
+
+    /** Name of counter of updates. */
+    private static final String UPDATES = "telegram.updates";
+
+    /**
+     * Binds depth and counters of queue of updates.
+     *
+     * @param meterRegistry registry of meters
+     * @param updateQueue queue of updates
+     */
+    public static void bind(MeterRegistry meterRegistry, TelegramUpdateQueue updateQueue) {
+        Gauge.builder("telegram.updates.queue.depth", updateQueue, queue -> queue.getQueueDepth())
+             .description("Telegram updates waiting in queue")
+             .register(meterRegistry);
+        Gauge.builder("telegram.updates.active", updateQueue, queue -> queue.getActiveCount())
+             .description("Lanes of Telegram updates being processed")
+             .register(meterRegistry);
+        bindUpdates(meterRegistry, "processed", updateQueue, TelegramUpdateQueue::getProcessedCount);
+        bindUpdates(meterRegistry, "dropped", updateQueue, TelegramUpdateQueue::getDroppedCount);
+        bindUpdates(meterRegistry, "rejected", updateQueue, TelegramUpdateQueue::getRejectedCount);
+        bindUpdates(meterRegistry, "coalesced", updateQueue, TelegramUpdateQueue::getCoalescedCount);
+    }
+
+    /**
+     * Binds counter of updates with outcome.
+     *
+     * @param meterRegistry registry of meters
+     * @param outcome outcome of update, e.g. "dropped"
+     * @param updateQueue queue of updates
+     * @param count function of count
+     */
+    private static void bindUpdates(MeterRegistry meterRegistry, String outcome, TelegramUpdateQueue updateQueue,
+            ToLongFunction<TelegramUpdateQueue> count) {
+        FunctionCounter.builder(UPDATES, updateQueue, queue -> count.applyAsLong(queue))
+                       .description("Incoming Telegram updates by outcome")
+                       .tags("outcome", outcome)
+                       .register(meterRegistry);
+    }
+
+}
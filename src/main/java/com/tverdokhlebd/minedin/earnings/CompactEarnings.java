@@ -0,0 +1,518 @@
+package com.tverdokhlebd.minedin.earnings;
+
+import static java.math.RoundingMode.DOWN;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Compact representation of calculated earnings for keeping many of them in memory. Every decimal is stored as unscaled
+ * {@code long} with its scale and types of coin are stored as ordinals, so earnings take one object with two small arrays instead
+ * of five objects with about twenty decimals.
+ *
+ * <p>
+ * Conversion is lossless: decimals keep their scale, unless unscaled value does not fit into {@code long}, then trailing zeros are
+ * stripped. Decimal, which does not fit even then, e.g. balance in wei precision, is kept as is and is calculated with decimals.
+ * Balance in USD is not stored, if it is product of wallet balance and price, as calculated by earnings worker.
+ * Conversions to USD and BTC use the same rounding as pages and messages, but are calculated with {@code long} arithmetic.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class CompactEarnings {
+
+    /**
+     * Enumeration of periods of reward.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    public static enum Period {
+
+        /** Hour. */
+        HOUR,
+        /** Day. */
+        DAY,
+        /** Week. */
+        WEEK,
+        /** Month. */
+        MONTH,
+        /** Year. */
+        YEAR;
+
+    }
+
+    /** Index of wallet balance. */
+    private static final int WALLET_BALANCE = 0;
+    /** Index of reported hashrate of account. */
+    private static final int ACCOUNT_HASHRATE = 1;
+    /** Index of block time. */
+    private static final int BLOCK_TIME = 2;
+    /** Index of block reward. */
+    private static final int BLOCK_REWARD = 3;
+    /** Index of block count. */
+    private static final int BLOCK_COUNT = 4;
+    /** Index of difficulty. */
+    private static final int DIFFICULTY = 5;
+    /** Index of network hashrate. */
+    private static final int NETWORK_HASHRATE = 6;
+    /** Index of price. */
+    private static final int PRICE = 7;
+    /** Index of reported hashrate of reward. */
+    private static final int REWARD_HASHRATE = 8;
+    /** Index of reward per hour, rewards of the next periods follow it. */
+    private static final int REWARD = 9;
+    /** Index of balance in USD, which is stored only if it is not product of wallet balance and price. */
+    private static final int USD_BALANCE = REWARD + Period.values().length;
+    /** Number of stored decimals. */
+    private static final int SIZE = USD_BALANCE + 1;
+    /** Scale, which means that there is no decimal. */
+    private static final byte NO_VALUE = Byte.MIN_VALUE;
+    /** Scale, which means that decimal does not fit into {@code long} and is kept as is. */
+    private static final byte OVERFLOW = Byte.MIN_VALUE + 1;
+    /** Ordinal, which means that there is no type of coin. */
+    private static final byte NO_COIN = -1;
+    /** Flag of presence of account. */
+    private static final byte ACCOUNT = 1;
+    /** Flag of presence of coin info. */
+    private static final byte COIN_INFO = 2;
+    /** Flag of presence of coin market. */
+    private static final byte COIN_MARKET = 4;
+    /** Flag of presence of coin reward. */
+    private static final byte COIN_REWARD = 8;
+    /** Flag of partial earnings. */
+    private static final byte PARTIAL = 16;
+    /** Flag of balance in USD, which is product of wallet balance and price. */
+    private static final byte DERIVED_USD_BALANCE = 32;
+    /** Powers of ten, which fit into {@code long}. */
+    private static final long[] POWERS_OF_TEN = new long[19];
+    /** Types of coins by ordinal. */
+    private static final CoinType[] COIN_TYPES = CoinType.values();
+    /** Unscaled values of decimals. */
+    private final long[] unscaledValues = new long[SIZE];
+    /** Scales of decimals. */
+    private final byte[] scales = new byte[SIZE];
+    /** Decimals, which do not fit into {@code long}, or {@code null} if all decimals fit. */
+    private BigDecimal[] overflowValues;
+    /** Wallet address. */
+    private final String walletAddress;
+    /** Ordinal of type of coin of coin info. */
+    private final byte coinInfoType;
+    /** Ordinal of type of coin of coin market. */
+    private final byte coinMarketType;
+    /** Ordinal of type of coin of coin reward. */
+    private final byte coinRewardType;
+    /** Flags of presence of parts and of partial earnings. */
+    private final byte flags;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Creates instance.
+     *
+     * @param earnings calculated earnings
+     */
+    public CompactEarnings(Earnings earnings) {
+        super();
+        Arrays.fill(scales, NO_VALUE);
+        Account account = earnings.getAccount();
+        CoinInfo coinInfo = earnings.getCoinInfo();
+        CoinMarket coinMarket = earnings.getCoinMarket();
+        CoinReward coinReward = earnings.getCoinReward();
+        byte flags = earnings.isPartial() ? PARTIAL : 0;
+        if (account != null) {
+            flags |= ACCOUNT;
+            set(WALLET_BALANCE, account.getWalletBalance());
+            set(ACCOUNT_HASHRATE, account.getReportedHashrate());
+        }
+        if (coinInfo != null) {
+            flags |= COIN_INFO;
+            set(BLOCK_TIME, coinInfo.getBlockTime());
+            set(BLOCK_REWARD, coinInfo.getBlockReward());
+            set(BLOCK_COUNT, coinInfo.getBlockCount());
+            set(DIFFICULTY, coinInfo.getDifficulty());
+            set(NETWORK_HASHRATE, coinInfo.getNetworkHashrate());
+        }
+        if (coinMarket != null) {
+            flags |= COIN_MARKET;
+            set(PRICE, coinMarket.getPrice());
+        }
+        if (coinReward != null) {
+            flags |= COIN_REWARD;
+            set(REWARD_HASHRATE, coinReward.getReportedHashrate());
+            set(REWARD + Period.HOUR.ordinal(), coinReward.getRewardPerHour());
+            set(REWARD + Period.DAY.ordinal(), coinReward.getRewardPerDay());
+            set(REWARD + Period.WEEK.ordinal(), coinReward.getRewardPerWeek());
+            set(REWARD + Period.MONTH.ordinal(), coinReward.getRewardPerMonth());
+            set(REWARD + Period.YEAR.ordinal(), coinReward.getRewardPerYear());
+        }
+        BigDecimal usdBalance = earnings.getUsdBalance();
+        if (usdBalance != null && usdBalance.equals(getDerivedUsdBalance())) {
+            flags |= DERIVED_USD_BALANCE;
+        } else {
+            set(USD_BALANCE, usdBalance);
+        }
+        this.walletAddress = account != null ? account.getWalletAddress() : null;
+        this.coinInfoType = coinInfo != null ? getOrdinal(coinInfo.getCoinType()) : NO_COIN;
+        this.coinMarketType = coinMarket != null ? getOrdinal(coinMarket.getCoin()) : NO_COIN;
+        this.coinRewardType = coinReward != null ? getOrdinal(coinReward.getCoinType()) : NO_COIN;
+        this.flags = flags;
+    }
+
+    /**
+     * Converts to earnings.
+     *
+     * @return earnings, which are equal to original ones
+     */
+    public Earnings toEarnings() {
+        Account account = null;
+        if (has(ACCOUNT)) {
+            account = new Account.Builder().setWalletAddress(walletAddress)
+                                           .setWalletBalance(get(WALLET_BALANCE))
+                                           .setReportedHashrate(get(ACCOUNT_HASHRATE))
+                                           .build();
+        }
+        CoinInfo coinInfo = null;
+        if (has(COIN_INFO)) {
+            coinInfo = new CoinInfo.Builder().setCoinType(getCoinType(coinInfoType))
+                                             .setBlockTime(get(BLOCK_TIME))
+                                             .setBlockReward(get(BLOCK_REWARD))
+                                             .setBlockCount(get(BLOCK_COUNT))
+                                             .setDifficulty(get(DIFFICULTY))
+                                             .setNetworkHashrate(get(NETWORK_HASHRATE))
+                                             .build();
+        }
+        CoinMarket coinMarket = null;
+        if (has(COIN_MARKET)) {
+            coinMarket = new CoinMarket.Builder().setCoin(getCoinType(coinMarketType)).setPrice(get(PRICE)).build();
+        }
+        CoinReward coinReward = null;
+        if (has(COIN_REWARD)) {
+            coinReward = new CoinReward(getCoinType(coinRewardType),
+                                        get(REWARD_HASHRATE),
+                                        getReward(Period.HOUR),
+                                        getReward(Period.DAY),
+                                        getReward(Period.WEEK),
+                                        getReward(Period.MONTH),
+                                        getReward(Period.YEAR));
+        }
+        return new Earnings(getUsdBalance(), account, coinInfo, coinMarket, coinReward, has(PARTIAL));
+    }
+
+    /**
+     * Gets wallet address.
+     *
+     * @return wallet address
+     */
+    public String getWalletAddress() {
+        return walletAddress;
+    }
+
+    /**
+     * Gets wallet balance.
+     *
+     * @return wallet balance
+     */
+    public BigDecimal getWalletBalance() {
+        return get(WALLET_BALANCE);
+    }
+
+    /**
+     * Gets price of coin in USD.
+     *
+     * @return price of coin in USD
+     */
+    public BigDecimal getPrice() {
+        return get(PRICE);
+    }
+
+    /**
+     * Gets balance in USD.
+     *
+     * @return balance in USD
+     */
+    public BigDecimal getUsdBalance() {
+        return has(DERIVED_USD_BALANCE) ? getDerivedUsdBalance() : get(USD_BALANCE);
+    }
+
+    /**
+     * Gets reward per period.
+     *
+     * @param period period of reward
+     * @return reward per period
+     */
+    public BigDecimal getReward(Period period) {
+        return get(REWARD + period.ordinal());
+    }
+
+    /**
+     * Checks whether any part of earnings is taken from last known data.
+     *
+     * @return {@code true} if earnings are partial
+     */
+    public boolean isPartial() {
+        return has(PARTIAL);
+    }
+
+    /**
+     * Gets wallet balance truncated to scale, e.g. for message about earnings.
+     *
+     * @param scale scale of result
+     * @return truncated wallet balance
+     */
+    public BigDecimal getWalletBalance(int scale) {
+        return get(WALLET_BALANCE, scale);
+    }
+
+    /**
+     * Gets price of coin in USD truncated to scale.
+     *
+     * @param scale scale of result
+     * @return truncated price
+     */
+    public BigDecimal getPrice(int scale) {
+        return get(PRICE, scale);
+    }
+
+    /**
+     * Gets reward per period truncated to scale.
+     *
+     * @param period period of reward
+     * @param scale scale of result
+     * @return truncated reward
+     */
+    public BigDecimal getReward(Period period, int scale) {
+        return get(REWARD + period.ordinal(), scale);
+    }
+
+    /**
+     * Gets balance in USD truncated to scale. It is equal to {@code getUsdBalance().setScale(scale, DOWN)}.
+     *
+     * @param scale scale of result
+     * @return truncated balance in USD
+     */
+    public BigDecimal getUsdBalance(int scale) {
+        if (!has(DERIVED_USD_BALANCE)) {
+            return get(USD_BALANCE, scale);
+        }
+        long walletBalance = unscaledValues[WALLET_BALANCE];
+        long price = unscaledValues[PRICE];
+        int productScale = scales[WALLET_BALANCE] + scales[PRICE];
+        if (scales[WALLET_BALANCE] == OVERFLOW || scales[PRICE] == OVERFLOW || !canMultiply(walletBalance, price)
+                || !canRescale(walletBalance * price, productScale, scale)) {
+            return getDerivedUsdBalance().setScale(scale, DOWN);
+        }
+        return BigDecimal.valueOf(rescale(walletBalance * price, productScale, scale), scale);
+    }
+
+    /**
+     * Gets reward per period in USD, as it is shown in message about earnings. It is equal to
+     * {@code getReward(period).setScale(rewardScale, DOWN).multiply(getPrice().setScale(priceScale, DOWN)).setScale(scale, DOWN)}.
+     *
+     * @param period period of reward
+     * @param rewardScale scale of truncated reward
+     * @param priceScale scale of truncated price
+     * @param scale scale of result
+     * @return truncated reward in USD or {@code null} if there is no reward or price
+     */
+    public BigDecimal getUsdReward(Period period, int rewardScale, int priceScale, int scale) {
+        int index = REWARD + period.ordinal();
+        if (scales[index] == NO_VALUE || scales[PRICE] == NO_VALUE) {
+            return null;
+        }
+        if (scales[index] != OVERFLOW && scales[PRICE] != OVERFLOW && canRescale(unscaledValues[index], scales[index], rewardScale)
+                && canRescale(unscaledValues[PRICE], scales[PRICE], priceScale)) {
+            long reward = rescale(unscaledValues[index], scales[index], rewardScale);
+            long price = rescale(unscaledValues[PRICE], scales[PRICE], priceScale);
+            if (canMultiply(reward, price) && canRescale(reward * price, rewardScale + priceScale, scale)) {
+                return BigDecimal.valueOf(rescale(reward * price, rewardScale + priceScale, scale), scale);
+            }
+        }
+        return get(index, rewardScale).multiply(get(PRICE, priceScale)).setScale(scale, DOWN);
+    }
+
+    /**
+     * Gets price of BTC in coins, as it is shown on earnings page. It is equal to {@code btcPrice.divide(getPrice(), DOWN)}.
+     *
+     * @param btcPrice price of BTC in USD
+     * @return price of BTC in coins with scale of price of BTC
+     * @throws ArithmeticException if price of coin is zero
+     */
+    public BigDecimal getCoinInBtc(BigDecimal btcPrice) {
+        int priceScale = scales[PRICE];
+        long price = unscaledValues[PRICE];
+        BigInteger btcPriceValue = btcPrice.unscaledValue();
+        if (btcPriceValue.bitLength() < 64 && priceScale >= 0 && priceScale < POWERS_OF_TEN.length) {
+            long unscaledBtcPrice = btcPriceValue.longValue();
+            if (price != 0 && canMultiply(unscaledBtcPrice, POWERS_OF_TEN[priceScale])) {
+                return BigDecimal.valueOf(unscaledBtcPrice * POWERS_OF_TEN[priceScale] / price, btcPrice.scale());
+            }
+        }
+        return btcPrice.divide(get(PRICE), DOWN);
+    }
+
+    /**
+     * Gets balance in USD as product of wallet balance and price.
+     *
+     * @return balance in USD or {@code null} if there is no wallet balance or price
+     */
+    private BigDecimal getDerivedUsdBalance() {
+        BigDecimal walletBalance = get(WALLET_BALANCE);
+        BigDecimal price = get(PRICE);
+        return walletBalance != null && price != null ? walletBalance.multiply(price) : null;
+    }
+
+    /**
+     * Stores decimal.
+     *
+     * @param index index of decimal
+     * @param value decimal or {@code null}
+     */
+    private void set(int index, BigDecimal value) {
+        if (value == null) {
+            scales[index] = NO_VALUE;
+            return;
+        }
+        int scale = value.scale();
+        if (value.precision() <= 18 && scale > OVERFLOW && scale <= Byte.MAX_VALUE) {
+            // Unscaled value of up to 18 digits fits into long, and it is taken without allocating BigInteger
+            unscaledValues[index] = value.scaleByPowerOfTen(scale).longValue();
+            scales[index] = (byte) scale;
+            return;
+        }
+        BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() > 63) {
+            value = value.stripTrailingZeros();
+            unscaledValue = value.unscaledValue();
+        }
+        if (unscaledValue.bitLength() > 63 || value.scale() <= OVERFLOW || value.scale() > Byte.MAX_VALUE) {
+            // E.g. balance in wei precision, which has more than 18 significant digits
+            if (overflowValues == null) {
+                overflowValues = new BigDecimal[SIZE];
+            }
+            overflowValues[index] = value;
+            scales[index] = OVERFLOW;
+            return;
+        }
+        unscaledValues[index] = unscaledValue.longValue();
+        scales[index] = (byte) value.scale();
+    }
+
+    /**
+     * Gets decimal.
+     *
+     * @param index index of decimal
+     * @return decimal or {@code null}
+     */
+    private BigDecimal get(int index) {
+        if (scales[index] == NO_VALUE) {
+            return null;
+        }
+        return scales[index] != OVERFLOW ? BigDecimal.valueOf(unscaledValues[index], scales[index]) : overflowValues[index];
+    }
+
+    /**
+     * Gets decimal truncated to scale.
+     *
+     * @param index index of decimal
+     * @param scale scale of result
+     * @return truncated decimal or {@code null}
+     */
+    private BigDecimal get(int index, int scale) {
+        if (scales[index] == NO_VALUE) {
+            return null;
+        }
+        if (scales[index] == OVERFLOW || !canRescale(unscaledValues[index], scales[index], scale)) {
+            return get(index).setScale(scale, DOWN);
+        }
+        return BigDecimal.valueOf(rescale(unscaledValues[index], scales[index], scale), scale);
+    }
+
+    /**
+     * Checks flag.
+     *
+     * @param flag flag
+     * @return {@code true} if flag is set
+     */
+    private boolean has(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Checks whether unscaled value with required scale fits into {@code long}.
+     *
+     * @param unscaledValue unscaled value
+     * @param scale scale of value
+     * @param targetScale required scale
+     * @return {@code true} if value can be rescaled
+     */
+    private static boolean canRescale(long unscaledValue, int scale, int targetScale) {
+        int difference = targetScale - scale;
+        return difference <= 0 || difference < POWERS_OF_TEN.length && canMultiply(unscaledValue, POWERS_OF_TEN[difference]);
+    }
+
+    /**
+     * Changes scale of unscaled value, truncating extra digits. Result must fit into {@code long}, see
+     * {@link #canRescale(long, int, int)}.
+     *
+     * @param unscaledValue unscaled value
+     * @param scale scale of value
+     * @param targetScale required scale
+     * @return unscaled value with required scale
+     */
+    private static long rescale(long unscaledValue, int scale, int targetScale) {
+        int difference = scale - targetScale;
+        if (difference >= 0) {
+            return difference < POWERS_OF_TEN.length ? unscaledValue / POWERS_OF_TEN[difference] : 0;
+        }
+        return unscaledValue * POWERS_OF_TEN[-difference];
+    }
+
+    /**
+     * Checks whether product of two values fits into {@code long}, without throwing exception on hot path.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return {@code true} if product fits into {@code long}
+     */
+    private static boolean canMultiply(long a, long b) {
+        if (((Math.abs(a) | Math.abs(b)) >>> 31) == 0) {
+            return true;
+        }
+        long product = a * b;
+        return a == 0 || (product / a == b && !(a == -1 && b == Long.MIN_VALUE));
+    }
+
+    /**
+     * Gets ordinal of type of coin.
+     *
+     * @param coinType type of coin or {@code null}
+     * @return ordinal
+     */
+    private static byte getOrdinal(CoinType coinType) {
+        return coinType != null ? (byte) coinType.ordinal() : NO_COIN;
+    }
+
+    /**
+     * Gets type of coin by ordinal.
+     *
+     * @param ordinal ordinal
+     * @return type of coin or {@code null}
+     */
+    private static CoinType getCoinType(byte ordinal) {
+        return ordinal != NO_COIN ? COIN_TYPES[ordinal] : null;
+    }
+
+}
@@ -25,6 +25,8 @@ public class Earnings {
     private final CoinMarket coinMarket;
     /** Coin reward. */
     private final CoinReward coinReward;
+    /** Is any part of earnings taken from last known data, because it is not received before deadline. */
+    private final boolean partial;
 
     /**
      * Creates instance.
@@ -36,12 +38,28 @@ public class Earnings {
      * @param coinReward coin reward
      */
     public Earnings(BigDecimal usdBalance, Account account, CoinInfo coinInfo, CoinMarket coinMarket, CoinReward coinReward) {
+        this(usdBalance, account, coinInfo, coinMarket, coinReward, false);
+    }
+
+    /**
+     * Creates instance.
+     *
+     * @param usdBalance balance in USD
+     * @param account account
+     * @param coinInfo coin info
+     * @param coinMarket coin market
+     * @param coinReward coin reward
+     * @param partial is any part of earnings taken from last known data
+     */
+    public Earnings(BigDecimal usdBalance, Account account, CoinInfo coinInfo, CoinMarket coinMarket, CoinReward coinReward,
+            boolean partial) {
         super();
         this.usdBalance = usdBalance;
         this.account = account;
         this.coinInfo = coinInfo;
         this.coinMarket = coinMarket;
         this.coinReward = coinReward;
+        this.partial = partial;
     }
 
     /**
@@ -89,4 +107,13 @@ public class Earnings {
         return coinReward;
     }
 
+    /**
+     * Checks whether any part of earnings is taken from last known data, because it is not received before deadline.
+     *
+     * @return {@code true} if earnings are partial
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
 }
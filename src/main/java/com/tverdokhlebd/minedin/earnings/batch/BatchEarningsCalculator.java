@@ -0,0 +1,281 @@
+package com.tverdokhlebd.minedin.earnings.batch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.earnings.batch.BatchResult.Status;
+import com.tverdokhlebd.minedin.earnings.worker.EarningsWorker;
+import com.tverdokhlebd.minedin.earnings.worker.EarningsWorkerFactory;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Calculator of earnings of many wallets. Items of batch are calculated concurrently, but not more than limit of one batch at the
+ * same time, and every result is passed to consumer as soon as it is ready. Items of the same coin are started together, so their
+ * requests of coin info, market and reward are collapsed into one by requestors.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class BatchEarningsCalculator {
+
+    /**
+     * Provider of earnings worker by pool type.
+     */
+    @FunctionalInterface
+    interface WorkerProvider {
+
+        /**
+         * Gets earnings worker.
+         *
+         * @param poolType pool type
+         * @return earnings worker
+         */
+        EarningsWorker get(PoolTypeDescription poolType);
+
+    }
+
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(BatchEarningsCalculator.class);
+    /** Provider of earnings workers. */
+    private final WorkerProvider workerProvider;
+    /** Maximum number of items of one batch, which are calculated at the same time. */
+    private final int concurrency;
+
+    /**
+     * Creates instance.
+     *
+     * @param earningsWorkerFactory factory for creating earnings worker
+     * @param deadline deadline budget of calculation of one item in milliseconds
+     * @param concurrency maximum number of items of one batch, which are calculated at the same time
+     */
+    @Autowired
+    public BatchEarningsCalculator(EarningsWorkerFactory earningsWorkerFactory, @Value("${earnings.deadline.batch:3000}") long deadline,
+            @Value("${earnings.batch.concurrency:8}") int concurrency) {
+        this(poolType -> earningsWorkerFactory.create(poolType,
+                                                      CoinInfoDescription.WHAT_TO_MINE,
+                                                      CoinMarketDescription.COIN_MARKET_CAP,
+                                                      CoinRewardDescription.WHAT_TO_MINE,
+                                                      deadline),
+             concurrency);
+    }
+
+    /**
+     * Creates instance.
+     *
+     * @param workerProvider provider of earnings workers
+     * @param concurrency maximum number of items of one batch, which are calculated at the same time
+     */
+    BatchEarningsCalculator(WorkerProvider workerProvider, int concurrency) {
+        super();
+        this.workerProvider = workerProvider;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Calculates earnings of batch. Failed items do not stop the batch, they are reported as results with error. Cancelling of
+     * returned future stops starting of the next items.
+     *
+     * @param itemList items of batch
+     * @param resultConsumer consumer of results, which is called from different threads, but not at the same time
+     * @return future of summary, which is completed after the last result
+     */
+    public CompletableFuture<BatchSummary> calculate(List<BatchItem> itemList, Consumer<BatchResult> resultConsumer) {
+        Batch batch = new Batch(itemList, resultConsumer);
+        if (itemList.isEmpty()) {
+            batch.summary.complete(new BatchSummary(0, 0, 0, 0));
+        }
+        for (int i = 0; i < Math.min(concurrency, itemList.size()); i++) {
+            batch.startNext();
+        }
+        return batch.summary;
+    }
+
+    /**
+     * State of one batch.
+     */
+    private class Batch {
+
+        /** Items of batch. */
+        private final List<BatchItem> itemList;
+        /** Indexes of items in order of starting. */
+        private final List<Integer> startOrder;
+        /** Consumer of results. */
+        private final Consumer<BatchResult> resultConsumer;
+        /** Earnings workers of pools of batch. */
+        private final Map<PoolTypeDescription, EarningsWorker> workerMap = new EnumMap<>(PoolTypeDescription.class);
+        /** Position of the next item in order of starting. */
+        private final AtomicInteger nextPosition = new AtomicInteger();
+        /** Number of completed items. */
+        private int completedCount;
+        /** Number of items calculated with fresh data. */
+        private int successCount;
+        /** Number of items calculated partially. */
+        private int partialCount;
+        /** Number of failed items. */
+        private int errorCount;
+        /** Future of summary. */
+        private final CompletableFuture<BatchSummary> summary = new CompletableFuture<>();
+
+        /**
+         * Creates instance.
+         *
+         * @param itemList items of batch
+         * @param resultConsumer consumer of results
+         */
+        Batch(List<BatchItem> itemList, Consumer<BatchResult> resultConsumer) {
+            super();
+            this.itemList = itemList;
+            this.resultConsumer = resultConsumer;
+            startOrder = new ArrayList<>(itemList.size());
+            for (int i = 0; i < itemList.size(); i++) {
+                startOrder.add(i);
+                PoolTypeDescription poolType = itemList.get(i).getPool();
+                if (poolType != null && !workerMap.containsKey(poolType)) {
+                    workerMap.put(poolType, workerProvider.get(poolType));
+                }
+            }
+            startOrder.sort(Comparator.comparing(index -> {
+                BatchItem item = itemList.get(index);
+                return item.getCoin() != null ? item.getCoin().ordinal() : -1;
+            }));
+        }
+
+        /**
+         * Starts the next items, until one of them runs asynchronously or there are no more items.
+         */
+        void startNext() {
+            int position;
+            while (!summary.isDone() && (position = nextPosition.getAndIncrement()) < startOrder.size()) {
+                int index = startOrder.get(position);
+                BatchItem item = itemList.get(index);
+                CompletableFuture<Earnings> earnings = calculateItem(item);
+                boolean async = !earnings.isDone();
+                earnings.whenComplete((result, exception) -> {
+                    complete(index, item, result, exception);
+                    if (async) {
+                        startNext();
+                    }
+                });
+                if (async) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Starts calculation of one item.
+         *
+         * @param item item of batch
+         * @return future of earnings
+         */
+        private CompletableFuture<Earnings> calculateItem(BatchItem item) {
+            CompletableFuture<Earnings> earnings = new CompletableFuture<>();
+            if (item.getCoin() == null || item.getPool() == null || item.getWallet() == null || item.getWallet().isEmpty()) {
+                earnings.completeExceptionally(new IllegalArgumentException("Coin, pool and wallet are required"));
+                return earnings;
+            }
+            if (!item.getPool().getPoolType().getCoinTypeList().contains(item.getCoin().getCoinType())) {
+                String message = item.getPool().getName() + " does not support " + item.getCoin().getName();
+                earnings.completeExceptionally(new IllegalArgumentException(message));
+                return earnings;
+            }
+            try {
+                return workerMap.get(item.getPool()).calculateAsync(item.getCoin(), item.getWallet());
+            } catch (RuntimeException e) {
+                earnings.completeExceptionally(e);
+                return earnings;
+            }
+        }
+
+        /**
+         * Completes item and passes its result to consumer.
+         *
+         * @param index index of item
+         * @param item item of batch
+         * @param earnings calculated earnings or {@code null} if there is an error
+         * @param exception error of calculation or {@code null} if there is no error
+         */
+        private synchronized void complete(int index, BatchItem item, Earnings earnings, Throwable exception) {
+            if (summary.isDone()) {
+                return;
+            }
+            BatchResult result;
+            if (exception == null) {
+                Status status = earnings.isPartial() ? Status.PARTIAL : Status.SUCCESS;
+                result = new BatchResult(index, item, status, earnings, null, null);
+            } else {
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                result = new BatchResult(index, item, Status.ERROR, null, getErrorSource(cause), cause.getMessage());
+            }
+            try {
+                resultConsumer.accept(result);
+            } catch (RuntimeException e) {
+                LOG.warn("Batch is stopped by consumer of results", e);
+                summary.completeExceptionally(e);
+                return;
+            }
+            switch (result.getStatus()) {
+            case SUCCESS:
+                successCount++;
+                break;
+            case PARTIAL:
+                partialCount++;
+                break;
+            default:
+                errorCount++;
+            }
+            if (++completedCount == itemList.size()) {
+                summary.complete(new BatchSummary(completedCount, successCount, partialCount, errorCount));
+            }
+        }
+
+    }
+
+    /**
+     * Gets source of error of calculation.
+     *
+     * @param cause error of calculation
+     * @return source of error
+     */
+    private static String getErrorSource(Throwable cause) {
+        if (cause instanceof AccountRequestorException) {
+            return "account";
+        }
+        if (cause instanceof CoinInfoRequestorException) {
+            return "coin_info";
+        }
+        if (cause instanceof CoinMarketRequestorException) {
+            return "coin_market";
+        }
+        if (cause instanceof CoinRewardRequestorException) {
+            return "coin_reward";
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return "request";
+        }
+        return "unexpected";
+    }
+
+}
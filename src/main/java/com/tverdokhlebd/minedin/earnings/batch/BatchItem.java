@@ -0,0 +1,96 @@
+package com.tverdokhlebd.minedin.earnings.batch;
+
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+
+/**
+ * Item of batch calculation of earnings.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class BatchItem {
+
+    /** Coin type. */
+    private CoinTypeDescription coin;
+    /** Pool type. */
+    private PoolTypeDescription pool;
+    /** Wallet address. */
+    private String wallet;
+
+    /**
+     * Creates instance.
+     */
+    public BatchItem() {
+        super();
+    }
+
+    /**
+     * Creates instance.
+     *
+     * @param coin coin type
+     * @param pool pool type
+     * @param wallet wallet address
+     */
+    public BatchItem(CoinTypeDescription coin, PoolTypeDescription pool, String wallet) {
+        super();
+        this.coin = coin;
+        this.pool = pool;
+        this.wallet = wallet;
+    }
+
+    /**
+     * Gets coin type.
+     *
+     * @return coin type
+     */
+    public CoinTypeDescription getCoin() {
+        return coin;
+    }
+
+    /**
+     * Sets coin type.
+     *
+     * @param coin coin type
+     */
+    public void setCoin(CoinTypeDescription coin) {
+        this.coin = coin;
+    }
+
+    /**
+     * Gets pool type.
+     *
+     * @return pool type
+     */
+    public PoolTypeDescription getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets pool type.
+     *
+     * @param pool pool type
+     */
+    public void setPool(PoolTypeDescription pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets wallet address.
+     *
+     * @return wallet address
+     */
+    public String getWallet() {
+        return wallet;
+    }
+
+    /**
+     * Sets wallet address.
+     *
+     * @param wallet wallet address
+     */
+    public void setWallet(String wallet) {
+        this.wallet = wallet;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.tverdokhlebd.minedin.earnings.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+
+/**
+ * Result of one item of batch calculation of earnings. Either earnings or error is set.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    /**
+     * Status of calculation.
+     */
+    public enum Status {
+        SUCCESS, PARTIAL, ERROR
+    }
+
+    /** Index of item in batch. */
+    private final int index;
+    /** Coin type. */
+    private final CoinTypeDescription coin;
+    /** Pool type. */
+    private final PoolTypeDescription pool;
+    /** Wallet address. */
+    private final String wallet;
+    /** Status of calculation. */
+    private final Status status;
+    /** Calculated earnings or {@code null} if there is an error. */
+    private final Earnings earnings;
+    /** Source of error, e.g. "account", or {@code null} if there is no error. */
+    private final String errorSource;
+    /** Error message or {@code null} if there is no error. */
+    private final String errorMessage;
+
+    /**
+     * Creates instance.
+     *
+     * @param index index of item in batch
+     * @param item item of batch
+     * @param status status of calculation
+     * @param earnings calculated earnings or {@code null} if there is an error
+     * @param errorSource source of error, e.g. "account", or {@code null} if there is no error
+     * @param errorMessage error message or {@code null} if there is no error
+     */
+    public BatchResult(int index, BatchItem item, Status status, Earnings earnings, String errorSource, String errorMessage) {
+        super();
+        this.index = index;
+        this.coin = item.getCoin();
+        this.pool = item.getPool();
+        this.wallet = item.getWallet();
+        this.status = status;
+        this.earnings = earnings;
+        this.errorSource = errorSource;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Gets index of item in batch.
+     *
+     * @return index of item in batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets coin type.
+     *
+     * @return coin type
+     */
+    public CoinTypeDescription getCoin() {
+        return coin;
+    }
+
+    /**
+     * Gets pool type.
+     *
+     * @return pool type
+     */
+    public PoolTypeDescription getPool() {
+        return pool;
+    }
+
+    /**
+     * Gets wallet address.
+     *
+     * @return wallet address
+     */
+    public String getWallet() {
+        return wallet;
+    }
+
+    /**
+     * Gets status of calculation.
+     *
+     * @return status of calculation
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets calculated earnings.
+     *
+     * @return calculated earnings or {@code null} if there is an error
+     */
+    public Earnings getEarnings() {
+        return earnings;
+    }
+
+    /**
+     * Gets source of error.
+     *
+     * @return source of error, e.g. "account", or {@code null} if there is no error
+     */
+    public String getErrorSource() {
+        return errorSource;
+    }
+
+    /**
+     * Gets error message.
+     *
+     * @return error message or {@code null} if there is no error
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.tverdokhlebd.minedin.earnings.batch;
+
+/**
+ * Summary of batch calculation of earnings.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class BatchSummary {
+
+    /** Number of items. */
+    private final int total;
+    /** Number of items calculated with fresh data. */
+    private final int success;
+    /** Number of items calculated partially with last known data. */
+    private final int partial;
+    /** Number of failed items. */
+    private final int error;
+
+    /**
+     * Creates instance.
+     *
+     * @param total number of items
+     * @param success number of items calculated with fresh data
+     * @param partial number of items calculated partially with last known data
+     * @param error number of failed items
+     */
+    public BatchSummary(int total, int success, int partial, int error) {
+        super();
+        this.total = total;
+        this.success = success;
+        this.partial = partial;
+        this.error = error;
+    }
+
+    /**
+     * Gets number of items.
+     *
+     * @return number of items
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets number of items calculated with fresh data.
+     *
+     * @return number of items calculated with fresh data
+     */
+    public int getSuccess() {
+        return success;
+    }
+
+    /**
+     * Gets number of items calculated partially with last known data.
+     *
+     * @return number of items calculated partially with last known data
+     */
+    public int getPartial() {
+        return partial;
+    }
+
+    /**
+     * Gets number of failed items.
+     *
+     * @return number of failed items
+     */
+    public int getError() {
+        return error;
+    }
+
+}
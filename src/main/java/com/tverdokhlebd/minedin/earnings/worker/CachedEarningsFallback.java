@@ -0,0 +1,86 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.math.BigDecimal;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Source of last known data, which takes snapshots of refreshing caches regardless of their staleness and accounts of account
+ * cache.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class CachedEarningsFallback implements EarningsFallback {
+
+    /** Cache of accounts or {@code null} if caching is disabled. */
+    private final AccountCache accountCache;
+    /** Refreshing cache of coin info or {@code null} if refreshing is disabled. */
+    private final RefreshingCache<CoinType, CoinInfo> coinInfoCache;
+    /** Refreshing cache of coin market or {@code null} if refreshing is disabled. */
+    private final RefreshingCache<CoinType, CoinMarket> coinMarketCache;
+    /** Refreshing cache of reward calculator or {@code null} if refreshing is disabled. */
+    private final RefreshingCache<CoinType, CoinRewardCalculator> coinRewardCache;
+
+    /**
+     * Creates instance.
+     *
+     * @param accountCache cache of accounts or {@code null} if caching is disabled
+     * @param coinInfoCache refreshing cache of coin info or {@code null} if refreshing is disabled
+     * @param coinMarketCache refreshing cache of coin market or {@code null} if refreshing is disabled
+     * @param coinRewardCache refreshing cache of reward calculator or {@code null} if refreshing is disabled
+     */
+    CachedEarningsFallback(AccountCache accountCache, RefreshingCache<CoinType, CoinInfo> coinInfoCache,
+            RefreshingCache<CoinType, CoinMarket> coinMarketCache, RefreshingCache<CoinType, CoinRewardCalculator> coinRewardCache) {
+        super();
+        this.accountCache = accountCache;
+        this.coinInfoCache = coinInfoCache;
+        this.coinMarketCache = coinMarketCache;
+        this.coinRewardCache = coinRewardCache;
+    }
+
+    @Override
+    public Account getAccount(CoinType coinType, String walletAddress) {
+        return accountCache != null ? accountCache.peekAccount(coinType, walletAddress) : null;
+    }
+
+    @Override
+    public CoinInfo getCoinInfo(CoinType coinType) {
+        return getValue(coinInfoCache, coinType);
+    }
+
+    @Override
+    public CoinMarket getCoinMarket(CoinType coinType) {
+        return getValue(coinMarketCache, coinType);
+    }
+
+    @Override
+    public CoinReward getCoinReward(CoinType coinType, BigDecimal hashrate) {
+        CoinRewardCalculator calculator = getValue(coinRewardCache, coinType);
+        return calculator != null ? calculator.calculateRewards(hashrate) : null;
+    }
+
+    /**
+     * Gets last known value of refreshing cache.
+     *
+     * @param cache refreshing cache or {@code null} if refreshing is disabled
+     * @param coinType type of coin
+     * @return last known value or {@code null} if there is no one
+     */
+    private static <V> V getValue(RefreshingCache<CoinType, V> cache, CoinType coinType) {
+        if (cache == null) {
+            return null;
+        }
+        Snapshot<V> snapshot = cache.getSnapshot(coinType);
+        return snapshot != null ? snapshot.getValue() : null;
+    }
+
+}
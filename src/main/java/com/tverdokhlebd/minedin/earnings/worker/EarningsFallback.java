@@ -0,0 +1,53 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.math.BigDecimal;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Source of last known data, which is used instead of data not received before deadline of calculation.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+interface EarningsFallback {
+
+    /**
+     * Gets cached account.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return cached account or {@code null} if there is no one
+     */
+    Account getAccount(CoinType coinType, String walletAddress);
+
+    /**
+     * Gets last known coin info.
+     *
+     * @param coinType type of coin
+     * @return last known coin info or {@code null} if there is no one
+     */
+    CoinInfo getCoinInfo(CoinType coinType);
+
+    /**
+     * Gets last known coin market.
+     *
+     * @param coinType type of coin
+     * @return last known coin market or {@code null} if there is no one
+     */
+    CoinMarket getCoinMarket(CoinType coinType);
+
+    /**
+     * Calculates coin reward with last known reward calculator.
+     *
+     * @param coinType type of coin
+     * @param hashrate reported hashrate
+     * @return coin reward or {@code null} if there is no last known calculator
+     */
+    CoinReward getCoinReward(CoinType coinType, BigDecimal hashrate);
+
+}
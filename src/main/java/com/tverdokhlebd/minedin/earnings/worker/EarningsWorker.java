@@ -1,5 +1,7 @@
 package com.tverdokhlebd.minedin.earnings.worker;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
 import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
 import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
@@ -29,4 +31,15 @@ public interface EarningsWorker {
     Earnings calculate(CoinTypeDescription coinType, String walletAddress)
             throws AccountRequestorException, CoinInfoRequestorException, CoinMarketRequestorException, CoinRewardRequestorException;
 
+    /**
+     * Calculates earnings asynchronously. Independent requests are executed concurrently. If there is any error in requesting, the
+     * future completes exceptionally with {@link AccountRequestorException}, {@link CoinInfoRequestorException},
+     * {@link CoinMarketRequestorException} or {@link CoinRewardRequestorException} as the cause.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return future of calculated earnings
+     */
+    CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coinType, String walletAddress);
+
 }
@@ -1,28 +1,129 @@
 package com.tverdokhlebd.minedin.earnings.worker;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
-import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorFactory;
 import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
-import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorFactory;
 import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
-import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorFactory;
 import com.tverdokhlebd.minedin.description.CoinInfoDescription;
 import com.tverdokhlebd.minedin.description.CoinMarketDescription;
 import com.tverdokhlebd.minedin.description.CoinRewardDescription;
 import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.history.HistoryStore;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil.ExecutionMode;
+import com.tverdokhlebd.mining.pool.Account;
 import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
-import com.tverdokhlebd.mining.pool.requestor.AccountRequestorFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
- * Factory for creating earnings worker.
+ * Factory for creating earnings worker. Workers share executor of requests, scheduler of deadlines and trackers of latency of
+ * pools, which define delay of hedged account requests. In virtual execution mode every request runs on its own virtual thread,
+ * so concurrency of requests to upstreams is limited only by their bulkheads.
  *
  * @author Dmitry Tverdokhleb
  *
  */
+@Component
 public class EarningsWorkerFactory {
 
+    /** Registry of requestors. */
+    private final RequestorRegistry requestorRegistry;
+    /** Executor of requests, shared by all workers: bounded pool of platform threads or executor of virtual threads. */
+    private final ExecutorService executor;
+    /** Registry of meters. */
+    private final MeterRegistry meterRegistry;
+    /** Store of history of wallets. */
+    private final HistoryStore historyStore;
+    /** Small executor of hedged requests, which rejects them when it is busy. */
+    private final ThreadPoolTaskExecutor hedgeExecutor;
+    /** Scheduler of deadlines and hedged requests. */
+    private final ScheduledThreadPoolExecutor scheduler;
+    /** Trackers of latency of account requests by pool type. */
+    private final Map<PoolTypeDescription, LatencyTracker> accountLatencyMap = new EnumMap<>(PoolTypeDescription.class);
+    /** Accounts recorded to history, compared by identity and released together with cached accounts. */
+    private final Set<Account> recordedAccountSet =
+            Collections.newSetFromMap(Caffeine.newBuilder().weakKeys().<Account, Boolean> build().asMap());
+
+    /**
+     * Creates instance.
+     *
+     * @param requestorRegistry registry of requestors
+     * @param meterRegistry registry of meters
+     * @param historyStore store of history of wallets
+     * @param threads number of threads for executing requests
+     * @param queueCapacity capacity of queue of waiting requests
+     * @param hedgePercentile percentile of recent latency of pool, after which account request is hedged, or 0 to disable hedging
+     * @param hedgeThreads number of threads for executing hedged requests
+     * @param executionMode mode of executing requests
+     */
+    public EarningsWorkerFactory(RequestorRegistry requestorRegistry, MeterRegistry meterRegistry, HistoryStore historyStore,
+            @Value("${earnings.worker.threads:16}") int threads, @Value("${earnings.worker.queue-capacity:256}") int queueCapacity,
+            @Value("${earnings.hedge.percentile:0.95}") double hedgePercentile, @Value("${earnings.hedge.threads:4}") int hedgeThreads,
+            @Value("${execution.mode:PLATFORM}") ExecutionMode executionMode) {
+        super();
+        this.requestorRegistry = requestorRegistry;
+        this.meterRegistry = meterRegistry;
+        this.historyStore = historyStore;
+        ExecutorService virtualExecutor = VirtualThreadUtil.newExecutor(executionMode, "earnings-worker-");
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+        } else {
+            ThreadPoolTaskExecutor platformExecutor = new ThreadPoolTaskExecutor();
+            platformExecutor.setCorePoolSize(threads);
+            platformExecutor.setMaxPoolSize(threads);
+            platformExecutor.setQueueCapacity(queueCapacity);
+            platformExecutor.setThreadNamePrefix("earnings-worker-");
+            platformExecutor.setDaemon(true);
+            // When the queue is full, the caller executes request itself instead of failing
+            platformExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            platformExecutor.initialize();
+            executor = platformExecutor.getThreadPoolExecutor();
+        }
+        hedgeExecutor = new ThreadPoolTaskExecutor();
+        hedgeExecutor.setCorePoolSize(hedgeThreads);
+        hedgeExecutor.setMaxPoolSize(hedgeThreads);
+        // Hedged request is only an extra chance, so it is rejected instead of waiting in queue
+        hedgeExecutor.setQueueCapacity(0);
+        hedgeExecutor.setThreadNamePrefix("earnings-hedge-");
+        hedgeExecutor.setDaemon(true);
+        hedgeExecutor.initialize();
+        // Scheduler only completes futures and starts hedged requests, so one thread is enough
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("earnings-deadline-");
+        threadFactory.setDaemon(true);
+        scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.setRemoveOnCancelPolicy(true);
+        for (PoolTypeDescription poolType : PoolTypeDescription.values()) {
+            LatencyTracker accountLatency = new LatencyTracker(hedgePercentile);
+            accountLatencyMap.put(poolType, accountLatency);
+            // Only answered requests to pool define hedge delay, cache hits and rejections by guard would lower it to zero
+            requestorRegistry.getAccountMeter(poolType).setLatencyListener(accountLatency::record);
+            FunctionCounter.builder("earnings.account.hedges", accountLatency, tracker -> tracker.getHedgeCount())
+                           .description("Hedged account requests")
+                           .tags("pool", poolType.name())
+                           .register(meterRegistry);
+        }
+    }
+
     /**
-     * Creates earnings worker.
+     * Creates earnings worker without deadline.
      *
      * @param poolType pool type
      * @param coinInfo coin info
@@ -30,13 +131,52 @@ public class EarningsWorkerFactory {
      * @param coinReward coin reward
      * @return earnings worker
      */
-    public static EarningsWorker create(PoolTypeDescription poolType, CoinInfoDescription coinInfo, CoinMarketDescription coinMarket,
+    public EarningsWorker create(PoolTypeDescription poolType, CoinInfoDescription coinInfo, CoinMarketDescription coinMarket,
             CoinRewardDescription coinReward) {
-        AccountRequestor accountRequestor = AccountRequestorFactory.create(poolType.getPoolType());
-        CoinInfoRequestor coinInfoRequestor = CoinInfoRequestorFactory.create(coinInfo.getCoinInfoType());
-        CoinMarketRequestor coinMarketRequestor = CoinMarketRequestorFactory.create(coinMarket.getCoinMarketType());
-        CoinRewardRequestor coinRewardRequestor = CoinRewardRequestorFactory.create(coinReward.getCoinRewardType());
-        return new MinedInWorker(accountRequestor, coinInfoRequestor, coinMarketRequestor, coinRewardRequestor);
+        return create(poolType, coinInfo, coinMarket, coinReward, 0);
+    }
+
+    /**
+     * Creates earnings worker with deadline. When the budget runs out, earnings are calculated with last known data.
+     *
+     * @param poolType pool type
+     * @param coinInfo coin info
+     * @param coinMarket coin market
+     * @param coinReward coin reward
+     * @param budget deadline budget of calculation in milliseconds or 0 if there is no deadline
+     * @return earnings worker
+     */
+    public EarningsWorker create(PoolTypeDescription poolType, CoinInfoDescription coinInfo, CoinMarketDescription coinMarket,
+            CoinRewardDescription coinReward, long budget) {
+        AccountRequestor accountRequestor = requestorRegistry.getAccountRequestor(poolType);
+        CoinInfoRequestor coinInfoRequestor = requestorRegistry.getCoinInfoRequestor(coinInfo);
+        CoinMarketRequestor coinMarketRequestor = requestorRegistry.getCoinMarketRequestor(coinMarket);
+        CoinRewardRequestor coinRewardRequestor = requestorRegistry.getCoinRewardRequestor(coinReward);
+        EarningsFallback fallback = new CachedEarningsFallback(requestorRegistry.getAccountCache(poolType),
+                                                               requestorRegistry.getCoinInfoCache(coinInfo),
+                                                               requestorRegistry.getCoinMarketCache(coinMarket),
+                                                               requestorRegistry.getCoinRewardCache(coinReward));
+        EarningsWorker worker = new MinedInWorker(accountRequestor,
+                                                  coinInfoRequestor,
+                                                  coinMarketRequestor,
+                                                  coinRewardRequestor,
+                                                  executor,
+                                                  scheduler,
+                                                  hedgeExecutor,
+                                                  accountLatencyMap.get(poolType),
+                                                  fallback,
+                                                  budget);
+        return new TimedEarningsWorker(new RecordingEarningsWorker(worker, historyStore, poolType, recordedAccountSet), meterRegistry, poolType);
+    }
+
+    /**
+     * Shuts down executors of requests and scheduler of deadlines.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        hedgeExecutor.shutdown();
+        scheduler.shutdown();
     }
 
 }
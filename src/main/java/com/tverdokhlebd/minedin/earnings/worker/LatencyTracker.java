@@ -0,0 +1,86 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracker of recent latency of requests to one upstream. It keeps window of the last latencies and periodically recalculates
+ * their percentile, after which duplicate request is hedged.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class LatencyTracker {
+
+    /** Number of the last latencies. */
+    private static final int WINDOW = 256;
+    /** Number of latencies, after which hedge delay is recalculated. */
+    private static final int RECALCULATION_INTERVAL = 32;
+    /** Percentile of latency, e.g. 0.95, or 0 if hedging is disabled. */
+    private final double percentile;
+    /** Window of the last latencies in nanoseconds. */
+    private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+    /** Number of recorded latencies. */
+    private final AtomicLong sampleCount = new AtomicLong();
+    /** Hedge delay in nanoseconds or -1 if there are not enough latencies. */
+    private volatile long hedgeDelay = -1;
+    /** Number of hedged requests. */
+    private final LongAdder hedgeCount = new LongAdder();
+
+    /**
+     * Creates instance.
+     *
+     * @param percentile percentile of latency, e.g. 0.95, or 0 if hedging is disabled
+     */
+    LatencyTracker(double percentile) {
+        super();
+        this.percentile = percentile;
+    }
+
+    /**
+     * Records latency of completed request.
+     *
+     * @param latency latency in nanoseconds
+     */
+    void record(long latency) {
+        long count = sampleCount.incrementAndGet();
+        latencies.set((int) ((count - 1) % WINDOW), latency);
+        if (percentile > 0 && count % RECALCULATION_INTERVAL == 0) {
+            int size = (int) Math.min(count, WINDOW);
+            long[] sortedLatencies = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedLatencies[i] = latencies.get(i);
+            }
+            Arrays.sort(sortedLatencies);
+            hedgeDelay = sortedLatencies[Math.max(0, (int) Math.ceil(percentile * size) - 1)];
+        }
+    }
+
+    /**
+     * Gets delay, after which duplicate request is hedged.
+     *
+     * @return hedge delay in nanoseconds or -1 if hedging is disabled or there are not enough latencies
+     */
+    long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * Counts hedged request.
+     */
+    void onHedge() {
+        hedgeCount.increment();
+    }
+
+    /**
+     * Gets number of hedged requests.
+     *
+     * @return number of hedged requests
+     */
+    long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+}
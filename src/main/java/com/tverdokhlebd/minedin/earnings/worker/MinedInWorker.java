@@ -1,6 +1,15 @@
 package com.tverdokhlebd.minedin.earnings.worker;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import com.tverdokhlebd.coin.info.CoinInfo;
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
@@ -13,13 +22,21 @@ import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
 import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
 import com.tverdokhlebd.minedin.description.CoinTypeDescription;
 import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.http.RequestDeadline;
+import com.tverdokhlebd.minedin.trace.Trace;
+import com.tverdokhlebd.minedin.trace.TraceStage;
+import com.tverdokhlebd.minedin.trace.Tracer;
 import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
 import com.tverdokhlebd.mining.pool.Account;
 import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
 import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
 
 /**
- * Worker for calculating earnings.
+ * Worker for calculating earnings. Calculation can have deadline budget. When the budget runs out, data, which is not received
+ * yet, is taken from last known data and earnings are marked as partial. If there is no last known data, calculation fails. HTTP
+ * requests are bounded by the budget too, so they do not hold threads after deadline. If account request runs longer than recent
+ * percentile of latency of the pool, duplicate request is hedged and the first answer is used.
  *
  * @author Dmitry Tverdokhleb
  *
@@ -34,6 +51,18 @@ class MinedInWorker implements EarningsWorker {
     private final CoinMarketRequestor coinMarketRequestor;
     /** Coin reward requestor. */
     private final CoinRewardRequestor coinRewardRequestor;
+    /** Executor of requests. */
+    private final Executor executor;
+    /** Scheduler of deadlines and hedged requests or {@code null} if they are disabled. */
+    private final ScheduledExecutorService scheduler;
+    /** Executor of hedged requests, which rejects them when it is busy, or {@code null} if hedging is disabled. */
+    private final Executor hedgeExecutor;
+    /** Tracker of latency of account requests or {@code null} if hedging is disabled. */
+    private final LatencyTracker accountLatency;
+    /** Source of last known data or {@code null} if there is no one. */
+    private final EarningsFallback fallback;
+    /** Deadline budget of calculation in milliseconds or 0 if there is no deadline. */
+    private final long budget;
 
     /**
      * Creates instance.
@@ -42,26 +71,390 @@ class MinedInWorker implements EarningsWorker {
      * @param coinInfoRequestor coin info requestor
      * @param coinMarketRequestor coin market requestor
      * @param coinRewardRequestor coin reward requestor
+     * @param executor executor of requests
      */
     public MinedInWorker(AccountRequestor accountRequestor, CoinInfoRequestor coinInfoRequestor, CoinMarketRequestor coinMarketRequestor,
-            CoinRewardRequestor coinRewardRequestor) {
+            CoinRewardRequestor coinRewardRequestor, Executor executor) {
+        this(accountRequestor, coinInfoRequestor, coinMarketRequestor, coinRewardRequestor, executor, null, null, null, null, 0);
+    }
+
+    /**
+     * Creates instance.
+     *
+     * @param accountRequestor account requestor
+     * @param coinInfoRequestor coin info requestor
+     * @param coinMarketRequestor coin market requestor
+     * @param coinRewardRequestor coin reward requestor
+     * @param executor executor of requests
+     * @param scheduler scheduler of deadlines and hedged requests or {@code null} if they are disabled
+     * @param hedgeExecutor executor of hedged requests, which rejects them when it is busy, or {@code null} if hedging is disabled
+     * @param accountLatency tracker of latency of account requests or {@code null} if hedging is disabled
+     * @param fallback source of last known data or {@code null} if there is no one
+     * @param budget deadline budget of calculation in milliseconds or 0 if there is no deadline
+     */
+    public MinedInWorker(AccountRequestor accountRequestor, CoinInfoRequestor coinInfoRequestor, CoinMarketRequestor coinMarketRequestor,
+            CoinRewardRequestor coinRewardRequestor, Executor executor, ScheduledExecutorService scheduler, Executor hedgeExecutor,
+            LatencyTracker accountLatency, EarningsFallback fallback, long budget) {
         super();
         this.accountRequestor = accountRequestor;
         this.coinInfoRequestor = coinInfoRequestor;
         this.coinMarketRequestor = coinMarketRequestor;
         this.coinRewardRequestor = coinRewardRequestor;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.hedgeExecutor = hedgeExecutor;
+        this.accountLatency = accountLatency;
+        this.fallback = fallback;
+        this.budget = budget;
     }
 
     @Override
     public Earnings calculate(CoinTypeDescription coin, String walletAddress)
             throws AccountRequestorException, CoinInfoRequestorException, CoinMarketRequestorException, CoinRewardRequestorException {
+        try {
+            return calculateAsync(coin, walletAddress).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AccountRequestorException) {
+                throw (AccountRequestorException) cause;
+            }
+            if (cause instanceof CoinInfoRequestorException) {
+                throw (CoinInfoRequestorException) cause;
+            }
+            if (cause instanceof CoinMarketRequestorException) {
+                throw (CoinMarketRequestorException) cause;
+            }
+            if (cause instanceof CoinRewardRequestorException) {
+                throw (CoinRewardRequestorException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coin, String walletAddress) {
         CoinType coinType = coin.getCoinType();
-        Account account = accountRequestor.requestAccount(coinType, walletAddress);
-        CoinInfo coinInfo = coinInfoRequestor.requestCoinInfo(coinType);
-        CoinMarket coinMarket = coinMarketRequestor.requestCoinMarket(coinType);
-        CoinReward coinReward = coinRewardRequestor.requestCoinReward(coinType, account.getReportedHashrate());
-        BigDecimal usdBalance = account.getWalletBalance().multiply(coinMarket.getPrice());
-        return new Earnings(usdBalance, account, coinInfo, coinMarket, coinReward);
+        // Requests are executed on other threads, so trace of caller is captured here
+        Trace trace = Tracer.current();
+        long deadlineTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+        // Only coin reward depends on account, so other requests are started at the same time
+        CompletableFuture<Account> account = requestAccountHedged(coinType, walletAddress, deadlineTime, trace);
+        CompletableFuture<CoinInfo> coinInfo = CompletableFuture.supplyAsync(() -> {
+            return withDeadline(deadlineTime, () -> requestCoinInfo(coinType, trace));
+        }, executor);
+        CompletableFuture<CoinMarket> coinMarket = CompletableFuture.supplyAsync(() -> {
+            return withDeadline(deadlineTime, () -> requestCoinMarket(coinType, trace));
+        }, executor);
+        CompletableFuture<CoinReward> coinReward = account.thenApplyAsync(result -> {
+            return withDeadline(deadlineTime, () -> requestCoinReward(coinType, result.getReportedHashrate(), trace));
+        }, executor);
+        CompletableFuture<Earnings> earnings = CompletableFuture.allOf(coinInfo, coinMarket, coinReward).handle((result, exception) -> {
+            return combine(coinType, account.join(), coinInfo, coinMarket, coinReward, false);
+        });
+        if (budget <= 0 || scheduler == null) {
+            return earnings;
+        }
+        ScheduledFuture<?> deadline = scheduler.schedule(() -> {
+            if (earnings.isDone()) {
+                return;
+            }
+            try {
+                earnings.complete(combine(coinType, getAccount(coinType, walletAddress, account), coinInfo, coinMarket, coinReward, true));
+            } catch (CompletionException e) {
+                earnings.completeExceptionally(e.getCause());
+            }
+        }, budget, TimeUnit.MILLISECONDS);
+        earnings.whenComplete((result, exception) -> deadline.cancel(false));
+        return earnings;
+    }
+
+    /**
+     * Calls supplier, which makes HTTP requests, with deadline, if there is deadline budget.
+     *
+     * @param deadlineTime deadline in nanoseconds of {@link System#nanoTime()}
+     * @param supplier supplier, which makes HTTP requests
+     * @return result of supplier
+     */
+    private <T> T withDeadline(long deadlineTime, Supplier<T> supplier) {
+        return budget > 0 ? RequestDeadline.call(deadlineTime, supplier) : supplier.get();
+    }
+
+    /**
+     * Gets account after deadline. Account, which is not received yet, is taken from cache.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @param account future of account
+     * @return account
+     * @throws CompletionException if there is any error in account requesting or account is not received and not cached
+     */
+    private Account getAccount(CoinType coinType, String walletAddress, CompletableFuture<Account> account) {
+        if (account.isDone()) {
+            return account.join();
+        }
+        Account cachedAccount = fallback != null ? fallback.getAccount(coinType, walletAddress) : null;
+        if (cachedAccount == null) {
+            throw new CompletionException(new AccountRequestorException(ErrorCode.HTTP_ERROR, notReceivedMessage("Account")));
+        }
+        return cachedAccount;
+    }
+
+    /**
+     * Combines results of requests into earnings. Errors are reported in the same order as in sequential requesting.
+     *
+     * @param coinType type of coin
+     * @param accountResult account
+     * @param coinInfo future of coin info
+     * @param coinMarket future of coin market
+     * @param coinReward future of coin reward
+     * @param deadline is deadline exceeded, so not completed requests are replaced with last known data
+     * @return earnings
+     * @throws CompletionException if there is any error in requesting or data is not received before deadline
+     */
+    private Earnings combine(CoinType coinType, Account accountResult, CompletableFuture<CoinInfo> coinInfo,
+            CompletableFuture<CoinMarket> coinMarket, CompletableFuture<CoinReward> coinReward, boolean deadline) {
+        // Account taken from cache after deadline makes earnings partial through coin reward, which waits for account
+        boolean partial = false;
+        CoinInfo coinInfoResult;
+        if (coinInfo.isDone() || !deadline) {
+            coinInfoResult = coinInfo.join();
+        } else {
+            coinInfoResult = fallback != null ? fallback.getCoinInfo(coinType) : null;
+            if (coinInfoResult == null) {
+                throw new CompletionException(new CoinInfoRequestorException(ErrorCode.HTTP_ERROR, notReceivedMessage("Coin info")));
+            }
+            partial = true;
+        }
+        CoinMarket coinMarketResult;
+        if (coinMarket.isDone() || !deadline) {
+            coinMarketResult = coinMarket.join();
+        } else {
+            coinMarketResult = fallback != null ? fallback.getCoinMarket(coinType) : null;
+            if (coinMarketResult == null) {
+                throw new CompletionException(new CoinMarketRequestorException(ErrorCode.HTTP_ERROR, notReceivedMessage("Coin market")));
+            }
+            partial = true;
+        }
+        CoinReward coinRewardResult;
+        if (coinReward.isDone() || !deadline) {
+            coinRewardResult = coinReward.join();
+        } else {
+            coinRewardResult = fallback != null ? fallback.getCoinReward(coinType, accountResult.getReportedHashrate()) : null;
+            if (coinRewardResult == null) {
+                throw new CompletionException(new CoinRewardRequestorException(ErrorCode.HTTP_ERROR, notReceivedMessage("Coin reward")));
+            }
+            partial = true;
+        }
+        BigDecimal usdBalance = accountResult.getWalletBalance().multiply(coinMarketResult.getPrice());
+        return new Earnings(usdBalance, accountResult, coinInfoResult, coinMarketResult, coinRewardResult, partial);
+    }
+
+    /**
+     * Creates message about data, which is not received before deadline.
+     *
+     * @param data name of data
+     * @return message
+     */
+    private String notReceivedMessage(String data) {
+        return data + " is not received in " + budget + " ms";
+    }
+
+    /**
+     * Requests account and hedges duplicate request, if the first one runs longer than recent percentile of latency.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @param deadlineTime deadline in nanoseconds of {@link System#nanoTime()}
+     * @param trace trace of request
+     * @return future of account, which is completed by the first answer or by error, if all requests fail
+     */
+    private CompletableFuture<Account> requestAccountHedged(CoinType coinType, String walletAddress, long deadlineTime, Trace trace) {
+        long start = System.nanoTime();
+        AccountAttempts attempts = new AccountAttempts();
+        CompletableFuture<Account> account = attempts.account;
+        requestAccountAsync(coinType, walletAddress, deadlineTime, attempts, executor);
+        long hedgeDelay = accountLatency != null ? accountLatency.getHedgeDelay() : -1;
+        if (hedgeDelay >= 0 && scheduler != null && hedgeExecutor != null) {
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (account.isDone()) {
+                    return;
+                }
+                try {
+                    requestAccountAsync(coinType, walletAddress, deadlineTime, attempts, hedgeExecutor);
+                    accountLatency.onHedge();
+                } catch (RejectedExecutionException e) {
+                    // Hedging is skipped under overload, the first request is still running
+                }
+            }, hedgeDelay, TimeUnit.NANOSECONDS);
+            account.whenComplete((result, exception) -> hedge.cancel(false));
+        }
+        account.whenComplete((result, exception) -> trace.record(TraceStage.ACCOUNT, start));
+        return account;
+    }
+
+    /**
+     * Requests account asynchronously as one of attempts.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @param deadlineTime deadline in nanoseconds of {@link System#nanoTime()}
+     * @param attempts attempts of account requesting
+     * @param requestExecutor executor of request
+     * @throws RejectedExecutionException if request is rejected by executor
+     */
+    private void requestAccountAsync(CoinType coinType, String walletAddress, long deadlineTime, AccountAttempts attempts,
+            Executor requestExecutor) {
+        attempts.start();
+        CompletableFuture<Account> attempt;
+        try {
+            attempt = CompletableFuture.supplyAsync(() -> {
+                return withDeadline(deadlineTime, () -> requestAccount(coinType, walletAddress));
+            }, requestExecutor);
+        } catch (RejectedExecutionException e) {
+            attempts.cancel();
+            throw e;
+        }
+        attempt.whenComplete((result, exception) -> {
+            if (exception != null) {
+                attempts.fail(exception instanceof CompletionException ? exception.getCause() : exception);
+            } else {
+                attempts.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Requests account. Its latency is not recorded here, since requestor can answer from cache or reject request without
+     * reaching pool.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return account
+     * @throws CompletionException if there is any error in account requesting
+     */
+    private Account requestAccount(CoinType coinType, String walletAddress) {
+        try {
+            return accountRequestor.requestAccount(coinType, walletAddress);
+        } catch (AccountRequestorException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Requests coin info.
+     *
+     * @param coinType type of coin
+     * @param trace trace of request
+     * @return coin info
+     * @throws CompletionException if there is any error in coin info requesting
+     */
+    private CoinInfo requestCoinInfo(CoinType coinType, Trace trace) {
+        long start = System.nanoTime();
+        try {
+            return coinInfoRequestor.requestCoinInfo(coinType);
+        } catch (CoinInfoRequestorException e) {
+            throw new CompletionException(e);
+        } finally {
+            trace.record(TraceStage.COIN_INFO, start);
+        }
+    }
+
+    /**
+     * Requests coin market.
+     *
+     * @param coinType type of coin
+     * @param trace trace of request
+     * @return coin market
+     * @throws CompletionException if there is any error in coin market requesting
+     */
+    private CoinMarket requestCoinMarket(CoinType coinType, Trace trace) {
+        long start = System.nanoTime();
+        try {
+            return coinMarketRequestor.requestCoinMarket(coinType);
+        } catch (CoinMarketRequestorException e) {
+            throw new CompletionException(e);
+        } finally {
+            trace.record(TraceStage.COIN_MARKET, start);
+        }
+    }
+
+    /**
+     * Requests coin reward.
+     *
+     * @param coinType type of coin
+     * @param hashrate reported hashrate
+     * @param trace trace of request
+     * @return coin reward
+     * @throws CompletionException if there is any error in coin reward requesting
+     */
+    private CoinReward requestCoinReward(CoinType coinType, BigDecimal hashrate, Trace trace) {
+        long start = System.nanoTime();
+        try {
+            return coinRewardRequestor.requestCoinReward(coinType, hashrate);
+        } catch (CoinRewardRequestorException e) {
+            throw new CompletionException(e);
+        } finally {
+            trace.record(TraceStage.COIN_REWARD, start);
+        }
+    }
+
+    /**
+     * Attempts of account requesting. Future of account is completed by the first answer, but error is reported only when all
+     * started attempts fail, so failure of the first request does not hide answer of hedged one.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private static class AccountAttempts {
+
+        /** Future of account. */
+        private final CompletableFuture<Account> account = new CompletableFuture<>();
+        /** Number of running attempts. */
+        private final AtomicInteger runningCount = new AtomicInteger();
+        /** Last error of attempts. */
+        private volatile Throwable error;
+
+        /**
+         * Starts attempt.
+         */
+        private void start() {
+            runningCount.incrementAndGet();
+        }
+
+        /**
+         * Cancels attempt, which is not run.
+         */
+        private void cancel() {
+            if (runningCount.decrementAndGet() == 0 && error != null) {
+                account.completeExceptionally(error);
+            }
+        }
+
+        /**
+         * Completes attempt with answer.
+         *
+         * @param result account
+         */
+        private void complete(Account result) {
+            account.complete(result);
+            runningCount.decrementAndGet();
+        }
+
+        /**
+         * Completes attempt with error.
+         *
+         * @param exception error of attempt
+         */
+        private void fail(Throwable exception) {
+            error = exception;
+            if (runningCount.decrementAndGet() == 0) {
+                account.completeExceptionally(exception);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,83 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.history.HistoryStore;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Earnings worker, which records account and price of coin to history of wallet once per account fetched from pool. Account
+ * cache returns the same instance of account until it is fetched again, so calculations served from cache, including partial
+ * ones, do not add duplicate points.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class RecordingEarningsWorker implements EarningsWorker {
+
+    /** Earnings worker. */
+    private final EarningsWorker delegate;
+    /** Store of history. */
+    private final HistoryStore historyStore;
+    /** Pool type. */
+    private final PoolTypeDescription poolType;
+    /** Recorded accounts, compared by identity and weakly referenced. */
+    private final Set<Account> recordedAccountSet;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate earnings worker
+     * @param historyStore store of history
+     * @param poolType pool type
+     * @param recordedAccountSet recorded accounts, compared by identity and weakly referenced, shared by workers
+     */
+    RecordingEarningsWorker(EarningsWorker delegate, HistoryStore historyStore, PoolTypeDescription poolType,
+            Set<Account> recordedAccountSet) {
+        super();
+        this.delegate = delegate;
+        this.historyStore = historyStore;
+        this.poolType = poolType;
+        this.recordedAccountSet = recordedAccountSet;
+    }
+
+    @Override
+    public Earnings calculate(CoinTypeDescription coinType, String walletAddress)
+            throws AccountRequestorException, CoinInfoRequestorException, CoinMarketRequestorException, CoinRewardRequestorException {
+        Earnings earnings = delegate.calculate(coinType, walletAddress);
+        record(coinType, walletAddress, earnings);
+        return earnings;
+    }
+
+    @Override
+    public CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coinType, String walletAddress) {
+        return delegate.calculateAsync(coinType, walletAddress).whenComplete((earnings, exception) -> {
+            if (earnings != null) {
+                record(coinType, walletAddress, earnings);
+            }
+        });
+    }
+
+    /**
+     * Records calculated earnings, if their account is not recorded yet.
+     *
+     * @param coinType coin type
+     * @param walletAddress wallet address
+     * @param earnings calculated earnings
+     */
+    private void record(CoinTypeDescription coinType, String walletAddress, Earnings earnings) {
+        if (!recordedAccountSet.add(earnings.getAccount())) {
+            return;
+        }
+        historyStore.record(coinType, poolType, walletAddress, earnings.getAccount(), earnings.getCoinMarket(), System.currentTimeMillis());
+    }
+
+}
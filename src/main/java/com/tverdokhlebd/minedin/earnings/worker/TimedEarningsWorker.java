@@ -0,0 +1,105 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Earnings worker, which records time of full calculation by pool, coin and outcome. Partial earnings have their own outcome.
+ * Timers are registered once per coin and outcome on the first calculation, so calculations do not look up registry of meters.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class TimedEarningsWorker implements EarningsWorker {
+
+    /** Earnings worker. */
+    private final EarningsWorker delegate;
+    /** Registry of meters. */
+    private final MeterRegistry meterRegistry;
+    /** Pool type. */
+    private final PoolTypeDescription poolType;
+    /** Timers of calculations by coin and outcome, they are registered on the first calculation. */
+    private final Map<CoinTypeDescription, ConcurrentMap<String, Timer>> timerMap = new EnumMap<>(CoinTypeDescription.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate earnings worker
+     * @param meterRegistry registry of meters
+     * @param poolType pool type
+     */
+    TimedEarningsWorker(EarningsWorker delegate, MeterRegistry meterRegistry, PoolTypeDescription poolType) {
+        super();
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.poolType = poolType;
+        for (CoinTypeDescription coinType : CoinTypeDescription.values()) {
+            timerMap.put(coinType, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public Earnings calculate(CoinTypeDescription coinType, String walletAddress)
+            throws AccountRequestorException, CoinInfoRequestorException, CoinMarketRequestorException, CoinRewardRequestorException {
+        long start = System.nanoTime();
+        Earnings earnings = null;
+        try {
+            earnings = delegate.calculate(coinType, walletAddress);
+            return earnings;
+        } finally {
+            record(coinType, earnings, start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coinType, String walletAddress) {
+        long start = System.nanoTime();
+        return delegate.calculateAsync(coinType, walletAddress).whenComplete((earnings, exception) -> {
+            record(coinType, earnings, start);
+        });
+    }
+
+    /**
+     * Records time of calculation.
+     *
+     * @param coinType coin type
+     * @param earnings calculated earnings or {@code null} if calculation is failed
+     * @param start start time of calculation in nanoseconds
+     */
+    private void record(CoinTypeDescription coinType, Earnings earnings, long start) {
+        String outcome = earnings == null ? "error" : earnings.isPartial() ? "partial" : "success";
+        Timer timer = timerMap.get(coinType).computeIfAbsent(outcome, name -> createTimer(coinType, name));
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers timer of calculations.
+     *
+     * @param coinType coin type
+     * @param outcome outcome of calculations, e.g. "success"
+     * @return timer of calculations
+     */
+    private Timer createTimer(CoinTypeDescription coinType, String outcome) {
+        return Timer.builder("earnings.calculations")
+                    .description("Time of calculation of earnings")
+                    .tags("pool", poolType.name(), "coin", coinType.name(), "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.tverdokhlebd.minedin.history;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Point of history of wallet: balance and reported hashrate of account and price of coin at time of request.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@JsonInclude(Include.NON_NULL)
+public class HistoryPoint {
+
+    /** Time of request in milliseconds. */
+    private final long time;
+    /** Wallet balance. */
+    private final BigDecimal walletBalance;
+    /** Reported hashrate in H/s. */
+    private final BigDecimal reportedHashrate;
+    /** Price of coin in USD. */
+    private final BigDecimal price;
+
+    /**
+     * Creates instance.
+     *
+     * @param time time of request in milliseconds
+     * @param walletBalance wallet balance
+     * @param reportedHashrate reported hashrate in H/s
+     * @param price price of coin in USD
+     */
+    public HistoryPoint(long time, BigDecimal walletBalance, BigDecimal reportedHashrate, BigDecimal price) {
+        super();
+        this.time = time;
+        this.walletBalance = walletBalance;
+        this.reportedHashrate = reportedHashrate;
+        this.price = price;
+    }
+
+    /**
+     * Gets time of request in milliseconds.
+     *
+     * @return time of request in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets wallet balance.
+     *
+     * @return wallet balance
+     */
+    public BigDecimal getWalletBalance() {
+        return walletBalance;
+    }
+
+    /**
+     * Gets reported hashrate in H/s.
+     *
+     * @return reported hashrate in H/s
+     */
+    public BigDecimal getReportedHashrate() {
+        return reportedHashrate;
+    }
+
+    /**
+     * Gets price of coin in USD.
+     *
+     * @return price of coin in USD
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+}
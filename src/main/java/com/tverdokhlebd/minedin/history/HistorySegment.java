@@ -0,0 +1,297 @@
+package com.tverdokhlebd.minedin.history;
+
+import static java.math.RoundingMode.DOWN;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Segment of history, which is append-only memory-mapped file of fixed-width records. The file is mapped with its full
+ * capacity at once, so the segment is full, when the capacity is reached.
+ *
+ * <p>
+ * Header consists of magic, version, start time, capacity and number of records. Each record consists of series id, time,
+ * wallet balance, reported hashrate and price. Values are stored as fixed-point numbers with {@link #BALANCE_SCALE},
+ * {@link #HASHRATE_SCALE} and {@link #PRICE_SCALE} digits, missing or too large values are stored as {@link #NO_VALUE}. Number
+ * of records is updated after writing of record, so partially written record is never read.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class HistorySegment {
+
+    /** Magic number of segment file ("MNHS"). */
+    static final int MAGIC = 0x4D4E4853;
+    /** Version of format of segment file. */
+    static final short VERSION = 1;
+    /** Size of header in bytes. */
+    static final int HEADER_SIZE = 32;
+    /** Size of record in bytes. */
+    static final int RECORD_SIZE = 40;
+    /** Number of fractional digits of wallet balance. */
+    static final int BALANCE_SCALE = 9;
+    /** Number of fractional digits of reported hashrate. */
+    static final int HASHRATE_SCALE = 0;
+    /** Number of fractional digits of price. */
+    static final int PRICE_SCALE = 6;
+    /** Stored value, which means that there is no value. */
+    static final long NO_VALUE = Long.MIN_VALUE;
+    /** Offset of start time in header. */
+    private static final int START_TIME_OFFSET = 8;
+    /** Offset of capacity in header. */
+    private static final int CAPACITY_OFFSET = 16;
+    /** Offset of number of records in header. */
+    private static final int COUNT_OFFSET = 20;
+    /** Path of segment file. */
+    private final Path file;
+    /** Mapped content of segment file. */
+    private final MappedByteBuffer buffer;
+    /** Start time of segment in milliseconds. */
+    private final long startTime;
+    /** Max number of records. */
+    private final int capacity;
+    /** Positions of records by series id. */
+    private final Map<Long, List<Integer>> indexMap = new HashMap<>();
+    /** Number of records. */
+    private int count;
+    /** Time of the last record in milliseconds. */
+    private long lastTime;
+
+    /**
+     * Creates instance.
+     *
+     * @param file path of segment file
+     * @param buffer mapped content of segment file
+     * @param startTime start time of segment in milliseconds
+     * @param capacity max number of records
+     */
+    private HistorySegment(Path file, MappedByteBuffer buffer, long startTime, int capacity) {
+        super();
+        this.file = file;
+        this.buffer = buffer;
+        this.startTime = startTime;
+        this.capacity = capacity;
+        this.lastTime = startTime;
+    }
+
+    /**
+     * Creates new segment file.
+     *
+     * @param file path of segment file
+     * @param startTime start time of segment in milliseconds
+     * @param capacity max number of records
+     * @return created segment
+     * @throws IOException if there is any error in creating
+     */
+    static HistorySegment create(Path file, long startTime, int capacity) throws IOException {
+        MappedByteBuffer buffer = map(file, capacity, true);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putLong(START_TIME_OFFSET, startTime);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(COUNT_OFFSET, 0);
+        return new HistorySegment(file, buffer, startTime, capacity);
+    }
+
+    /**
+     * Opens existing segment file and indexes its records.
+     *
+     * @param file path of segment file
+     * @return opened segment
+     * @throws IOException if there is any error in reading or file is not a segment of known version
+     */
+    static HistorySegment open(Path file) throws IOException {
+        int capacity;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE));
+            if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getShort(4) != VERSION) {
+                throw new IOException("Segment " + file + " is damaged or has unknown version");
+            }
+            capacity = header.getInt(CAPACITY_OFFSET);
+            if (capacity <= 0 || channel.size() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                throw new IOException("Segment " + file + " is truncated");
+            }
+        }
+        MappedByteBuffer buffer = map(file, capacity, false);
+        HistorySegment segment = new HistorySegment(file, buffer, buffer.getLong(START_TIME_OFFSET), capacity);
+        int count = Math.min(buffer.getInt(COUNT_OFFSET), capacity);
+        for (int i = 0; i < count; i++) {
+            segment.index(i);
+        }
+        segment.count = count;
+        return segment;
+    }
+
+    /**
+     * Appends record.
+     *
+     * @param seriesId id of series
+     * @param time time of request in milliseconds
+     * @param walletBalance wallet balance or {@code null}
+     * @param reportedHashrate reported hashrate in H/s or {@code null}
+     * @param price price of coin in USD or {@code null}
+     * @throws IllegalStateException if segment is full
+     */
+    void append(long seriesId, long time, BigDecimal walletBalance, BigDecimal reportedHashrate, BigDecimal price) {
+        if (isFull()) {
+            throw new IllegalStateException("Segment " + file + " is full");
+        }
+        int position = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putLong(position, seriesId);
+        buffer.putLong(position + 8, time);
+        buffer.putLong(position + 16, encode(walletBalance, BALANCE_SCALE));
+        buffer.putLong(position + 24, encode(reportedHashrate, HASHRATE_SCALE));
+        buffer.putLong(position + 32, encode(price, PRICE_SCALE));
+        index(count);
+        count++;
+        buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Adds points of series in time range to list.
+     *
+     * @param seriesId id of series
+     * @param from start of time range in milliseconds, inclusive
+     * @param to end of time range in milliseconds, inclusive
+     * @param pointList list of points
+     */
+    void query(long seriesId, long from, long to, List<HistoryPoint> pointList) {
+        if (lastTime < from || startTime > to) {
+            return;
+        }
+        for (int position : indexMap.getOrDefault(seriesId, Collections.emptyList())) {
+            long time = buffer.getLong(position + 8);
+            if (time >= from && time <= to) {
+                pointList.add(new HistoryPoint(time,
+                                               decode(buffer.getLong(position + 16), BALANCE_SCALE),
+                                               decode(buffer.getLong(position + 24), HASHRATE_SCALE),
+                                               decode(buffer.getLong(position + 32), PRICE_SCALE)));
+            }
+        }
+    }
+
+    /**
+     * Writes changes of mapped content to segment file.
+     */
+    void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Checks whether segment is full.
+     *
+     * @return {@code true} if segment is full, otherwise {@code false}
+     */
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Gets path of segment file.
+     *
+     * @return path of segment file
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets start time of segment in milliseconds.
+     *
+     * @return start time of segment in milliseconds
+     */
+    long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets time of the last record in milliseconds.
+     *
+     * @return time of the last record in milliseconds or start time if there are no records
+     */
+    long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Gets number of records.
+     *
+     * @return number of records
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Adds record to index.
+     *
+     * @param recordNumber number of record
+     */
+    private void index(int recordNumber) {
+        int position = HEADER_SIZE + recordNumber * RECORD_SIZE;
+        indexMap.computeIfAbsent(buffer.getLong(position), seriesId -> new ArrayList<>()).add(position);
+        lastTime = Math.max(lastTime, buffer.getLong(position + 8));
+    }
+
+    /**
+     * Maps segment file with its full capacity.
+     *
+     * @param file path of segment file
+     * @param capacity max number of records
+     * @param create is new file created
+     * @return mapped content of segment file
+     * @throws IOException if there is any error in mapping
+     */
+    private static MappedByteBuffer map(Path file, int capacity, boolean create) throws IOException {
+        Set<StandardOpenOption> optionSet = EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (create) {
+            optionSet.add(StandardOpenOption.CREATE_NEW);
+        }
+        try (FileChannel channel = FileChannel.open(file, optionSet)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Encodes decimal as fixed-point number.
+     *
+     * @param value decimal or {@code null}
+     * @param scale number of fractional digits
+     * @return fixed-point number or {@link #NO_VALUE}
+     */
+    private static long encode(BigDecimal value, int scale) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+        BigInteger unscaledValue = value.setScale(scale, DOWN).unscaledValue();
+        if (unscaledValue.bitLength() > 63) {
+            return NO_VALUE;
+        }
+        long encodedValue = unscaledValue.longValue();
+        return encodedValue == NO_VALUE ? NO_VALUE + 1 : encodedValue;
+    }
+
+    /**
+     * Decodes fixed-point number.
+     *
+     * @param value fixed-point number
+     * @param scale number of fractional digits
+     * @return decimal or {@code null} if there is no value
+     */
+    private static BigDecimal decode(long value, int scale) {
+        return value == NO_VALUE ? null : BigDecimal.valueOf(value, scale);
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.tverdokhlebd.minedin.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Embedded store of history of wallets. Every requested account is appended with price of its coin to the active segment of
+ * history, so charts of balance and hashrate are served without requests to pools.
+ *
+ * <p>
+ * The active segment is rolled over, when it is full or older than segment duration. Segments, whose last record is older than
+ * retention time, and the oldest segments over max number of segments are deleted, so disk usage is bounded by max number of
+ * segments multiplied by size of segment.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class HistoryStore implements InitializingBean {
+
+    /** Prefix of names of segment files. */
+    private static final String SEGMENT_PREFIX = "history-";
+    /** Suffix of names of segment files. */
+    private static final String SEGMENT_SUFFIX = ".seg";
+    /** Directory of segment files or {@code null} if history is disabled. */
+    private final Path directory;
+    /** Max number of records of segment. */
+    private final int segmentCapacity;
+    /** Max time in milliseconds between the first record of segment and the next records. */
+    private final long segmentDuration;
+    /** Time in milliseconds, during which records are kept. */
+    private final long retention;
+    /** Max number of segments. */
+    private final int maxSegments;
+    /** Segments from the oldest one, the last segment is active. */
+    private final LinkedList<HistorySegment> segmentList = new LinkedList<>();
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(HistoryStore.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param directory directory of segment files, empty directory disables history
+     * @param segmentCapacity max number of records of segment
+     * @param segmentDuration max time in milliseconds between the first record of segment and the next records
+     * @param retention time in milliseconds, during which records are kept
+     * @param maxSegments max number of segments
+     */
+    public HistoryStore(@Value("${history.directory:}") String directory, @Value("${history.segment.capacity:65536}") int segmentCapacity,
+            @Value("${history.segment.duration:86400000}") long segmentDuration, @Value("${history.retention:2592000000}") long retention,
+            @Value("${history.max-segments:60}") int maxSegments) {
+        super();
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.segmentCapacity = segmentCapacity;
+        this.segmentDuration = segmentDuration;
+        this.retention = retention;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Opens existing segments and deletes expired ones.
+     *
+     * @throws IOException if directory of segment files is not accessible
+     */
+    @Override
+    public synchronized void afterPropertiesSet() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> fileList = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(fileList::add);
+        }
+        for (Path file : fileList) {
+            try {
+                segmentList.add(HistorySegment.open(file));
+            } catch (IOException e) {
+                LOG.warn("Segment {} is ignored", file, e);
+            }
+        }
+        segmentList.sort(Comparator.comparingLong(HistorySegment::getStartTime));
+        deleteExpiredSegments(System.currentTimeMillis());
+    }
+
+    /**
+     * Checks whether history is enabled.
+     *
+     * @return {@code true} if history is enabled, otherwise {@code false}
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Records account and price of its coin.
+     *
+     * @param coinType type of coin
+     * @param poolType pool type
+     * @param walletAddress wallet address
+     * @param account requested account
+     * @param coinMarket coin market or {@code null}
+     * @param time time of request in milliseconds
+     */
+    public synchronized void record(CoinTypeDescription coinType, PoolTypeDescription poolType, String walletAddress, Account account,
+            CoinMarket coinMarket, long time) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            HistorySegment segment = getActiveSegment(time);
+            segment.append(getSeriesId(coinType, poolType, walletAddress),
+                           time,
+                           account.getWalletBalance(),
+                           account.getReportedHashrate(),
+                           coinMarket != null ? coinMarket.getPrice() : null);
+        } catch (IOException e) {
+            LOG.warn("History of {} is not recorded", walletAddress, e);
+        }
+    }
+
+    /**
+     * Queries history of wallet in time range.
+     *
+     * @param coinType type of coin
+     * @param poolType pool type
+     * @param walletAddress wallet address
+     * @param from start of time range in milliseconds, inclusive
+     * @param to end of time range in milliseconds, inclusive
+     * @return points of history in order of time
+     */
+    public synchronized List<HistoryPoint> query(CoinTypeDescription coinType, PoolTypeDescription poolType, String walletAddress,
+            long from, long to) {
+        long seriesId = getSeriesId(coinType, poolType, walletAddress);
+        List<HistoryPoint> pointList = new ArrayList<>();
+        for (HistorySegment segment : segmentList) {
+            segment.query(seriesId, from, to, pointList);
+        }
+        pointList.sort(Comparator.comparingLong(HistoryPoint::getTime));
+        return pointList;
+    }
+
+    /**
+     * Gets number of segments.
+     *
+     * @return number of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segmentList.size();
+    }
+
+    /**
+     * Writes changes of segments to disk.
+     */
+    @PreDestroy
+    public synchronized void flush() {
+        for (HistorySegment segment : segmentList) {
+            segment.flush();
+        }
+    }
+
+    /**
+     * Gets active segment, rolling it over if it is full or too old.
+     *
+     * @param time time of record in milliseconds
+     * @return active segment
+     * @throws IOException if there is any error in creating of segment
+     */
+    private HistorySegment getActiveSegment(long time) throws IOException {
+        HistorySegment segment = segmentList.peekLast();
+        if (segment != null && !segment.isFull() && time - segment.getStartTime() < segmentDuration) {
+            return segment;
+        }
+        if (segment != null) {
+            segment.flush();
+        }
+        // Several segments can be created within one millisecond, when capacity is small
+        long startTime = segment != null ? Math.max(time, segment.getStartTime() + 1) : time;
+        segment = HistorySegment.create(directory.resolve(SEGMENT_PREFIX + startTime + SEGMENT_SUFFIX), startTime, segmentCapacity);
+        segmentList.add(segment);
+        deleteExpiredSegments(time);
+        return segment;
+    }
+
+    /**
+     * Deletes segments, whose last record is older than retention time, and the oldest segments over max number of segments.
+     *
+     * @param now current time in milliseconds
+     */
+    private void deleteExpiredSegments(long now) {
+        while (!segmentList.isEmpty()
+                && (segmentList.size() > maxSegments || now - segmentList.peekFirst().getLastTime() > retention)) {
+            HistorySegment segment = segmentList.removeFirst();
+            try {
+                Files.deleteIfExists(segment.getFile());
+            } catch (IOException e) {
+                LOG.warn("Segment {} is not deleted", segment.getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * Gets id of series of wallet, which is the first 8 bytes of SHA-256 digest of coin, pool and wallet address.
+     *
+     * @param coinType type of coin
+     * @param poolType pool type
+     * @param walletAddress wallet address
+     * @return id of series
+     */
+    private static long getSeriesId(CoinTypeDescription coinType, PoolTypeDescription poolType, String walletAddress) {
+        String key = coinType.name() + "/" + poolType.name() + "/" + walletAddress;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Interceptor for bounding timeouts of request by its deadline, so hanging host does not hold thread of request after deadline.
+ * Request after deadline is not sent at all.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class DeadlineInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long remaining = RequestDeadline.getRemainingMillis();
+        if (remaining == RequestDeadline.NONE) {
+            return chain.proceed(chain.request());
+        }
+        if (remaining <= 0) {
+            throw new LocalRejectionException("Deadline of request to " + chain.request().url().host() + " is exceeded");
+        }
+        int timeout = (int) Math.min(remaining, Integer.MAX_VALUE);
+        return chain.withConnectTimeout(bound(chain.connectTimeoutMillis(), timeout), TimeUnit.MILLISECONDS)
+                    .withReadTimeout(bound(chain.readTimeoutMillis(), timeout), TimeUnit.MILLISECONDS)
+                    .withWriteTimeout(bound(chain.writeTimeoutMillis(), timeout), TimeUnit.MILLISECONDS)
+                    .proceed(chain.request());
+    }
+
+    /**
+     * Bounds timeout by remaining time.
+     *
+     * @param timeout timeout in milliseconds or 0 if there is no timeout
+     * @param remaining remaining time in milliseconds
+     * @return bounded timeout in milliseconds
+     */
+    private static int bound(int timeout, int remaining) {
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Interceptor for limiting number of concurrent requests per host. Dispatcher of OkHttp limits only asynchronous calls, but all
+ * requestors use synchronous calls.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class HostConcurrencyInterceptor implements Interceptor {
+
+    /** Max number of concurrent requests per host. */
+    private final int maxRequestsPerHost;
+    /** Max time of waiting for free slot in milliseconds. */
+    private final long acquireTimeout;
+    /** Permits by host. */
+    private final Map<String, Semaphore> hostPermitMap = new ConcurrentHashMap<>();
+
+    /**
+     * Creates instance.
+     *
+     * @param maxRequestsPerHost max number of concurrent requests per host
+     * @param acquireTimeout max time of waiting for free slot in milliseconds
+     */
+    public HostConcurrencyInterceptor(int maxRequestsPerHost, long acquireTimeout) {
+        super();
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        Semaphore permits = hostPermitMap.computeIfAbsent(host, key -> new Semaphore(maxRequestsPerHost));
+        try {
+            // Slot is not awaited after deadline of request
+            long timeout = Math.min(acquireTimeout, Math.max(0, RequestDeadline.getRemainingMillis()));
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new LocalRejectionException("Too many concurrent requests to " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LocalRejectionException("Interrupted while waiting for request to " + host);
+        }
+        try {
+            return chain.proceed(chain.request());
+        } finally {
+            permits.release();
+        }
+    }
+
+}
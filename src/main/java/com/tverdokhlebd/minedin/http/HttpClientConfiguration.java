@@ -0,0 +1,82 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.tverdokhlebd.minedin.simulator.UpstreamSimulator;
+
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Configuration of HTTP client, which is shared by all requestors.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+    /** Connect timeout in milliseconds. */
+    @Value("${http.client.connect-timeout:5000}")
+    private long connectTimeout;
+    /** Read timeout in milliseconds. */
+    @Value("${http.client.read-timeout:10000}")
+    private long readTimeout;
+    /** Write timeout in milliseconds. */
+    @Value("${http.client.write-timeout:10000}")
+    private long writeTimeout;
+    /** Max number of idle connections in pool. */
+    @Value("${http.client.max-idle-connections:20}")
+    private int maxIdleConnections;
+    /** Keep-alive time of idle connection in milliseconds. */
+    @Value("${http.client.keep-alive:300000}")
+    private long keepAlive;
+    /** Max number of concurrent requests per host. */
+    @Value("${http.client.max-requests-per-host:10}")
+    private int maxRequestsPerHost;
+    /** Max time of waiting for free slot of host in milliseconds. */
+    @Value("${http.client.host-acquire-timeout:1000}")
+    private long hostAcquireTimeout;
+    /** URL of server, which receives all requests instead of pools and markets, e.g. upstream simulator. */
+    @Value("${http.client.upstream-url:}")
+    private String upstreamUrl;
+
+    /**
+     * Creates HTTP client with connection pool, which is reused by all requests.
+     *
+     * @param upstreamSimulator upstream simulator, if it is enabled
+     * @return HTTP client
+     */
+    @Bean
+    public OkHttpClient httpClient(ObjectProvider<UpstreamSimulator> upstreamSimulator) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAlive, TimeUnit.MILLISECONDS);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().connectionPool(connectionPool)
+                                                                 .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                                                                 .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                                                                 .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                                                                 .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+                                                                 .retryOnConnectionFailure(true)
+                                                                 .addInterceptor(new DeadlineInterceptor())
+                                                                 .addInterceptor(new HostConcurrencyInterceptor(maxRequestsPerHost,
+                                                                                                                hostAcquireTimeout));
+        String url = upstreamUrl;
+        UpstreamSimulator simulator = upstreamSimulator.getIfAvailable();
+        if (url.isEmpty() && simulator != null) {
+            url = simulator.getUrl();
+        }
+        if (!url.isEmpty()) {
+            // Added after concurrency interceptor, so limits are still applied per original host
+            builder.addInterceptor(new UpstreamOverrideInterceptor(HttpUrl.parse(url)));
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Exception of request, which is rejected by HTTP client itself and is not sent to host, e.g. when there are no free slots of host
+ * or deadline of request is exceeded.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class LocalRejectionException extends InterruptedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates instance.
+     *
+     * @param message error message
+     */
+    public LocalRejectionException(String message) {
+        super(message);
+    }
+
+    /**
+     * Checks whether exception is caused by local rejection of request. Requestors of libraries keep only message of cause, which
+     * starts with name of its class, so message is checked too.
+     *
+     * @param exception exception of request
+     * @return {@code true} if request is rejected locally, otherwise {@code false}
+     */
+    public static boolean isCauseOf(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LocalRejectionException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && message.startsWith(LocalRejectionException.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of HTTP requests, which are made on current thread. Requestors of libraries create requests themselves, so deadline is
+ * passed to interceptors of HTTP client through thread.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public final class RequestDeadline {
+
+    /** Remaining time, which means that there is no deadline. */
+    public static final long NONE = Long.MAX_VALUE;
+    /** Deadline of current thread in nanoseconds of {@link System#nanoTime()} or {@code null} if there is no one. */
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Calls supplier, which makes HTTP requests, with deadline.
+     *
+     * @param deadline deadline in nanoseconds of {@link System#nanoTime()}
+     * @param supplier supplier, which makes HTTP requests
+     * @return result of supplier
+     */
+    public static <T> T call(long deadline, Supplier<T> supplier) {
+        Long previousDeadline = DEADLINE.get();
+        DEADLINE.set(deadline);
+        try {
+            return supplier.get();
+        } finally {
+            if (previousDeadline != null) {
+                DEADLINE.set(previousDeadline);
+            } else {
+                DEADLINE.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets remaining time of requests of current thread.
+     *
+     * @return remaining time in milliseconds, which is not positive if deadline is exceeded, or {@link #NONE} if there is no
+     *         deadline
+     */
+    public static long getRemainingMillis() {
+        Long deadline = DEADLINE.get();
+        return deadline != null ? TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) : NONE;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.tverdokhlebd.minedin.http;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Interceptor for sending requests of all requestors to another server, e.g. to upstream simulator. URLs of pools and markets
+ * are hardcoded in requestors, so scheme, host and port are replaced here and original host is passed in header.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class UpstreamOverrideInterceptor implements Interceptor {
+
+    /** Header with original host of request. */
+    public static final String UPSTREAM_HOST_HEADER = "X-Upstream-Host";
+
+    /** URL of server, which receives all requests. */
+    private final HttpUrl upstreamUrl;
+
+    /**
+     * Creates instance.
+     *
+     * @param upstreamUrl URL of server, which receives all requests
+     */
+    public UpstreamOverrideInterceptor(HttpUrl upstreamUrl) {
+        super();
+        this.upstreamUrl = upstreamUrl;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url().newBuilder().scheme(upstreamUrl.scheme()).host(upstreamUrl.host()).port(upstreamUrl.port()).build();
+        return chain.proceed(request.newBuilder().url(url).header(UPSTREAM_HOST_HEADER, request.url().host()).build());
+    }
+
+}
@@ -0,0 +1,386 @@
+package com.tverdokhlebd.minedin.requestor;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.CoinInfoCaching;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorFactory;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.CoinMarketCaching;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorFactory;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.CoinRewardCaching;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorFactory;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.cache.CachedAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.flight.SingleFlight;
+import com.tverdokhlebd.minedin.requestor.flight.SingleFlightCoinInfoRequestor;
+import com.tverdokhlebd.minedin.requestor.flight.SingleFlightCoinMarketRequestor;
+import com.tverdokhlebd.minedin.requestor.flight.SingleFlightCoinRewardRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.Bulkhead;
+import com.tverdokhlebd.minedin.requestor.guard.CircuitBreaker;
+import com.tverdokhlebd.minedin.requestor.guard.GuardedAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.GuardedCoinInfoRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.GuardedCoinMarketRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.GuardedCoinRewardRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.RequestorGuard;
+import com.tverdokhlebd.minedin.requestor.metrics.CacheMetrics;
+import com.tverdokhlebd.minedin.requestor.metrics.GuardMetrics;
+import com.tverdokhlebd.minedin.requestor.metrics.MeteredAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.MeteredCoinInfoRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.MeteredCoinMarketRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.MeteredCoinRewardRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.RequestorMeter;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCoinInfoRequestor;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCoinMarketRequestor;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCoinRewardRequestor;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Registry of requestors. Each requestor is created once and uses the shared HTTP client. Coin info, market and reward
+ * requestors allow only one request in flight per coin type and, if refreshing is enabled, serve stale values while they are
+ * refreshed in background. Every pool and every source of data has its own bulkhead and circuit breaker, so hanging upstream
+ * fails fast instead of holding threads of other upstreams. Latency and errors of requests, statistics of caches and state of
+ * circuit breakers are recorded to registry of meters. Cached accounts are served before guard of pool, so they do not take
+ * slots of bulkhead and are served even when circuit breaker of pool is open.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class RequestorRegistry {
+
+    /** Account caches by pool type. */
+    private final Map<PoolTypeDescription, AccountCache> accountCacheMap = new EnumMap<>(PoolTypeDescription.class);
+    /** Meters of account requests by pool type. */
+    private final Map<PoolTypeDescription, RequestorMeter> accountMeterMap = new EnumMap<>(PoolTypeDescription.class);
+    /** Account requestors by pool type. */
+    private final Map<PoolTypeDescription, AccountRequestor> accountRequestorMap = new EnumMap<>(PoolTypeDescription.class);
+    /** Coin info requestors by coin info type. */
+    private final Map<CoinInfoDescription, CoinInfoRequestor> coinInfoRequestorMap = new EnumMap<>(CoinInfoDescription.class);
+    /** Coin market requestors by coin market type. */
+    private final Map<CoinMarketDescription, CoinMarketRequestor> coinMarketRequestorMap = new EnumMap<>(CoinMarketDescription.class);
+    /** Coin reward requestors by coin reward type. */
+    private final Map<CoinRewardDescription, CoinRewardRequestor> coinRewardRequestorMap = new EnumMap<>(CoinRewardDescription.class);
+    /** Requests in flight by name of requestor. */
+    private final Map<String, SingleFlight<CoinType, ?>> singleFlightMap = new LinkedHashMap<>();
+    /** Refreshing caches of coin info by coin info type. */
+    private final Map<CoinInfoDescription, RefreshingCache<CoinType, CoinInfo>> coinInfoCacheMap = new EnumMap<>(CoinInfoDescription.class);
+    /** Refreshing caches of coin market by coin market type. */
+    private final Map<CoinMarketDescription, RefreshingCache<CoinType, CoinMarket>> coinMarketCacheMap =
+            new EnumMap<>(CoinMarketDescription.class);
+    /** Refreshing caches of reward calculator by coin reward type. */
+    private final Map<CoinRewardDescription, RefreshingCache<CoinType, CoinRewardCalculator>> coinRewardCacheMap =
+            new EnumMap<>(CoinRewardDescription.class);
+    /** Refreshing caches by name of requestor. */
+    private final Map<String, RefreshingCache<CoinType, ?>> refreshingCacheMap = new LinkedHashMap<>();
+    /** Guards of requests by name of requestor. */
+    private final Map<String, RequestorGuard> guardMap = new LinkedHashMap<>();
+    /** Registry of meters. */
+    private final MeterRegistry meterRegistry;
+    /** Max number of concurrent requests per upstream. */
+    private final int bulkheadMaxConcurrent;
+    /** Max number of concurrent requests per host of HTTP client, which is shared by upstreams of the same host. */
+    private final int maxRequestsPerHost;
+    /** Number of upstreams by host. */
+    private final Map<String, Integer> hostUpstreamCountMap = new HashMap<>();
+    /** Max time of waiting for free slot of bulkhead in milliseconds. */
+    private final long bulkheadMaxWait;
+    /** Number of consecutive failures, which opens circuit breaker. */
+    private final int breakerFailureThreshold;
+    /** Open time of circuit breaker in milliseconds. */
+    private final long breakerOpenTime;
+
+    /**
+     * Creates instance.
+     *
+     * @param httpClient shared HTTP client
+     * @param requestorScheduler scheduler of background refreshes
+     * @param meterRegistry registry of meters
+     * @param accountCacheSize maximum number of cached accounts per pool
+     * @param accountCacheTime caching time of account in minutes
+     * @param refreshEnabled is serving of stale values enabled
+     * @param maxStaleness time in milliseconds after expiration, during which stale value is served
+     * @param bulkheadMaxConcurrent max number of concurrent requests per upstream
+     * @param bulkheadMaxWait max time of waiting for free slot of bulkhead in milliseconds
+     * @param breakerFailureThreshold number of consecutive failures, which opens circuit breaker
+     * @param breakerOpenTime open time of circuit breaker in milliseconds
+     * @param maxRequestsPerHost max number of concurrent requests per host of HTTP client
+     */
+    public RequestorRegistry(OkHttpClient httpClient, ThreadPoolTaskScheduler requestorScheduler, MeterRegistry meterRegistry,
+            @Value("${account.cache.maximum-size:10000}") long accountCacheSize,
+            @Value("${account.cache.expire-after-write:2}") int accountCacheTime,
+            @Value("${requestor.refresh.enabled:true}") boolean refreshEnabled,
+            @Value("${requestor.refresh.max-staleness:600000}") long maxStaleness,
+            @Value("${requestor.bulkhead.max-concurrent:10}") int bulkheadMaxConcurrent,
+            @Value("${requestor.bulkhead.max-wait:500}") long bulkheadMaxWait,
+            @Value("${requestor.breaker.failure-threshold:5}") int breakerFailureThreshold,
+            @Value("${requestor.breaker.open-time:30000}") long breakerOpenTime,
+            @Value("${http.client.max-requests-per-host:10}") int maxRequestsPerHost) {
+        super();
+        this.meterRegistry = meterRegistry;
+        this.bulkheadMaxConcurrent = bulkheadMaxConcurrent;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.bulkheadMaxWait = bulkheadMaxWait;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenTime = breakerOpenTime;
+        for (PoolTypeDescription poolType : PoolTypeDescription.values()) {
+            hostUpstreamCountMap.merge(getHost(poolType.getWebsite()), 1, Integer::sum);
+        }
+        for (CoinInfoDescription coinInfo : CoinInfoDescription.values()) {
+            hostUpstreamCountMap.merge(getHost(coinInfo.getWebsite()), 1, Integer::sum);
+        }
+        for (CoinMarketDescription coinMarket : CoinMarketDescription.values()) {
+            hostUpstreamCountMap.merge(getHost(coinMarket.getWebsite()), 1, Integer::sum);
+        }
+        for (CoinRewardDescription coinReward : CoinRewardDescription.values()) {
+            hostUpstreamCountMap.merge(getHost(coinReward.getWebsite()), 1, Integer::sum);
+        }
+        for (PoolTypeDescription poolType : PoolTypeDescription.values()) {
+            AccountCache accountCache = new AccountCache(accountCacheSize, accountCacheTime);
+            accountCacheMap.put(poolType, accountCache);
+            CacheMetrics.bind(meterRegistry, poolType.name(), accountCache);
+            // Caching of pool library is disabled, cache is checked before guard, so cache hits do not take slots of bulkhead
+            AccountRequestor requestor = AccountRequestorFactory.create(poolType.getPoolType(), httpClient, false);
+            RequestorMeter meter = new RequestorMeter(meterRegistry, "account", poolType.name(),
+                                                      poolType.getPoolType().getCoinTypeList());
+            accountMeterMap.put(poolType, meter);
+            AccountRequestor decoratedRequestor = new MeteredAccountRequestor(requestor, meter);
+            RequestorGuard guard = createGuard("account", poolType.name(), poolType.getWebsite());
+            decoratedRequestor = new GuardedAccountRequestor(decoratedRequestor, guard);
+            accountRequestorMap.put(poolType, new CachedAccountRequestor(decoratedRequestor, accountCache));
+        }
+        for (CoinInfoDescription coinInfo : CoinInfoDescription.values()) {
+            SingleFlight<CoinType, CoinInfo> singleFlight = new SingleFlight<>();
+            singleFlightMap.put("coin-info." + coinInfo.name(), singleFlight);
+            CacheMetrics.bind(meterRegistry, "coin-info", coinInfo.name(), singleFlight);
+            RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-info", coinInfo.name(),
+                                                      coinInfo.getCoinInfoType().getCoinTypeList());
+            CoinInfoRequestor requestor = CoinInfoRequestorFactory.create(coinInfo.getCoinInfoType(), httpClient);
+            CoinInfoRequestor decoratedRequestor = new MeteredCoinInfoRequestor(requestor, meter);
+            RequestorGuard guard = createGuard("coin-info", coinInfo.name(), coinInfo.getWebsite());
+            decoratedRequestor = new GuardedCoinInfoRequestor(decoratedRequestor, guard);
+            decoratedRequestor = new SingleFlightCoinInfoRequestor(decoratedRequestor, singleFlight);
+            if (refreshEnabled) {
+                RefreshingCache<CoinType, CoinInfo> cache = new RefreshingCache<>(maxStaleness, requestorScheduler);
+                refreshingCacheMap.put("coin-info." + coinInfo.name(), cache);
+                CacheMetrics.bind(meterRegistry, "coin-info", coinInfo.name(), cache);
+                coinInfoCacheMap.put(coinInfo, cache);
+                decoratedRequestor = new RefreshingCoinInfoRequestor(decoratedRequestor, (CoinInfoCaching) requestor, cache);
+            }
+            coinInfoRequestorMap.put(coinInfo, decoratedRequestor);
+        }
+        for (CoinMarketDescription coinMarket : CoinMarketDescription.values()) {
+            SingleFlight<CoinType, CoinMarket> singleFlight = new SingleFlight<>();
+            singleFlightMap.put("coin-market." + coinMarket.name(), singleFlight);
+            CacheMetrics.bind(meterRegistry, "coin-market", coinMarket.name(), singleFlight);
+            RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-market", coinMarket.name(),
+                                                      coinMarket.getCoinMarketType().getCoinTypeList());
+            CoinMarketRequestor requestor = CoinMarketRequestorFactory.create(coinMarket.getCoinMarketType(), httpClient);
+            CoinMarketRequestor decoratedRequestor = new MeteredCoinMarketRequestor(requestor, meter);
+            RequestorGuard guard = createGuard("coin-market", coinMarket.name(), coinMarket.getWebsite());
+            decoratedRequestor = new GuardedCoinMarketRequestor(decoratedRequestor, guard);
+            decoratedRequestor = new SingleFlightCoinMarketRequestor(decoratedRequestor, singleFlight);
+            if (refreshEnabled) {
+                RefreshingCache<CoinType, CoinMarket> cache = new RefreshingCache<>(maxStaleness, requestorScheduler);
+                refreshingCacheMap.put("coin-market." + coinMarket.name(), cache);
+                CacheMetrics.bind(meterRegistry, "coin-market", coinMarket.name(), cache);
+                coinMarketCacheMap.put(coinMarket, cache);
+                decoratedRequestor = new RefreshingCoinMarketRequestor(decoratedRequestor, (CoinMarketCaching) requestor, cache);
+            }
+            coinMarketRequestorMap.put(coinMarket, decoratedRequestor);
+        }
+        for (CoinRewardDescription coinReward : CoinRewardDescription.values()) {
+            SingleFlight<CoinType, CoinReward> singleFlight = new SingleFlight<>();
+            singleFlightMap.put("coin-reward." + coinReward.name(), singleFlight);
+            CacheMetrics.bind(meterRegistry, "coin-reward", coinReward.name(), singleFlight);
+            RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-reward", coinReward.name(),
+                                                      coinReward.getCoinRewardType().getCoinTypeList());
+            CoinRewardRequestor requestor = CoinRewardRequestorFactory.create(coinReward.getCoinRewardType(), httpClient);
+            CoinRewardRequestor decoratedRequestor = new MeteredCoinRewardRequestor(requestor, meter);
+            RequestorGuard guard = createGuard("coin-reward", coinReward.name(), coinReward.getWebsite());
+            decoratedRequestor = new GuardedCoinRewardRequestor(decoratedRequestor, guard);
+            decoratedRequestor = new SingleFlightCoinRewardRequestor(decoratedRequestor, singleFlight);
+            if (refreshEnabled) {
+                RefreshingCache<CoinType, CoinRewardCalculator> cache = new RefreshingCache<>(maxStaleness, requestorScheduler);
+                refreshingCacheMap.put("coin-reward." + coinReward.name(), cache);
+                CacheMetrics.bind(meterRegistry, "coin-reward", coinReward.name(), cache);
+                coinRewardCacheMap.put(coinReward, cache);
+                decoratedRequestor = new RefreshingCoinRewardRequestor(decoratedRequestor, (CoinRewardCaching) requestor, cache);
+            }
+            coinRewardRequestorMap.put(coinReward, decoratedRequestor);
+        }
+    }
+
+    /**
+     * Gets account requestor.
+     *
+     * @param poolType pool type
+     * @return account requestor
+     */
+    public AccountRequestor getAccountRequestor(PoolTypeDescription poolType) {
+        return accountRequestorMap.get(poolType);
+    }
+
+    /**
+     * Gets meter of account requests, which measures only requests to pool, i.e. cache misses allowed by guard of pool.
+     *
+     * @param poolType pool type
+     * @return meter of account requests
+     */
+    public RequestorMeter getAccountMeter(PoolTypeDescription poolType) {
+        return accountMeterMap.get(poolType);
+    }
+
+    /**
+     * Gets account cache.
+     *
+     * @param poolType pool type
+     * @return account cache
+     */
+    public AccountCache getAccountCache(PoolTypeDescription poolType) {
+        return accountCacheMap.get(poolType);
+    }
+
+    /**
+     * Gets coin info requestor.
+     *
+     * @param coinInfo coin info
+     * @return coin info requestor
+     */
+    public CoinInfoRequestor getCoinInfoRequestor(CoinInfoDescription coinInfo) {
+        return coinInfoRequestorMap.get(coinInfo);
+    }
+
+    /**
+     * Gets refreshing cache of coin info.
+     *
+     * @param coinInfo coin info
+     * @return refreshing cache of coin info or {@code null} if refreshing is disabled
+     */
+    public RefreshingCache<CoinType, CoinInfo> getCoinInfoCache(CoinInfoDescription coinInfo) {
+        return coinInfoCacheMap.get(coinInfo);
+    }
+
+    /**
+     * Gets coin market requestor.
+     *
+     * @param coinMarket coin market
+     * @return coin market requestor
+     */
+    public CoinMarketRequestor getCoinMarketRequestor(CoinMarketDescription coinMarket) {
+        return coinMarketRequestorMap.get(coinMarket);
+    }
+
+    /**
+     * Gets refreshing cache of coin market.
+     *
+     * @param coinMarket coin market
+     * @return refreshing cache of coin market or {@code null} if refreshing is disabled
+     */
+    public RefreshingCache<CoinType, CoinMarket> getCoinMarketCache(CoinMarketDescription coinMarket) {
+        return coinMarketCacheMap.get(coinMarket);
+    }
+
+    /**
+     * Gets coin reward requestor.
+     *
+     * @param coinReward coin reward
+     * @return coin reward requestor
+     */
+    public CoinRewardRequestor getCoinRewardRequestor(CoinRewardDescription coinReward) {
+        return coinRewardRequestorMap.get(coinReward);
+    }
+
+    /**
+     * Gets refreshing cache of reward calculator.
+     *
+     * @param coinReward coin reward
+     * @return refreshing cache of reward calculator or {@code null} if refreshing is disabled
+     */
+    public RefreshingCache<CoinType, CoinRewardCalculator> getCoinRewardCache(CoinRewardDescription coinReward) {
+        return coinRewardCacheMap.get(coinReward);
+    }
+
+    /**
+     * Gets requests in flight by name of requestor, e.g. "coin-market.COIN_MARKET_CAP".
+     *
+     * @return requests in flight by name of requestor
+     */
+    public Map<String, SingleFlight<CoinType, ?>> getSingleFlightMap() {
+        return Collections.unmodifiableMap(singleFlightMap);
+    }
+
+    /**
+     * Gets refreshing caches by name of requestor, e.g. "coin-market.COIN_MARKET_CAP". It is empty, if refreshing is disabled.
+     *
+     * @return refreshing caches by name of requestor
+     */
+    public Map<String, RefreshingCache<CoinType, ?>> getRefreshingCacheMap() {
+        return Collections.unmodifiableMap(refreshingCacheMap);
+    }
+
+    /**
+     * Gets guards of requests by name of requestor, e.g. "account.DWARFPOOL".
+     *
+     * @return guards of requests by name of requestor
+     */
+    public Map<String, RequestorGuard> getGuardMap() {
+        return Collections.unmodifiableMap(guardMap);
+    }
+
+    /**
+     * Creates guard of requests to upstream and binds its state to registry of meters. Upstreams of the same host share its limit
+     * of concurrent requests, so bulkhead of each of them gets its part of the limit and does not let requests into HTTP client,
+     * which would be rejected there.
+     *
+     * @param requestor kind of requestor, e.g. "account"
+     * @param source source of data, e.g. "DWARFPOOL"
+     * @param website site of upstream
+     * @return guard of requests
+     */
+    private RequestorGuard createGuard(String requestor, String source, String website) {
+        String name = requestor + "." + source;
+        int hostShare = maxRequestsPerHost / hostUpstreamCountMap.get(getHost(website));
+        Bulkhead bulkhead = new Bulkhead(Math.max(1, Math.min(bulkheadMaxConcurrent, hostShare)), bulkheadMaxWait);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(name, breakerFailureThreshold, breakerOpenTime);
+        RequestorGuard guard = new RequestorGuard(name, bulkhead, circuitBreaker);
+        guardMap.put(name, guard);
+        GuardMetrics.bind(meterRegistry, requestor, source, guard);
+        return guard;
+    }
+
+    /**
+     * Gets host of upstream by its site.
+     *
+     * @param website site of upstream, e.g. "https://whattomine.com"
+     * @return host of upstream
+     */
+    private static String getHost(String website) {
+        return URI.create(website).getHost();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.tverdokhlebd.minedin.requestor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Configuration of scheduler, which runs all background work of requestors: warming and refreshing of shared data.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+public class RequestorSchedulingConfiguration {
+
+    /** Number of scheduler threads. */
+    @Value("${requestor.scheduler.threads:2}")
+    private int threads;
+
+    /**
+     * Creates scheduler of requestors.
+     *
+     * @return scheduler of requestors
+     */
+    @Bean
+    public ThreadPoolTaskScheduler requestorScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(threads);
+        scheduler.setThreadNamePrefix("requestor-scheduler-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+
+}
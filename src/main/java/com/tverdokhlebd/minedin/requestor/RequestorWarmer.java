@@ -0,0 +1,140 @@
+package com.tverdokhlebd.minedin.requestor;
+
+import static com.tverdokhlebd.mining.commons.coin.CoinType.BTC;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Warmer of shared data. It requests coin info, market and reward of all enabled coins before application starts accepting
+ * requests and then keeps them up to date, so user requests do not wait for upstream. Warming starts after restoring of cache
+ * snapshot, so restored values, which are not expired yet, are not requested again.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+@DependsOn("cacheSnapshotStore")
+public class RequestorWarmer implements InitializingBean {
+
+    /** Registry of requestors. */
+    private final RequestorRegistry requestorRegistry;
+    /** Scheduler of requestors. */
+    private final ThreadPoolTaskScheduler requestorScheduler;
+    /** Is warming enabled. */
+    private final boolean enabled;
+    /** Interval of warming in milliseconds. */
+    private final long interval;
+    /** Time in milliseconds, during which startup waits for the first warming. */
+    private final long startupTimeout;
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(RequestorWarmer.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param requestorRegistry registry of requestors
+     * @param requestorScheduler scheduler of requestors
+     * @param enabled is warming enabled
+     * @param interval interval of warming in milliseconds
+     * @param startupTimeout time in milliseconds, during which startup waits for the first warming
+     */
+    public RequestorWarmer(RequestorRegistry requestorRegistry, ThreadPoolTaskScheduler requestorScheduler,
+            @Value("${requestor.warmup.enabled:true}") boolean enabled, @Value("${requestor.warmup.interval:60000}") long interval,
+            @Value("${requestor.warmup.startup-timeout:15000}") long startupTimeout) {
+        super();
+        this.requestorRegistry = requestorRegistry;
+        this.requestorScheduler = requestorScheduler;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.startupTimeout = startupTimeout;
+    }
+
+    /**
+     * Warms shared data and schedules next warmings. Application context, and so web server, is not started until the first
+     * warming is finished or startup timeout is elapsed.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<Future<?>> warmingList = warmUp();
+        try {
+            for (Future<?> warming : warmingList) {
+                long timeout = startupTimeout - (System.currentTimeMillis() - startTime);
+                warming.get(Math.max(timeout, 0), TimeUnit.MILLISECONDS);
+            }
+            LOG.info("Shared data is warmed in {} ms", System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("Shared data is not fully warmed at startup", e);
+        }
+        requestorScheduler.scheduleAtFixedRate(this::warmUp, new Date(startTime + interval), interval);
+    }
+
+    /**
+     * Requests coin info, market and reward of all enabled coins concurrently.
+     *
+     * @return list of warmings
+     */
+    public List<Future<?>> warmUp() {
+        List<CoinType> enabledCoinList = Arrays.asList(CoinTypeDescription.values())
+                                               .stream()
+                                               .filter(CoinTypeDescription::isEnabled)
+                                               .map(CoinTypeDescription::getCoinType)
+                                               .collect(Collectors.toList());
+        List<CoinType> marketCoinList = new ArrayList<>(enabledCoinList);
+        // Price of BTC is shown in header of every page
+        marketCoinList.add(BTC);
+        List<Future<?>> warmingList = new ArrayList<>();
+        for (CoinInfoDescription coinInfo : CoinInfoDescription.values()) {
+            CoinInfoRequestor requestor = requestorRegistry.getCoinInfoRequestor(coinInfo);
+            for (CoinType coinType : enabledCoinList) {
+                warmingList.add(requestorScheduler.submit(() -> requestor.requestCoinInfo(coinType)));
+            }
+        }
+        for (CoinMarketDescription coinMarket : CoinMarketDescription.values()) {
+            CoinMarketRequestor requestor = requestorRegistry.getCoinMarketRequestor(coinMarket);
+            for (CoinType coinType : marketCoinList) {
+                warmingList.add(requestorScheduler.submit(() -> requestor.requestCoinMarket(coinType)));
+            }
+        }
+        for (CoinRewardDescription coinReward : CoinRewardDescription.values()) {
+            CoinRewardRequestor requestor = requestorRegistry.getCoinRewardRequestor(coinReward);
+            for (CoinType coinType : enabledCoinList) {
+                // Any hashrate, since reward calculator is cached per coin
+                warmingList.add(requestorScheduler.submit(() -> requestor.requestCoinReward(coinType, BigDecimal.ONE)));
+            }
+        }
+        return warmingList;
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.tverdokhlebd.minedin.requestor.cache;
+
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.AccountCaching;
+
+/**
+ * Bounded and expiring cache of accounts. It replaces unbounded static cache of pool library, so memory does not grow with
+ * number of requested wallets.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class AccountCache implements AccountCaching {
+
+    /** Cache of accounts. */
+    private final Cache<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> cache;
+    /** Map view of cache, which is used by pool requestor. */
+    private final Map<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> accountMap;
+    /** Number of cache hits. */
+    private final LongAdder hitCount = new LongAdder();
+    /** Number of cache misses. */
+    private final LongAdder missCount = new LongAdder();
+    /** Caching time of account in minutes. */
+    private final long expireAfterWrite;
+
+    /**
+     * Creates instance.
+     *
+     * @param maximumSize maximum number of accounts
+     * @param expireAfterWrite time in minutes, after which account is requested again
+     */
+    public AccountCache(long maximumSize, long expireAfterWrite) {
+        super();
+        this.expireAfterWrite = expireAfterWrite;
+        cache = Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+                        .recordStats()
+                        .build();
+        accountMap = new CountingMap(cache.asMap());
+    }
+
+    @Override
+    public Map<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> getCachedAccountMap() {
+        return accountMap;
+    }
+
+    /**
+     * Gets cached account and counts lookup as hit or miss.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return cached account or {@code null} if account is not cached or expired
+     */
+    public Account getAccount(CoinType coinType, String walletAddress) {
+        SimpleEntry<Account, Date> entry = accountMap.get(new SimpleEntry<>(coinType, walletAddress));
+        return entry != null ? entry.getKey() : null;
+    }
+
+    /**
+     * Caches account, which is received from pool, until caching time from now.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @param account received account
+     */
+    public void putAccount(CoinType coinType, String walletAddress, Account account) {
+        Date expiration = new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(expireAfterWrite));
+        cache.put(new SimpleEntry<>(coinType, walletAddress), new SimpleEntry<>(account, expiration));
+    }
+
+    /**
+     * Gets number of cache hits.
+     *
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets number of cache misses.
+     *
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets number of evicted accounts.
+     *
+     * @return number of evicted accounts
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * Gets approximate number of cached accounts.
+     *
+     * @return approximate number of cached accounts
+     */
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Gets cached account without counting lookup as hit or miss.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return cached account or {@code null} if account is not cached or expired
+     */
+    public Account peekAccount(CoinType coinType, String walletAddress) {
+        SimpleEntry<Account, Date> entry = cache.asMap().get(new SimpleEntry<>(coinType, walletAddress));
+        if (entry == null || entry.getValue().getTime() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.getKey();
+    }
+
+    /**
+     * Gets date of expiration of cached account without counting lookup as hit or miss.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @return date of expiration or {@code null} if account is not cached or expired
+     */
+    public Date getExpiration(CoinType coinType, String walletAddress) {
+        SimpleEntry<Account, Date> entry = cache.asMap().get(new SimpleEntry<>(coinType, walletAddress));
+        if (entry == null || entry.getValue().getTime() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * Restores account, e.g. saved before restart, if it is not expired yet. Restored account is kept not longer than caching
+     * time from now, since cache expires accounts by time of writing.
+     *
+     * @param coinType type of coin
+     * @param walletAddress wallet address
+     * @param account saved account
+     * @param expiration date of expiration of account
+     * @return {@code true} if account is restored, otherwise {@code false}
+     */
+    public boolean restore(CoinType coinType, String walletAddress, Account account, Date expiration) {
+        if (expiration.getTime() <= System.currentTimeMillis()) {
+            return false;
+        }
+        return cache.asMap().putIfAbsent(new SimpleEntry<>(coinType, walletAddress), new SimpleEntry<>(account, expiration)) == null;
+    }
+
+    /**
+     * Performs pending maintenance, such as eviction.
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Map view of cache, which counts hits and misses. Map view of Caffeine does not record statistics of lookups.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private class CountingMap extends AbstractMap<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> {
+
+        /** Map view of cache. */
+        private final ConcurrentMap<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> delegate;
+
+        /**
+         * Creates instance.
+         *
+         * @param delegate map view of cache
+         */
+        private CountingMap(ConcurrentMap<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> delegate) {
+            super();
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SimpleEntry<Account, Date> get(Object key) {
+            SimpleEntry<Account, Date> value = delegate.get(key);
+            if (value == null) {
+                missCount.increment();
+            } else {
+                hitCount.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public SimpleEntry<Account, Date> put(SimpleEntry<CoinType, String> key, SimpleEntry<Account, Date> value) {
+            return delegate.put(key, value);
+        }
+
+        @Override
+        public SimpleEntry<Account, Date> remove(Object key) {
+            return delegate.remove(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return delegate.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public Set<Entry<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>>> entrySet() {
+            return delegate.entrySet();
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tverdokhlebd.minedin.requestor.cache;
+
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Account requestor, which serves cached account without request to pool. Only cache misses reach delegate, so cached
+ * accounts are served even when bulkhead of pool is full or its circuit breaker is open.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class CachedAccountRequestor implements AccountRequestor {
+
+    /** Account requestor. */
+    private final AccountRequestor delegate;
+    /** Account cache. */
+    private final AccountCache accountCache;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate account requestor
+     * @param accountCache account cache
+     */
+    public CachedAccountRequestor(AccountRequestor delegate, AccountCache accountCache) {
+        super();
+        this.delegate = delegate;
+        this.accountCache = accountCache;
+    }
+
+    @Override
+    public Account requestAccount(CoinType coinType, String walletAddress) throws AccountRequestorException {
+        Account account = accountCache.getAccount(coinType, walletAddress);
+        if (account != null) {
+            return account;
+        }
+        account = delegate.requestAccount(coinType, walletAddress);
+        accountCache.putAccount(coinType, walletAddress, account);
+        return account;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.tverdokhlebd.minedin.requestor.flight;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allows only one call in flight per key. Concurrent callers with the same key wait for that call and share its result or
+ * exception.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ * @param <K> type of key
+ * @param <V> type of result
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Call, which result is shared.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     * @param <V> type of result
+     * @param <E> type of exception
+     */
+    @FunctionalInterface
+    public static interface Call<V, E extends Exception> {
+
+        /**
+         * Performs call.
+         *
+         * @return result of call
+         * @throws E if there is any error in call
+         */
+        V call() throws E;
+
+    }
+
+    /** Calls in flight by key. */
+    private final ConcurrentMap<K, CompletableFuture<V>> flightMap = new ConcurrentHashMap<>();
+    /** Number of performed calls. */
+    private final LongAdder callCount = new LongAdder();
+    /** Number of calls, which are collapsed into call in flight. */
+    private final LongAdder collapsedCount = new LongAdder();
+
+    /**
+     * Performs call or waits for call in flight with the same key.
+     *
+     * @param key key of call
+     * @param call call
+     * @return result of call
+     * @throws E if there is any error in call
+     */
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flightMap.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            collapsedCount.increment();
+            return await(inFlight);
+        }
+        callCount.increment();
+        try {
+            V result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flightMap.remove(key, flight);
+        }
+    }
+
+    /**
+     * Gets number of performed calls.
+     *
+     * @return number of performed calls
+     */
+    public long getCallCount() {
+        return callCount.sum();
+    }
+
+    /**
+     * Gets number of calls, which are collapsed into call in flight.
+     *
+     * @return number of calls, which are collapsed into call in flight
+     */
+    public long getCollapsedCount() {
+        return collapsedCount.sum();
+    }
+
+    /**
+     * Waits for call in flight.
+     *
+     * @param inFlight call in flight
+     * @return result of call
+     * @throws E if there is any error in call
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> inFlight) throws E {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Calls with the same key are of the same type, so they throw the same checked exception
+            throw (E) cause;
+        }
+    }
+
+}
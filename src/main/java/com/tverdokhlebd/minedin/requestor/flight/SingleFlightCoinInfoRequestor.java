@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.flight;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin info requestor, which allows only one request in flight per coin type.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class SingleFlightCoinInfoRequestor implements CoinInfoRequestor {
+
+    /** Coin info requestor. */
+    private final CoinInfoRequestor delegate;
+    /** Requests in flight. */
+    private final SingleFlight<CoinType, CoinInfo> singleFlight;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin info requestor
+     * @param singleFlight requests in flight
+     */
+    public SingleFlightCoinInfoRequestor(CoinInfoRequestor delegate, SingleFlight<CoinType, CoinInfo> singleFlight) {
+        super();
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public CoinInfo requestCoinInfo(CoinType coinType) throws CoinInfoRequestorException {
+        return singleFlight.execute(coinType, () -> delegate.requestCoinInfo(coinType));
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.flight;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin market requestor, which allows only one request in flight per coin type.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class SingleFlightCoinMarketRequestor implements CoinMarketRequestor {
+
+    /** Coin market requestor. */
+    private final CoinMarketRequestor delegate;
+    /** Requests in flight. */
+    private final SingleFlight<CoinType, CoinMarket> singleFlight;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin market requestor
+     * @param singleFlight requests in flight
+     */
+    public SingleFlightCoinMarketRequestor(CoinMarketRequestor delegate, SingleFlight<CoinType, CoinMarket> singleFlight) {
+        super();
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public CoinMarket requestCoinMarket(CoinType coinType) throws CoinMarketRequestorException {
+        return singleFlight.execute(coinType, () -> delegate.requestCoinMarket(coinType));
+    }
+
+}
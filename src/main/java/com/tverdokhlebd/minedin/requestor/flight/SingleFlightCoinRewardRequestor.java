@@ -0,0 +1,45 @@
+package com.tverdokhlebd.minedin.requestor.flight;
+
+import java.math.BigDecimal;
+
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin reward requestor, which allows only one request in flight per coin type. Rewards depend on hashrate, so caller with
+ * another hashrate requests reward again after shared request, when cache of requestor is already filled.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class SingleFlightCoinRewardRequestor implements CoinRewardRequestor {
+
+    /** Coin reward requestor. */
+    private final CoinRewardRequestor delegate;
+    /** Requests in flight. */
+    private final SingleFlight<CoinType, CoinReward> singleFlight;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin reward requestor
+     * @param singleFlight requests in flight
+     */
+    public SingleFlightCoinRewardRequestor(CoinRewardRequestor delegate, SingleFlight<CoinType, CoinReward> singleFlight) {
+        super();
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public CoinReward requestCoinReward(CoinType coinType, BigDecimal hashrate) throws CoinRewardRequestorException {
+        CoinReward coinReward = singleFlight.execute(coinType, () -> delegate.requestCoinReward(coinType, hashrate));
+        if (coinReward.getReportedHashrate().compareTo(hashrate) == 0) {
+            return coinReward;
+        }
+        return delegate.requestCoinReward(coinType, hashrate);
+    }
+
+}
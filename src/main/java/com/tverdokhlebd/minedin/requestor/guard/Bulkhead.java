@@ -0,0 +1,91 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead, which bounds number of concurrent requests to one upstream. Callers wait for free slot not longer than max wait, so
+ * hanging upstream holds only its own slots instead of all threads of server.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class Bulkhead {
+
+    /** Max number of concurrent requests. */
+    private final int maxConcurrent;
+    /** Max time of waiting for free slot in milliseconds. */
+    private final long maxWait;
+    /** Free slots. */
+    private final Semaphore permits;
+    /** Number of rejected requests. */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Creates instance.
+     *
+     * @param maxConcurrent max number of concurrent requests
+     * @param maxWait max time of waiting for free slot in milliseconds
+     */
+    public Bulkhead(int maxConcurrent, long maxWait) {
+        super();
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Gets max number of concurrent requests.
+     *
+     * @return max number of concurrent requests
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Tries to acquire free slot. Acquired slot must be released.
+     *
+     * @return {@code true} if slot is acquired
+     */
+    public boolean tryAcquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCount.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * Releases acquired slot.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Gets number of requests in progress.
+     *
+     * @return number of requests in progress
+     */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Gets number of rejected requests.
+     *
+     * @return number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+}
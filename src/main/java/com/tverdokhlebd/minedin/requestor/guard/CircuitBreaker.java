@@ -0,0 +1,141 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of one upstream. It opens after number of consecutive failures and rejects requests during open time. After
+ * open time only one trial request is allowed, its success closes breaker and its failure opens breaker again.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class CircuitBreaker {
+
+    /**
+     * Enumerations of states of circuit breaker.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    public static enum State {
+
+        CLOSED,
+        OPEN,
+        HALF_OPEN;
+
+    }
+
+    /** Name of upstream. */
+    private final String name;
+    /** Number of consecutive failures, which opens breaker. */
+    private final int failureThreshold;
+    /** Open time in nanoseconds. */
+    private final long openTime;
+    /** Current state. */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    /** Number of consecutive failures. */
+    private final AtomicInteger failureCount = new AtomicInteger();
+    /** Time of opening in nanoseconds. */
+    private volatile long openedAt;
+    /** Number of rejected requests. */
+    private final LongAdder rejectedCount = new LongAdder();
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param name name of upstream
+     * @param failureThreshold number of consecutive failures, which opens breaker
+     * @param openTime open time in milliseconds
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openTime) {
+        super();
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openTime = TimeUnit.MILLISECONDS.toNanos(openTime);
+    }
+
+    /**
+     * Tries to allow request. Allowed request must be completed by {@link #onSuccess()}, {@link #onFailure()} or
+     * {@link #onIgnored()}.
+     *
+     * @return {@code true} if request is allowed
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openTime && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return true;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * Completes allowed request, which has reached upstream.
+     */
+    public void onSuccess() {
+        if (failureCount.get() != 0) {
+            failureCount.set(0);
+        }
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            LOG.info("Circuit breaker of {} is closed", name);
+        }
+    }
+
+    /**
+     * Completes allowed request, which has failed to reach upstream.
+     */
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            openedAt = System.nanoTime();
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                LOG.warn("Circuit breaker of {} is open again after trial request", name);
+            }
+            return;
+        }
+        if (failureCount.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                failureCount.set(0);
+                LOG.warn("Circuit breaker of {} is open after {} consecutive failures", name, failureThreshold);
+            }
+        }
+    }
+
+    /**
+     * Completes allowed request, which has not been sent to upstream, e.g. because it is rejected by HTTP client itself. It is
+     * neither success nor failure of upstream, trial request of half-open breaker is given back, so the next request is trial.
+     */
+    public void onIgnored() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    /**
+     * Gets current state.
+     *
+     * @return current state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Gets number of rejected requests.
+     *
+     * @return number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Account requestor, which is guarded by bulkhead and circuit breaker of upstream.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class GuardedAccountRequestor implements AccountRequestor {
+
+    /** Account requestor. */
+    private final AccountRequestor delegate;
+    /** Guard of requests. */
+    private final RequestorGuard guard;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate account requestor
+     * @param guard guard of requests
+     */
+    public GuardedAccountRequestor(AccountRequestor delegate, RequestorGuard guard) {
+        super();
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public Account requestAccount(CoinType coinType, String walletAddress) throws AccountRequestorException {
+        return guard.execute(() -> delegate.requestAccount(coinType, walletAddress), AccountRequestorException::new);
+    }
+
+}
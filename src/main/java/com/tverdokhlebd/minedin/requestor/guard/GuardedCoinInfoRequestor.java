@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin info requestor, which is guarded by bulkhead and circuit breaker of upstream.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class GuardedCoinInfoRequestor implements CoinInfoRequestor {
+
+    /** Coin info requestor. */
+    private final CoinInfoRequestor delegate;
+    /** Guard of requests. */
+    private final RequestorGuard guard;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin info requestor
+     * @param guard guard of requests
+     */
+    public GuardedCoinInfoRequestor(CoinInfoRequestor delegate, RequestorGuard guard) {
+        super();
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public CoinInfo requestCoinInfo(CoinType coinType) throws CoinInfoRequestorException {
+        return guard.execute(() -> delegate.requestCoinInfo(coinType), CoinInfoRequestorException::new);
+    }
+
+}
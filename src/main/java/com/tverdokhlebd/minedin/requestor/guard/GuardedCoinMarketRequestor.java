@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin market requestor, which is guarded by bulkhead and circuit breaker of upstream.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class GuardedCoinMarketRequestor implements CoinMarketRequestor {
+
+    /** Coin market requestor. */
+    private final CoinMarketRequestor delegate;
+    /** Guard of requests. */
+    private final RequestorGuard guard;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin market requestor
+     * @param guard guard of requests
+     */
+    public GuardedCoinMarketRequestor(CoinMarketRequestor delegate, RequestorGuard guard) {
+        super();
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public CoinMarket requestCoinMarket(CoinType coinType) throws CoinMarketRequestorException {
+        return guard.execute(() -> delegate.requestCoinMarket(coinType), CoinMarketRequestorException::new);
+    }
+
+}
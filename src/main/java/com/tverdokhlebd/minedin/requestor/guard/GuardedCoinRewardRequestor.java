@@ -0,0 +1,40 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import java.math.BigDecimal;
+
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin reward requestor, which is guarded by bulkhead and circuit breaker of upstream.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class GuardedCoinRewardRequestor implements CoinRewardRequestor {
+
+    /** Coin reward requestor. */
+    private final CoinRewardRequestor delegate;
+    /** Guard of requests. */
+    private final RequestorGuard guard;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin reward requestor
+     * @param guard guard of requests
+     */
+    public GuardedCoinRewardRequestor(CoinRewardRequestor delegate, RequestorGuard guard) {
+        super();
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public CoinReward requestCoinReward(CoinType coinType, BigDecimal hashrate) throws CoinRewardRequestorException {
+        return guard.execute(() -> delegate.requestCoinReward(coinType, hashrate), CoinRewardRequestorException::new);
+    }
+
+}
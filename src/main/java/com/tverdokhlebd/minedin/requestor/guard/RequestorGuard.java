@@ -0,0 +1,140 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import com.tverdokhlebd.minedin.http.LocalRejectionException;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.commons.http.RequestException;
+
+/**
+ * Guard of requests to one upstream, which combines bulkhead and circuit breaker. Rejected requests fail fast with typed
+ * exception of requestor and {@link ErrorCode#HTTP_ERROR}. Only HTTP errors and unexpected exceptions are failures of upstream,
+ * API and parse errors mean that upstream has responded. Requests rejected by HTTP client itself, e.g. when there are no free
+ * slots of host, have not reached upstream, so they are neither failures nor successes.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class RequestorGuard {
+
+    /**
+     * Request, which is guarded.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     * @param <V> type of result
+     * @param <E> type of exception
+     */
+    @FunctionalInterface
+    public static interface Call<V, E extends Exception> {
+
+        /**
+         * Performs request.
+         *
+         * @return result of request
+         * @throws E if there is any error in request
+         */
+        V call() throws E;
+
+    }
+
+    /**
+     * Factory of typed exception for rejected request.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     * @param <E> type of exception
+     */
+    @FunctionalInterface
+    public static interface Rejection<E extends Exception> {
+
+        /**
+         * Creates exception.
+         *
+         * @param errorCode error code
+         * @param message error message
+         * @return exception
+         */
+        E create(ErrorCode errorCode, String message);
+
+    }
+
+    /** Name of upstream. */
+    private final String name;
+    /** Bulkhead. */
+    private final Bulkhead bulkhead;
+    /** Circuit breaker. */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates instance.
+     *
+     * @param name name of upstream
+     * @param bulkhead bulkhead
+     * @param circuitBreaker circuit breaker
+     */
+    public RequestorGuard(String name, Bulkhead bulkhead, CircuitBreaker circuitBreaker) {
+        super();
+        this.name = name;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Performs request, if it is allowed by bulkhead and circuit breaker.
+     *
+     * @param call request
+     * @param rejection factory of exception for rejected request
+     * @return result of request
+     * @throws E if request is rejected or there is any error in request
+     */
+    public <V, E extends Exception> V execute(Call<V, E> call, Rejection<E> rejection) throws E {
+        if (!bulkhead.tryAcquire()) {
+            throw rejection.create(ErrorCode.HTTP_ERROR, "Too many concurrent requests to " + name);
+        }
+        try {
+            // Breaker is checked after bulkhead, so allowed trial request is never lost in bulkhead
+            if (!circuitBreaker.tryAcquire()) {
+                throw rejection.create(ErrorCode.HTTP_ERROR, name + " is temporarily unavailable");
+            }
+            boolean failure = true;
+            boolean ignored = false;
+            try {
+                V result = call.call();
+                failure = false;
+                return result;
+            } catch (Exception e) {
+                failure = !(e instanceof RequestException) || ((RequestException) e).getErrorCode() == ErrorCode.HTTP_ERROR;
+                ignored = failure && LocalRejectionException.isCauseOf(e);
+                throw e;
+            } finally {
+                if (ignored) {
+                    circuitBreaker.onIgnored();
+                } else if (failure) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Gets bulkhead.
+     *
+     * @return bulkhead
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Gets circuit breaker.
+     *
+     * @return circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import java.util.function.ToLongFunction;
+
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.flight.SingleFlight;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Binder of statistics of caches and requests in flight to registry of meters. Statistics are read on scrape, so caches are not
+ * slowed down by metrics.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class CacheMetrics {
+
+    /** Name of counter of cache requests. */
+    private static final String CACHE_REQUESTS = "requestor.cache.requests";
+
+    /**
+     * Binds statistics of account cache.
+     *
+     * @param meterRegistry registry of meters
+     * @param source pool, e.g. "NANOPOOL"
+     * @param accountCache account cache
+     */
+    public static void bind(MeterRegistry meterRegistry, String source, AccountCache accountCache) {
+        bindCacheRequests(meterRegistry, "account", source, "hit", accountCache, AccountCache::getHitCount);
+        bindCacheRequests(meterRegistry, "account", source, "miss", accountCache, AccountCache::getMissCount);
+        FunctionCounter.builder("requestor.cache.evictions", accountCache, cache -> cache.getEvictionCount())
+                       .description("Evicted entries of requestor caches")
+                       .tags("requestor", "account", "source", source)
+                       .register(meterRegistry);
+        Gauge.builder("requestor.cache.size", accountCache, cache -> cache.getSize())
+             .description("Approximate number of entries of requestor caches")
+             .tags("requestor", "account", "source", source)
+             .register(meterRegistry);
+    }
+
+    /**
+     * Binds statistics of refreshing cache.
+     *
+     * @param meterRegistry registry of meters
+     * @param requestor kind of requestor, e.g. "coin-market"
+     * @param source source of data, e.g. "COIN_MARKET_CAP"
+     * @param refreshingCache refreshing cache
+     */
+    public static void bind(MeterRegistry meterRegistry, String requestor, String source, RefreshingCache<?, ?> refreshingCache) {
+        bindCacheRequests(meterRegistry, requestor, source, "hit", refreshingCache, RefreshingCache::getFreshCount);
+        bindCacheRequests(meterRegistry, requestor, source, "stale", refreshingCache, RefreshingCache::getStaleCount);
+        bindCacheRequests(meterRegistry, requestor, source, "miss", refreshingCache, RefreshingCache::getMissCount);
+        FunctionCounter.builder("requestor.cache.refresh.errors", refreshingCache, cache -> cache.getRefreshErrorCount())
+                       .description("Failed background refreshes of requestor caches")
+                       .tags("requestor", requestor, "source", source)
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Binds statistics of requests in flight.
+     *
+     * @param meterRegistry registry of meters
+     * @param requestor kind of requestor, e.g. "coin-market"
+     * @param source source of data, e.g. "COIN_MARKET_CAP"
+     * @param singleFlight requests in flight
+     */
+    public static void bind(MeterRegistry meterRegistry, String requestor, String source, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("requestor.flight.calls", singleFlight, flight -> flight.getCallCount())
+                       .description("Calls of requestors, which are not merged into another call")
+                       .tags("requestor", requestor, "source", source)
+                       .register(meterRegistry);
+        FunctionCounter.builder("requestor.flight.collapsed", singleFlight, flight -> flight.getCollapsedCount())
+                       .description("Calls of requestors, which are merged into another call")
+                       .tags("requestor", requestor, "source", source)
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Binds counter of cache requests with result.
+     *
+     * @param meterRegistry registry of meters
+     * @param requestor kind of requestor
+     * @param source source of data
+     * @param result result of cache request, e.g. "hit"
+     * @param cache cache
+     * @param count function, which counts requests
+     */
+    private static <T> void bindCacheRequests(MeterRegistry meterRegistry, String requestor, String source, String result, T cache,
+            ToLongFunction<T> count) {
+        FunctionCounter.builder(CACHE_REQUESTS, cache, value -> count.applyAsLong(value))
+                       .description("Requests to requestor caches by result")
+                       .tags("requestor", requestor, "source", source, "result", result)
+                       .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import com.tverdokhlebd.minedin.requestor.guard.Bulkhead;
+import com.tverdokhlebd.minedin.requestor.guard.CircuitBreaker;
+import com.tverdokhlebd.minedin.requestor.guard.RequestorGuard;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Binder of state of bulkheads and circuit breakers to registry of meters.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class GuardMetrics {
+
+    /**
+     * Binds state of guard of requests.
+     *
+     * @param meterRegistry registry of meters
+     * @param requestor kind of requestor, e.g. "account"
+     * @param source source of data, e.g. "NANOPOOL"
+     * @param guard guard of requests
+     */
+    public static void bind(MeterRegistry meterRegistry, String requestor, String source, RequestorGuard guard) {
+        Bulkhead bulkhead = guard.getBulkhead();
+        CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+        // One gauge per state with value 1 for current state, so state can be summed up and graphed
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("requestor.breaker.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                 .description("State of circuit breakers of upstreams")
+                 .tags("requestor", requestor, "source", source, "state", state.name().toLowerCase())
+                 .register(meterRegistry);
+        }
+        FunctionCounter.builder("requestor.guard.rejections", circuitBreaker, breaker -> breaker.getRejectedCount())
+                       .description("Requests to upstreams, which are rejected without calling")
+                       .tags("requestor", requestor, "source", source, "reason", "breaker")
+                       .register(meterRegistry);
+        FunctionCounter.builder("requestor.guard.rejections", bulkhead, value -> value.getRejectedCount())
+                       .description("Requests to upstreams, which are rejected without calling")
+                       .tags("requestor", requestor, "source", source, "reason", "bulkhead")
+                       .register(meterRegistry);
+        Gauge.builder("requestor.bulkhead.active", bulkhead, value -> value.getActiveCount())
+             .description("Requests to upstreams in progress")
+             .tags("requestor", requestor, "source", source)
+             .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Account requestor, which records latency and errors of requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class MeteredAccountRequestor implements AccountRequestor {
+
+    /** Account requestor. */
+    private final AccountRequestor delegate;
+    /** Meter of requests. */
+    private final RequestorMeter meter;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate account requestor
+     * @param meter meter of requests
+     */
+    public MeteredAccountRequestor(AccountRequestor delegate, RequestorMeter meter) {
+        super();
+        this.delegate = delegate;
+        this.meter = meter;
+    }
+
+    @Override
+    public Account requestAccount(CoinType coinType, String walletAddress) throws AccountRequestorException {
+        return meter.record(coinType, () -> delegate.requestAccount(coinType, walletAddress));
+    }
+
+}
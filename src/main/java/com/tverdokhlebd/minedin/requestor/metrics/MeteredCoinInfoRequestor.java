@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin info requestor, which records latency and errors of requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class MeteredCoinInfoRequestor implements CoinInfoRequestor {
+
+    /** Coin info requestor. */
+    private final CoinInfoRequestor delegate;
+    /** Meter of requests. */
+    private final RequestorMeter meter;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin info requestor
+     * @param meter meter of requests
+     */
+    public MeteredCoinInfoRequestor(CoinInfoRequestor delegate, RequestorMeter meter) {
+        super();
+        this.delegate = delegate;
+        this.meter = meter;
+    }
+
+    @Override
+    public CoinInfo requestCoinInfo(CoinType coinType) throws CoinInfoRequestorException {
+        return meter.record(coinType, () -> delegate.requestCoinInfo(coinType));
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin market requestor, which records latency and errors of requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class MeteredCoinMarketRequestor implements CoinMarketRequestor {
+
+    /** Coin market requestor. */
+    private final CoinMarketRequestor delegate;
+    /** Meter of requests. */
+    private final RequestorMeter meter;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin market requestor
+     * @param meter meter of requests
+     */
+    public MeteredCoinMarketRequestor(CoinMarketRequestor delegate, RequestorMeter meter) {
+        super();
+        this.delegate = delegate;
+        this.meter = meter;
+    }
+
+    @Override
+    public CoinMarket requestCoinMarket(CoinType coinType) throws CoinMarketRequestorException {
+        return meter.record(coinType, () -> delegate.requestCoinMarket(coinType));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import java.math.BigDecimal;
+
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin reward requestor, which records latency and errors of requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class MeteredCoinRewardRequestor implements CoinRewardRequestor {
+
+    /** Coin reward requestor. */
+    private final CoinRewardRequestor delegate;
+    /** Meter of requests. */
+    private final RequestorMeter meter;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin reward requestor
+     * @param meter meter of requests
+     */
+    public MeteredCoinRewardRequestor(CoinRewardRequestor delegate, RequestorMeter meter) {
+        super();
+        this.delegate = delegate;
+        this.meter = meter;
+    }
+
+    @Override
+    public CoinReward requestCoinReward(CoinType coinType, BigDecimal hashrate) throws CoinRewardRequestorException {
+        return meter.record(coinType, () -> delegate.requestCoinReward(coinType, hashrate));
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.RequestException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meter of requests of one requestor. It records latency of requests by coin and outcome and counts errors by error code. Timers
+ * are registered once per supported coin and outcome and counters once per coin and error code, so requests do not look up
+ * registry of meters. Coins, which are not supported by source, are looked up in registry, since they are rejected by it.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class RequestorMeter {
+
+    /**
+     * Request, which is metered.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     * @param <V> type of result
+     * @param <E> type of exception
+     */
+    @FunctionalInterface
+    public static interface Call<V, E extends Exception> {
+
+        /**
+         * Performs request.
+         *
+         * @return result of request
+         * @throws E if there is any error in request
+         */
+        V call() throws E;
+
+    }
+
+    /** Registry of meters. */
+    private final MeterRegistry meterRegistry;
+    /** Kind of requestor, e.g. "account". */
+    private final String requestor;
+    /** Source of data, e.g. "NANOPOOL". */
+    private final String source;
+    /** Timers of successful requests by supported coin. */
+    private final Map<CoinType, Timer> successTimerMap = new EnumMap<>(CoinType.class);
+    /** Timers of failed requests by supported coin. */
+    private final Map<CoinType, Timer> errorTimerMap = new EnumMap<>(CoinType.class);
+    /** Counters of errors by supported coin and error code, they are registered on the first error. */
+    private final Map<CoinType, ConcurrentMap<String, Counter>> errorCounterMap = new EnumMap<>(CoinType.class);
+    /** Listener of latency of successful requests in nanoseconds or {@code null} if there is no one. */
+    private volatile LongConsumer latencyListener;
+
+    /**
+     * Creates instance.
+     *
+     * @param meterRegistry registry of meters
+     * @param requestor kind of requestor, e.g. "account"
+     * @param source source of data, e.g. "NANOPOOL"
+     * @param coinTypes coins, which are supported by source
+     */
+    public RequestorMeter(MeterRegistry meterRegistry, String requestor, String source, Collection<CoinType> coinTypes) {
+        super();
+        this.meterRegistry = meterRegistry;
+        this.requestor = requestor;
+        this.source = source;
+        for (CoinType coinType : coinTypes) {
+            successTimerMap.put(coinType, createTimer(coinType, "success"));
+            errorTimerMap.put(coinType, createTimer(coinType, "error"));
+            errorCounterMap.put(coinType, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Sets listener of latency of successful requests. Only requests, which have reached upstream and have been answered, are
+     * passed to listener.
+     *
+     * @param latencyListener listener of latency in nanoseconds or {@code null} to remove listener
+     */
+    public void setLatencyListener(LongConsumer latencyListener) {
+        this.latencyListener = latencyListener;
+    }
+
+    /**
+     * Performs and records request.
+     *
+     * @param coinType coin type
+     * @param call request
+     * @return result of request
+     * @throws E if there is any error in request
+     */
+    public <V, E extends Exception> V record(CoinType coinType, Call<V, E> call) throws E {
+        long start = System.nanoTime();
+        String errorCode = null;
+        try {
+            return call.call();
+        } catch (Exception e) {
+            if (e instanceof RequestException && ((RequestException) e).getErrorCode() != null) {
+                errorCode = ((RequestException) e).getErrorCode().name();
+            } else {
+                errorCode = "UNEXPECTED";
+            }
+            throw e;
+        } finally {
+            long latency = System.nanoTime() - start;
+            LongConsumer listener = latencyListener;
+            if (errorCode == null && listener != null) {
+                listener.accept(latency);
+            }
+            Timer timer = errorCode == null ? successTimerMap.get(coinType) : errorTimerMap.get(coinType);
+            if (timer == null) {
+                timer = createTimer(coinType, errorCode == null ? "success" : "error");
+            }
+            timer.record(latency, TimeUnit.NANOSECONDS);
+            if (errorCode != null) {
+                ConcurrentMap<String, Counter> counterMap = errorCounterMap.get(coinType);
+                Counter counter = counterMap != null ? counterMap.computeIfAbsent(errorCode, code -> createErrorCounter(coinType, code))
+                        : createErrorCounter(coinType, errorCode);
+                counter.increment();
+            }
+        }
+    }
+
+    /**
+     * Registers timer of requests.
+     *
+     * @param coinType coin type
+     * @param outcome outcome of requests, e.g. "success"
+     * @return timer of requests
+     */
+    private Timer createTimer(CoinType coinType, String outcome) {
+        return Timer.builder("requestor.requests")
+                    .description("Latency of requests to pools and markets")
+                    .tags("requestor", requestor, "source", source, "coin", coinType.name(), "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+    /**
+     * Registers counter of errors.
+     *
+     * @param coinType coin type
+     * @param errorCode error code, e.g. "HTTP_ERROR"
+     * @return counter of errors
+     */
+    private Counter createErrorCounter(CoinType coinType, String errorCode) {
+        return Counter.builder("requestor.errors")
+                      .description("Errors of requests to pools and markets")
+                      .tags("requestor", requestor, "source", source, "coin", coinType.name(), "error_code", errorCode)
+                      .register(meterRegistry);
+    }
+
+}
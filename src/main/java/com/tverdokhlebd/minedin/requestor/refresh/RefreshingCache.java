@@ -0,0 +1,253 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache, which serves stale values while they are refreshed in background. Value, which is stale longer than max staleness, is
+ * requested synchronously.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class RefreshingCache<K, V> {
+
+    /**
+     * Loader of snapshot.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     * @param <V> type of value
+     * @param <E> type of exception
+     */
+    @FunctionalInterface
+    public static interface Loader<V, E extends Exception> {
+
+        /**
+         * Loads snapshot.
+         *
+         * @return loaded snapshot
+         * @throws E if there is any error in loading
+         */
+        Snapshot<V> load() throws E;
+
+    }
+
+    /** Snapshots by key. */
+    private final ConcurrentMap<K, Snapshot<V>> snapshotMap = new ConcurrentHashMap<>();
+    /** Keys, which are being refreshed. */
+    private final Set<K> refreshingSet = ConcurrentHashMap.newKeySet();
+    /** Listeners of loaded snapshots. */
+    private final List<BiConsumer<K, Snapshot<V>>> listenerList = new CopyOnWriteArrayList<>();
+    /** Time in milliseconds, during which stale value is served. */
+    private final long maxStaleness;
+    /** Executor of refreshes. */
+    private final Executor executor;
+    /** Number of served fresh values. */
+    private final LongAdder freshCount = new LongAdder();
+    /** Number of served stale values. */
+    private final LongAdder staleCount = new LongAdder();
+    /** Number of synchronously loaded values. */
+    private final LongAdder missCount = new LongAdder();
+    /** Number of failed background refreshes. */
+    private final LongAdder refreshErrorCount = new LongAdder();
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(RefreshingCache.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param maxStaleness time in milliseconds, during which stale value is served
+     * @param executor executor of refreshes
+     */
+    public RefreshingCache(long maxStaleness, Executor executor) {
+        super();
+        this.maxStaleness = maxStaleness;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets value. Fresh value is returned immediately. Stale value is returned immediately and refreshed in background.
+     * Missing or too stale value is loaded synchronously.
+     *
+     * @param key key of value
+     * @param loader loader of snapshot
+     * @return value
+     * @throws E if there is any error in synchronous loading
+     */
+    public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+        Snapshot<V> snapshot = snapshotMap.get(key);
+        if (snapshot == null) {
+            missCount.increment();
+            return load(key, loader).getValue();
+        }
+        long staleness = System.currentTimeMillis() - snapshot.getNextUpdate().getTime();
+        if (staleness < 0) {
+            freshCount.increment();
+            return snapshot.getValue();
+        }
+        if (staleness <= maxStaleness) {
+            staleCount.increment();
+            refresh(key, loader);
+            return snapshot.getValue();
+        }
+        missCount.increment();
+        return load(key, loader).getValue();
+    }
+
+    /**
+     * Gets snapshot.
+     *
+     * @param key key of value
+     * @return snapshot or {@code null} if value was not requested yet
+     */
+    public Snapshot<V> getSnapshot(K key) {
+        return snapshotMap.get(key);
+    }
+
+    /**
+     * Gets all snapshots.
+     *
+     * @return snapshots by key
+     */
+    public Map<K, Snapshot<V>> getSnapshotMap() {
+        return Collections.unmodifiableMap(snapshotMap);
+    }
+
+    /**
+     * Restores snapshot, e.g. saved before restart, if value was not requested yet and is not stale longer than max staleness.
+     * Stale value is served and refreshed in background on the next request.
+     *
+     * @param key key of value
+     * @param snapshot saved snapshot
+     * @return {@code true} if snapshot is restored, otherwise {@code false}
+     */
+    public boolean restore(K key, Snapshot<V> snapshot) {
+        if (System.currentTimeMillis() - snapshot.getNextUpdate().getTime() > maxStaleness) {
+            return false;
+        }
+        if (snapshotMap.putIfAbsent(key, snapshot) != null) {
+            return false;
+        }
+        notifyListeners(key, snapshot);
+        return true;
+    }
+
+    /**
+     * Adds listener, which is called after each loaded snapshot.
+     *
+     * @param listener listener of loaded snapshots
+     */
+    public void addListener(BiConsumer<K, Snapshot<V>> listener) {
+        listenerList.add(listener);
+    }
+
+    /**
+     * Gets number of served fresh values.
+     *
+     * @return number of served fresh values
+     */
+    public long getFreshCount() {
+        return freshCount.sum();
+    }
+
+    /**
+     * Gets number of served stale values.
+     *
+     * @return number of served stale values
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * Gets number of synchronously loaded values.
+     *
+     * @return number of synchronously loaded values
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets number of failed background refreshes.
+     *
+     * @return number of failed background refreshes
+     */
+    public long getRefreshErrorCount() {
+        return refreshErrorCount.sum();
+    }
+
+    /**
+     * Loads snapshot and puts it to cache.
+     *
+     * @param key key of value
+     * @param loader loader of snapshot
+     * @return loaded snapshot
+     * @throws E if there is any error in loading
+     */
+    private <E extends Exception> Snapshot<V> load(K key, Loader<V, E> loader) throws E {
+        Snapshot<V> snapshot = loader.load();
+        snapshotMap.put(key, snapshot);
+        notifyListeners(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Notifies listeners about loaded snapshot.
+     *
+     * @param key key of value
+     * @param snapshot loaded snapshot
+     */
+    private void notifyListeners(K key, Snapshot<V> snapshot) {
+        for (BiConsumer<K, Snapshot<V>> listener : listenerList) {
+            try {
+                listener.accept(key, snapshot);
+            } catch (Exception e) {
+                LOG.error("Listener error", e);
+            }
+        }
+    }
+
+    /**
+     * Refreshes value in background, if it is not being refreshed yet.
+     *
+     * @param key key of value
+     * @param loader loader of snapshot
+     */
+    private void refresh(K key, Loader<V, ?> loader) {
+        if (!refreshingSet.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    load(key, loader);
+                } catch (Exception e) {
+                    // Stale value is still served until max staleness
+                    refreshErrorCount.increment();
+                    LOG.warn("Refresh of " + key + " failed", e);
+                } finally {
+                    refreshingSet.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingSet.remove(key);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import java.util.Date;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.CoinInfoCaching;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin info requestor, which serves stale coin info while it is refreshed in background.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class RefreshingCoinInfoRequestor implements CoinInfoRequestor {
+
+    /** Coin info requestor. */
+    private final CoinInfoRequestor delegate;
+    /** Caching of coin info requestor, which defines date of next update. */
+    private final CoinInfoCaching caching;
+    /** Cache of coin info. */
+    private final RefreshingCache<CoinType, CoinInfo> cache;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin info requestor
+     * @param caching caching of coin info requestor, which defines date of next update
+     * @param cache cache of coin info
+     */
+    public RefreshingCoinInfoRequestor(CoinInfoRequestor delegate, CoinInfoCaching caching, RefreshingCache<CoinType, CoinInfo> cache) {
+        super();
+        this.delegate = delegate;
+        this.caching = caching;
+        this.cache = cache;
+    }
+
+    @Override
+    public CoinInfo requestCoinInfo(CoinType coinType) throws CoinInfoRequestorException {
+        return cache.get(coinType, () -> {
+            CoinInfo coinInfo = delegate.requestCoinInfo(coinType);
+            return new Snapshot<>(coinInfo, new Date(), caching.getCachedNextUpdate(coinType));
+        });
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import java.util.Date;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.CoinMarketCaching;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin market requestor, which serves stale coin market while it is refreshed in background.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class RefreshingCoinMarketRequestor implements CoinMarketRequestor {
+
+    /** Coin market requestor. */
+    private final CoinMarketRequestor delegate;
+    /** Caching of coin market requestor, which defines date of next update. */
+    private final CoinMarketCaching caching;
+    /** Cache of coin market. */
+    private final RefreshingCache<CoinType, CoinMarket> cache;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin market requestor
+     * @param caching caching of coin market requestor, which defines date of next update
+     * @param cache cache of coin market
+     */
+    public RefreshingCoinMarketRequestor(CoinMarketRequestor delegate, CoinMarketCaching caching,
+            RefreshingCache<CoinType, CoinMarket> cache) {
+        super();
+        this.delegate = delegate;
+        this.caching = caching;
+        this.cache = cache;
+    }
+
+    @Override
+    public CoinMarket requestCoinMarket(CoinType coinType) throws CoinMarketRequestorException {
+        return cache.get(coinType, () -> {
+            CoinMarket coinMarket = delegate.requestCoinMarket(coinType);
+            return new Snapshot<>(coinMarket, new Date(), caching.getCachedNextUpdate(coinType));
+        });
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.CoinRewardCaching;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Coin reward requestor, which serves stale reward calculator while it is refreshed in background. Calculator does not depend on
+ * hashrate, so one snapshot serves all hashrates.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class RefreshingCoinRewardRequestor implements CoinRewardRequestor {
+
+    /** Coin reward requestor. */
+    private final CoinRewardRequestor delegate;
+    /** Caching of coin reward requestor, which defines calculator and date of next update. */
+    private final CoinRewardCaching caching;
+    /** Cache of reward calculators. */
+    private final RefreshingCache<CoinType, CoinRewardCalculator> cache;
+
+    /**
+     * Creates instance.
+     *
+     * @param delegate coin reward requestor
+     * @param caching caching of coin reward requestor, which defines calculator and date of next update
+     * @param cache cache of reward calculators
+     */
+    public RefreshingCoinRewardRequestor(CoinRewardRequestor delegate, CoinRewardCaching caching,
+            RefreshingCache<CoinType, CoinRewardCalculator> cache) {
+        super();
+        this.delegate = delegate;
+        this.caching = caching;
+        this.cache = cache;
+    }
+
+    @Override
+    public CoinReward requestCoinReward(CoinType coinType, BigDecimal hashrate) throws CoinRewardRequestorException {
+        CoinRewardCalculator calculator = cache.get(coinType, () -> {
+            delegate.requestCoinReward(coinType, hashrate);
+            return new Snapshot<>(caching.getCachedCoinRewardCalculator(coinType), new Date(), caching.getCachedNextUpdate(coinType));
+        });
+        return calculator.calculateRewards(hashrate);
+    }
+
+}
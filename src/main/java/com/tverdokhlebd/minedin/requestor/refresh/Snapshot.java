@@ -0,0 +1,71 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import java.util.Date;
+
+/**
+ * Snapshot of requested value.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ * @param <V> type of value
+ */
+public class Snapshot<V> {
+
+    /** Requested value. */
+    private final V value;
+    /** Date of request. */
+    private final Date updated;
+    /** Date, after which value is stale. */
+    private final Date nextUpdate;
+
+    /**
+     * Creates instance.
+     *
+     * @param value requested value
+     * @param updated date of request
+     * @param nextUpdate date, after which value is stale, or {@code null} if value is stale immediately
+     */
+    public Snapshot(V value, Date updated, Date nextUpdate) {
+        super();
+        this.value = value;
+        this.updated = updated;
+        this.nextUpdate = nextUpdate != null ? nextUpdate : updated;
+    }
+
+    /**
+     * Gets value.
+     *
+     * @return value
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Gets date of request.
+     *
+     * @return date of request
+     */
+    public Date getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Gets date, after which value is stale.
+     *
+     * @return date, after which value is stale
+     */
+    public Date getNextUpdate() {
+        return nextUpdate;
+    }
+
+    /**
+     * Returns {@code true} if value is stale, otherwise {@code false}.
+     *
+     * @return {@code true} if value is stale, otherwise {@code false}
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() >= nextUpdate.getTime();
+    }
+
+}
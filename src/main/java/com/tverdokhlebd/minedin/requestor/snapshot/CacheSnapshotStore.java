@@ -0,0 +1,423 @@
+package com.tverdokhlebd.minedin.requestor.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Date;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Store of cached upstream data, which survives restart. Coin info, market, reward calculators and accounts are saved to local
+ * file periodically and on shutdown, and restored before application starts accepting requests. Restored values keep their
+ * time of the next update, so expired values are served as stale and refreshed in background.
+ *
+ * <p>
+ * File consists of header (magic, version and time of saving), sections and CRC32 of all preceding bytes. Each section has name,
+ * e.g. "coin-info.WHAT_TO_MINE" or "account.NANOPOOL", length in bytes and entries, so sections of removed sources are skipped.
+ * File of unknown version or with wrong checksum is ignored.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class CacheSnapshotStore implements InitializingBean {
+
+    /** Magic number of snapshot file ("MNDS"). */
+    static final int MAGIC = 0x4D4E4453;
+    /** Version of format of snapshot file. */
+    static final short VERSION = 1;
+    /** Registry of requestors. */
+    private final RequestorRegistry requestorRegistry;
+    /** Scheduler of requestors. */
+    private final ThreadPoolTaskScheduler requestorScheduler;
+    /** Path of snapshot file or {@code null} if snapshot is disabled. */
+    private final Path file;
+    /** Interval of saving in milliseconds. */
+    private final long interval;
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param requestorRegistry registry of requestors
+     * @param requestorScheduler scheduler of requestors
+     * @param file path of snapshot file, empty path disables snapshot
+     * @param interval interval of saving in milliseconds
+     */
+    public CacheSnapshotStore(RequestorRegistry requestorRegistry, ThreadPoolTaskScheduler requestorScheduler,
+            @Value("${requestor.snapshot.file:}") String file, @Value("${requestor.snapshot.interval:60000}") long interval) {
+        super();
+        this.requestorRegistry = requestorRegistry;
+        this.requestorScheduler = requestorScheduler;
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.interval = interval;
+    }
+
+    /**
+     * Restores cached data and schedules saving.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (file == null) {
+            return;
+        }
+        load();
+        requestorScheduler.scheduleWithFixedDelay(this::saveQuietly, new Date(System.currentTimeMillis() + interval), interval);
+    }
+
+    /**
+     * Saves cached data on shutdown.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (file != null) {
+            saveQuietly();
+        }
+    }
+
+    /**
+     * Restores cached data from snapshot file. Missing, damaged or incompatible file is ignored.
+     *
+     * @return number of restored entries
+     */
+    public int load() {
+        long startTime = System.currentTimeMillis();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            LOG.info("Snapshot {} does not exist", file);
+            return 0;
+        } catch (IOException e) {
+            LOG.warn("Snapshot {} is not readable", file, e);
+            return 0;
+        }
+        if (!isValid(buffer)) {
+            LOG.warn("Snapshot {} is damaged or has unknown version, it is ignored", file);
+            return 0;
+        }
+        int restoredCount = 0;
+        try {
+            buffer.position(14);
+            int sectionCount = buffer.getInt();
+            for (int i = 0; i < sectionCount; i++) {
+                String name = SnapshotCodec.readString(buffer);
+                int length = buffer.getInt();
+                ByteBuffer section = buffer.slice();
+                section.limit(length);
+                buffer.position(buffer.position() + length);
+                restoredCount += restoreSection(name, section);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Snapshot {} is not restored completely", file, e);
+        }
+        LOG.info("Restored {} entries from snapshot {} in {} ms", restoredCount, file, System.currentTimeMillis() - startTime);
+        return restoredCount;
+    }
+
+    /**
+     * Saves cached data to snapshot file. Data is written to temporary file, which then replaces snapshot file, so the
+     * snapshot file is never partially written.
+     *
+     * @throws IOException if there is any error in writing
+     */
+    public void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        ByteArrayOutputStream sections = new ByteArrayOutputStream();
+        int sectionCount = writeSections(new DataOutputStream(sections));
+        out.writeInt(sectionCount);
+        sections.writeTo(out);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, bytes.toByteArray());
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Saves cached data and logs error instead of throwing it.
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Snapshot {} is not saved", file, e);
+        }
+    }
+
+    /**
+     * Checks magic, version and checksum of snapshot.
+     *
+     * @param buffer content of snapshot file
+     * @return {@code true} if snapshot can be restored, otherwise {@code false}
+     */
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.limit() < 22 || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            return false;
+        }
+        ByteBuffer content = buffer.duplicate();
+        content.limit(buffer.limit() - 4);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue() == buffer.getInt(buffer.limit() - 4);
+    }
+
+    /**
+     * Writes sections of all caches.
+     *
+     * @param out output stream
+     * @return number of written sections
+     * @throws IOException if there is any error in writing
+     */
+    private int writeSections(DataOutputStream out) throws IOException {
+        int sectionCount = 0;
+        for (CoinInfoDescription coinInfo : CoinInfoDescription.values()) {
+            RefreshingCache<CoinType, CoinInfo> cache = requestorRegistry.getCoinInfoCache(coinInfo);
+            if (cache != null) {
+                writeSection(out, "coin-info." + coinInfo.name(), cache, SnapshotCodec::writeCoinInfo);
+                sectionCount++;
+            }
+        }
+        for (CoinMarketDescription coinMarket : CoinMarketDescription.values()) {
+            RefreshingCache<CoinType, CoinMarket> cache = requestorRegistry.getCoinMarketCache(coinMarket);
+            if (cache != null) {
+                writeSection(out, "coin-market." + coinMarket.name(), cache, SnapshotCodec::writeCoinMarket);
+                sectionCount++;
+            }
+        }
+        for (CoinRewardDescription coinReward : CoinRewardDescription.values()) {
+            RefreshingCache<CoinType, CoinRewardCalculator> cache = requestorRegistry.getCoinRewardCache(coinReward);
+            if (cache != null) {
+                writeSection(out, "coin-reward." + coinReward.name(), cache, SnapshotCodec::writeCalculator);
+                sectionCount++;
+            }
+        }
+        for (PoolTypeDescription poolType : PoolTypeDescription.values()) {
+            writeAccountSection(out, "account." + poolType.name(), requestorRegistry.getAccountCache(poolType));
+            sectionCount++;
+        }
+        return sectionCount;
+    }
+
+    /**
+     * Writes section of refreshing cache.
+     *
+     * @param out output stream
+     * @param name name of section
+     * @param cache refreshing cache
+     * @param writer writer of value
+     * @throws IOException if there is any error in writing
+     */
+    private static <V> void writeSection(DataOutputStream out, String name, RefreshingCache<CoinType, V> cache, ValueWriter<V> writer)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream(bytes);
+        Map<CoinType, Snapshot<V>> snapshotMap = cache.getSnapshotMap();
+        section.writeInt(snapshotMap.size());
+        for (Entry<CoinType, Snapshot<V>> entry : snapshotMap.entrySet()) {
+            Snapshot<V> snapshot = entry.getValue();
+            SnapshotCodec.writeString(section, entry.getKey().name());
+            section.writeLong(snapshot.getUpdated().getTime());
+            section.writeLong(snapshot.getNextUpdate().getTime());
+            writer.write(section, snapshot.getValue());
+        }
+        SnapshotCodec.writeString(out, name);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Writes section of account cache.
+     *
+     * @param out output stream
+     * @param name name of section
+     * @param cache account cache
+     * @throws IOException if there is any error in writing
+     */
+    private static void writeAccountSection(DataOutputStream out, String name, AccountCache cache) throws IOException {
+        // Accounts are counted while writing, since size of cache is approximate
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream(entries);
+        int accountCount = 0;
+        for (Entry<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> entry : cache.getCachedAccountMap().entrySet()) {
+            SnapshotCodec.writeString(section, entry.getKey().getKey().name());
+            SnapshotCodec.writeString(section, entry.getKey().getValue());
+            section.writeLong(entry.getValue().getValue().getTime());
+            SnapshotCodec.writeAccount(section, entry.getValue().getKey());
+            accountCount++;
+        }
+        SnapshotCodec.writeString(out, name);
+        out.writeInt(entries.size() + 4);
+        out.writeInt(accountCount);
+        entries.writeTo(out);
+    }
+
+    /**
+     * Restores section of snapshot.
+     *
+     * @param name name of section
+     * @param section content of section
+     * @return number of restored entries
+     */
+    private int restoreSection(String name, ByteBuffer section) {
+        int separator = name.indexOf('.');
+        String kind = name.substring(0, separator);
+        String source = name.substring(separator + 1);
+        try {
+            switch (kind) {
+            case "coin-info":
+                return restoreSection(section, requestorRegistry.getCoinInfoCache(CoinInfoDescription.valueOf(source)),
+                                      SnapshotCodec::readCoinInfo);
+            case "coin-market":
+                return restoreSection(section, requestorRegistry.getCoinMarketCache(CoinMarketDescription.valueOf(source)),
+                                      SnapshotCodec::readCoinMarket);
+            case "coin-reward":
+                return restoreSection(section, requestorRegistry.getCoinRewardCache(CoinRewardDescription.valueOf(source)),
+                                      SnapshotCodec::readCalculator);
+            case "account":
+                return restoreAccountSection(section, requestorRegistry.getAccountCache(PoolTypeDescription.valueOf(source)));
+            default:
+                LOG.warn("Snapshot section {} is unknown", name);
+                return 0;
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Snapshot section {} is not supported", name);
+            return 0;
+        }
+    }
+
+    /**
+     * Restores section of refreshing cache.
+     *
+     * @param section content of section
+     * @param cache refreshing cache or {@code null} if refreshing is disabled
+     * @param reader reader of value
+     * @return number of restored entries
+     */
+    private static <V> int restoreSection(ByteBuffer section, RefreshingCache<CoinType, V> cache, ValueReader<V> reader) {
+        if (cache == null) {
+            return 0;
+        }
+        int restoredCount = 0;
+        int entryCount = section.getInt();
+        for (int i = 0; i < entryCount; i++) {
+            CoinType coinType = CoinType.valueOf(SnapshotCodec.readString(section));
+            Date updated = new Date(section.getLong());
+            Date nextUpdate = new Date(section.getLong());
+            V value = reader.read(section, coinType);
+            if (cache.restore(coinType, new Snapshot<>(value, updated, nextUpdate))) {
+                restoredCount++;
+            }
+        }
+        return restoredCount;
+    }
+
+    /**
+     * Restores section of account cache.
+     *
+     * @param section content of section
+     * @param cache account cache
+     * @return number of restored entries
+     */
+    private static int restoreAccountSection(ByteBuffer section, AccountCache cache) {
+        int restoredCount = 0;
+        int accountCount = section.getInt();
+        for (int i = 0; i < accountCount; i++) {
+            CoinType coinType = CoinType.valueOf(SnapshotCodec.readString(section));
+            String walletAddress = SnapshotCodec.readString(section);
+            Date expiration = new Date(section.getLong());
+            Account account = SnapshotCodec.readAccount(section);
+            if (cache.restore(coinType, walletAddress, account, expiration)) {
+                restoredCount++;
+            }
+        }
+        return restoredCount;
+    }
+
+    /**
+     * Writer of cached value.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    @FunctionalInterface
+    private static interface ValueWriter<V> {
+
+        /**
+         * Writes value.
+         *
+         * @param out output stream
+         * @param value cached value
+         * @throws IOException if there is any error in writing
+         */
+        void write(DataOutputStream out, V value) throws IOException;
+
+    }
+
+    /**
+     * Reader of cached value.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    @FunctionalInterface
+    private static interface ValueReader<V> {
+
+        /**
+         * Reads value.
+         *
+         * @param buffer input buffer
+         * @param coinType type of coin
+         * @return cached value
+         */
+        V read(ByteBuffer buffer, CoinType coinType);
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.tverdokhlebd.minedin.requestor.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Compact binary encoding of cached data. Values are written to stream and read from (memory-mapped) buffer in big-endian order.
+ * Type of coin is not a part of value, since it is written once as key of entry. Decimals keep their scale, so restored values
+ * are equal to requested ones.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+class SnapshotCodec {
+
+    /** Base hashrate of reward calculator, which is not exposed by reward library. */
+    private static final Field BASE_HASHRATE = getCalculatorField("baseHashrate");
+    /** Base reward per day of reward calculator, which is not exposed by reward library. */
+    private static final Field BASE_REWARD_PER_DAY = getCalculatorField("baseRewardPerDay");
+
+    /**
+     * Writes string.
+     *
+     * @param out output stream
+     * @param value string
+     * @throws IOException if there is any error in writing
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads string.
+     *
+     * @param buffer input buffer
+     * @return string
+     */
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes decimal, which can be {@code null}.
+     *
+     * @param out output stream
+     * @param value decimal or {@code null}
+     * @throws IOException if there is any error in writing
+     */
+    static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] unscaledValue = value.unscaledValue().toByteArray();
+        out.writeByte(unscaledValue.length);
+        out.write(unscaledValue);
+        out.writeInt(value.scale());
+    }
+
+    /**
+     * Reads decimal.
+     *
+     * @param buffer input buffer
+     * @return decimal or {@code null}
+     */
+    static BigDecimal readDecimal(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] unscaledValue = new byte[length];
+        buffer.get(unscaledValue);
+        return new BigDecimal(new BigInteger(unscaledValue), buffer.getInt());
+    }
+
+    /**
+     * Writes coin info.
+     *
+     * @param out output stream
+     * @param coinInfo coin info
+     * @throws IOException if there is any error in writing
+     */
+    static void writeCoinInfo(DataOutputStream out, CoinInfo coinInfo) throws IOException {
+        writeDecimal(out, coinInfo.getBlockTime());
+        writeDecimal(out, coinInfo.getBlockReward());
+        writeDecimal(out, coinInfo.getBlockCount());
+        writeDecimal(out, coinInfo.getDifficulty());
+        writeDecimal(out, coinInfo.getNetworkHashrate());
+    }
+
+    /**
+     * Reads coin info.
+     *
+     * @param buffer input buffer
+     * @param coinType type of coin
+     * @return coin info
+     */
+    static CoinInfo readCoinInfo(ByteBuffer buffer, CoinType coinType) {
+        return new CoinInfo.Builder().setCoinType(coinType)
+                                     .setBlockTime(readDecimal(buffer))
+                                     .setBlockReward(readDecimal(buffer))
+                                     .setBlockCount(readDecimal(buffer))
+                                     .setDifficulty(readDecimal(buffer))
+                                     .setNetworkHashrate(readDecimal(buffer))
+                                     .build();
+    }
+
+    /**
+     * Writes coin market.
+     *
+     * @param out output stream
+     * @param coinMarket coin market
+     * @throws IOException if there is any error in writing
+     */
+    static void writeCoinMarket(DataOutputStream out, CoinMarket coinMarket) throws IOException {
+        writeDecimal(out, coinMarket.getPrice());
+    }
+
+    /**
+     * Reads coin market.
+     *
+     * @param buffer input buffer
+     * @param coinType type of coin
+     * @return coin market
+     */
+    static CoinMarket readCoinMarket(ByteBuffer buffer, CoinType coinType) {
+        return new CoinMarket.Builder().setCoin(coinType).setPrice(readDecimal(buffer)).build();
+    }
+
+    /**
+     * Writes reward calculator.
+     *
+     * @param out output stream
+     * @param calculator reward calculator
+     * @throws IOException if there is any error in writing
+     */
+    static void writeCalculator(DataOutputStream out, CoinRewardCalculator calculator) throws IOException {
+        try {
+            writeDecimal(out, (BigDecimal) BASE_HASHRATE.get(calculator));
+            writeDecimal(out, (BigDecimal) BASE_REWARD_PER_DAY.get(calculator));
+        } catch (IllegalAccessException e) {
+            throw new IOException("Reward calculator is not accessible", e);
+        }
+    }
+
+    /**
+     * Reads reward calculator.
+     *
+     * @param buffer input buffer
+     * @param coinType type of coin
+     * @return reward calculator
+     */
+    static CoinRewardCalculator readCalculator(ByteBuffer buffer, CoinType coinType) {
+        return new CoinRewardCalculator(coinType, readDecimal(buffer), readDecimal(buffer));
+    }
+
+    /**
+     * Writes account.
+     *
+     * @param out output stream
+     * @param account account
+     * @throws IOException if there is any error in writing
+     */
+    static void writeAccount(DataOutputStream out, Account account) throws IOException {
+        writeString(out, account.getWalletAddress());
+        writeDecimal(out, account.getWalletBalance());
+        writeDecimal(out, account.getReportedHashrate());
+    }
+
+    /**
+     * Reads account.
+     *
+     * @param buffer input buffer
+     * @return account
+     */
+    static Account readAccount(ByteBuffer buffer) {
+        return new Account.Builder().setWalletAddress(readString(buffer))
+                                    .setWalletBalance(readDecimal(buffer))
+                                    .setReportedHashrate(readDecimal(buffer))
+                                    .build();
+    }
+
+    /**
+     * Gets private field of reward calculator.
+     *
+     * @param name name of field
+     * @return accessible field
+     */
+    private static Field getCalculatorField(String name) {
+        try {
+            Field field = CoinRewardCalculator.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Reward calculator has no field " + name, e);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.tverdokhlebd.minedin.simulator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of response latency of simulated upstream.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /** Quantile of standard normal distribution for 99th percentile. */
+    double P99_QUANTILE = 2.326;
+
+    /**
+     * Gets next delay.
+     *
+     * @param random source of randomness
+     * @return delay in milliseconds
+     */
+    long nextDelay(SplittableRandom random);
+
+    /**
+     * Creates distribution without delay.
+     *
+     * @return distribution without delay
+     */
+    static LatencyDistribution none() {
+        return random -> 0;
+    }
+
+    /**
+     * Creates distribution with the same delay.
+     *
+     * @param delay delay in milliseconds
+     * @return distribution with the same delay
+     */
+    static LatencyDistribution fixed(long delay) {
+        return random -> delay;
+    }
+
+    /**
+     * Creates uniform distribution.
+     *
+     * @param minDelay min delay in milliseconds
+     * @param maxDelay max delay in milliseconds
+     * @return uniform distribution
+     */
+    static LatencyDistribution uniform(long minDelay, long maxDelay) {
+        return random -> minDelay + random.nextLong(maxDelay - minDelay + 1);
+    }
+
+    /**
+     * Creates log-normal distribution, which has long tail like latency of real services.
+     *
+     * @param median median delay in milliseconds
+     * @param p99 99th percentile of delay in milliseconds
+     * @return log-normal distribution
+     */
+    static LatencyDistribution logNormal(long median, long p99) {
+        double sigma = median > 0 && p99 > median ? Math.log((double) p99 / median) / P99_QUANTILE : 0;
+        return random -> {
+            // Box-Muller transform
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+            return Math.round(median * Math.exp(sigma * gaussian));
+        };
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.tverdokhlebd.minedin.simulator;
+
+/**
+ * Profile of simulated upstream: latency of responses, rate of errors and rate of "Too Many Requests" responses.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class UpstreamProfile {
+
+    /** Profile without delays and errors. */
+    public static final UpstreamProfile HEALTHY = new UpstreamProfile(LatencyDistribution.none(), 0, 0);
+
+    /** Latency of responses. */
+    private final LatencyDistribution latency;
+    /** Rate of server errors from 0 to 1. */
+    private final double errorRate;
+    /** Rate of "Too Many Requests" responses from 0 to 1. */
+    private final double rateLimitRate;
+
+    /**
+     * Creates instance.
+     *
+     * @param latency latency of responses
+     * @param errorRate rate of server errors from 0 to 1
+     * @param rateLimitRate rate of "Too Many Requests" responses from 0 to 1
+     */
+    public UpstreamProfile(LatencyDistribution latency, double errorRate, double rateLimitRate) {
+        super();
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    /**
+     * Gets latency of responses.
+     *
+     * @return latency of responses
+     */
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets rate of server errors.
+     *
+     * @return rate of server errors from 0 to 1
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Gets rate of "Too Many Requests" responses.
+     *
+     * @return rate of "Too Many Requests" responses from 0 to 1
+     */
+    public double getRateLimitRate() {
+        return rateLimitRate;
+    }
+
+}
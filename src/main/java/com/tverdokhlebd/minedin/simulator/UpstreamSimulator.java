@@ -0,0 +1,363 @@
+package com.tverdokhlebd.minedin.simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tverdokhlebd.minedin.http.UpstreamOverrideInterceptor;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Embeddable stand-in of upstream services: Nanopool, Ethermine, Dwarfpool, WhatToMine, CoinMarketCap and Telegram Bot API. It
+ * serves payloads, which are parsed by requestors and bot, for every pool and coin type, so whole application can be load tested
+ * offline.
+ *
+ * Requests are routed by original host from header {@link UpstreamOverrideInterceptor#UPSTREAM_HOST_HEADER} and by path. Every
+ * request gets its own random source, which depends only on seed and number of request, so the same sequence of requests gets
+ * the same delays and errors.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class UpstreamSimulator {
+
+    /** Pattern of Nanopool path, e.g. "/v1/eth/balance/0x1". */
+    private static final Pattern NANOPOOL_PATTERN = Pattern.compile("/v1/(\\w+)/(balance|reportedhashrate)/([^/]+)");
+    /** Pattern of Ethermine path, e.g. "/miner/0x1/currentStats". */
+    private static final Pattern ETHERMINE_PATTERN = Pattern.compile("/miner/([^/]+)/currentStats");
+    /** Pattern of Dwarfpool path, e.g. "/eth/api". */
+    private static final Pattern DWARFPOOL_PATTERN = Pattern.compile("/(\\w+)/api");
+    /** Pattern of WhatToMine path, e.g. "/coins/151.json". */
+    private static final Pattern WHATTOMINE_PATTERN = Pattern.compile("/coins/(\\d+)\\.json");
+    /** Pattern of CoinMarketCap path, e.g. "/v2/ticker/1027". */
+    private static final Pattern COINMARKETCAP_PATTERN = Pattern.compile("/v2/ticker/(\\d+)/?");
+    /** Pattern of Telegram Bot API path, e.g. "/botTOKEN/sendMessage". */
+    private static final Pattern TELEGRAM_PATTERN = Pattern.compile("/bot[^/]+/(\\w+)");
+    /** Coin types by id of WhatToMine. */
+    private static final Map<String, CoinType> WHATTOMINE_COIN_MAP = new HashMap<>();
+    /** Coin types by id of CoinMarketCap. */
+    private static final Map<String, CoinType> COINMARKETCAP_COIN_MAP = new HashMap<>();
+    static {
+        WHATTOMINE_COIN_MAP.put("1", CoinType.BTC);
+        WHATTOMINE_COIN_MAP.put("151", CoinType.ETH);
+        WHATTOMINE_COIN_MAP.put("162", CoinType.ETC);
+        WHATTOMINE_COIN_MAP.put("101", CoinType.XMR);
+        WHATTOMINE_COIN_MAP.put("166", CoinType.ZEC);
+        COINMARKETCAP_COIN_MAP.put("1", CoinType.BTC);
+        COINMARKETCAP_COIN_MAP.put("1027", CoinType.ETH);
+        COINMARKETCAP_COIN_MAP.put("1321", CoinType.ETC);
+        COINMARKETCAP_COIN_MAP.put("328", CoinType.XMR);
+        COINMARKETCAP_COIN_MAP.put("1437", CoinType.ZEC);
+    }
+
+    /** Seed of random sources. */
+    private final long seed;
+    /** Profile of hosts without own profile. */
+    private final UpstreamProfile defaultProfile;
+    /** Profiles by host. */
+    private final Map<String, UpstreamProfile> hostProfileMap = new ConcurrentHashMap<>();
+    /** Number of received requests. */
+    private final AtomicLong requestCount = new AtomicLong();
+    /** Number of server errors. */
+    private final AtomicLong errorCount = new AtomicLong();
+    /** Number of "Too Many Requests" responses. */
+    private final AtomicLong rateLimitCount = new AtomicLong();
+    /** HTTP server. */
+    private HttpServer server;
+    /** Executor of HTTP server. */
+    private ExecutorService executor;
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(UpstreamSimulator.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param defaultProfile profile of hosts without own profile
+     * @param seed seed of random sources
+     */
+    public UpstreamSimulator(UpstreamProfile defaultProfile, long seed) {
+        super();
+        this.defaultProfile = defaultProfile;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets profile of host, e.g. "api.nanopool.org".
+     *
+     * @param host original host of upstream
+     * @param profile profile of host
+     */
+    public void setProfile(String host, UpstreamProfile profile) {
+        hostProfileMap.put(host, profile);
+    }
+
+    /**
+     * Starts server on loopback address.
+     *
+     * @param port port or 0 for any free port
+     * @throws IOException if server cannot be started
+     */
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("upstream-simulator-");
+        threadFactory.setDaemon(true);
+        // Requests wait for simulated latency, so they are not limited by fixed number of threads
+        executor = Executors.newCachedThreadPool(threadFactory);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        LOG.info("Upstream simulator is started on {}", getUrl());
+    }
+
+    /**
+     * Stops server.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Gets URL of started server, e.g. "http://127.0.0.1:8089".
+     *
+     * @return URL of started server
+     */
+    public String getUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * Gets number of received requests.
+     *
+     * @return number of received requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets number of server errors.
+     *
+     * @return number of server errors
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Gets number of "Too Many Requests" responses.
+     *
+     * @return number of "Too Many Requests" responses
+     */
+    public long getRateLimitCount() {
+        return rateLimitCount.get();
+    }
+
+    /**
+     * Handles request.
+     *
+     * @param exchange HTTP exchange
+     * @throws IOException if response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String host = exchange.getRequestHeaders().getFirst(UpstreamOverrideInterceptor.UPSTREAM_HOST_HEADER);
+            UpstreamProfile profile = host == null ? defaultProfile : hostProfileMap.getOrDefault(host, defaultProfile);
+            SplittableRandom random = new SplittableRandom(seed + requestCount.getAndIncrement());
+            long delay = profile.getLatency().nextDelay(random);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            double chance = random.nextDouble();
+            if (chance < profile.getRateLimitRate()) {
+                rateLimitCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":\"Too many requests\"}");
+            } else if (chance < profile.getRateLimitRate() + profile.getErrorRate()) {
+                errorCount.incrementAndGet();
+                send(exchange, 500, "{\"error\":\"Internal server error\"}");
+            } else {
+                String payload = createPayload(host, exchange.getRequestURI());
+                if (payload == null) {
+                    send(exchange, 404, "{\"error\":\"Not found\"}");
+                } else {
+                    send(exchange, 200, payload);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends JSON response.
+     *
+     * @param exchange HTTP exchange
+     * @param status HTTP status
+     * @param body body of response
+     * @throws IOException if response cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Creates payload of upstream.
+     *
+     * @param host original host of upstream
+     * @param uri URI of request
+     * @return payload or {@code null} if request is unknown
+     */
+    private static String createPayload(String host, URI uri) {
+        if (host == null) {
+            return null;
+        }
+        String path = uri.getPath();
+        long now = System.currentTimeMillis() / 1000;
+        Matcher matcher;
+        if (host.equals("api.nanopool.org") && (matcher = NANOPOOL_PATTERN.matcher(path)).matches()) {
+            double value = matcher.group(2).equals("balance") ? walletBalance(matcher.group(3)) : walletHashrate(matcher.group(3));
+            return "{\"status\":true,\"data\":" + value + "}";
+        }
+        if (host.endsWith("ethermine.org") || host.endsWith("flypool.org")) {
+            matcher = ETHERMINE_PATTERN.matcher(path);
+            if (matcher.matches()) {
+                String walletAddress = matcher.group(1);
+                long unpaid = (long) (walletBalance(walletAddress) * 1_000_000_000L) * 1_000_000_000L;
+                return "{\"status\":\"OK\",\"data\":{\"unpaid\":" + unpaid + ",\"reportedHashrate\":" + walletHashrate(walletAddress)
+                        * 1_000_000 + ",\"lastSeen\":" + now + "}}";
+            }
+        }
+        if (host.equals("dwarfpool.com") && DWARFPOOL_PATTERN.matcher(path).matches()) {
+            String walletAddress = uri.getQuery() == null ? "" : uri.getQuery().replace("wallet=", "");
+            return "{\"error\":false,\"wallet_balance\":" + walletBalance(walletAddress) + ",\"total_hashrate\":"
+                    + walletHashrate(walletAddress) + "}";
+        }
+        if (host.equals("whattomine.com") && (matcher = WHATTOMINE_PATTERN.matcher(path)).matches()) {
+            CoinType coinType = WHATTOMINE_COIN_MAP.get(matcher.group(1));
+            return coinType == null ? null : createCoinPayload(coinType, now);
+        }
+        if (host.equals("api.coinmarketcap.com") && (matcher = COINMARKETCAP_PATTERN.matcher(path)).matches()) {
+            CoinType coinType = COINMARKETCAP_COIN_MAP.get(matcher.group(1));
+            return coinType == null ? null
+                    : "{\"data\":{\"symbol\":\"" + coinType.name() + "\",\"quotes\":{\"USD\":{\"price\":" + price(coinType)
+                            + "}},\"last_updated\":" + now + "},\"metadata\":{\"timestamp\":" + now + "}}";
+        }
+        if (host.equals("api.telegram.org") && (matcher = TELEGRAM_PATTERN.matcher(path)).matches()) {
+            return matcher.group(1).equals("answerCallbackQuery") ? "{\"ok\":true,\"result\":true}"
+                    : "{\"ok\":true,\"result\":{\"message_id\":1,\"date\":" + now + ",\"chat\":{\"id\":1,\"type\":\"private\"}}}";
+        }
+        return null;
+    }
+
+    /**
+     * Creates WhatToMine payload of coin, which is used for coin info and coin reward.
+     *
+     * @param coinType coin type
+     * @param now current time in seconds
+     * @return payload of coin
+     */
+    private static String createCoinPayload(CoinType coinType, long now) {
+        double[] values;
+        switch (coinType) {
+        case BTC:
+            values = new double[] { 600, 12.5, 530000, 4.1e12, 3.0e19, 0.0005 };
+            break;
+        case ETH:
+            values = new double[] { 14.5, 3, 5900000, 3.2e15, 2.6e14, 0.0021 };
+            break;
+        case ETC:
+            values = new double[] { 14.5, 4, 6100000, 1.5e14, 1.0e13, 0.06 };
+            break;
+        case XMR:
+            values = new double[] { 120, 4.5, 1600000, 5.5e10, 4.6e8, 0.0019 };
+            break;
+        default:
+            values = new double[] { 150, 10, 350000, 5.0e6, 4.0e8, 0.0027 };
+            break;
+        }
+        return String.format(Locale.US,
+                             "{\"tag\":\"%s\",\"block_time\":\"%s\",\"block_reward\":%s,\"last_block\":%d,\"difficulty\":%s,"
+                                     + "\"nethash\":%s,\"estimated_rewards\":\"%s\",\"timestamp\":%d}",
+                             coinType.name(),
+                             values[0],
+                             values[1],
+                             (long) values[2],
+                             values[3],
+                             values[4],
+                             values[5],
+                             now);
+    }
+
+    /**
+     * Gets price of coin in USD.
+     *
+     * @param coinType coin type
+     * @return price of coin in USD
+     */
+    private static double price(CoinType coinType) {
+        switch (coinType) {
+        case BTC:
+            return 7512.34;
+        case ETH:
+            return 452.67;
+        case ETC:
+            return 16.43;
+        case XMR:
+            return 131.28;
+        default:
+            return 203.91;
+        }
+    }
+
+    /**
+     * Gets balance of wallet. It is stable for the same wallet address.
+     *
+     * @param walletAddress wallet address
+     * @return balance of wallet
+     */
+    private static double walletBalance(String walletAddress) {
+        return (walletAddress.hashCode() & 0xFFFF) / 10000.0;
+    }
+
+    /**
+     * Gets reported hashrate of wallet in MH/s. It is stable for the same wallet address.
+     *
+     * @param walletAddress wallet address
+     * @return reported hashrate of wallet
+     */
+    private static double walletHashrate(String walletAddress) {
+        return 50 + (walletAddress.hashCode() >>> 16) % 500;
+    }
+
+}
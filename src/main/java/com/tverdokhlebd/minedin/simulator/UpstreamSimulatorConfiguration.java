@@ -0,0 +1,53 @@
+package com.tverdokhlebd.minedin.simulator;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of embedded upstream simulator. If it is enabled, shared HTTP client sends all requests of requestors to it.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+@ConditionalOnProperty("upstream.simulator.enabled")
+public class UpstreamSimulatorConfiguration {
+
+    /** Port of simulator. */
+    @Value("${upstream.simulator.port:8089}")
+    private int port;
+    /** Median latency in milliseconds. */
+    @Value("${upstream.simulator.latency-median:100}")
+    private long latencyMedian;
+    /** 99th percentile of latency in milliseconds. */
+    @Value("${upstream.simulator.latency-p99:1000}")
+    private long latencyP99;
+    /** Rate of server errors from 0 to 1. */
+    @Value("${upstream.simulator.error-rate:0}")
+    private double errorRate;
+    /** Rate of "Too Many Requests" responses from 0 to 1. */
+    @Value("${upstream.simulator.rate-limit-rate:0}")
+    private double rateLimitRate;
+    /** Seed of random sources. */
+    @Value("${upstream.simulator.seed:1}")
+    private long seed;
+
+    /**
+     * Creates and starts upstream simulator.
+     *
+     * @return upstream simulator
+     * @throws IOException if simulator cannot be started
+     */
+    @Bean(destroyMethod = "stop")
+    public UpstreamSimulator upstreamSimulator() throws IOException {
+        UpstreamProfile profile = new UpstreamProfile(LatencyDistribution.logNormal(latencyMedian, latencyP99), errorRate, rateLimitRate);
+        UpstreamSimulator upstreamSimulator = new UpstreamSimulator(profile, seed);
+        upstreamSimulator.start(port);
+        return upstreamSimulator;
+    }
+
+}
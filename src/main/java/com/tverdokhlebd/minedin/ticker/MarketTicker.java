@@ -0,0 +1,141 @@
+package com.tverdokhlebd.minedin.ticker;
+
+import static com.tverdokhlebd.mining.commons.coin.CoinType.BTC;
+import static com.tverdokhlebd.mining.commons.coin.CoinType.ETC;
+import static com.tverdokhlebd.mining.commons.coin.CoinType.ETH;
+import static com.tverdokhlebd.mining.commons.coin.CoinType.XMR;
+import static com.tverdokhlebd.mining.commons.coin.CoinType.ZEC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Market ticker, which is shown in header of every page. It is immutable list of coin markets, which is rebuilt only when
+ * market data is loaded, so rendering of page does not request markets.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class MarketTicker {
+
+    /** Coin types of ticker in order of displaying. */
+    private static final List<CoinType> COIN_TYPE_LIST = Collections.unmodifiableList(Arrays.asList(BTC, ETH, XMR, ETC, ZEC));
+    /** Coin market of ticker. */
+    private static final CoinMarketDescription COIN_MARKET = CoinMarketDescription.COIN_MARKET_CAP;
+    /** Coin market requestor. */
+    private final CoinMarketRequestor coinMarketRequestor;
+    /** Refreshing cache of coin market or {@code null} if refreshing is disabled. */
+    private final RefreshingCache<CoinType, CoinMarket> coinMarketCache;
+    /** Current list of coin markets or {@code null} if it is not built yet. */
+    private volatile List<CoinMarket> coinMarketList;
+    /** Date of last rebuilding. */
+    private volatile Date updated;
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(MarketTicker.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param requestorRegistry registry of requestors
+     * @param requestorScheduler scheduler of requestors
+     * @param interval interval of rebuilding in milliseconds, if refreshing of requestors is disabled
+     */
+    public MarketTicker(RequestorRegistry requestorRegistry, ThreadPoolTaskScheduler requestorScheduler,
+            @Value("${requestor.warmup.interval:60000}") long interval) {
+        super();
+        coinMarketRequestor = requestorRegistry.getCoinMarketRequestor(COIN_MARKET);
+        coinMarketCache = requestorRegistry.getCoinMarketCache(COIN_MARKET);
+        if (coinMarketCache != null) {
+            coinMarketCache.addListener((coinType, snapshot) -> {
+                if (COIN_TYPE_LIST.contains(coinType)) {
+                    rebuild();
+                }
+            });
+        } else {
+            requestorScheduler.scheduleWithFixedDelay(this::rebuild, interval);
+        }
+    }
+
+    /**
+     * Gets immutable list of coin markets.
+     *
+     * @return immutable list of coin markets
+     */
+    public List<CoinMarket> getCoinMarketList() {
+        List<CoinMarket> currentList = coinMarketList;
+        if (currentList == null) {
+            // The first access before warming, markets are requested once
+            request();
+            currentList = rebuild();
+        }
+        return currentList;
+    }
+
+    /**
+     * Gets date of last rebuilding.
+     *
+     * @return date of last rebuilding or {@code null} if ticker is not built yet
+     */
+    public Date getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Rebuilds list of coin markets from cached market data. If refreshing is disabled, markets are requested.
+     *
+     * @return rebuilt list of coin markets
+     */
+    public synchronized List<CoinMarket> rebuild() {
+        List<CoinMarket> newList = new ArrayList<>(COIN_TYPE_LIST.size());
+        if (coinMarketCache != null) {
+            for (CoinType coinType : COIN_TYPE_LIST) {
+                Snapshot<CoinMarket> snapshot = coinMarketCache.getSnapshot(coinType);
+                if (snapshot != null) {
+                    newList.add(snapshot.getValue());
+                }
+            }
+        } else {
+            newList.addAll(request());
+        }
+        coinMarketList = Collections.unmodifiableList(newList);
+        updated = new Date();
+        return coinMarketList;
+    }
+
+    /**
+     * Requests coin markets of ticker. Coin market with error is skipped.
+     *
+     * @return list of coin markets
+     */
+    private List<CoinMarket> request() {
+        List<CoinMarket> requestedList = new ArrayList<>(COIN_TYPE_LIST.size());
+        for (CoinType coinType : COIN_TYPE_LIST) {
+            try {
+                requestedList.add(coinMarketRequestor.requestCoinMarket(coinType));
+            } catch (CoinMarketRequestorException e) {
+                LOG.error("Coin market request error", e);
+            }
+        }
+        return requestedList;
+    }
+
+}
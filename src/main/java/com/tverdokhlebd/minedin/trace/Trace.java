@@ -0,0 +1,148 @@
+package com.tverdokhlebd.minedin.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timing trace of one request. Time of every stage is kept in one array indexed by stage, so recording of stage does not
+ * allocate. Stages can be recorded concurrently from different threads, repeated stages are summed up.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class Trace {
+
+    /** Stages of calculation. */
+    private static final TraceStage[] STAGES = TraceStage.values();
+    /** Trace, which ignores recording, when request is not traced. */
+    static final Trace NONE = new Trace(null, null);
+    /** Request id. */
+    private final String id;
+    /** Name of request, e.g. "GET /ETH/NANOPOOL/wallet". */
+    private final String name;
+    /** Start time in milliseconds since epoch. */
+    private final long startTime;
+    /** Start time in nanoseconds. */
+    private final long start;
+    /** Time of stages in nanoseconds. */
+    private final AtomicLongArray stageTimes = new AtomicLongArray(STAGES.length);
+    /** Total time in nanoseconds, it is set when trace is finished. */
+    private volatile long total;
+
+    /**
+     * Creates instance.
+     *
+     * @param id request id
+     * @param name name of request
+     */
+    Trace(String id, String name) {
+        super();
+        this.id = id;
+        this.name = name;
+        startTime = System.currentTimeMillis();
+        start = System.nanoTime();
+    }
+
+    /**
+     * Records time of stage from start time till now.
+     *
+     * @param stage stage of calculation
+     * @param stageStart start time of stage in nanoseconds
+     */
+    public void record(TraceStage stage, long stageStart) {
+        if (this != NONE) {
+            stageTimes.addAndGet(stage.ordinal(), System.nanoTime() - stageStart);
+        }
+    }
+
+    /**
+     * Finishes trace.
+     *
+     * @return total time in nanoseconds
+     */
+    long finish() {
+        total = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Gets request id.
+     *
+     * @return request id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets name of request.
+     *
+     * @return name of request
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets start time.
+     *
+     * @return start time in milliseconds since epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets total time.
+     *
+     * @return total time in milliseconds
+     */
+    public long getTotal() {
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    /**
+     * Gets time of stage.
+     *
+     * @param stage stage of calculation
+     * @return time of stage in milliseconds
+     */
+    public long getStageTime(TraceStage stage) {
+        return TimeUnit.NANOSECONDS.toMillis(stageTimes.get(stage.ordinal()));
+    }
+
+    /**
+     * Gets time of recorded stages.
+     *
+     * @return time of stages in milliseconds by short name of stage
+     */
+    public Map<String, Long> getStages() {
+        Map<String, Long> stageMap = new LinkedHashMap<>();
+        for (TraceStage stage : STAGES) {
+            long stageTime = stageTimes.get(stage.ordinal());
+            if (stageTime > 0) {
+                stageMap.put(stage.getName(), TimeUnit.NANOSECONDS.toMillis(stageTime));
+            }
+        }
+        return stageMap;
+    }
+
+    /**
+     * Formats trace to compact single line, e.g. "id=1f GET /ETH/NANOPOOL/wallet total=8123ms account=7900ms reward=180ms".
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(128);
+        line.append("id=").append(id).append(' ').append(name).append(" total=").append(getTotal()).append("ms");
+        for (TraceStage stage : STAGES) {
+            long stageTime = stageTimes.get(stage.ordinal());
+            if (stageTime > 0) {
+                line.append(' ').append(stage.getName()).append('=').append(TimeUnit.NANOSECONDS.toMillis(stageTime)).append("ms");
+            }
+        }
+        return line.toString();
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.tverdokhlebd.minedin.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Configuration of tracing of requests to controllers.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+public class TraceConfiguration extends WebMvcConfigurerAdapter {
+
+    /** Tracer of requests. */
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TraceInterceptor(tracer));
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.tverdokhlebd.minedin.trace;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Interceptor, which traces requests to controllers. Time between handling and completion of request is recorded as rendering of
+ * template, if controller returns view. Pages, which are rendered by controller itself, record rendering to trace of request.
+ * Trace of asynchronous request is detached from container thread and is finished after the last dispatch. Trace is named by
+ * pattern of mapping, so wallets and tokens from path do not get into logs. Request id of client is accepted only if it is short
+ * and safe for logs, otherwise it is generated.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class TraceInterceptor extends HandlerInterceptorAdapter {
+
+    /** Header of request id. */
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    /** Pattern of values of client, which are safe for logs. */
+    private static final Pattern SAFE_VALUE_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    /** Variables of path, which are kept in name of trace. */
+    private static final List<String> NAMED_VARIABLE_LIST = Arrays.asList("coinType", "poolType");
+    /** Attribute of request with trace. */
+    private static final String TRACE_ATTRIBUTE = TraceInterceptor.class.getName() + ".trace";
+    /** Attribute of request with start time of rendering. */
+    private static final String RENDER_START_ATTRIBUTE = TraceInterceptor.class.getName() + ".renderStart";
+    /** Tracer of requests. */
+    private final Tracer tracer;
+
+    /**
+     * Creates instance.
+     *
+     * @param tracer tracer of requests
+     */
+    public TraceInterceptor(Tracer tracer) {
+        super();
+        this.tracer = tracer;
+    }
+
+    /**
+     * Gets trace of request on any thread, e.g. on thread, which completes asynchronous request.
+     *
+     * @param request HTTP request
+     * @return trace of request or trace, which ignores recording, if request is not traced
+     */
+    public static Trace getTrace(HttpServletRequest request) {
+        Trace trace = (Trace) request.getAttribute(TRACE_ATTRIBUTE);
+        return trace != null ? trace : Trace.NONE;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Trace asyncTrace = (Trace) request.getAttribute(TRACE_ATTRIBUTE);
+        if (asyncTrace != null) {
+            tracer.resume(asyncTrace);
+        } else if (handler instanceof HandlerMethod) {
+            String name = request.getMethod() + " " + getPath(request);
+            String requestId = request.getHeader(REQUEST_ID_HEADER);
+            if (requestId != null && !SAFE_VALUE_PATTERN.matcher(requestId).matches()) {
+                requestId = null;
+            }
+            Trace trace = tracer.start(requestId, name);
+            request.setAttribute(TRACE_ATTRIBUTE, trace);
+            response.setHeader(REQUEST_ID_HEADER, trace.getId());
+        }
+        return true;
+    }
+
+    /**
+     * Gets path of request for name of trace. Only coin and pool are taken from variables of path.
+     *
+     * @param request HTTP request
+     * @return pattern of mapping with coin and pool or URI of request, if there is no pattern
+     */
+    private static String getPath(HttpServletRequest request) {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return request.getRequestURI();
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variableMap = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variableMap != null) {
+            for (String variable : NAMED_VARIABLE_LIST) {
+                String value = variableMap.get(variable);
+                if (value != null && SAFE_VALUE_PATTERN.matcher(value).matches()) {
+                    pattern = pattern.replace("{" + variable + "}", value);
+                }
+            }
+        }
+        return pattern;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (modelAndView != null && request.getAttribute(TRACE_ATTRIBUTE) != null) {
+            request.setAttribute(RENDER_START_ATTRIBUTE, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(TRACE_ATTRIBUTE) != null) {
+            tracer.detach();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception exception) {
+        Trace trace = (Trace) request.getAttribute(TRACE_ATTRIBUTE);
+        if (trace == null) {
+            return;
+        }
+        Long renderStart = (Long) request.getAttribute(RENDER_START_ATTRIBUTE);
+        if (renderStart != null) {
+            trace.record(TraceStage.RENDER, renderStart);
+        }
+        tracer.finish(trace);
+    }
+
+}
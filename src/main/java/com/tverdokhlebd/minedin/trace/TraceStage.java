@@ -0,0 +1,40 @@
+package com.tverdokhlebd.minedin.trace;
+
+/**
+ * Enumerations of traced stages of calculation.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public enum TraceStage {
+
+    ACCOUNT("account"),
+    COIN_INFO("info"),
+    COIN_MARKET("market"),
+    COIN_REWARD("reward"),
+    CROSS_RATE("cross-rate"),
+    RENDER("render"),
+    TELEGRAM_SEND("telegram-send");
+
+    /** Short name of stage. */
+    private String name;
+
+    /**
+     * Creates instance.
+     *
+     * @param name short name of stage
+     */
+    private TraceStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets short name.
+     *
+     * @return short name
+     */
+    public String getName() {
+        return name;
+    }
+
+}
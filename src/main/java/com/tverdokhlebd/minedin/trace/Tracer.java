@@ -0,0 +1,119 @@
+package com.tverdokhlebd.minedin.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracer of stages of requests. Trace is bound to current thread, so stages can be recorded without passing trace through all
+ * calls. Traces, which take longer than threshold, are logged in single line and kept in bounded ring buffer of slow requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class Tracer {
+
+    /** Trace of current thread. */
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    /** Sequence of generated request ids. */
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    /** Threshold of slow trace in nanoseconds. */
+    private final long slowThreshold;
+    /** Ring buffer of slow traces. */
+    private final AtomicReferenceArray<Trace> slowTraces;
+    /** Number of slow traces, the next one is put at this number modulo size of buffer. */
+    private final AtomicLong slowCount = new AtomicLong();
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(Tracer.class);
+
+    /**
+     * Creates instance.
+     *
+     * @param slowThreshold threshold of slow trace in milliseconds
+     * @param bufferSize size of ring buffer of slow traces
+     */
+    public Tracer(@Value("${trace.slow-threshold:2000}") long slowThreshold, @Value("${trace.buffer-size:100}") int bufferSize) {
+        super();
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(slowThreshold);
+        slowTraces = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    /**
+     * Gets trace of current thread.
+     *
+     * @return trace of current thread or trace, which ignores recording, if request is not traced
+     */
+    public static Trace current() {
+        Trace trace = CURRENT.get();
+        return trace != null ? trace : Trace.NONE;
+    }
+
+    /**
+     * Starts trace and binds it to current thread.
+     *
+     * @param id request id or {@code null} to generate it
+     * @param name name of request
+     * @return started trace
+     */
+    public Trace start(String id, String name) {
+        Trace trace = new Trace(id != null ? id : Long.toHexString(ID_SEQUENCE.incrementAndGet()), name);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Binds started trace to current thread, e.g. when asynchronous request is dispatched again.
+     *
+     * @param trace started trace
+     */
+    public void resume(Trace trace) {
+        CURRENT.set(trace);
+    }
+
+    /**
+     * Unbinds trace from current thread without finishing it, e.g. when asynchronous request leaves container thread.
+     */
+    public void detach() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Finishes trace and unbinds it from current thread. Slow trace is logged and put into ring buffer.
+     *
+     * @param trace started trace
+     */
+    public void finish(Trace trace) {
+        CURRENT.remove();
+        if (trace.finish() >= slowThreshold) {
+            LOG.warn("Slow request: {}", trace);
+            slowTraces.set((int) (slowCount.getAndIncrement() % slowTraces.length()), trace);
+        }
+    }
+
+    /**
+     * Gets recent slow traces.
+     *
+     * @return recent slow traces from the slowest one
+     */
+    public List<Trace> getSlowTraces() {
+        List<Trace> traceList = new ArrayList<>(slowTraces.length());
+        for (int i = 0; i < slowTraces.length(); i++) {
+            Trace trace = slowTraces.get(i);
+            if (trace != null) {
+                traceList.add(trace);
+            }
+        }
+        traceList.sort(Comparator.comparingLong(Trace::getTotal).reversed());
+        return traceList;
+    }
+
+}
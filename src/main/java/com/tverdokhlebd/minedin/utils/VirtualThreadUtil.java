@@ -0,0 +1,93 @@
+package com.tverdokhlebd.minedin.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creating executors of virtual threads. The application is built for Java 8, so virtual threads are created by reflection and
+ * are available only when it runs on Java 21 or later.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class VirtualThreadUtil {
+
+    /**
+     * Enumeration of modes of executing blocking requests.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    public static enum ExecutionMode {
+
+        /** Tasks are executed by bounded pools of platform threads. */
+        PLATFORM,
+        /** Every task is executed by its own virtual thread, if it is supported, otherwise by platform pool. */
+        VIRTUAL;
+
+    }
+
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(VirtualThreadUtil.class);
+
+    /**
+     * Checks whether virtual threads are supported by current runtime.
+     *
+     * @return {@code true} if virtual threads are supported, otherwise {@code false}
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates executor, which starts new virtual thread for every task.
+     *
+     * @param namePrefix prefix of names of threads
+     * @return executor of virtual threads or {@code null} if they are not supported
+     */
+    public static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads are not available", e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates executor of virtual threads, if execution mode requires it and runtime supports it.
+     *
+     * @param executionMode mode of executing blocking requests
+     * @param namePrefix prefix of names of threads
+     * @return executor of virtual threads or {@code null} if platform pool should be used
+     */
+    public static ExecutorService newExecutor(ExecutionMode executionMode, String namePrefix) {
+        if (executionMode != ExecutionMode.VIRTUAL) {
+            return null;
+        }
+        ExecutorService executor = newVirtualThreadExecutor(namePrefix);
+        if (executor == null) {
+            LOG.warn("Virtual threads require Java 21, {} falls back to platform threads", namePrefix);
+        }
+        return executor;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Configuration of access to administrative endpoints.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+public class AdminConfiguration extends WebMvcConfigurerAdapter {
+
+    /** Token of administrative endpoints or empty string if they are disabled. */
+    @Value("${admin.token:}")
+    private String token;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdminTokenInterceptor(token)).addPathPatterns("/api/admin/**", "/api/metrics");
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Interceptor, which lets into administrative endpoints, such as metrics and traces, only requests with bearer token. Endpoints are
+ * not found, if token is not configured.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class AdminTokenInterceptor extends HandlerInterceptorAdapter {
+
+    /** Prefix of bearer token in header of authorization. */
+    private static final String BEARER_PREFIX = "Bearer ";
+    /** Expected header of authorization or {@code null} if endpoints are disabled. */
+    private final byte[] authorization;
+
+    /**
+     * Creates instance.
+     *
+     * @param token token of administrative endpoints or empty string to disable them
+     */
+    public AdminTokenInterceptor(String token) {
+        super();
+        authorization = token.isEmpty() ? null : (BEARER_PREFIX + token).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (authorization == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return false;
+        }
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        // Comparison in constant time does not reveal how much of token is guessed
+        if (header == null || !MessageDigest.isEqual(authorization, header.getBytes(StandardCharsets.UTF_8))) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.tverdokhlebd.minedin.earnings.batch.BatchEarningsCalculator;
+import com.tverdokhlebd.minedin.earnings.batch.BatchItem;
+import com.tverdokhlebd.minedin.earnings.batch.BatchSummary;
+
+/**
+ * Controller for batch earnings API. Results are streamed as newline delimited JSON in order of their readiness, the last line is
+ * summary of batch.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RestController
+public class EarningsBatchController {
+
+    /** Media type of newline delimited JSON. */
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    /** Calculator of earnings of many wallets. */
+    @Autowired
+    private BatchEarningsCalculator batchEarningsCalculator;
+    /** Maximum number of items of one batch. */
+    @Value("${earnings.batch.max-size:100}")
+    private int maxSize;
+    /** Timeout of batch in milliseconds. */
+    @Value("${earnings.batch.timeout:60000}")
+    private long timeout;
+
+    /**
+     * Requests earnings of many wallets.
+     *
+     * @param itemList items of batch
+     * @return stream of results or bad request if batch is too large or has empty items
+     */
+    @PostMapping(value = "/api/earnings/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> calculate(@RequestBody List<BatchItem> itemList) {
+        if (itemList.size() > maxSize || itemList.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+        CompletableFuture<BatchSummary> summary = batchEarningsCalculator.calculate(itemList, result -> send(emitter, result));
+        summary.whenComplete((result, exception) -> {
+            if (exception != null) {
+                emitter.completeWithError(exception);
+                return;
+            }
+            try {
+                send(emitter, Collections.singletonMap("summary", result));
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                emitter.completeWithError(e.getCause());
+            }
+        });
+        // Client is gone or batch is too slow, so the next items are not started
+        emitter.onTimeout(() -> summary.cancel(false));
+        emitter.onCompletion(() -> summary.cancel(false));
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    /**
+     * Sends object as one line of JSON.
+     *
+     * @param emitter emitter of response
+     * @param object object
+     * @throws UncheckedIOException if there is any error in sending
+     */
+    private static void send(ResponseBodyEmitter emitter, Object object) {
+        try {
+            synchronized (emitter) {
+                emitter.send(object, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
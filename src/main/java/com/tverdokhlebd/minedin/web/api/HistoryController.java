@@ -0,0 +1,56 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.history.HistoryPoint;
+import com.tverdokhlebd.minedin.history.HistoryStore;
+
+/**
+ * Controller for history API, which serves data of balance and hashrate charts from history store without requests to pools.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RestController
+public class HistoryController {
+
+    /** Default time range of history in milliseconds. */
+    private static final long DEFAULT_RANGE = TimeUnit.DAYS.toMillis(7);
+    /** Store of history of wallets. */
+    @Autowired
+    private HistoryStore historyStore;
+
+    /**
+     * Requests history of wallet.
+     *
+     * @param coin type of coin
+     * @param pool pool type
+     * @param wallet wallet address
+     * @param from start of time range in milliseconds, by default 7 days before its end
+     * @param to end of time range in milliseconds, by default current time
+     * @return points of history in order of time, not found if history is disabled or bad request if time range is wrong
+     */
+    @GetMapping("/api/history")
+    public ResponseEntity<List<HistoryPoint>> getHistory(@RequestParam CoinTypeDescription coin, @RequestParam PoolTypeDescription pool,
+            @RequestParam String wallet, @RequestParam(required = false) Long from, @RequestParam(required = false) Long to) {
+        if (!historyStore.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_RANGE;
+        if (start > end) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(historyStore.query(coin, pool, wallet, start, end));
+    }
+
+}
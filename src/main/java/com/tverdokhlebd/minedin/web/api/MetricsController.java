@@ -0,0 +1,33 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+/**
+ * Controller for scraping of metrics by Prometheus.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RestController
+public class MetricsController {
+
+    /** Registry of meters. */
+    @Autowired
+    private PrometheusMeterRegistry meterRegistry;
+
+    /**
+     * Requests metrics in Prometheus text format.
+     *
+     * @return metrics
+     */
+    @GetMapping(value = "/api/metrics", produces = TextFormat.CONTENT_TYPE_004)
+    public String getMetrics() {
+        return meterRegistry.scrape();
+    }
+
+}
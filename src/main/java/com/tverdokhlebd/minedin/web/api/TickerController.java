@@ -0,0 +1,35 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.minedin.ticker.MarketTicker;
+
+/**
+ * Controller for market ticker API.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RestController
+public class TickerController {
+
+    /** Market ticker. */
+    @Autowired
+    private MarketTicker marketTicker;
+
+    /**
+     * Requests market ticker.
+     *
+     * @return list of coin markets
+     */
+    @GetMapping("/api/ticker")
+    public List<CoinMarket> getTicker() {
+        return marketTicker.getCoinMarketList();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tverdokhlebd.minedin.trace.Trace;
+import com.tverdokhlebd.minedin.trace.Tracer;
+
+/**
+ * Controller for viewing of traces of slow requests.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RestController
+public class TraceController {
+
+    /** Tracer of requests. */
+    @Autowired
+    private Tracer tracer;
+
+    /**
+     * Requests recent slow traces.
+     *
+     * @return recent slow traces from the slowest one
+     */
+    @GetMapping("/api/admin/traces")
+    public List<Trace> getSlowTraces() {
+        return tracer.getSlowTraces();
+    }
+
+}
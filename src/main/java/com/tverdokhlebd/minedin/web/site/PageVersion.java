@@ -0,0 +1,155 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+
+/**
+ * Version of page, which is derived from dates of snapshots of data used by page. Page with the same version is rendered from
+ * the same data, so it is validated by entity tag and date of modification without calculation and rendering.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class PageVersion {
+
+    /** Weak entity tag. */
+    private final String eTag;
+    /** Date of modification in milliseconds. */
+    private final long lastModified;
+    /** Date in milliseconds, after which any data of page is stale. */
+    private final long expires;
+
+    /**
+     * Creates instance.
+     *
+     * @param eTag weak entity tag
+     * @param lastModified date of modification in milliseconds
+     * @param expires date in milliseconds, after which any data of page is stale
+     */
+    public PageVersion(String eTag, long lastModified, long expires) {
+        super();
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.expires = expires;
+    }
+
+    /**
+     * Creates version of page from snapshots of its data.
+     *
+     * @param page key of page, e.g. path of page
+     * @param epoch date in milliseconds, before which page is not modified, e.g. start of application
+     * @param tickerUpdated date of rebuilding of market ticker
+     * @param snapshotList snapshots of data used by page
+     * @return version of page or {@code null} if ticker is not built or any snapshot is missing or stale
+     */
+    public static PageVersion create(String page, long epoch, Date tickerUpdated, List<Snapshot<?>> snapshotList) {
+        if (tickerUpdated == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(page).append('|').append(epoch).append('|').append(tickerUpdated.getTime());
+        long lastModified = Math.max(epoch, tickerUpdated.getTime());
+        long expires = Long.MAX_VALUE;
+        for (Snapshot<?> snapshot : snapshotList) {
+            if (snapshot == null || snapshot.isStale()) {
+                return null;
+            }
+            key.append('|').append(snapshot.getUpdated().getTime()).append('|').append(snapshot.getNextUpdate().getTime());
+            lastModified = Math.max(lastModified, snapshot.getUpdated().getTime());
+            expires = Math.min(expires, snapshot.getNextUpdate().getTime());
+        }
+        String eTag = "W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        return new PageVersion(eTag, lastModified, expires);
+    }
+
+    /**
+     * Gets weak entity tag.
+     *
+     * @return weak entity tag
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Gets date of modification in milliseconds.
+     *
+     * @return date of modification in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets date in milliseconds, after which any data of page is stale.
+     *
+     * @return date in milliseconds, after which any data of page is stale
+     */
+    public long getExpires() {
+        return expires;
+    }
+
+    /**
+     * Checks whether client has page of this version. Entity tags take precedence over date of modification, which has precision
+     * of seconds.
+     *
+     * @param request HTTP request
+     * @return {@code true} if page is not modified, otherwise {@code false}
+     */
+    public boolean isNotModified(HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+                tag = tag.trim();
+                if (tag.equals("*") || stripWeakness(tag).equals(stripWeakness(eTag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Writes validators and caching headers of page. Page is cached until any of its data becomes stale.
+     *
+     * @param response HTTP response
+     * @param privateCache is page cached only by browser, e.g. page of wallet
+     */
+    public void writeTo(HttpServletResponse response, boolean privateCache) {
+        long maxAge = Math.max(0, (expires - System.currentTimeMillis()) / 1000);
+        CacheControl cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).mustRevalidate();
+        cacheControl = privateCache ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+    }
+
+    /**
+     * Strips weakness indicator of entity tag, since weak comparison is used.
+     *
+     * @param tag entity tag
+     * @return entity tag without weakness indicator
+     */
+    private static String stripWeakness(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+}
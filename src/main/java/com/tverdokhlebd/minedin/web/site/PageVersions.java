@@ -0,0 +1,116 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import static com.tverdokhlebd.mining.commons.coin.CoinType.BTC;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.minedin.ticker.MarketTicker;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Versions of site pages, which are derived from snapshots of refreshing caches and cached accounts. Version is known only while
+ * all data of page is cached and fresh, so it is looked up without requests to upstreams.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class PageVersions {
+
+    /** Registry of requestors. */
+    private final RequestorRegistry requestorRegistry;
+    /** Market ticker. */
+    private final MarketTicker marketTicker;
+    /** Caching time of account in milliseconds. */
+    private final long accountCacheTime;
+    /** Is conditional requesting of pages enabled. */
+    private final boolean enabled;
+    /** Start of application in milliseconds, so pages rendered by previous templates are not validated. */
+    private final long epoch = System.currentTimeMillis();
+
+    /**
+     * Creates instance.
+     *
+     * @param requestorRegistry registry of requestors
+     * @param marketTicker market ticker
+     * @param accountCacheTime caching time of account in minutes
+     * @param enabled is conditional requesting of pages enabled
+     */
+    public PageVersions(RequestorRegistry requestorRegistry, MarketTicker marketTicker,
+            @Value("${account.cache.expire-after-write:2}") int accountCacheTime,
+            @Value("${site.conditional.enabled:true}") boolean enabled) {
+        super();
+        this.requestorRegistry = requestorRegistry;
+        this.marketTicker = marketTicker;
+        this.accountCacheTime = TimeUnit.MINUTES.toMillis(accountCacheTime);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets version of coin info page.
+     *
+     * @param coinType coin type
+     * @return version of page or {@code null} if it is unknown
+     */
+    public PageVersion getCoinInfoVersion(CoinTypeDescription coinType) {
+        RefreshingCache<CoinType, CoinInfo> coinInfoCache = requestorRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE);
+        if (!enabled || coinInfoCache == null) {
+            return null;
+        }
+        List<Snapshot<?>> snapshotList = new ArrayList<>(1);
+        snapshotList.add(coinInfoCache.getSnapshot(coinType.getCoinType()));
+        return PageVersion.create("coin/" + coinType.name(), epoch, marketTicker.getUpdated(), snapshotList);
+    }
+
+    /**
+     * Gets version of calculation page.
+     *
+     * @param coinType coin type
+     * @param poolType pool type
+     * @param walletAddress wallet address
+     * @return version of page or {@code null} if it is unknown
+     */
+    public PageVersion getEarningsVersion(CoinTypeDescription coinType, PoolTypeDescription poolType, String walletAddress) {
+        RefreshingCache<CoinType, CoinInfo> coinInfoCache = requestorRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE);
+        RefreshingCache<CoinType, CoinMarket> coinMarketCache =
+                requestorRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP);
+        RefreshingCache<CoinType, CoinRewardCalculator> coinRewardCache =
+                requestorRegistry.getCoinRewardCache(CoinRewardDescription.WHAT_TO_MINE);
+        AccountCache accountCache = requestorRegistry.getAccountCache(poolType);
+        if (!enabled || coinInfoCache == null || coinMarketCache == null || coinRewardCache == null || accountCache == null) {
+            return null;
+        }
+        Date accountExpiration = accountCache.getExpiration(coinType.getCoinType(), walletAddress);
+        if (accountExpiration == null) {
+            return null;
+        }
+        List<Snapshot<?>> snapshotList = new ArrayList<>(5);
+        // Account cache keeps only expiration, so account is updated one caching time before it
+        snapshotList.add(new Snapshot<>(null, new Date(accountExpiration.getTime() - accountCacheTime), accountExpiration));
+        snapshotList.add(coinInfoCache.getSnapshot(coinType.getCoinType()));
+        snapshotList.add(coinMarketCache.getSnapshot(coinType.getCoinType()));
+        snapshotList.add(coinMarketCache.getSnapshot(BTC));
+        snapshotList.add(coinRewardCache.getSnapshot(coinType.getCoinType()));
+        String page = "earnings/" + coinType.name() + "/" + poolType.name() + "/" + walletAddress;
+        return PageVersion.create(page, epoch, marketTicker.getUpdated(), snapshotList);
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.servlet.support.RequestContext;
+import org.springframework.web.servlet.view.AbstractTemplateView;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring4.context.SpringWebContext;
+import org.thymeleaf.spring4.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.spring4.naming.SpringContextVariableNames;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.refresh.RefreshingCache;
+import com.tverdokhlebd.minedin.trace.Trace;
+import com.tverdokhlebd.minedin.trace.TraceInterceptor;
+import com.tverdokhlebd.minedin.trace.TraceStage;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+/**
+ * Cache of rendered coin info pages, which are the same for every visitor. Page is cached with its version, so it is served only
+ * while coin info and market ticker are not changed, and it is removed when coin info is refreshed. Page is kept compressed too,
+ * so cached page is sent without rendering and compression. Pages are rendered in English, the only language of site, so format of
+ * numbers does not depend on language of the first visitor.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Component
+public class RenderedPageCache {
+
+    /**
+     * Rendered page.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    public static class RenderedPage {
+
+        /** Content type of page. */
+        private static final MediaType CONTENT_TYPE = MediaType.parseMediaType("text/html;charset=UTF-8");
+        /** Version of page or {@code null} if it is unknown. */
+        private final PageVersion version;
+        /** Page in UTF-8. */
+        private final byte[] html;
+        /** Compressed page or {@code null} if page is not compressed. */
+        private final byte[] gzipHtml;
+
+        /**
+         * Creates instance.
+         *
+         * @param version version of page or {@code null} if it is unknown
+         * @param html page in UTF-8
+         * @param gzipHtml compressed page or {@code null} if page is not compressed
+         */
+        public RenderedPage(PageVersion version, byte[] html, byte[] gzipHtml) {
+            super();
+            this.version = version;
+            this.html = html;
+            this.gzipHtml = gzipHtml;
+        }
+
+        /**
+         * Gets version of page.
+         *
+         * @return version of page or {@code null} if it is unknown
+         */
+        public PageVersion getVersion() {
+            return version;
+        }
+
+        /**
+         * Creates response with page and writes its version. Compressed page is sent if client accepts it.
+         *
+         * @param request HTTP request
+         * @param response HTTP response
+         * @return response with page
+         */
+        public ResponseEntity<byte[]> toResponse(HttpServletRequest request, HttpServletResponse response) {
+            if (version != null) {
+                version.writeTo(response, false);
+            }
+            BodyBuilder builder = ResponseEntity.ok().contentType(CONTENT_TYPE);
+            if (gzipHtml == null) {
+                return builder.body(html);
+            }
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzipHtml);
+            }
+            return builder.body(html);
+        }
+
+    }
+
+    /** Locale of rendered pages. */
+    private static final Locale PAGE_LOCALE = Locale.ENGLISH;
+    /** Rendered pages by coin type. */
+    private final ConcurrentMap<CoinType, RenderedPage> pageMap = new ConcurrentHashMap<>();
+    /** Template engine. */
+    private final TemplateEngine templateEngine;
+    /** Servlet context. */
+    private final ServletContext servletContext;
+    /** Application context. */
+    private final ApplicationContext applicationContext;
+    /** Versions of pages. */
+    private final PageVersions pageVersions;
+    /** Is caching of pages enabled. */
+    private final boolean enabled;
+    /** Are pages compressed. */
+    private final boolean gzip;
+
+    /**
+     * Creates instance.
+     *
+     * @param templateEngine template engine
+     * @param servletContext servlet context
+     * @param applicationContext application context
+     * @param requestorRegistry registry of requestors
+     * @param pageVersions versions of pages
+     * @param enabled is caching of pages enabled
+     * @param gzip are pages compressed
+     */
+    public RenderedPageCache(TemplateEngine templateEngine, ServletContext servletContext, ApplicationContext applicationContext,
+            RequestorRegistry requestorRegistry, PageVersions pageVersions, @Value("${site.page-cache.enabled:true}") boolean enabled,
+            @Value("${site.page-cache.gzip:true}") boolean gzip) {
+        super();
+        this.templateEngine = templateEngine;
+        this.servletContext = servletContext;
+        this.applicationContext = applicationContext;
+        this.pageVersions = pageVersions;
+        this.enabled = enabled;
+        this.gzip = gzip;
+        RefreshingCache<CoinType, CoinInfo> coinInfoCache = requestorRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE);
+        if (coinInfoCache != null) {
+            coinInfoCache.addListener((coinType, snapshot) -> pageMap.remove(coinType));
+        }
+    }
+
+    /**
+     * Gets cached coin info page of current version.
+     *
+     * @param coinType coin type
+     * @param version current version of page or {@code null} if it is unknown
+     * @return cached page or {@code null} if page is not cached or cached page has other version
+     */
+    public RenderedPage get(CoinTypeDescription coinType, PageVersion version) {
+        if (version == null) {
+            return null;
+        }
+        RenderedPage page = pageMap.get(coinType.getCoinType());
+        return page != null && version.getETag().equals(page.getVersion().getETag()) ? page : null;
+    }
+
+    /**
+     * Renders coin info page and caches it, if its version is not changed during rendering, since coin info could be refreshed
+     * in the meantime.
+     *
+     * @param coinType coin type
+     * @param version version of page before requesting coin info or {@code null} if it is unknown
+     * @param template name of template
+     * @param model model attributes
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return rendered page
+     */
+    public RenderedPage render(CoinTypeDescription coinType, PageVersion version, String template, Model model,
+            HttpServletRequest request, HttpServletResponse response) {
+        byte[] html = renderHtml(template, model, request, response);
+        PageVersion versionAfter = pageVersions.getCoinInfoVersion(coinType);
+        if (version == null || versionAfter == null || !version.getETag().equals(versionAfter.getETag())) {
+            return new RenderedPage(null, html, null);
+        }
+        RenderedPage page = new RenderedPage(versionAfter, html, gzip ? compress(html) : null);
+        if (enabled) {
+            pageMap.put(coinType.getCoinType(), page);
+        }
+        return page;
+    }
+
+    /**
+     * Renders page without caching, e.g. page with error.
+     *
+     * @param template name of template
+     * @param model model attributes
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return rendered page
+     */
+    public RenderedPage render(String template, Model model, HttpServletRequest request, HttpServletResponse response) {
+        return new RenderedPage(null, renderHtml(template, model, request, response), null);
+    }
+
+    /**
+     * Gets number of cached pages.
+     *
+     * @return number of cached pages
+     */
+    public int getSize() {
+        return pageMap.size();
+    }
+
+    /**
+     * Renders template with the same context variables as view of template, but with locale of pages. Time of rendering is recorded to trace of request,
+     * since page is not rendered as view.
+     *
+     * @param template name of template
+     * @param model model attributes
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return page in UTF-8
+     */
+    private byte[] renderHtml(String template, Model model, HttpServletRequest request, HttpServletResponse response) {
+        Map<String, Object> variableMap = new HashMap<>(model.asMap());
+        RequestContext requestContext = new RequestContext(request, response, servletContext, variableMap);
+        variableMap.put(SpringContextVariableNames.SPRING_REQUEST_CONTEXT, requestContext);
+        variableMap.put(AbstractTemplateView.SPRING_MACRO_REQUEST_CONTEXT_ATTRIBUTE, requestContext);
+        ConversionService conversionService = (ConversionService) request.getAttribute(ConversionService.class.getName());
+        variableMap.put(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+                        new ThymeleafEvaluationContext(applicationContext, conversionService));
+        SpringWebContext context = new SpringWebContext(request, response, servletContext, PAGE_LOCALE, variableMap,
+                                                        applicationContext);
+        Trace trace = TraceInterceptor.getTrace(request);
+        long renderStart = System.nanoTime();
+        try {
+            return templateEngine.process(template, context).getBytes(StandardCharsets.UTF_8);
+        } finally {
+            trace.record(TraceStage.RENDER, renderStart);
+        }
+    }
+
+    /**
+     * Compresses page.
+     *
+     * @param html page
+     * @return compressed page
+     */
+    private static byte[] compress(byte[] html) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(html.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(html);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+}
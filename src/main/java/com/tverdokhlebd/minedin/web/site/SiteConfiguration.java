@@ -0,0 +1,53 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil.ExecutionMode;
+
+/**
+ * Configuration of executor, which runs upstream work of site pages instead of container threads.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@Configuration
+public class SiteConfiguration {
+
+    /** Number of executor threads. */
+    @Value("${site.executor.threads:16}")
+    private int threads;
+    /** Capacity of queue of waiting pages. */
+    @Value("${site.executor.queue-capacity:256}")
+    private int queueCapacity;
+    /** Mode of executing upstream work. */
+    @Value("${execution.mode:PLATFORM}")
+    private ExecutionMode executionMode;
+
+    /**
+     * Creates executor of site pages. When the queue is full, page is rejected and rendered with error instead of holding
+     * container thread. In virtual execution mode every page runs on its own virtual thread.
+     *
+     * @return executor of site pages
+     */
+    @Bean
+    public Executor siteExecutor() {
+        Executor virtualExecutor = VirtualThreadUtil.newExecutor(executionMode, "site-");
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("site-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+}
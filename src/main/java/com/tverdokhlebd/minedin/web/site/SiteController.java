@@ -1,48 +1,57 @@
 package com.tverdokhlebd.minedin.web.site;
 
 import static com.tverdokhlebd.mining.commons.coin.CoinType.BTC;
-import static com.tverdokhlebd.mining.commons.coin.CoinType.ETC;
-import static com.tverdokhlebd.mining.commons.coin.CoinType.ETH;
-import static com.tverdokhlebd.mining.commons.coin.CoinType.XMR;
-import static com.tverdokhlebd.mining.commons.coin.CoinType.ZEC;
-import static java.math.RoundingMode.DOWN;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import com.tverdokhlebd.coin.info.CoinInfo;
-import com.tverdokhlebd.coin.info.CoinInfoType;
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
 import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
-import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorFactory;
 import com.tverdokhlebd.coin.market.CoinMarket;
-import com.tverdokhlebd.coin.market.CoinMarketType;
 import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
 import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
-import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorFactory;
 import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorException;
 import com.tverdokhlebd.minedin.description.CoinInfoDescription;
 import com.tverdokhlebd.minedin.description.CoinMarketDescription;
 import com.tverdokhlebd.minedin.description.CoinRewardDescription;
 import com.tverdokhlebd.minedin.description.CoinTypeDescription;
 import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.CompactEarnings;
 import com.tverdokhlebd.minedin.earnings.Earnings;
 import com.tverdokhlebd.minedin.earnings.worker.EarningsWorker;
 import com.tverdokhlebd.minedin.earnings.worker.EarningsWorkerFactory;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.ticker.MarketTicker;
+import com.tverdokhlebd.minedin.trace.Trace;
+import com.tverdokhlebd.minedin.trace.TraceStage;
+import com.tverdokhlebd.minedin.trace.Tracer;
+import com.tverdokhlebd.minedin.web.site.RenderedPageCache.RenderedPage;
 import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
 
 /**
@@ -63,8 +72,41 @@ public class SiteController {
             RESOURCES.put(key, resources.getString(key));
         });
     }
+    /** Pools of coin types. */
+    private final static Map<CoinTypeDescription, List<PoolTypeDescription>> POOL_LIST_MAP = new EnumMap<>(CoinTypeDescription.class);
+    /** Filling pools of coin types. */
+    static {
+        for (CoinTypeDescription coinType : CoinTypeDescription.values()) {
+            List<PoolTypeDescription> poolTypeList = Arrays.asList(PoolTypeDescription.values()).stream().filter(pool -> {
+                return pool.getPoolType().getCoinTypeList().indexOf(coinType.getCoinType()) != -1;
+            }).collect(Collectors.toList());
+            POOL_LIST_MAP.put(coinType, Collections.unmodifiableList(poolTypeList));
+        }
+    }
     /** Logger. */
     private final static Logger LOG = LoggerFactory.getLogger(SiteController.class);
+    /** Factory for creating earnings worker. */
+    @Autowired
+    private EarningsWorkerFactory earningsWorkerFactory;
+    /** Registry of requestors. */
+    @Autowired
+    private RequestorRegistry requestorRegistry;
+    /** Market ticker. */
+    @Autowired
+    private MarketTicker marketTicker;
+    /** Versions of pages. */
+    @Autowired
+    private PageVersions pageVersions;
+    /** Cache of rendered pages. */
+    @Autowired
+    private RenderedPageCache renderedPageCache;
+    /** Executor of upstream work of site pages. */
+    @Autowired
+    @Qualifier("siteExecutor")
+    private Executor siteExecutor;
+    /** Deadline budget of calculation in milliseconds. */
+    @Value("${earnings.deadline.web:1500}")
+    private long deadline;
 
     /**
      * Requests index page.
@@ -79,79 +121,107 @@ public class SiteController {
     }
 
     /**
-     * Requests coin info page.
+     * Requests coin info page. Coin info is requested on executor of site pages, so container thread is released. Page, which is
+     * not modified since its version known by client, is not rendered. Rendered page of current version is served from cache.
      *
      * @param model model attributes
      * @param coinType coin type
-     * @return coin info page
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return future of rendered coin info page or {@code null} if page is not modified
      */
     @GetMapping("/{coinType}")
-    public String getCoinInfo(Model model, @PathVariable CoinTypeDescription coinType) {
-        try {
-            CoinInfoRequestor coinInfoRequestor = CoinInfoRequestorFactory.create(CoinInfoType.WHAT_TO_MINE);
-            CoinInfo coinInfo = coinInfoRequestor.requestCoinInfo(coinType.getCoinType());
-            List<PoolTypeDescription> poolTypeList = Arrays.asList(PoolTypeDescription.values()).stream().filter(pool -> {
-                return pool.getPoolType().getCoinTypeList().indexOf(coinType.getCoinType()) != -1;
-            }).collect(Collectors.toList());
+    public CompletableFuture<ResponseEntity<byte[]>> getCoinInfo(Model model, @PathVariable CoinTypeDescription coinType,
+            HttpServletRequest request, HttpServletResponse response) {
+        PageVersion version = pageVersions.getCoinInfoVersion(coinType);
+        if (version != null && version.isNotModified(request)) {
+            return notModified(response, version, false);
+        }
+        RenderedPage cachedPage = renderedPageCache.get(coinType, version);
+        if (cachedPage != null) {
+            return CompletableFuture.completedFuture(cachedPage.toResponse(request, response));
+        }
+        CoinInfoRequestor coinInfoRequestor = requestorRegistry.getCoinInfoRequestor(CoinInfoDescription.WHAT_TO_MINE);
+        return supplyAsync(() -> {
+            try {
+                return coinInfoRequestor.requestCoinInfo(coinType.getCoinType());
+            } catch (CoinInfoRequestorException e) {
+                throw new CompletionException(e);
+            }
+        }).handle((coinInfo, exception) -> {
+            model.addAttribute("page", "coin");
+            if (exception != null) {
+                handleError(model, null, exception, "Get coin info error");
+                return renderedPageCache.render("template", model, request, response).toResponse(request, response);
+            }
             model.addAttribute("coin_type", coinType);
             model.addAttribute("coin_info", coinInfo);
-            model.addAttribute("pool_list", poolTypeList);
-        } catch (CoinInfoRequestorException e) {
-            LOG.error("Coin info request error", e);
-            handleCoinInfoError(model, CoinInfoDescription.WHAT_TO_MINE, e);
-        } catch (Exception e) {
-            LOG.error("Get coin info error", e);
-            handleUnexpectedError(model, e);
-        }
-        model.addAttribute("page", "coin");
-        return "template";
+            model.addAttribute("pool_list", POOL_LIST_MAP.get(coinType));
+            return renderedPageCache.render(coinType, version, "template", model, request, response).toResponse(request, response);
+        });
     }
 
     /**
-     * Requests calculation page.
+     * Requests calculation page. Earnings and BTC cross-rate are requested concurrently without holding container thread. Page,
+     * which is not modified since its version known by client, is neither calculated nor rendered.
      *
      * @param model model attributes
      * @param coinType coin type
      * @param poolType pool type
      * @param walletAddress wallet address
-     * @return calculation page
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return future of calculation page or {@code null} if page is not modified
      */
     @GetMapping("/{coinType}/{poolType}/{walletAddress}")
-    public String calculate(Model model, @PathVariable CoinTypeDescription coinType, @PathVariable PoolTypeDescription poolType,
-            @PathVariable String walletAddress) {
-        try {
-            EarningsWorker worker = EarningsWorkerFactory.create(poolType,
-                                                                 CoinInfoDescription.WHAT_TO_MINE,
-                                                                 CoinMarketDescription.COIN_MARKET_CAP,
-                                                                 CoinRewardDescription.WHAT_TO_MINE);
-            Earnings earnings = worker.calculate(coinType, walletAddress);
-            CoinMarket btcCoinMarket = CoinMarketRequestorFactory.create(CoinMarketType.COIN_MARKET_CAP).requestCoinMarket(BTC);
+    public CompletableFuture<String> calculate(Model model, @PathVariable CoinTypeDescription coinType,
+            @PathVariable PoolTypeDescription poolType, @PathVariable String walletAddress, HttpServletRequest request,
+            HttpServletResponse response) {
+        PageVersion version = pageVersions.getEarningsVersion(coinType, poolType, walletAddress);
+        if (version != null && version.isNotModified(request)) {
+            return notModified(response, version, true);
+        }
+        // Cross-rate is requested on other thread, so trace of request is captured here
+        Trace trace = Tracer.current();
+        EarningsWorker worker = earningsWorkerFactory.create(poolType,
+                                                             CoinInfoDescription.WHAT_TO_MINE,
+                                                             CoinMarketDescription.COIN_MARKET_CAP,
+                                                             CoinRewardDescription.WHAT_TO_MINE,
+                                                             deadline);
+        CompletableFuture<Earnings> earnings = worker.calculateAsync(coinType, walletAddress);
+        CoinMarketRequestor coinMarketRequestor = requestorRegistry.getCoinMarketRequestor(CoinMarketDescription.COIN_MARKET_CAP);
+        CompletableFuture<CoinMarket> btcCoinMarket = supplyAsync(() -> {
+            long crossRateStart = System.nanoTime();
+            try {
+                return coinMarketRequestor.requestCoinMarket(BTC);
+            } catch (CoinMarketRequestorException e) {
+                throw new CompletionException(e);
+            } finally {
+                trace.record(TraceStage.CROSS_RATE, crossRateStart);
+            }
+        });
+        // Error of earnings is reported before error of cross-rate, as in sequential requesting
+        return earnings.thenCombine(btcCoinMarket, (earningsResult, btcCoinMarketResult) -> {
             model.addAttribute("coin_type", coinType);
             model.addAttribute("pool_info", poolType);
-            model.addAttribute("coin_info", earnings.getCoinInfo());
-            model.addAttribute("coin_price", earnings.getCoinMarket().getPrice());
-            model.addAttribute("coin_reward", earnings.getCoinReward());
-            model.addAttribute("coin_balance", earnings.getAccount().getWalletBalance());
-            model.addAttribute("usd_balance", earnings.getUsdBalance());
-            model.addAttribute("coin_in_btc", btcCoinMarket.getPrice().divide(earnings.getCoinMarket().getPrice(), DOWN));
-        } catch (AccountRequestorException e) {
-            LOG.error("Account request error", e);
-            handleAccountError(model, poolType, e);
-        } catch (CoinInfoRequestorException e) {
-            LOG.error("Coin info request error", e);
-            handleCoinInfoError(model, CoinInfoDescription.WHAT_TO_MINE, e);
-        } catch (CoinMarketRequestorException e) {
-            LOG.error("Coin market request error", e);
-            handleCoinMarketError(model, CoinMarketDescription.COIN_MARKET_CAP, e);
-        } catch (CoinRewardRequestorException e) {
-            LOG.error("Coin reward request error", e);
-            handleCoinRewardError(model, CoinRewardDescription.WHAT_TO_MINE, e);
-        } catch (Exception e) {
-            LOG.error("Calculate error", e);
-            handleUnexpectedError(model, e);
-        }
-        model.addAttribute("page", "earnings");
-        return "template";
+            model.addAttribute("coin_info", earningsResult.getCoinInfo());
+            model.addAttribute("coin_price", earningsResult.getCoinMarket().getPrice());
+            model.addAttribute("coin_reward", earningsResult.getCoinReward());
+            model.addAttribute("coin_balance", earningsResult.getAccount().getWalletBalance());
+            model.addAttribute("usd_balance", earningsResult.getUsdBalance());
+            model.addAttribute("partial", earningsResult.isPartial());
+            model.addAttribute("coin_in_btc", new CompactEarnings(earningsResult).getCoinInBtc(btcCoinMarketResult.getPrice()));
+            if (!earningsResult.isPartial()) {
+                writeVersion(response, version, pageVersions.getEarningsVersion(coinType, poolType, walletAddress), true);
+            }
+            return "template";
+        }).exceptionally(exception -> {
+            handleError(model, poolType, exception, "Calculate error");
+            return "template";
+        }).thenApply(view -> {
+            model.addAttribute("page", "earnings");
+            return view;
+        });
     }
 
     /**
@@ -170,23 +240,8 @@ public class SiteController {
      * @return coin market list
      */
     @ModelAttribute("coin_market_list")
-    public List<CoinMarket> getCoinMarketList(Model model) {
-        List<CoinMarket> coinMarketList = new ArrayList<>();
-        try {
-            CoinMarketRequestor coinMarketRequestor = CoinMarketRequestorFactory.create(CoinMarketType.COIN_MARKET_CAP);
-            coinMarketList.add(coinMarketRequestor.requestCoinMarket(BTC));
-            coinMarketList.add(coinMarketRequestor.requestCoinMarket(ETH));
-            coinMarketList.add(coinMarketRequestor.requestCoinMarket(XMR));
-            coinMarketList.add(coinMarketRequestor.requestCoinMarket(ETC));
-            coinMarketList.add(coinMarketRequestor.requestCoinMarket(ZEC));
-        } catch (CoinMarketRequestorException e) {
-            LOG.error("Coin market request error", e);
-            handleCoinMarketError(model, CoinMarketDescription.COIN_MARKET_CAP, e);
-        } catch (Exception e) {
-            LOG.error("Get coin market list error", e);
-            handleUnexpectedError(model, e);
-        }
-        return coinMarketList;
+    public List<CoinMarket> getCoinMarketList() {
+        return marketTicker.getCoinMarketList();
     }
 
     /**
@@ -209,13 +264,87 @@ public class SiteController {
         return RESOURCES;
     }
 
+    /**
+     * Supplies value asynchronously on executor of site pages.
+     *
+     * @param supplier supplier of value
+     * @return future of value, which is completed exceptionally if executor is overloaded
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, siteExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Answers that page is not modified. Returned {@code null} means that response is already handled.
+     *
+     * @param response HTTP response
+     * @param version version of page
+     * @param privateCache is page cached only by browser
+     * @return {@code null}
+     */
+    private static <T> CompletableFuture<T> notModified(HttpServletResponse response, PageVersion version, boolean privateCache) {
+        version.writeTo(response, privateCache);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return null;
+    }
+
+    /**
+     * Writes version of rendered page. Version is written only if it is not changed during rendering, since data of page could
+     * be refreshed in the meantime.
+     *
+     * @param response HTTP response
+     * @param versionBefore version of page before requesting its data or {@code null} if it is unknown
+     * @param versionAfter version of page after requesting its data or {@code null} if it is unknown
+     * @param privateCache is page cached only by browser
+     */
+    private static void writeVersion(HttpServletResponse response, PageVersion versionBefore, PageVersion versionAfter,
+            boolean privateCache) {
+        if (versionBefore != null && versionAfter != null && versionBefore.getETag().equals(versionAfter.getETag())) {
+            versionAfter.writeTo(response, privateCache);
+        }
+    }
+
+    /**
+     * Handles error of asynchronous requesting by its cause.
+     *
+     * @param model model attributes
+     * @param poolType pool type or {@code null} if account is not requested
+     * @param exception error of requesting
+     * @param unexpectedMessage message of log for unexpected error
+     */
+    private void handleError(Model model, PoolTypeDescription poolType, Throwable exception, String unexpectedMessage) {
+        Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+        if (cause instanceof AccountRequestorException) {
+            LOG.error("Account request error", cause);
+            handleAccountError(model, poolType, (AccountRequestorException) cause);
+        } else if (cause instanceof CoinInfoRequestorException) {
+            LOG.error("Coin info request error", cause);
+            handleCoinInfoError(model, CoinInfoDescription.WHAT_TO_MINE, (CoinInfoRequestorException) cause);
+        } else if (cause instanceof CoinMarketRequestorException) {
+            LOG.error("Coin market request error", cause);
+            handleCoinMarketError(model, CoinMarketDescription.COIN_MARKET_CAP, (CoinMarketRequestorException) cause);
+        } else if (cause instanceof CoinRewardRequestorException) {
+            LOG.error("Coin reward request error", cause);
+            handleCoinRewardError(model, CoinRewardDescription.WHAT_TO_MINE, (CoinRewardRequestorException) cause);
+        } else {
+            LOG.error(unexpectedMessage, cause);
+            handleUnexpectedError(model, cause);
+        }
+    }
+
     /**
      * Handles unexpected error.
      *
      * @param model model attributes
      * @param exception unexpected exception
      */
-    private void handleUnexpectedError(Model model, Exception exception) {
+    private void handleUnexpectedError(Model model, Throwable exception) {
         addErrorToModel(model, RESOURCES.get("error_unexpected"), exception);
     }
 
@@ -274,7 +403,7 @@ public class SiteController {
      * @param errorMessage error message
      * @param exception exception
      */
-    private void addErrorToModel(Model model, String errorMessage, Exception exception) {
+    private void addErrorToModel(Model model, String errorMessage, Throwable exception) {
         model.addAttribute("error_message", errorMessage);
         model.addAttribute("error_details", String.format(RESOURCES.get("error_details"), exception.getMessage()));
     }
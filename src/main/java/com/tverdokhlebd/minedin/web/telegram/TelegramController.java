@@ -1,12 +1,15 @@
 package com.tverdokhlebd.minedin.web.telegram;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.tverdokhlebd.minedin.bot.telegram.TelegramBotUpdates;
+import com.tverdokhlebd.minedin.bot.telegram.TelegramUpdateQueue;
 
 /**
  * Controller for telegram API.
@@ -20,19 +23,26 @@ public class TelegramController {
 
     @Value("${telegram.token}")
     private String telegramToken;
+    /** Queue of incoming updates from Telegram bot. */
+    @Autowired
+    private TelegramUpdateQueue telegramUpdateQueue;
 
     /**
-     * Processes incoming updates from bot.
+     * Accepts incoming updates from bot. Updates are processed asynchronously, so response is returned immediately.
      *
      * @param token telegram token
      * @param body POST body
+     * @return 200 if update is accepted, 503 if queue of updates is full and Telegram should send update again later
      */
     @RequestMapping("/updates/{token}")
-    public void updates(@PathVariable("token") String token, @RequestBody String body) {
+    public ResponseEntity<Void> updates(@PathVariable("token") String token, @RequestBody String body) {
         if (!telegramToken.equals(token)) {
-            return;
+            return ResponseEntity.ok().build();
         }
-        new TelegramBotUpdates(token).process(body);
+        if (!telegramUpdateQueue.offer(body)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
     }
 
 }
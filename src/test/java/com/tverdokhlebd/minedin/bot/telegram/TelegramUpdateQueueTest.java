@@ -0,0 +1,195 @@
+package com.tverdokhlebd.minedin.bot.telegram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.pengrad.telegrambot.model.Update;
+import com.tverdokhlebd.minedin.bot.telegram.TelegramUpdateQueue.OverflowPolicy;
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil.ExecutionMode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests of telegram update queue.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class TelegramUpdateQueueTest {
+
+    /** Handler of incoming updates. */
+    private TelegramBotUpdates botUpdates;
+    /** Latch, which holds the first processed update. */
+    private CountDownLatch releaseLatch;
+    /** Latch, which is released when the first update is being processed. */
+    private CountDownLatch startedLatch;
+    /** Queue of updates. */
+    private TelegramUpdateQueue updateQueue;
+    /** Registry of meters. */
+    private SimpleMeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        botUpdates = mock(TelegramBotUpdates.class);
+        meterRegistry = new SimpleMeterRegistry();
+        releaseLatch = new CountDownLatch(1);
+        startedLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            startedLatch.countDown();
+            releaseLatch.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(botUpdates).process(any(Update.class));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        releaseLatch.countDown();
+        updateQueue.shutdown();
+    }
+
+    @Test
+    public void testRepeatedPressesAreCoalesced() throws Exception {
+        updateQueue = new TelegramUpdateQueue(botUpdates, 4, 10, OverflowPolicy.REJECT, ExecutionMode.PLATFORM, meterRegistry);
+        assertTrue(updateQueue.offer(createCallbackUpdate(1, "c1", 10, "ETH-NANOPOOL")));
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(updateQueue.offer(createCallbackUpdate(2, "c2", 10, "ETH-NANOPOOL")));
+        assertTrue(updateQueue.offer(createCallbackUpdate(3, "c3", 10, "ETH-ETHERMINE")));
+        assertTrue(updateQueue.offer(createCallbackUpdate(4, "c4", 10, "ETH-ETHERMINE")));
+        assertTrue(updateQueue.offer(createCallbackUpdate(5, "c5", 10, "ETH-NANOPOOL")));
+        assertEquals(1, updateQueue.getQueueDepth());
+        releaseLatch.countDown();
+        verify(botUpdates, timeout(5000)).answerCallbackQuery("c4");
+        InOrder inOrder = inOrder(botUpdates);
+        inOrder.verify(botUpdates).process(withUpdateId(1));
+        inOrder.verify(botUpdates).answerCallbackQuery("c1");
+        inOrder.verify(botUpdates).answerCallbackQuery("c2");
+        inOrder.verify(botUpdates).answerCallbackQuery("c5");
+        inOrder.verify(botUpdates).process(withUpdateId(3));
+        inOrder.verify(botUpdates).answerCallbackQuery("c3");
+        inOrder.verify(botUpdates).answerCallbackQuery("c4");
+        verify(botUpdates, times(2)).process(any(Update.class));
+        assertEquals(3, updateQueue.getCoalescedCount());
+    }
+
+    @Test
+    public void testCallbackQueriesWithoutDataAreNotCoalesced() throws Exception {
+        updateQueue = new TelegramUpdateQueue(botUpdates, 4, 10, OverflowPolicy.REJECT, ExecutionMode.PLATFORM, meterRegistry);
+        assertTrue(updateQueue.offer(createCallbackUpdate(1, "c1", 10, null)));
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(updateQueue.offer(createCallbackUpdate(2, "c2", 10, null)));
+        assertEquals(1, updateQueue.getQueueDepth());
+        releaseLatch.countDown();
+        verify(botUpdates, timeout(5000)).answerCallbackQuery("c2");
+        verify(botUpdates, times(2)).process(any(Update.class));
+        assertEquals(0, updateQueue.getCoalescedCount());
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        updateQueue = new TelegramUpdateQueue(botUpdates, 1, 1, OverflowPolicy.REJECT, ExecutionMode.PLATFORM, meterRegistry);
+        assertTrue(updateQueue.offer(createMessageUpdate(1, 1)));
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(updateQueue.offer(createMessageUpdate(2, 2)));
+        assertFalse(updateQueue.offer(createMessageUpdate(3, 3)));
+        assertEquals(1, updateQueue.getRejectedCount());
+        assertEquals(1, updateQueue.getQueueDepth());
+        assertEquals(1, meterRegistry.get("telegram.updates.queue.depth").gauge().value(), 0);
+        assertEquals(1, meterRegistry.get("telegram.updates").tag("outcome", "rejected").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void testDropOldestWhenQueueIsFull() throws Exception {
+        updateQueue = new TelegramUpdateQueue(botUpdates, 1, 1, OverflowPolicy.DROP_OLDEST, ExecutionMode.PLATFORM, meterRegistry);
+        assertTrue(updateQueue.offer(createMessageUpdate(1, 1)));
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(updateQueue.offer(createMessageUpdate(2, 2)));
+        assertTrue(updateQueue.offer(createMessageUpdate(3, 3)));
+        assertEquals(1, updateQueue.getDroppedCount());
+        releaseLatch.countDown();
+        verify(botUpdates, timeout(5000)).process(withUpdateId(3));
+        verify(botUpdates, times(2)).process(any(Update.class));
+    }
+
+    @Test
+    public void testCallbackQueriesOfDroppedUpdateAreAnswered() throws Exception {
+        updateQueue = new TelegramUpdateQueue(botUpdates, 1, 1, OverflowPolicy.DROP_OLDEST, ExecutionMode.PLATFORM, meterRegistry);
+        assertTrue(updateQueue.offer(createCallbackUpdate(1, "c1", 10, "ETH-NANOPOOL")));
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(updateQueue.offer(createCallbackUpdate(2, "c2", 20, "ETH-ETHERMINE")));
+        assertTrue(updateQueue.offer(createCallbackUpdate(3, "c3", 20, "ETH-ETHERMINE")));
+        assertTrue(updateQueue.offer(createMessageUpdate(4, 2)));
+        assertEquals(1, updateQueue.getDroppedCount());
+        // Dropped update and press merged into it are answered at once, while the first update is still being processed
+        verify(botUpdates).answerCallbackQuery("c2");
+        verify(botUpdates).answerCallbackQuery("c3");
+        releaseLatch.countDown();
+        verify(botUpdates, timeout(5000)).process(withUpdateId(4));
+        verify(botUpdates, timeout(5000)).answerCallbackQuery("c1");
+        verify(botUpdates, times(2)).process(any(Update.class));
+    }
+
+    /**
+     * Creates raw update with simple message.
+     *
+     * @param updateId update id
+     * @param chatId chat id
+     * @return raw update
+     */
+    private static String createMessageUpdate(int updateId, long chatId) {
+        return "{\"update_id\":" + updateId + ",\"message\":{\"message_id\":" + updateId + ",\"chat\":{\"id\":" + chatId
+                + "},\"text\":\"/start\"}}";
+    }
+
+    /**
+     * Creates raw update with callback query.
+     *
+     * @param updateId update id
+     * @param callbackQueryId callback query id
+     * @param messageId message id
+     * @param data callback query data or {@code null} for callback query without data
+     * @return raw update
+     */
+    private static String createCallbackUpdate(int updateId, String callbackQueryId, int messageId, String data) {
+        String dataField = data == null ? "" : ",\"data\":\"" + data + "\"";
+        return "{\"update_id\":" + updateId + ",\"callback_query\":{\"id\":\"" + callbackQueryId + "\"" + dataField
+                + ",\"message\":{\"message_id\":" + messageId + ",\"chat\":{\"id\":1}}}}";
+    }
+
+    /**
+     * Matches update by id.
+     *
+     * @param updateId update id
+     * @return update
+     */
+    private static Update withUpdateId(int updateId) {
+        return Matchers.argThat(new ArgumentMatcher<Update>() {
+
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof Update && ((Update) argument).updateId() == updateId;
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.tverdokhlebd.minedin.earnings;
+
+import static java.math.RoundingMode.DOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.minedin.earnings.CompactEarnings.Period;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Tests of compact earnings.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class CompactEarningsTest {
+
+    @Test
+    public void testConversionIsLossless() {
+        Earnings earnings = createEarnings(new BigDecimal("2.123456789012345678"), new BigDecimal("512.34"), new BigDecimal("0.0024"));
+        Earnings restored = new CompactEarnings(earnings).toEarnings();
+        assertEquals(earnings.getUsdBalance(), restored.getUsdBalance());
+        assertEquals(earnings.getAccount().getWalletAddress(), restored.getAccount().getWalletAddress());
+        assertEquals(earnings.getAccount().getWalletBalance(), restored.getAccount().getWalletBalance());
+        assertEquals(earnings.getAccount().getReportedHashrate(), restored.getAccount().getReportedHashrate());
+        assertEquals(CoinType.ETH, restored.getCoinInfo().getCoinType());
+        assertEquals(earnings.getCoinInfo().getBlockTime(), restored.getCoinInfo().getBlockTime());
+        assertEquals(earnings.getCoinInfo().getBlockReward(), restored.getCoinInfo().getBlockReward());
+        assertEquals(earnings.getCoinInfo().getBlockCount(), restored.getCoinInfo().getBlockCount());
+        assertEquals(earnings.getCoinInfo().getDifficulty(), restored.getCoinInfo().getDifficulty());
+        assertEquals(earnings.getCoinInfo().getNetworkHashrate(), restored.getCoinInfo().getNetworkHashrate());
+        assertEquals(CoinType.ETH, restored.getCoinMarket().getCoin());
+        assertEquals(earnings.getCoinMarket().getPrice(), restored.getCoinMarket().getPrice());
+        assertEquals(CoinType.ETH, restored.getCoinReward().getCoinType());
+        assertEquals(earnings.getCoinReward().getReportedHashrate(), restored.getCoinReward().getReportedHashrate());
+        assertEquals(earnings.getCoinReward().getRewardPerHour(), restored.getCoinReward().getRewardPerHour());
+        assertEquals(earnings.getCoinReward().getRewardPerDay(), restored.getCoinReward().getRewardPerDay());
+        assertEquals(earnings.getCoinReward().getRewardPerWeek(), restored.getCoinReward().getRewardPerWeek());
+        assertEquals(earnings.getCoinReward().getRewardPerMonth(), restored.getCoinReward().getRewardPerMonth());
+        assertEquals(earnings.getCoinReward().getRewardPerYear(), restored.getCoinReward().getRewardPerYear());
+        assertEquals(false, restored.isPartial());
+    }
+
+    @Test
+    public void testMissingPartsAreRestored() {
+        Earnings restored = new CompactEarnings(new Earnings(BigDecimal.ONE, null, null, null, null, true)).toEarnings();
+        assertEquals(BigDecimal.ONE, restored.getUsdBalance());
+        assertNull(restored.getAccount());
+        assertNull(restored.getCoinInfo());
+        assertNull(restored.getCoinMarket());
+        assertNull(restored.getCoinReward());
+        assertTrue(restored.isPartial());
+    }
+
+    @Test
+    public void testLargeValuesAreStrippedOrKept() {
+        BigDecimal difficulty = new BigDecimal(new BigInteger("33000000000000000000000"), 4);
+        Earnings earnings = createEarnings(BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE);
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH).setDifficulty(difficulty).build();
+        Earnings restored = new CompactEarnings(new Earnings(earnings.getUsdBalance(), earnings.getAccount(), coinInfo,
+                                                             earnings.getCoinMarket(), earnings.getCoinReward())).toEarnings();
+        assertEquals(0, difficulty.compareTo(restored.getCoinInfo().getDifficulty()));
+        difficulty = new BigDecimal("12345678901234567890.1");
+        coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH).setDifficulty(difficulty).build();
+        restored = new CompactEarnings(new Earnings(earnings.getUsdBalance(), earnings.getAccount(), coinInfo, earnings.getCoinMarket(),
+                                                    earnings.getCoinReward())).toEarnings();
+        assertEquals(difficulty, restored.getCoinInfo().getDifficulty());
+    }
+
+    @Test
+    public void testBalanceInWeiPrecisionIsCalculatedWithDecimals() {
+        // Balance of Ethermine, which is divided by 1e18, does not fit into long from 9.223 ETH
+        BigDecimal walletBalance = new BigDecimal("12.345678901234567891");
+        BigDecimal btcPrice = new BigDecimal("8123.45");
+        Earnings earnings = createEarnings(walletBalance, new BigDecimal("512.34"), new BigDecimal("12345678901.234567891"));
+        CompactEarnings compactEarnings = new CompactEarnings(earnings);
+        BigDecimal coinPrice = earnings.getCoinMarket().getPrice().setScale(2, DOWN);
+        BigDecimal perDay = earnings.getCoinReward().getRewardPerDay().setScale(6, DOWN);
+        assertEquals(walletBalance, compactEarnings.getWalletBalance());
+        assertEquals(walletBalance.setScale(8, DOWN), compactEarnings.getWalletBalance(8));
+        assertEquals(earnings.getUsdBalance(), compactEarnings.getUsdBalance());
+        assertEquals(earnings.getUsdBalance().setScale(2, DOWN), compactEarnings.getUsdBalance(2));
+        assertEquals(perDay, compactEarnings.getReward(Period.DAY, 6));
+        assertEquals(perDay.multiply(coinPrice).setScale(2, DOWN), compactEarnings.getUsdReward(Period.DAY, 6, 2, 2));
+        assertEquals(btcPrice.divide(earnings.getCoinMarket().getPrice(), DOWN), compactEarnings.getCoinInBtc(btcPrice));
+        assertEquals(walletBalance, compactEarnings.toEarnings().getAccount().getWalletBalance());
+    }
+
+    @Test
+    public void testArithmeticMatchesDecimals() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal walletBalance = BigDecimal.valueOf(random.nextLong() >>> random.nextInt(64), random.nextInt(19));
+            BigDecimal price = BigDecimal.valueOf(1 + (random.nextLong() >>> (20 + random.nextInt(44))), random.nextInt(9));
+            BigDecimal reward = BigDecimal.valueOf(random.nextLong() >>> random.nextInt(64), random.nextInt(19));
+            BigDecimal btcPrice = BigDecimal.valueOf(random.nextInt(Integer.MAX_VALUE), random.nextInt(5));
+            Earnings earnings = createEarnings(walletBalance, price, reward);
+            CompactEarnings compactEarnings = new CompactEarnings(earnings);
+            // The same rounding as in message about earnings and on earnings page
+            BigDecimal coinPrice = earnings.getCoinMarket().getPrice().setScale(2, DOWN);
+            assertEquals(earnings.getAccount().getWalletBalance().setScale(8, DOWN), compactEarnings.getWalletBalance(8));
+            assertEquals(earnings.getUsdBalance().setScale(2, DOWN), compactEarnings.getUsdBalance(2));
+            assertEquals(coinPrice, compactEarnings.getPrice(2));
+            BigDecimal perDay = earnings.getCoinReward().getRewardPerDay().setScale(6, DOWN);
+            assertEquals(perDay, compactEarnings.getReward(Period.DAY, 6));
+            assertEquals(perDay.multiply(coinPrice).setScale(2, DOWN), compactEarnings.getUsdReward(Period.DAY, 6, 2, 2));
+            assertEquals(btcPrice.divide(earnings.getCoinMarket().getPrice(), DOWN), compactEarnings.getCoinInBtc(btcPrice));
+        }
+    }
+
+    private static Earnings createEarnings(BigDecimal walletBalance, BigDecimal price, BigDecimal rewardPerDay) {
+        Account account = new Account.Builder().setWalletAddress("0x0000000000000000000000000000000000000000")
+                                               .setWalletBalance(walletBalance)
+                                               .setReportedHashrate(new BigDecimal("185000000"))
+                                               .build();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH)
+                                                  .setBlockTime(new BigDecimal("14.5"))
+                                                  .setBlockReward(new BigDecimal("3"))
+                                                  .setBlockCount(new BigDecimal("5700000"))
+                                                  .setDifficulty(new BigDecimal("3300000000000000"))
+                                                  .setNetworkHashrate(new BigDecimal("250000000000000.123"))
+                                                  .build();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(price).build();
+        CoinReward coinReward = new CoinReward(CoinType.ETH,
+                                               new BigDecimal("185000000"),
+                                               new BigDecimal("0.0001"),
+                                               rewardPerDay,
+                                               new BigDecimal("0.0168"),
+                                               new BigDecimal("0.072"),
+                                               new BigDecimal("0.876"));
+        return new Earnings(account.getWalletBalance().multiply(coinMarket.getPrice()), account, coinInfo, coinMarket, coinReward);
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.tverdokhlebd.minedin.earnings.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.earnings.batch.BatchResult.Status;
+import com.tverdokhlebd.minedin.earnings.worker.EarningsWorker;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Tests of batch earnings calculator.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class BatchEarningsCalculatorTest {
+
+    private static final String FAILING_WALLET = "0xfailing";
+    private static final String PARTIAL_WALLET = "0xpartial";
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+    private final AtomicInteger startedCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger maxActiveCount = new AtomicInteger();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFailedItemsAreReportedWithoutStoppingBatch() throws Exception {
+        BatchEarningsCalculator calculator = new BatchEarningsCalculator(poolType -> createWorker(), 4);
+        List<BatchItem> itemList = Arrays.asList(new BatchItem(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0x1"),
+                                                 new BatchItem(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, FAILING_WALLET),
+                                                 new BatchItem(CoinTypeDescription.BTC, PoolTypeDescription.NANOPOOL, "0x2"),
+                                                 new BatchItem(CoinTypeDescription.ETH, PoolTypeDescription.ETHERMINE, PARTIAL_WALLET),
+                                                 new BatchItem(CoinTypeDescription.ETH, null, "0x3"));
+        List<BatchResult> resultList = Collections.synchronizedList(new ArrayList<>());
+        BatchSummary summary = calculator.calculate(itemList, resultList::add).get(5, TimeUnit.SECONDS);
+        assertEquals(5, resultList.size());
+        assertEquals(5, summary.getTotal());
+        assertEquals(1, summary.getSuccess());
+        assertEquals(1, summary.getPartial());
+        assertEquals(3, summary.getError());
+        BatchResult[] results = new BatchResult[itemList.size()];
+        resultList.forEach(result -> results[result.getIndex()] = result);
+        assertEquals(Status.SUCCESS, results[0].getStatus());
+        assertEquals("account", results[1].getErrorSource());
+        assertEquals("request", results[2].getErrorSource());
+        assertEquals(Status.PARTIAL, results[3].getStatus());
+        assertEquals("request", results[4].getErrorSource());
+    }
+
+    @Test
+    public void testConcurrencyIsLimited() throws Exception {
+        BatchEarningsCalculator calculator = new BatchEarningsCalculator(poolType -> createWorker(), 3);
+        List<BatchItem> itemList = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            itemList.add(new BatchItem(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0x" + i));
+        }
+        BatchSummary summary = calculator.calculate(itemList, result -> {}).get(5, TimeUnit.SECONDS);
+        assertEquals(12, summary.getSuccess());
+        assertEquals(3, maxActiveCount.get());
+    }
+
+    @Test
+    public void testCancelledBatchStopsStartingItems() throws Exception {
+        BatchEarningsCalculator calculator = new BatchEarningsCalculator(poolType -> createWorker(), 2);
+        List<BatchItem> itemList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            itemList.add(new BatchItem(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0x" + i));
+        }
+        CompletableFuture<BatchSummary> summary = calculator.calculate(itemList, result -> {});
+        summary.cancel(false);
+        Thread.sleep(200);
+        assertTrue("Started " + startedCount.get(), startedCount.get() <= 2);
+    }
+
+    private EarningsWorker createWorker() {
+        return new EarningsWorker() {
+
+            @Override
+            public Earnings calculate(CoinTypeDescription coinType, String walletAddress) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coinType, String walletAddress) {
+                startedCount.incrementAndGet();
+                int active = activeCount.incrementAndGet();
+                maxActiveCount.accumulateAndGet(active, Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    activeCount.decrementAndGet();
+                    if (FAILING_WALLET.equals(walletAddress)) {
+                        throw new CompletionException(new AccountRequestorException(ErrorCode.HTTP_ERROR, "Error"));
+                    }
+                    return new Earnings(BigDecimal.ONE, null, null, null, null, PARTIAL_WALLET.equals(walletAddress));
+                }, executor);
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,373 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestor;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.http.RequestDeadline;
+import com.tverdokhlebd.minedin.requestor.cache.AccountCache;
+import com.tverdokhlebd.minedin.requestor.cache.CachedAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.MeteredAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.metrics.RequestorMeter;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.PoolType;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests of mined in worker.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class MinedInWorkerTest {
+
+    /** Delay of each stubbed request in milliseconds. */
+    private static final long REQUEST_DELAY = 200;
+    /** Wallet address. */
+    private static final String WALLET_ADDRESS = "0x0000000000000000000000000000000000000000";
+    /** Executor of requests. */
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    /** Scheduler of deadlines and hedged requests. */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testIndependentRequestsAreConcurrent() throws Exception {
+        MinedInWorker worker = new MinedInWorker(createAccountRequestor(), createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor);
+        long startTime = System.nanoTime();
+        Earnings earnings = worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+        // Account and reward are dependent, so two delays instead of four
+        assertTrue("Elapsed " + elapsedTime + " ms", elapsedTime < REQUEST_DELAY * 3);
+        assertEquals(0, new BigDecimal("1000").compareTo(earnings.getUsdBalance()));
+        assertEquals(0, new BigDecimal("100").compareTo(earnings.getCoinReward().getReportedHashrate()));
+    }
+
+    @Test(expected = AccountRequestorException.class)
+    public void testAccountErrorIsTyped() throws Exception {
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            throw new AccountRequestorException(ErrorCode.HTTP_ERROR, "Account error");
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor);
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+    }
+
+    @Test
+    public void testCoinMarketErrorIsCauseOfAsyncResult() {
+        CoinMarketRequestor coinMarketRequestor = coinType -> {
+            throw new CoinMarketRequestorException(ErrorCode.API_ERROR, "Coin market error");
+        };
+        MinedInWorker worker = new MinedInWorker(createAccountRequestor(), createCoinInfoRequestor(), coinMarketRequestor,
+                                                 createCoinRewardRequestor(), executor);
+        try {
+            worker.calculateAsync(CoinTypeDescription.ETH, WALLET_ADDRESS).join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof CoinMarketRequestorException);
+            return;
+        }
+        throw new AssertionError("Expected coin market error");
+    }
+
+    @Test
+    public void testLastKnownMarketIsUsedAfterDeadline() throws Exception {
+        CoinMarketRequestor coinMarketRequestor = coinType -> {
+            sleep(REQUEST_DELAY * 10);
+            return new CoinMarket.Builder().setCoin(coinType).setPrice(new BigDecimal("500.00")).build();
+        };
+        MinedInWorker worker = new MinedInWorker(createAccountRequestor(), createCoinInfoRequestor(), coinMarketRequestor,
+                                                 createCoinRewardRequestor(), executor, scheduler, null, null, createFallback(null),
+                                                 REQUEST_DELAY * 3);
+        long startTime = System.nanoTime();
+        Earnings earnings = worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+        assertTrue("Elapsed " + elapsedTime + " ms", elapsedTime < REQUEST_DELAY * 5);
+        assertTrue(earnings.isPartial());
+        assertEquals(0, new BigDecimal("800").compareTo(earnings.getUsdBalance()));
+    }
+
+    @Test
+    public void testSlowAccountFailsAtDeadline() {
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            sleep(REQUEST_DELAY * 10);
+            return createAccount(walletAddress);
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, null, null, createFallback(null),
+                                                 REQUEST_DELAY * 2);
+        long startTime = System.nanoTime();
+        try {
+            worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+            fail();
+        } catch (AccountRequestorException e) {
+            long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+            assertTrue("Elapsed " + elapsedTime + " ms", elapsedTime < REQUEST_DELAY * 4);
+            assertEquals(ErrorCode.HTTP_ERROR, e.getErrorCode());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void testCachedAccountIsUsedAtDeadline() throws Exception {
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            sleep(REQUEST_DELAY * 10);
+            return createAccount(walletAddress);
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, null, null,
+                                                 createFallback(createAccount(WALLET_ADDRESS)), REQUEST_DELAY * 2);
+        long startTime = System.nanoTime();
+        Earnings earnings = worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+        assertTrue("Elapsed " + elapsedTime + " ms", elapsedTime < REQUEST_DELAY * 4);
+        assertTrue(earnings.isPartial());
+        assertEquals(0, new BigDecimal("1000").compareTo(earnings.getUsdBalance()));
+    }
+
+    @Test
+    public void testRequestsAreBoundedByDeadline() throws Exception {
+        AtomicLong accountRemaining = new AtomicLong();
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            accountRemaining.set(RequestDeadline.getRemainingMillis());
+            return createAccount(walletAddress);
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, null, null, createFallback(null),
+                                                 REQUEST_DELAY * 5);
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        assertTrue(accountRemaining.get() > 0 && accountRemaining.get() <= REQUEST_DELAY * 5);
+        assertEquals(RequestDeadline.NONE, RequestDeadline.getRemainingMillis());
+    }
+
+    @Test(expected = AccountRequestorException.class)
+    public void testFailedAccountFailsAfterDeadline() throws Exception {
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            sleep(REQUEST_DELAY * 4);
+            throw new AccountRequestorException(ErrorCode.HTTP_ERROR, "Account error");
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, null, null, createFallback(null),
+                                                 REQUEST_DELAY * 2);
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+    }
+
+    @Test
+    public void testSlowAccountRequestIsHedged() throws Exception {
+        LatencyTracker accountLatency = new LatencyTracker(0.5);
+        for (int i = 0; i < 32; i++) {
+            accountLatency.record(TimeUnit.MILLISECONDS.toNanos(REQUEST_DELAY / 4));
+        }
+        AtomicInteger callCount = new AtomicInteger();
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            // The first request hangs, the hedged one answers quickly
+            sleep(callCount.incrementAndGet() == 1 ? REQUEST_DELAY * 10 : 0);
+            return new Account.Builder().setWalletAddress(walletAddress)
+                                        .setWalletBalance(new BigDecimal("2"))
+                                        .setReportedHashrate(new BigDecimal("100"))
+                                        .build();
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, executor, accountLatency, null, 0);
+        long startTime = System.nanoTime();
+        Earnings earnings = worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+        assertTrue("Elapsed " + elapsedTime + " ms", elapsedTime < REQUEST_DELAY * 5);
+        assertFalse(earnings.isPartial());
+        assertEquals(1, accountLatency.getHedgeCount());
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void testFailedRequestDoesNotFailHedgedOne() throws Exception {
+        LatencyTracker accountLatency = new LatencyTracker(0.5);
+        for (int i = 0; i < 32; i++) {
+            accountLatency.record(TimeUnit.MILLISECONDS.toNanos(REQUEST_DELAY / 4));
+        }
+        AtomicInteger callCount = new AtomicInteger();
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            // The first request fails after hedging, the hedged one answers later
+            if (callCount.incrementAndGet() == 1) {
+                sleep(REQUEST_DELAY);
+                throw new AccountRequestorException(ErrorCode.HTTP_ERROR, "Account error");
+            }
+            sleep(REQUEST_DELAY * 2);
+            return createAccount(walletAddress);
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, executor, accountLatency, null, 0);
+        Earnings earnings = worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        assertEquals(0, new BigDecimal("1000").compareTo(earnings.getUsdBalance()));
+        assertEquals(1, accountLatency.getHedgeCount());
+    }
+
+    @Test(expected = AccountRequestorException.class)
+    public void testAccountFailsWhenAllRequestsFail() throws Exception {
+        LatencyTracker accountLatency = new LatencyTracker(0.5);
+        for (int i = 0; i < 32; i++) {
+            accountLatency.record(TimeUnit.MILLISECONDS.toNanos(REQUEST_DELAY / 4));
+        }
+        AccountRequestor accountRequestor = (coinType, walletAddress) -> {
+            sleep(REQUEST_DELAY);
+            throw new AccountRequestorException(ErrorCode.HTTP_ERROR, "Account error");
+        };
+        MinedInWorker worker = new MinedInWorker(accountRequestor, createCoinInfoRequestor(), createCoinMarketRequestor(),
+                                                 createCoinRewardRequestor(), executor, scheduler, executor, accountLatency, null, 0);
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+    }
+
+    @Test
+    public void testCacheHitsDoNotLowerHedgeDelay() throws Exception {
+        LatencyTracker accountLatency = new LatencyTracker(0.5);
+        RequestorMeter meter = new RequestorMeter(new SimpleMeterRegistry(), "account", "NANOPOOL",
+                                                 PoolType.NANOPOOL.getCoinTypeList());
+        meter.setLatencyListener(accountLatency::record);
+        AccountRequestor poolRequestor = (coinType, walletAddress) -> {
+            sleep(REQUEST_DELAY / 10);
+            return new Account.Builder().setWalletAddress(walletAddress)
+                                        .setWalletBalance(new BigDecimal("2"))
+                                        .setReportedHashrate(new BigDecimal("100"))
+                                        .build();
+        };
+        AccountRequestor accountRequestor = new CachedAccountRequestor(new MeteredAccountRequestor(poolRequestor, meter),
+                                                                       new AccountCache(100, 1));
+        for (int i = 0; i < 32; i++) {
+            accountRequestor.requestAccount(CoinType.ETH, "0x" + i);
+        }
+        long hedgeDelay = accountLatency.getHedgeDelay();
+        assertTrue("Hedge delay " + hedgeDelay + " ns", hedgeDelay >= TimeUnit.MILLISECONDS.toNanos(REQUEST_DELAY / 10));
+        CoinRewardRequestor coinRewardRequestor = (coinType, hashrate) -> new CoinReward(coinType, hashrate, BigDecimal.ONE,
+                                                                                         BigDecimal.ONE, BigDecimal.ONE,
+                                                                                         BigDecimal.ONE, BigDecimal.ONE);
+        MinedInWorker worker = new MinedInWorker(accountRequestor, MinedInWorkerTest::createCoinInfo, MinedInWorkerTest::createCoinMarket,
+                                                 coinRewardRequestor, executor, scheduler, executor, accountLatency, null, 0);
+        for (int i = 0; i < 64; i++) {
+            worker.calculate(CoinTypeDescription.ETH, "0x" + (i % 32));
+        }
+        assertEquals(hedgeDelay, accountLatency.getHedgeDelay());
+        assertEquals(0, accountLatency.getHedgeCount());
+    }
+
+    private static EarningsFallback createFallback(Account account) {
+        return new EarningsFallback() {
+
+            @Override
+            public Account getAccount(CoinType coinType, String walletAddress) {
+                return account;
+            }
+
+            @Override
+            public CoinInfo getCoinInfo(CoinType coinType) {
+                return null;
+            }
+
+            @Override
+            public CoinMarket getCoinMarket(CoinType coinType) {
+                return new CoinMarket.Builder().setCoin(coinType).setPrice(new BigDecimal("400.00")).build();
+            }
+
+            @Override
+            public CoinReward getCoinReward(CoinType coinType, BigDecimal hashrate) {
+                return new CoinReward(coinType, hashrate, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE);
+            }
+
+        };
+    }
+
+    private static AccountRequestor createAccountRequestor() {
+        return (coinType, walletAddress) -> {
+            sleep();
+            return createAccount(walletAddress);
+        };
+    }
+
+    private static Account createAccount(String walletAddress) {
+        return new Account.Builder().setWalletAddress(walletAddress)
+                                    .setWalletBalance(new BigDecimal("2"))
+                                    .setReportedHashrate(new BigDecimal("100"))
+                                    .build();
+    }
+
+    private static CoinInfoRequestor createCoinInfoRequestor() {
+        return coinType -> {
+            sleep();
+            return createCoinInfo(coinType);
+        };
+    }
+
+    private static CoinMarketRequestor createCoinMarketRequestor() {
+        return coinType -> {
+            sleep();
+            return createCoinMarket(coinType);
+        };
+    }
+
+    private static CoinInfo createCoinInfo(CoinType coinType) {
+        return new CoinInfo.Builder().setCoinType(coinType)
+                                     .setBlockTime(BigDecimal.ONE)
+                                     .setBlockReward(BigDecimal.ONE)
+                                     .setBlockCount(BigDecimal.ONE)
+                                     .setDifficulty(BigDecimal.ONE)
+                                     .setNetworkHashrate(BigDecimal.ONE)
+                                     .build();
+    }
+
+    private static CoinMarket createCoinMarket(CoinType coinType) {
+        return new CoinMarket.Builder().setCoin(coinType).setPrice(new BigDecimal("500.00")).build();
+    }
+
+    private static CoinRewardRequestor createCoinRewardRequestor() {
+        return (CoinType coinType, BigDecimal hashrate) -> {
+            sleep();
+            return new CoinReward(coinType, hashrate, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE);
+        };
+    }
+
+    private static void sleep() {
+        sleep(REQUEST_DELAY);
+    }
+
+    private static void sleep(long delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
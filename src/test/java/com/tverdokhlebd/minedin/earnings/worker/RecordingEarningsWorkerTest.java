@@ -0,0 +1,82 @@
+package com.tverdokhlebd.minedin.earnings.worker;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.history.HistoryStore;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Tests of recording earnings worker.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class RecordingEarningsWorkerTest {
+
+    /** Wallet address. */
+    private static final String WALLET_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAccountIsRecordedOncePerFetch() throws Exception {
+        HistoryStore historyStore = new HistoryStore(folder.getRoot().getPath(), 100, 60_000, 86_400_000, 10);
+        historyStore.afterPropertiesSet();
+        AtomicReference<Account> account = new AtomicReference<>(createAccount());
+        EarningsWorker delegate = new EarningsWorker() {
+
+            @Override
+            public Earnings calculate(CoinTypeDescription coinType, String walletAddress) {
+                CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("500.00")).build();
+                return new Earnings(BigDecimal.ONE, account.get(), null, coinMarket, null, true);
+            }
+
+            @Override
+            public CompletableFuture<Earnings> calculateAsync(CoinTypeDescription coinType, String walletAddress) {
+                return CompletableFuture.completedFuture(calculate(coinType, walletAddress));
+            }
+
+        };
+        long start = System.currentTimeMillis();
+        EarningsWorker worker = new RecordingEarningsWorker(delegate, historyStore, PoolTypeDescription.NANOPOOL,
+                                                            Collections.newSetFromMap(new IdentityHashMap<>()));
+        // The same account is served from cache twice
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        worker.calculateAsync(CoinTypeDescription.ETH, WALLET_ADDRESS).join();
+        assertEquals(1, countPoints(historyStore, start));
+        // Account is fetched again
+        account.set(createAccount());
+        worker.calculate(CoinTypeDescription.ETH, WALLET_ADDRESS);
+        assertEquals(2, countPoints(historyStore, start));
+    }
+
+    private static int countPoints(HistoryStore historyStore, long start) {
+        return historyStore.query(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, WALLET_ADDRESS, start, Long.MAX_VALUE).size();
+    }
+
+    private static Account createAccount() {
+        return new Account.Builder().setWalletAddress(WALLET_ADDRESS)
+                                    .setWalletBalance(new BigDecimal("2"))
+                                    .setReportedHashrate(new BigDecimal("100"))
+                                    .build();
+    }
+
+}
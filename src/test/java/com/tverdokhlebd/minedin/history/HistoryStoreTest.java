@@ -0,0 +1,100 @@
+package com.tverdokhlebd.minedin.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+/**
+ * Tests of history store.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class HistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHistoryIsQueriedByWalletAndTime() throws Exception {
+        HistoryStore store = createStore(100, 60_000, 60);
+        long now = System.currentTimeMillis();
+        store.record(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", createAccount("1.123456789123"), createMarket(), now);
+        store.record(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xdef", createAccount("2"), createMarket(), now + 1);
+        store.record(CoinTypeDescription.ETH, PoolTypeDescription.ETHERMINE, "0xabc", createAccount("3"), null, now + 2);
+        store.record(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", createAccount("4"), createMarket(), now + 3);
+        List<HistoryPoint> pointList = store.query(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", now, now + 3);
+        assertEquals(2, pointList.size());
+        assertEquals(now, pointList.get(0).getTime());
+        assertEquals(new BigDecimal("1.123456789"), pointList.get(0).getWalletBalance());
+        assertEquals(new BigDecimal("120000000"), pointList.get(0).getReportedHashrate());
+        assertEquals(new BigDecimal("812.123400"), pointList.get(0).getPrice());
+        assertEquals(new BigDecimal("4.000000000"), pointList.get(1).getWalletBalance());
+        assertEquals(1, store.query(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", now + 1, now + 5).size());
+        List<HistoryPoint> ethermineList = store.query(CoinTypeDescription.ETH, PoolTypeDescription.ETHERMINE, "0xabc", now, now + 5);
+        assertNull(ethermineList.get(0).getPrice());
+    }
+
+    @Test
+    public void testSegmentsAreRolledOverAndReopened() throws Exception {
+        HistoryStore store = createStore(2, 60_000, 60);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            Account account = createAccount(String.valueOf(i));
+            store.record(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", account, createMarket(), now + i);
+        }
+        assertEquals(3, store.getSegmentCount());
+        store.flush();
+        HistoryStore reopenedStore = createStore(2, 60_000, 60);
+        List<HistoryPoint> pointList = reopenedStore.query(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", now, now + 5);
+        assertEquals(5, pointList.size());
+        assertEquals(new BigDecimal("4.000000000"), pointList.get(4).getWalletBalance());
+    }
+
+    @Test
+    public void testOldSegmentsAreDeleted() throws Exception {
+        HistoryStore store = createStore(100, 1_000, 2);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            Account account = createAccount(String.valueOf(i));
+            store.record(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", account, createMarket(), now + i * 1_000);
+        }
+        assertEquals(2, store.getSegmentCount());
+        assertEquals(2, folder.getRoot().list().length);
+        List<HistoryPoint> pointList = store.query(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, "0xabc", now, now + 5_000);
+        assertEquals(2, pointList.size());
+        assertEquals(now + 2_000, pointList.get(0).getTime());
+    }
+
+    private HistoryStore createStore(int segmentCapacity, long segmentDuration, int maxSegments) throws Exception {
+        HistoryStore store = new HistoryStore(folder.getRoot().getPath(), segmentCapacity, segmentDuration, 86_400_000, maxSegments);
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    private static Account createAccount(String walletBalance) {
+        return new Account.Builder().setWalletAddress("0xabc")
+                                    .setWalletBalance(new BigDecimal(walletBalance))
+                                    .setReportedHashrate(new BigDecimal("120000000.5"))
+                                    .build();
+    }
+
+    private static CoinMarket createMarket() {
+        return new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("812.1234")).build();
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.tverdokhlebd.minedin.load;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.LocalServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.tverdokhlebd.minedin.bot.telegram.TelegramUpdateQueue;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.simulator.UpstreamSimulator;
+
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * End-to-end load test of site and Telegram bot against upstream simulator. It is run only in profile "load-test", SLO thresholds
+ * and parameters of load are set by system properties, e.g. {@code mvn test -P load-test -Dloadtest.max-p99=1000}.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+                properties = { "server.ssl.enabled=false", "upstream.simulator.enabled=true", "upstream.simulator.port=0" })
+public class ApplicationLoadTest {
+
+    /** Number of frequently requested wallets per coin and pool. */
+    private static final int HOT_WALLETS = 20;
+    /** Number of rarely requested wallets per coin and pool. */
+    private static final int COLD_WALLETS = 5000;
+    /** Logger. */
+    private final static Logger LOG = LoggerFactory.getLogger(ApplicationLoadTest.class);
+
+    @LocalServerPort
+    private int port;
+    @Value("${telegram.token}")
+    private String telegramToken;
+    @Autowired
+    private UpstreamSimulator upstreamSimulator;
+    @Autowired
+    private TelegramUpdateQueue telegramUpdateQueue;
+
+    @Test
+    public void testSlo() throws Exception {
+        int workers = Integer.getInteger("loadtest.workers", 16);
+        OkHttpClient httpClient = new OkHttpClient.Builder().connectionPool(new ConnectionPool(workers, 5, TimeUnit.MINUTES))
+                                                            .readTimeout(30, TimeUnit.SECONDS)
+                                                            .build();
+        LoadGenerator loadGenerator = new LoadGenerator(httpClient, workers, Long.getLong("loadtest.seed", 1));
+        String baseUrl = "http://localhost:" + port;
+        List<String[]> accountList = createAccountList();
+        loadGenerator.addScenario("earnings", 70, random -> {
+            String[] account = accountList.get(random.nextInt(accountList.size()));
+            return new Request.Builder().url(baseUrl + "/" + account[0] + "/" + account[1] + "/" + nextWallet(random)).build();
+        });
+        loadGenerator.addScenario("coin", 25, random -> {
+            CoinTypeDescription[] coinTypes = CoinTypeDescription.values();
+            return new Request.Builder().url(baseUrl + "/" + coinTypes[random.nextInt(coinTypes.length)]).build();
+        });
+        MediaType json = MediaType.parse("application/json");
+        loadGenerator.addScenario("telegram", 5, random -> {
+            String[] account = accountList.get(random.nextInt(accountList.size()));
+            String update = createTelegramUpdate(random, account[0] + "-" + account[1], nextWallet(random));
+            return new Request.Builder().url(baseUrl + "/telegram/updates/" + telegramToken).post(RequestBody.create(json, update)).build();
+        });
+        long upstreamRequests = upstreamSimulator.getRequestCount();
+        long lostUpdates = telegramUpdateQueue.getDroppedCount() + telegramUpdateQueue.getRejectedCount();
+        long processedUpdates = telegramUpdateQueue.getProcessedCount();
+        LoadReport report = loadGenerator.run(Long.getLong("loadtest.warmup", 10000), Long.getLong("loadtest.duration", 30000));
+        // Webhook accepts updates immediately, so updates lost by queue are not visible as failed requests
+        lostUpdates = telegramUpdateQueue.getDroppedCount() + telegramUpdateQueue.getRejectedCount() - lostUpdates;
+        processedUpdates = telegramUpdateQueue.getProcessedCount() - processedUpdates;
+        double updateLossRate = lostUpdates == 0 ? 0 : (double) lostUpdates / (lostUpdates + processedUpdates);
+        LOG.info("Load test: {}, upstream requests: {}, lost Telegram updates: {} ({}%)",
+                 report,
+                 upstreamSimulator.getRequestCount() - upstreamRequests,
+                 lostUpdates,
+                 String.format("%.2f", updateLossRate * 100));
+        double minThroughput = Double.parseDouble(System.getProperty("loadtest.min-throughput", "50"));
+        double maxP99 = Double.parseDouble(System.getProperty("loadtest.max-p99", "3000"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+        double maxGcTimeRatio = Double.parseDouble(System.getProperty("loadtest.max-gc-time-ratio", "0.1"));
+        assertTrue("Throughput is below " + minThroughput + " req/s: " + report, report.getThroughput() >= minThroughput);
+        assertTrue("Latency p99 is above " + maxP99 + " ms: " + report, report.getLatency(99) <= maxP99);
+        assertTrue("Error rate is above " + maxErrorRate + ": " + report, report.getErrorRate() <= maxErrorRate);
+        assertTrue("Telegram update loss rate is above " + maxErrorRate + ": " + updateLossRate, updateLossRate <= maxErrorRate);
+        assertTrue("GC time ratio is above " + maxGcTimeRatio + ": " + report, report.getGcTimeRatio() <= maxGcTimeRatio);
+    }
+
+    /**
+     * Creates list of supported pairs of coin and pool.
+     *
+     * @return list of pairs of coin and pool
+     */
+    private static List<String[]> createAccountList() {
+        List<String[]> accountList = new ArrayList<>();
+        for (CoinTypeDescription coinType : CoinTypeDescription.values()) {
+            for (PoolTypeDescription poolType : PoolTypeDescription.values()) {
+                if (coinType.isEnabled() && poolType.getPoolType().getCoinTypeList().contains(coinType.getCoinType())) {
+                    accountList.add(new String[] { coinType.name(), poolType.name() });
+                }
+            }
+        }
+        return accountList;
+    }
+
+    /**
+     * Chooses wallet. Most requests are for a few wallets, like repeated checks of the same users.
+     *
+     * @param random random source of worker
+     * @return wallet address
+     */
+    private static String nextWallet(SplittableRandom random) {
+        int wallet = random.nextInt(10) < 8 ? random.nextInt(HOT_WALLETS) : HOT_WALLETS + random.nextInt(COLD_WALLETS);
+        return String.format("0x%040x", wallet);
+    }
+
+    /**
+     * Creates Telegram update: start message, entered wallet or pressed button of pool.
+     *
+     * @param random random source of worker
+     * @param callbackQueryData data of button of pool, e.g. "ETH-NANOPOOL"
+     * @param walletAddress wallet address
+     * @return Telegram update
+     */
+    private static String createTelegramUpdate(SplittableRandom random, String callbackQueryData, String walletAddress) {
+        int updateId = random.nextInt(Integer.MAX_VALUE);
+        long chatId = 1 + random.nextInt(1000);
+        String chat = "{\"id\":" + chatId + ",\"type\":\"private\"}";
+        String from = "{\"id\":" + chatId + ",\"is_bot\":false,\"first_name\":\"Miner\"}";
+        switch (random.nextInt(3)) {
+        case 0:
+            return "{\"update_id\":" + updateId + ",\"message\":{\"message_id\":" + updateId + ",\"from\":" + from + ",\"date\":0,\"chat\":"
+                    + chat + ",\"text\":\"/start\"}}";
+        case 1:
+            return "{\"update_id\":" + updateId + ",\"message\":{\"message_id\":" + updateId + ",\"from\":" + from + ",\"date\":0,\"chat\":"
+                    + chat + ",\"text\":\"" + walletAddress + "\"}}";
+        default:
+            return "{\"update_id\":" + updateId + ",\"callback_query\":{\"id\":\"" + updateId + "\",\"from\":" + from + ",\"data\":\""
+                    + callbackQueryData + "\",\"message\":{\"message_id\":" + updateId + ",\"date\":0,\"chat\":" + chat
+                    + ",\"text\":\"Pools\",\"reply_to_message\":{\"message_id\":1,\"date\":0,\"chat\":" + chat + ",\"text\":\""
+                    + walletAddress + "\"}}}}";
+        }
+    }
+
+}
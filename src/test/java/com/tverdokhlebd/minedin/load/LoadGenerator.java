@@ -0,0 +1,247 @@
+package com.tverdokhlebd.minedin.load;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Closed-loop generator of load. Every worker sends next request right after response to previous one, scenario of request is
+ * chosen randomly by weight. Random source of every worker depends only on seed, so the same mix of requests is sent on every run.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class LoadGenerator {
+
+    /**
+     * Scenario of requests.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    @FunctionalInterface
+    public interface Scenario {
+
+        /**
+         * Creates next request.
+         *
+         * @param random random source of worker
+         * @return next request
+         */
+        Request nextRequest(SplittableRandom random);
+
+    }
+
+    /** Marker of error fragment in page, since site renders errors with status 200. */
+    private static final String ERROR_MARKER = "id=\"errorMessage\"";
+    /** HTTP client. */
+    private final OkHttpClient httpClient;
+    /** Number of workers. */
+    private final int workers;
+    /** Seed of random sources. */
+    private final long seed;
+    /** Names of scenarios. */
+    private final List<String> nameList = new ArrayList<>();
+    /** Scenarios. */
+    private final List<Scenario> scenarioList = new ArrayList<>();
+    /** Cumulative weights of scenarios. */
+    private final List<Integer> weightList = new ArrayList<>();
+    /** Sum of weights. */
+    private int totalWeight;
+
+    /**
+     * Creates instance.
+     *
+     * @param httpClient HTTP client
+     * @param workers number of workers
+     * @param seed seed of random sources
+     */
+    public LoadGenerator(OkHttpClient httpClient, int workers, long seed) {
+        super();
+        this.httpClient = httpClient;
+        this.workers = workers;
+        this.seed = seed;
+    }
+
+    /**
+     * Adds scenario.
+     *
+     * @param name name of scenario
+     * @param weight weight of scenario in mix of requests
+     * @param scenario scenario
+     */
+    public void addScenario(String name, int weight, Scenario scenario) {
+        totalWeight += weight;
+        nameList.add(name);
+        scenarioList.add(scenario);
+        weightList.add(totalWeight);
+    }
+
+    /**
+     * Generates load.
+     *
+     * @param warmup duration of warmup in milliseconds, results of which are skipped
+     * @param duration duration of measurement in milliseconds
+     * @return report of measurement
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public LoadReport run(long warmup, long duration) throws InterruptedException {
+        long measureStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmup);
+        long measureEnd = measureStart + TimeUnit.MILLISECONDS.toNanos(duration);
+        AtomicLong errorCount = new AtomicLong();
+        long[][] latencyArrays = new long[workers][];
+        long[][] scenarioCounts = new long[workers][];
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            int worker = i;
+            threads[i] = new Thread(() -> {
+                Recorder recorder = new Recorder();
+                long[] scenarioCount = new long[scenarioList.size()];
+                SplittableRandom random = new SplittableRandom(seed + worker);
+                long start;
+                while ((start = System.nanoTime()) < measureEnd) {
+                    int scenario = nextScenario(random);
+                    boolean success = execute(scenarioList.get(scenario).nextRequest(random));
+                    if (start >= measureStart) {
+                        recorder.record(System.nanoTime() - start);
+                        scenarioCount[scenario]++;
+                        if (!success) {
+                            errorCount.incrementAndGet();
+                        }
+                    }
+                }
+                latencyArrays[worker] = recorder.toArray();
+                scenarioCounts[worker] = scenarioCount;
+            }, "load-generator-" + i);
+            threads[i].start();
+        }
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeapUsed = new AtomicLong();
+        ScheduledExecutorService heapMonitor = Executors.newSingleThreadScheduledExecutor();
+        heapMonitor.scheduleAtFixedRate(() -> {
+            long used = memoryBean.getHeapMemoryUsage().getUsed();
+            peakHeapUsed.accumulateAndGet(used, Math::max);
+        }, warmup, 50, TimeUnit.MILLISECONDS);
+        TimeUnit.NANOSECONDS.sleep(measureStart - System.nanoTime());
+        long[] gcStart = gcStatistics();
+        TimeUnit.NANOSECONDS.sleep(measureEnd - System.nanoTime());
+        long[] gcEnd = gcStatistics();
+        heapMonitor.shutdownNow();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Map<String, Long> scenarioCountMap = new LinkedHashMap<>();
+        for (int i = 0; i < nameList.size(); i++) {
+            long count = 0;
+            for (long[] scenarioCount : scenarioCounts) {
+                count += scenarioCount[i];
+            }
+            scenarioCountMap.put(nameList.get(i), count);
+        }
+        long[] latencyArray = Arrays.stream(latencyArrays).flatMapToLong(Arrays::stream).toArray();
+        return new LoadReport(latencyArray,
+                              errorCount.get(),
+                              scenarioCountMap,
+                              measureEnd - measureStart,
+                              gcEnd[0] - gcStart[0],
+                              gcEnd[1] - gcStart[1],
+                              peakHeapUsed.get());
+    }
+
+    /**
+     * Chooses next scenario by weight.
+     *
+     * @param random random source of worker
+     * @return index of scenario
+     */
+    private int nextScenario(SplittableRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < weightList.size(); i++) {
+            if (value < weightList.get(i)) {
+                return i;
+            }
+        }
+        return weightList.size() - 1;
+    }
+
+    /**
+     * Executes request and reads response body.
+     *
+     * @param request request
+     * @return {@code true} if response is successful and does not contain error page, otherwise {@code false}
+     */
+    private boolean execute(Request request) {
+        try (Response response = httpClient.newCall(request).execute()) {
+            String body = response.body().string();
+            return response.isSuccessful() && !body.contains(ERROR_MARKER);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets number and time of garbage collections.
+     *
+     * @return number and time in milliseconds of garbage collections
+     */
+    private static long[] gcStatistics() {
+        long[] statistics = new long[2];
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            statistics[0] += Math.max(0, gcBean.getCollectionCount());
+            statistics[1] += Math.max(0, gcBean.getCollectionTime());
+        }
+        return statistics;
+    }
+
+    /**
+     * Growing array of latencies of one worker.
+     *
+     * @author Dmitry Tverdokhleb
+     *
+     */
+    private static class Recorder {
+
+        /** Latencies in nanoseconds. */
+        private long[] latencyArray = new long[1024];
+        /** Number of latencies. */
+        private int size;
+
+        /**
+         * Records latency.
+         *
+         * @param latency latency in nanoseconds
+         */
+        private void record(long latency) {
+            if (size == latencyArray.length) {
+                latencyArray = Arrays.copyOf(latencyArray, size * 2);
+            }
+            latencyArray[size++] = latency;
+        }
+
+        /**
+         * Gets recorded latencies.
+         *
+         * @return recorded latencies
+         */
+        private long[] toArray() {
+            return Arrays.copyOf(latencyArray, size);
+        }
+
+    }
+
+}
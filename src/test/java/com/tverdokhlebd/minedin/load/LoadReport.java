@@ -0,0 +1,130 @@
+package com.tverdokhlebd.minedin.load;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Report of load generation.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+public class LoadReport {
+
+    /** Sorted latencies of requests in nanoseconds. */
+    private final long[] latencyArray;
+    /** Number of failed requests. */
+    private final long errorCount;
+    /** Number of requests by scenario. */
+    private final Map<String, Long> scenarioCountMap;
+    /** Duration of measurement in nanoseconds. */
+    private final long duration;
+    /** Number of garbage collections. */
+    private final long gcCount;
+    /** Time of garbage collections in milliseconds. */
+    private final long gcTime;
+    /** Peak of used heap in bytes. */
+    private final long peakHeapUsed;
+
+    /**
+     * Creates instance.
+     *
+     * @param latencyArray latencies of requests in nanoseconds
+     * @param errorCount number of failed requests
+     * @param scenarioCountMap number of requests by scenario
+     * @param duration duration of measurement in nanoseconds
+     * @param gcCount number of garbage collections
+     * @param gcTime time of garbage collections in milliseconds
+     * @param peakHeapUsed peak of used heap in bytes
+     */
+    public LoadReport(long[] latencyArray, long errorCount, Map<String, Long> scenarioCountMap, long duration, long gcCount, long gcTime,
+            long peakHeapUsed) {
+        super();
+        this.latencyArray = latencyArray;
+        Arrays.sort(latencyArray);
+        this.errorCount = errorCount;
+        this.scenarioCountMap = scenarioCountMap;
+        this.duration = duration;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.peakHeapUsed = peakHeapUsed;
+    }
+
+    /**
+     * Gets number of requests.
+     *
+     * @return number of requests
+     */
+    public long getRequestCount() {
+        return latencyArray.length;
+    }
+
+    /**
+     * Gets throughput.
+     *
+     * @return requests per second
+     */
+    public double getThroughput() {
+        return latencyArray.length * 1e9 / duration;
+    }
+
+    /**
+     * Gets percentile of latency.
+     *
+     * @param percentile percentile from 0 to 100
+     * @return latency in milliseconds
+     */
+    public double getLatency(double percentile) {
+        if (latencyArray.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencyArray.length) - 1;
+        return latencyArray[Math.max(0, Math.min(index, latencyArray.length - 1))] / 1e6;
+    }
+
+    /**
+     * Gets rate of failed requests.
+     *
+     * @return rate of failed requests from 0 to 1
+     */
+    public double getErrorRate() {
+        return latencyArray.length == 0 ? 0 : (double) errorCount / latencyArray.length;
+    }
+
+    /**
+     * Gets share of time, which is spent in garbage collections.
+     *
+     * @return share of time from 0 to 1
+     */
+    public double getGcTimeRatio() {
+        return gcTime * 1e6 / duration;
+    }
+
+    /**
+     * Gets peak of used heap.
+     *
+     * @return peak of used heap in bytes
+     */
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests: %d %s, throughput: %.1f req/s, latency p50: %.1f ms, p95: %.1f ms, p99: %.1f ms, max: %.1f ms, "
+                + "errors: %.2f%%, gc: %d collections in %d ms (%.2f%%), peak heap: %d MB",
+                             latencyArray.length,
+                             scenarioCountMap,
+                             getThroughput(),
+                             getLatency(50),
+                             getLatency(95),
+                             getLatency(99),
+                             getLatency(100),
+                             getErrorRate() * 100,
+                             gcCount,
+                             gcTime,
+                             getGcTimeRatio() * 100,
+                             peakHeapUsed / (1024 * 1024));
+    }
+
+}
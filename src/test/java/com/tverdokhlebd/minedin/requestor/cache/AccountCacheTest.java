@@ -0,0 +1,100 @@
+package com.tverdokhlebd.minedin.requestor.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.minedin.requestor.guard.Bulkhead;
+import com.tverdokhlebd.minedin.requestor.guard.CircuitBreaker;
+import com.tverdokhlebd.minedin.requestor.guard.GuardedAccountRequestor;
+import com.tverdokhlebd.minedin.requestor.guard.RequestorGuard;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+/**
+ * Tests of account cache.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class AccountCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        AccountCache accountCache = new AccountCache(10, 1);
+        Map<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> accountMap = accountCache.getCachedAccountMap();
+        SimpleEntry<CoinType, String> key = new SimpleEntry<>(CoinType.ETH, "0x1");
+        assertNull(accountMap.get(key));
+        accountMap.put(key, new SimpleEntry<>(createAccount("0x1"), new Date()));
+        assertNotNull(accountMap.get(key));
+        assertNotNull(accountMap.get(new SimpleEntry<>(CoinType.ETH, "0x1")));
+        assertEquals(2, accountCache.getHitCount());
+        assertEquals(1, accountCache.getMissCount());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        AccountCache accountCache = new AccountCache(100, 1);
+        Map<SimpleEntry<CoinType, String>, SimpleEntry<Account, Date>> accountMap = accountCache.getCachedAccountMap();
+        for (int i = 0; i < 1000; i++) {
+            String walletAddress = "0x" + i;
+            accountMap.put(new SimpleEntry<>(CoinType.ETH, walletAddress), new SimpleEntry<>(createAccount(walletAddress), new Date()));
+        }
+        accountCache.cleanUp();
+        assertTrue(accountCache.getSize() <= 100);
+        assertEquals(1000 - accountCache.getSize(), accountCache.getEvictionCount());
+    }
+
+    @Test
+    public void testCachedAccountIsServedWhenPoolIsRejected() throws Exception {
+        AccountCache accountCache = new AccountCache(10, 1);
+        RequestorGuard guard = new RequestorGuard("account.NANOPOOL", new Bulkhead(10, 0), new CircuitBreaker("account.NANOPOOL", 1, 60000));
+        AtomicInteger callCount = new AtomicInteger();
+        AccountRequestor accountRequestor = new CachedAccountRequestor(new GuardedAccountRequestor((coinType, walletAddress) -> {
+            callCount.incrementAndGet();
+            return createAccount(walletAddress);
+        }, guard), accountCache);
+        assertEquals("0x1", accountRequestor.requestAccount(CoinType.ETH, "0x1").getWalletAddress());
+        guard.getCircuitBreaker().onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        assertEquals("0x1", accountRequestor.requestAccount(CoinType.ETH, "0x1").getWalletAddress());
+        try {
+            accountRequestor.requestAccount(CoinType.ETH, "0x2");
+            fail("Expected rejection of not cached account");
+        } catch (AccountRequestorException e) {
+            assertEquals(ErrorCode.HTTP_ERROR, e.getErrorCode());
+        }
+        assertEquals(1, callCount.get());
+        assertEquals(1, accountCache.getHitCount());
+        assertEquals(2, accountCache.getMissCount());
+    }
+
+    /**
+     * Creates account.
+     *
+     * @param walletAddress wallet address
+     * @return account
+     */
+    private static Account createAccount(String walletAddress) {
+        return new Account.Builder().setWalletAddress(walletAddress)
+                                    .setWalletBalance(BigDecimal.ONE)
+                                    .setReportedHashrate(BigDecimal.ONE)
+                                    .build();
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.tverdokhlebd.minedin.requestor.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+
+/**
+ * Tests of single flight.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class SingleFlightTest {
+
+    /** Number of concurrent callers. */
+    private static final int CALLERS = 8;
+    /** Executor of callers. */
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallsAreCollapsed() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger callCount = new AtomicInteger();
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        List<Future<Integer>> resultList = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            resultList.add(executor.submit(() -> singleFlight.execute("ETH", () -> {
+                releaseLatch.await(5, TimeUnit.SECONDS);
+                return callCount.incrementAndGet();
+            })));
+        }
+        while (singleFlight.getCallCount() + singleFlight.getCollapsedCount() < CALLERS) {
+            Thread.sleep(10);
+        }
+        releaseLatch.countDown();
+        for (Future<Integer> result : resultList) {
+            assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, callCount.get());
+        assertEquals(1, singleFlight.getCallCount());
+        assertEquals(CALLERS - 1, singleFlight.getCollapsedCount());
+    }
+
+    @Test
+    public void testExceptionIsShared() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        List<Future<Throwable>> errorList = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            errorList.add(executor.submit(() -> {
+                try {
+                    singleFlight.execute("ETH", () -> {
+                        releaseLatch.await(5, TimeUnit.SECONDS);
+                        throw new CoinMarketRequestorException(ErrorCode.HTTP_ERROR, "Bad gateway");
+                    });
+                    return null;
+                } catch (CoinMarketRequestorException e) {
+                    return e;
+                }
+            }));
+        }
+        while (singleFlight.getCallCount() + singleFlight.getCollapsedCount() < CALLERS) {
+            Thread.sleep(10);
+        }
+        releaseLatch.countDown();
+        for (Future<Throwable> error : errorList) {
+            assertTrue(error.get(5, TimeUnit.SECONDS) instanceof CoinMarketRequestorException);
+        }
+        assertEquals(1, singleFlight.getCallCount());
+    }
+
+}
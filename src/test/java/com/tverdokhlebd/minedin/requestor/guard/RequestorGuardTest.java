@@ -0,0 +1,159 @@
+package com.tverdokhlebd.minedin.requestor.guard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.minedin.http.LocalRejectionException;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.commons.http.RequestException;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests of requestor guard.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class RequestorGuardTest {
+
+    @Test
+    public void testBreakerOpensAfterConsecutiveHttpErrors() throws Exception {
+        RequestorGuard guard = new RequestorGuard("account.DWARFPOOL", new Bulkhead(10, 0), new CircuitBreaker("account.DWARFPOOL", 3, 60000));
+        AtomicInteger callCount = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ErrorCode.HTTP_ERROR, requestFailing(guard, callCount, ErrorCode.HTTP_ERROR).getErrorCode());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        AccountRequestorException rejected = requestFailing(guard, callCount, ErrorCode.HTTP_ERROR);
+        assertEquals(ErrorCode.HTTP_ERROR, rejected.getErrorCode());
+        assertEquals(3, callCount.get());
+        assertEquals(1, guard.getCircuitBreaker().getRejectedCount());
+    }
+
+    @Test
+    public void testApiErrorsDoNotOpenBreaker() throws Exception {
+        RequestorGuard guard = new RequestorGuard("account.NANOPOOL", new Bulkhead(10, 0), new CircuitBreaker("account.NANOPOOL", 2, 60000));
+        AtomicInteger callCount = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            requestFailing(guard, callCount, ErrorCode.API_ERROR);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+        assertEquals(5, callCount.get());
+    }
+
+    @Test
+    public void testTrialRequestClosesBreaker() throws Exception {
+        RequestorGuard guard = new RequestorGuard("account.ETHERMINE", new Bulkhead(10, 0), new CircuitBreaker("account.ETHERMINE", 1, 50));
+        requestFailing(guard, new AtomicInteger(), ErrorCode.HTTP_ERROR);
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+        Thread.sleep(100);
+        assertEquals("ok", guard.execute(() -> "ok", AccountRequestorException::new));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testBulkheadRejectsWhenFull() throws Exception {
+        RequestorGuard guard = new RequestorGuard("account.DWARFPOOL", new Bulkhead(1, 0), new CircuitBreaker("account.DWARFPOOL", 5, 60000));
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> guard.execute(() -> {
+                startedLatch.countDown();
+                return releaseLatch.await(5, TimeUnit.SECONDS);
+            }, AccountRequestorException::new));
+            assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+            try {
+                guard.execute(() -> "ok", AccountRequestorException::new);
+                fail("Request is not rejected");
+            } catch (AccountRequestorException e) {
+                assertEquals(ErrorCode.HTTP_ERROR, e.getErrorCode());
+            }
+            assertEquals(1, guard.getBulkhead().getRejectedCount());
+            assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+        } finally {
+            releaseLatch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLocalRejectionsDoNotOpenBreaker() throws Exception {
+        RequestorGuard guard = new RequestorGuard("coin-info.WHAT_TO_MINE", new Bulkhead(10, 0),
+                                                  new CircuitBreaker("coin-info.WHAT_TO_MINE", 2, 60000));
+        for (int i = 0; i < 5; i++) {
+            try {
+                guard.execute(() -> {
+                    // Requestors of libraries wrap exception of HTTP client in this way
+                    LocalRejectionException rejection = new LocalRejectionException("Too many concurrent requests to whattomine.com");
+                    throw new CoinInfoRequestorException(new RequestException(ErrorCode.HTTP_ERROR, rejection));
+                }, CoinInfoRequestorException::new);
+                fail("Request is not failed");
+            } catch (CoinInfoRequestorException e) {
+                assertEquals(ErrorCode.HTTP_ERROR, e.getErrorCode());
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testLocalRejectionGivesBackTrialRequest() throws Exception {
+        RequestorGuard guard = new RequestorGuard("account.ETHERMINE", new Bulkhead(10, 0), new CircuitBreaker("account.ETHERMINE", 1, 50));
+        requestFailing(guard, new AtomicInteger(), ErrorCode.HTTP_ERROR);
+        Thread.sleep(100);
+        try {
+            guard.execute(() -> {
+                throw new AccountRequestorException(ErrorCode.HTTP_ERROR, new LocalRejectionException("Deadline is exceeded"));
+            }, AccountRequestorException::new);
+            fail("Request is not failed");
+        } catch (AccountRequestorException e) {
+            // Expected
+        }
+        assertEquals("ok", guard.execute(() -> "ok", AccountRequestorException::new));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testBulkheadsOfHostShareItsLimit() {
+        RequestorRegistry requestorRegistry = new RequestorRegistry(new OkHttpClient(), new ThreadPoolTaskScheduler(),
+                                                                    new SimpleMeterRegistry(), 100, 2, true, 600_000, 10, 500, 5,
+                                                                    30_000, 10);
+        Map<String, RequestorGuard> guardMap = requestorRegistry.getGuardMap();
+        // Coin info and reward are requested from the same host
+        assertEquals(5, guardMap.get("coin-info.WHAT_TO_MINE").getBulkhead().getMaxConcurrent());
+        assertEquals(5, guardMap.get("coin-reward.WHAT_TO_MINE").getBulkhead().getMaxConcurrent());
+        assertEquals(10, guardMap.get("coin-market.COIN_MARKET_CAP").getBulkhead().getMaxConcurrent());
+        assertEquals(10, guardMap.get("account.NANOPOOL").getBulkhead().getMaxConcurrent());
+    }
+
+    private static AccountRequestorException requestFailing(RequestorGuard guard, AtomicInteger callCount, ErrorCode errorCode) {
+        try {
+            guard.execute(() -> {
+                callCount.incrementAndGet();
+                throw new AccountRequestorException(errorCode, "Error");
+            }, AccountRequestorException::new);
+        } catch (AccountRequestorException e) {
+            return e;
+        }
+        throw new AssertionError("Request is not failed");
+    }
+
+}
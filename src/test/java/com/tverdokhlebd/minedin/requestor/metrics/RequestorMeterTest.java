@@ -0,0 +1,87 @@
+package com.tverdokhlebd.minedin.requestor.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests of requestor meter.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class RequestorMeterTest {
+
+    /** Coins, which are supported by source. */
+    private static final List<CoinType> COIN_TYPES = Arrays.asList(CoinType.ETH, CoinType.ZEC);
+
+    @Test
+    public void testSuccessfulRequestIsTimed() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-market", "COIN_MARKET_CAP", COIN_TYPES);
+        assertEquals("ETH", meter.record(CoinType.ETH, () -> "ETH"));
+        assertEquals(1, meterRegistry.get("requestor.requests").tag("coin", "ETH").tag("outcome", "success").timer().count());
+        assertNull(meterRegistry.find("requestor.errors").counter());
+    }
+
+    @Test
+    public void testFailedRequestIsCountedByErrorCode() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-market", "COIN_MARKET_CAP", COIN_TYPES);
+        CoinMarketRequestorException exception = new CoinMarketRequestorException(ErrorCode.HTTP_ERROR, "Bad gateway");
+        try {
+            meter.record(CoinType.ETH, () -> {
+                throw exception;
+            });
+            fail("Exception is not rethrown");
+        } catch (CoinMarketRequestorException e) {
+            assertSame(exception, e);
+        }
+        assertEquals(1, meterRegistry.get("requestor.requests").tag("coin", "ETH").tag("outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("requestor.errors").tag("error_code", "HTTP_ERROR").counter().count(), 0);
+    }
+
+    @Test
+    public void testMetersAreReused() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-market", "COIN_MARKET_CAP", COIN_TYPES);
+        int meterCount = meterRegistry.getMeters().size();
+        assertEquals(COIN_TYPES.size() * 2, meterCount);
+        meter.record(CoinType.ETH, () -> "ETH");
+        meter.record(CoinType.ETH, () -> "ETH");
+        assertEquals(meterCount, meterRegistry.getMeters().size());
+        assertEquals(2, meterRegistry.get("requestor.requests").tag("coin", "ETH").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testUnsupportedCoinIsTimed() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RequestorMeter meter = new RequestorMeter(meterRegistry, "coin-market", "COIN_MARKET_CAP", COIN_TYPES);
+        try {
+            meter.record(CoinType.BTC, () -> {
+                throw new CoinMarketRequestorException(ErrorCode.API_ERROR, "Unsupported coin");
+            });
+            fail("Exception is not rethrown");
+        } catch (CoinMarketRequestorException e) {
+            // Expected
+        }
+        assertEquals(1, meterRegistry.get("requestor.requests").tag("coin", "BTC").tag("outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("requestor.errors").tag("coin", "BTC").counter().count(), 0);
+    }
+
+}
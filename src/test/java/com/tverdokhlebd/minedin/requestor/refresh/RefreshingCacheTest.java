@@ -0,0 +1,100 @@
+package com.tverdokhlebd.minedin.requestor.refresh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorException;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+
+/**
+ * Tests of refreshing cache.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class RefreshingCacheTest {
+
+    /** Executor, which runs refresh in calling thread. */
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Test
+    public void testFreshValueIsServedFromCache() throws Exception {
+        RefreshingCache<String, Integer> cache = new RefreshingCache<>(60_000, DIRECT_EXECUTOR);
+        assertEquals(Integer.valueOf(1), cache.get("ETH", () -> createSnapshot(1, 60_000)));
+        assertEquals(Integer.valueOf(1), cache.get("ETH", () -> createSnapshot(2, 60_000)));
+        assertEquals(1, cache.getFreshCount());
+        assertFalse(cache.getSnapshot("ETH").isStale());
+    }
+
+    @Test
+    public void testStaleValueIsServedAndRefreshed() throws Exception {
+        RefreshingCache<String, Integer> cache = new RefreshingCache<>(60_000, DIRECT_EXECUTOR);
+        cache.get("ETH", () -> createSnapshot(1, -1_000));
+        assertTrue(cache.getSnapshot("ETH").isStale());
+        assertEquals(Integer.valueOf(1), cache.get("ETH", () -> createSnapshot(2, 60_000)));
+        assertEquals(1, cache.getStaleCount());
+        assertEquals(Integer.valueOf(2), cache.getSnapshot("ETH").getValue());
+    }
+
+    @Test
+    public void testStaleValueIsServedOnError() throws Exception {
+        RefreshingCache<String, Integer> cache = new RefreshingCache<>(60_000, DIRECT_EXECUTOR);
+        cache.get("ETH", () -> createSnapshot(1, -1_000));
+        assertEquals(Integer.valueOf(1), cache.get("ETH", () -> {
+            throw new CoinMarketRequestorException(ErrorCode.HTTP_ERROR, "Bad gateway");
+        }));
+        assertEquals(1, cache.getRefreshErrorCount());
+        assertEquals(Integer.valueOf(1), cache.getSnapshot("ETH").getValue());
+    }
+
+    @Test
+    public void testTooStaleValueIsLoaded() throws Exception {
+        RefreshingCache<String, Integer> cache = new RefreshingCache<>(1_000, DIRECT_EXECUTOR);
+        cache.get("ETH", () -> createSnapshot(1, -60_000));
+        try {
+            cache.get("ETH", () -> {
+                throw new CoinMarketRequestorException(ErrorCode.HTTP_ERROR, "Bad gateway");
+            });
+            fail("Value is stale longer than max staleness");
+        } catch (CoinMarketRequestorException e) {
+            assertEquals(ErrorCode.HTTP_ERROR, e.getErrorCode());
+        }
+        assertEquals(Integer.valueOf(3), cache.get("ETH", () -> createSnapshot(3, 60_000)));
+    }
+
+    @Test
+    public void testListenerIsCalledOnLoad() throws Exception {
+        RefreshingCache<String, Integer> cache = new RefreshingCache<>(60_000, DIRECT_EXECUTOR);
+        List<Integer> loadedList = new ArrayList<>();
+        cache.addListener((key, snapshot) -> loadedList.add(snapshot.getValue()));
+        cache.get("ETH", () -> createSnapshot(1, -1_000));
+        cache.get("ETH", () -> createSnapshot(2, 60_000));
+        cache.get("ETH", () -> createSnapshot(3, 60_000));
+        assertEquals(Arrays.asList(1, 2), loadedList);
+    }
+
+    /**
+     * Creates snapshot.
+     *
+     * @param value value
+     * @param timeToLive time in milliseconds, after which value is stale
+     * @return snapshot
+     */
+    private static Snapshot<Integer> createSnapshot(int value, long timeToLive) {
+        Date updated = new Date();
+        return new Snapshot<>(value, updated, new Date(updated.getTime() + timeToLive));
+    }
+
+}
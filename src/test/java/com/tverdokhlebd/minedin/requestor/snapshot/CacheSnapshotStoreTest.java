@@ -0,0 +1,139 @@
+package com.tverdokhlebd.minedin.requestor.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.CoinRewardCalculator;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests of cache snapshot store.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class CacheSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCachesAreRestored() throws Exception {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        RequestorRegistry savedRegistry = createRegistry();
+        long now = System.currentTimeMillis();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH)
+                                                  .setBlockTime(new BigDecimal("14.35"))
+                                                  .setBlockReward(new BigDecimal("3"))
+                                                  .setBlockCount(new BigDecimal("5432101"))
+                                                  .setDifficulty(new BigDecimal("3190574561723428"))
+                                                  .setNetworkHashrate(new BigDecimal("221817480135012.3456"))
+                                                  .build();
+        savedRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE)
+                     .restore(CoinType.ETH, new Snapshot<>(coinInfo, new Date(now), new Date(now + 60_000)));
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("812.1234")).build();
+        savedRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP)
+                     .restore(CoinType.ETH, new Snapshot<>(coinMarket, new Date(now - 120_000), new Date(now - 60_000)));
+        CoinRewardCalculator calculator = new CoinRewardCalculator(CoinType.ETH, new BigDecimal("84"), new BigDecimal("0.0123"));
+        savedRegistry.getCoinRewardCache(CoinRewardDescription.WHAT_TO_MINE)
+                     .restore(CoinType.ETH, new Snapshot<>(calculator, new Date(now), new Date(now + 60_000)));
+        Account account = new Account.Builder().setWalletAddress("0xabc")
+                                               .setWalletBalance(new BigDecimal("1.5"))
+                                               .setReportedHashrate(new BigDecimal("120000000"))
+                                               .build();
+        savedRegistry.getAccountCache(PoolTypeDescription.NANOPOOL)
+                     .restore(CoinType.ETH, "0xabc", account, new Date(now + 60_000));
+        new CacheSnapshotStore(savedRegistry, null, file.getPath(), 60_000).save();
+
+        RequestorRegistry restoredRegistry = createRegistry();
+        assertEquals(4, new CacheSnapshotStore(restoredRegistry, null, file.getPath(), 60_000).load());
+        Snapshot<CoinInfo> coinInfoSnapshot = restoredRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE).getSnapshot(CoinType.ETH);
+        assertEquals(new Date(now + 60_000), coinInfoSnapshot.getNextUpdate());
+        assertEquals(coinInfo.getNetworkHashrate(), coinInfoSnapshot.getValue().getNetworkHashrate());
+        assertEquals(coinInfo.getBlockTime(), coinInfoSnapshot.getValue().getBlockTime());
+        Snapshot<CoinMarket> coinMarketSnapshot =
+                restoredRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP).getSnapshot(CoinType.ETH);
+        assertEquals(coinMarket.getPrice(), coinMarketSnapshot.getValue().getPrice());
+        assertEquals(true, coinMarketSnapshot.isStale());
+        CoinReward expectedReward = calculator.calculateRewards(new BigDecimal("120000000"));
+        CoinReward restoredReward = restoredRegistry.getCoinRewardCache(CoinRewardDescription.WHAT_TO_MINE)
+                                                    .getSnapshot(CoinType.ETH)
+                                                    .getValue()
+                                                    .calculateRewards(new BigDecimal("120000000"));
+        assertEquals(expectedReward.getRewardPerDay(), restoredReward.getRewardPerDay());
+        SimpleEntry<Account, Date> restoredAccount = restoredRegistry.getAccountCache(PoolTypeDescription.NANOPOOL)
+                                                                     .getCachedAccountMap()
+                                                                     .get(new SimpleEntry<>(CoinType.ETH, "0xabc"));
+        assertEquals(account.getWalletBalance(), restoredAccount.getKey().getWalletBalance());
+        assertEquals(new Date(now + 60_000), restoredAccount.getValue());
+    }
+
+    @Test
+    public void testExpiredEntriesAreNotRestored() throws Exception {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        RequestorRegistry savedRegistry = createRegistry();
+        long now = System.currentTimeMillis();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("812.1234")).build();
+        savedRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP)
+                     .restore(CoinType.ETH, new Snapshot<>(coinMarket, new Date(now - 120_000), new Date(now - 60_000)));
+        new CacheSnapshotStore(savedRegistry, null, file.getPath(), 60_000).save();
+
+        RequestorRegistry restoredRegistry = createRegistry(30_000);
+        assertEquals(0, new CacheSnapshotStore(restoredRegistry, null, file.getPath(), 60_000).load());
+        assertNull(restoredRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP).getSnapshot(CoinType.ETH));
+    }
+
+    @Test
+    public void testDamagedSnapshotIsIgnored() throws Exception {
+        File file = new File(folder.getRoot(), "cache.snapshot");
+        RequestorRegistry savedRegistry = createRegistry();
+        long now = System.currentTimeMillis();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(new BigDecimal("812.1234")).build();
+        savedRegistry.getCoinMarketCache(CoinMarketDescription.COIN_MARKET_CAP)
+                     .restore(CoinType.ETH, new Snapshot<>(coinMarket, new Date(now), new Date(now + 60_000)));
+        new CacheSnapshotStore(savedRegistry, null, file.getPath(), 60_000).save();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length / 2] ^= 0xFF;
+        Files.write(file.toPath(), bytes);
+
+        RequestorRegistry restoredRegistry = createRegistry();
+        assertEquals(0, new CacheSnapshotStore(restoredRegistry, null, file.getPath(), 60_000).load());
+        assertEquals(0, new CacheSnapshotStore(restoredRegistry, null, new File(folder.getRoot(), "missing").getPath(), 60_000).load());
+    }
+
+    private static RequestorRegistry createRegistry() {
+        return createRegistry(600_000);
+    }
+
+    private static RequestorRegistry createRegistry(long maxStaleness) {
+        return new RequestorRegistry(new OkHttpClient(), new ThreadPoolTaskScheduler(), new SimpleMeterRegistry(), 100, 2, true,
+                                     maxStaleness, 10, 500, 5, 30_000, 10);
+    }
+
+}
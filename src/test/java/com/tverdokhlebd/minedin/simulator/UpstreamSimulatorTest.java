@@ -0,0 +1,142 @@
+package com.tverdokhlebd.minedin.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.CoinInfoType;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorFactory;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.CoinMarketType;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestorFactory;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.coin.reward.CoinRewardType;
+import com.tverdokhlebd.coin.reward.requestor.CoinRewardRequestorFactory;
+import com.tverdokhlebd.minedin.http.DeadlineInterceptor;
+import com.tverdokhlebd.minedin.http.RequestDeadline;
+import com.tverdokhlebd.minedin.http.UpstreamOverrideInterceptor;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.pool.Account;
+import com.tverdokhlebd.mining.pool.PoolType;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestor;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorException;
+import com.tverdokhlebd.mining.pool.requestor.AccountRequestorFactory;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests of upstream simulator.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class UpstreamSimulatorTest {
+
+    private UpstreamSimulator simulator;
+    private OkHttpClient httpClient;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new UpstreamSimulator(UpstreamProfile.HEALTHY, 1);
+        simulator.start(0);
+        httpClient = new OkHttpClient.Builder().addInterceptor(new UpstreamOverrideInterceptor(HttpUrl.parse(simulator.getUrl())))
+                                               .build();
+    }
+
+    @After
+    public void tearDown() {
+        simulator.stop();
+    }
+
+    @Test
+    public void testAccountOfEachPool() throws Exception {
+        for (PoolType poolType : PoolType.values()) {
+            AccountRequestor accountRequestor = AccountRequestorFactory.create(poolType, httpClient, false);
+            Account account = accountRequestor.requestAccount(CoinType.ETH, "0x" + poolType.name());
+            assertTrue(account.getWalletBalance().signum() > 0);
+            assertTrue(account.getReportedHashrate().signum() > 0);
+        }
+    }
+
+    @Test
+    public void testCoinInfoMarketAndReward() throws Exception {
+        CoinInfo coinInfo = CoinInfoRequestorFactory.create(CoinInfoType.WHAT_TO_MINE, httpClient).requestCoinInfo(CoinType.ZEC);
+        assertTrue(coinInfo.getDifficulty().signum() > 0);
+        CoinMarket coinMarket = CoinMarketRequestorFactory.create(CoinMarketType.COIN_MARKET_CAP, httpClient)
+                                                          .requestCoinMarket(CoinType.ZEC);
+        assertEquals(0, new BigDecimal("203.91").compareTo(coinMarket.getPrice()));
+        CoinReward coinReward = CoinRewardRequestorFactory.create(CoinRewardType.WHAT_TO_MINE, httpClient)
+                                                          .requestCoinReward(CoinType.ZEC, BigDecimal.valueOf(1000));
+        assertTrue(coinReward.getRewardPerDay().signum() > 0);
+    }
+
+    @Test
+    public void testErrorsAndRateLimits() {
+        simulator.setProfile("api.nanopool.org", new UpstreamProfile(LatencyDistribution.none(), 0.5, 0.5));
+        AccountRequestor accountRequestor = AccountRequestorFactory.create(PoolType.NANOPOOL, httpClient, false);
+        for (int i = 0; i < 20; i++) {
+            try {
+                accountRequestor.requestAccount(CoinType.ETH, "0x" + i);
+                fail();
+            } catch (AccountRequestorException e) {
+                // Expected
+            }
+        }
+        assertTrue(simulator.getErrorCount() > 0);
+        assertTrue(simulator.getRateLimitCount() > 0);
+        assertEquals(simulator.getRequestCount(), simulator.getErrorCount() + simulator.getRateLimitCount());
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        simulator.setProfile("dwarfpool.com", new UpstreamProfile(LatencyDistribution.fixed(200), 0, 0));
+        long start = System.nanoTime();
+        AccountRequestorFactory.create(PoolType.DWARFPOOL, httpClient, false).requestAccount(CoinType.ETH, "0x1");
+        assertTrue(System.nanoTime() - start >= 200_000_000L);
+    }
+
+    @Test
+    public void testLatencyIsBoundedByDeadline() {
+        simulator.setProfile("dwarfpool.com", new UpstreamProfile(LatencyDistribution.fixed(2000), 0, 0));
+        OkHttpClient deadlineClient = httpClient.newBuilder().addInterceptor(new DeadlineInterceptor()).build();
+        AccountRequestor accountRequestor = AccountRequestorFactory.create(PoolType.DWARFPOOL, deadlineClient, false);
+        long start = System.nanoTime();
+        AccountRequestorException error = RequestDeadline.call(start + 300_000_000L, () -> {
+            try {
+                accountRequestor.requestAccount(CoinType.ETH, "0x1");
+                return null;
+            } catch (AccountRequestorException e) {
+                return e;
+            }
+        });
+        assertNotNull(error);
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    public void testLogNormalLatencyIsDeterministic() {
+        LatencyDistribution latency = LatencyDistribution.logNormal(100, 1000);
+        long tailCount = 0;
+        for (int i = 0; i < 10000; i++) {
+            long delay = latency.nextDelay(new SplittableRandom(i));
+            assertEquals(delay, latency.nextDelay(new SplittableRandom(i)));
+            if (delay > 1000) {
+                tailCount++;
+            }
+        }
+        assertTrue(tailCount > 50 && tailCount < 200);
+    }
+
+}
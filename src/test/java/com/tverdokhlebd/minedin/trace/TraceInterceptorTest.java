@@ -0,0 +1,72 @@
+package com.tverdokhlebd.minedin.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Tests of trace interceptor.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class TraceInterceptorTest {
+
+    private final Tracer tracer = new Tracer(0, 4);
+    private final TraceInterceptor interceptor = new TraceInterceptor(tracer);
+
+    @After
+    public void tearDown() {
+        tracer.detach();
+    }
+
+    @Test
+    public void testWalletIsNotInNameOfTrace() throws Exception {
+        MockHttpServletRequest request = createRequest("/ETH/NANOPOOL/0x1234");
+        request.addHeader(TraceInterceptor.REQUEST_ID_HEADER, "req-1.a_B");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, createHandler());
+        Trace trace = TraceInterceptor.getTrace(request);
+        assertEquals("GET /ETH/NANOPOOL/{walletAddress}", trace.getName());
+        assertEquals("req-1.a_B", trace.getId());
+        assertEquals("req-1.a_B", response.getHeader(TraceInterceptor.REQUEST_ID_HEADER));
+    }
+
+    @Test
+    public void testUnsafeRequestIdIsReplaced() throws Exception {
+        MockHttpServletRequest request = createRequest("/ETH/NANOPOOL/0x1234");
+        request.addHeader(TraceInterceptor.REQUEST_ID_HEADER, "req-1\nid=forged");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, createHandler());
+        String id = TraceInterceptor.getTrace(request).getId();
+        assertNotEquals("req-1\nid=forged", id);
+        assertEquals(id, response.getHeader(TraceInterceptor.REQUEST_ID_HEADER));
+    }
+
+    private static MockHttpServletRequest createRequest(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/{coinType}/{poolType}/{walletAddress}");
+        Map<String, String> variableMap = new HashMap<>();
+        variableMap.put("coinType", "ETH");
+        variableMap.put("poolType", "NANOPOOL");
+        variableMap.put("walletAddress", "0x1234");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, variableMap);
+        return request;
+    }
+
+    private static HandlerMethod createHandler() throws Exception {
+        return new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+    }
+
+}
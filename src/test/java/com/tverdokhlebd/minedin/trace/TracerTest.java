@@ -0,0 +1,59 @@
+package com.tverdokhlebd.minedin.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Tests of tracer.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class TracerTest {
+
+    @Test
+    public void testStagesAreRecordedInCurrentTrace() throws Exception {
+        Tracer tracer = new Tracer(0, 4);
+        Trace trace = tracer.start("req-1", "GET /ETH/NANOPOOL/wallet");
+        assertSame(trace, Tracer.current());
+        long start = System.nanoTime();
+        Thread.sleep(20);
+        Tracer.current().record(TraceStage.ACCOUNT, start);
+        tracer.finish(trace);
+        assertSame(Trace.NONE, Tracer.current());
+        assertTrue(trace.getStageTime(TraceStage.ACCOUNT) >= 20);
+        assertTrue(trace.getTotal() >= trace.getStageTime(TraceStage.ACCOUNT));
+        assertEquals(1, trace.getStages().size());
+        assertTrue(trace.toString().startsWith("id=req-1 GET /ETH/NANOPOOL/wallet total="));
+        assertTrue(trace.toString().contains(" account="));
+    }
+
+    @Test
+    public void testFastTracesAreNotKept() {
+        Tracer tracer = new Tracer(60000, 4);
+        tracer.finish(tracer.start(null, "GET /"));
+        assertTrue(tracer.getSlowTraces().isEmpty());
+    }
+
+    @Test
+    public void testSlowTracesAreBoundedAndSorted() throws Exception {
+        Tracer tracer = new Tracer(0, 2);
+        for (int i = 1; i <= 3; i++) {
+            Trace trace = tracer.start(null, "GET /" + i);
+            Thread.sleep(i * 10);
+            tracer.finish(trace);
+        }
+        List<Trace> traceList = tracer.getSlowTraces();
+        assertEquals(2, traceList.size());
+        assertEquals("GET /3", traceList.get(0).getName());
+        assertEquals("GET /2", traceList.get(1).getName());
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tverdokhlebd.minedin.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tverdokhlebd.minedin.utils.VirtualThreadUtil.ExecutionMode;
+
+/**
+ * Test of virtual thread util.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class VirtualThreadUtilTest {
+
+    @Test
+    public void testPlatformModeUsesPool() {
+        assertNull(VirtualThreadUtil.newExecutor(ExecutionMode.PLATFORM, "test-"));
+    }
+
+    @Test
+    public void testVirtualModeFallsBackWithoutSupport() throws Exception {
+        ExecutorService executor = VirtualThreadUtil.newExecutor(ExecutionMode.VIRTUAL, "test-");
+        if (!VirtualThreadUtil.isSupported()) {
+            assertNull(executor);
+            return;
+        }
+        try {
+            Thread thread = executor.submit(() -> Thread.currentThread()).get(5, TimeUnit.SECONDS);
+            assertTrue(thread.getName().startsWith("test-"));
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.tverdokhlebd.minedin.web.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests of interceptor of administrative endpoints.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class AdminTokenInterceptorTest {
+
+    @Test
+    public void testEndpointsAreNotFoundWithoutToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/metrics");
+        request.addHeader("Authorization", "Bearer ");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(new AdminTokenInterceptor("").preHandle(request, response, null));
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testWrongTokenIsUnauthorized() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/traces");
+        request.addHeader("Authorization", "Bearer secret2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(new AdminTokenInterceptor("secret").preHandle(request, response, null));
+        assertEquals(401, response.getStatus());
+        assertEquals("Bearer", response.getHeader("WWW-Authenticate"));
+    }
+
+    @Test
+    public void testTokenIsAccepted() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/traces");
+        request.addHeader("Authorization", "Bearer secret");
+        assertTrue(new AdminTokenInterceptor("secret").preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+}
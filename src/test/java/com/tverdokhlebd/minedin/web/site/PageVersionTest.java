@@ -0,0 +1,86 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+
+/**
+ * Tests of page version.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class PageVersionTest {
+
+    @Test
+    public void testVersionIsDerivedFromSnapshots() {
+        long now = System.currentTimeMillis();
+        Date tickerUpdated = new Date(now - 1_000);
+        Snapshot<Integer> coinInfo = new Snapshot<>(1, new Date(now - 5_000), new Date(now + 60_000));
+        Snapshot<Integer> coinMarket = new Snapshot<>(2, new Date(now - 10_000), new Date(now + 30_000));
+        PageVersion version = PageVersion.create("earnings/ETH", now - 60_000, tickerUpdated, Arrays.asList(coinInfo, coinMarket));
+        assertEquals(now - 1_000, version.getLastModified());
+        assertEquals(now + 30_000, version.getExpires());
+        assertTrue(version.getETag().startsWith("W/\""));
+        PageVersion sameVersion = PageVersion.create("earnings/ETH", now - 60_000, tickerUpdated, Arrays.asList(coinInfo, coinMarket));
+        assertEquals(version.getETag(), sameVersion.getETag());
+        Snapshot<Integer> refreshedMarket = new Snapshot<>(3, new Date(now), new Date(now + 30_000));
+        PageVersion newVersion = PageVersion.create("earnings/ETH", now - 60_000, tickerUpdated, Arrays.asList(coinInfo, refreshedMarket));
+        assertNotEquals(version.getETag(), newVersion.getETag());
+        PageVersion otherPage = PageVersion.create("earnings/ETC", now - 60_000, tickerUpdated, Arrays.asList(coinInfo, coinMarket));
+        assertNotEquals(version.getETag(), otherPage.getETag());
+    }
+
+    @Test
+    public void testVersionIsUnknownForMissingOrStaleData() {
+        long now = System.currentTimeMillis();
+        Snapshot<Integer> coinInfo = new Snapshot<>(1, new Date(now - 5_000), new Date(now + 60_000));
+        Snapshot<Integer> staleMarket = new Snapshot<>(2, new Date(now - 60_000), new Date(now - 1_000));
+        assertNull(PageVersion.create("coin/ETH", now, null, Arrays.asList(coinInfo)));
+        assertNull(PageVersion.create("coin/ETH", now, new Date(now), Arrays.asList(coinInfo, null)));
+        assertNull(PageVersion.create("coin/ETH", now, new Date(now), Arrays.asList(coinInfo, staleMarket)));
+    }
+
+    @Test
+    public void testRequestIsValidated() {
+        PageVersion version = new PageVersion("W/\"abc\"", 1_500_000_000_500L, System.currentTimeMillis() + 60_000);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertFalse(version.isNotModified(request));
+        request.addHeader("If-None-Match", "\"def\", \"abc\"");
+        assertTrue(version.isNotModified(request));
+        request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "W/\"def\"");
+        request.addHeader("If-Modified-Since", 1_500_000_000_000L);
+        assertFalse(version.isNotModified(request));
+        request = new MockHttpServletRequest();
+        request.addHeader("If-Modified-Since", 1_500_000_000_000L);
+        assertTrue(version.isNotModified(request));
+        request = new MockHttpServletRequest();
+        request.addHeader("If-Modified-Since", 1_499_999_999_000L);
+        assertFalse(version.isNotModified(request));
+    }
+
+    @Test
+    public void testHeadersAreWritten() {
+        PageVersion version = new PageVersion("W/\"abc\"", 1_500_000_000_000L, System.currentTimeMillis() + 30_500);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        version.writeTo(response, true);
+        assertEquals("W/\"abc\"", response.getHeader("ETag"));
+        assertEquals(1_500_000_000_000L, response.getDateHeader("Last-Modified"));
+        assertEquals("max-age=30, must-revalidate, private", response.getHeader("Cache-Control"));
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.requestor.refresh.Snapshot;
+import com.tverdokhlebd.minedin.ticker.MarketTicker;
+import com.tverdokhlebd.minedin.trace.TraceInterceptor;
+import com.tverdokhlebd.minedin.trace.TraceStage;
+import com.tverdokhlebd.minedin.trace.Tracer;
+import com.tverdokhlebd.minedin.web.site.RenderedPageCache.RenderedPage;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests of cache of rendered pages.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class RenderedPageCacheTest {
+
+    /** Template of page without data. */
+    private static final String TEMPLATE = "pages/google78d9213fe4e57443";
+    /** Rendered template. */
+    private static final String HTML = "google-site-verification: google78d9213fe4e57443.html";
+    /** Market ticker. */
+    private MarketTicker marketTicker;
+    /** Versions of pages. */
+    private PageVersions pageVersions;
+    /** Cache of rendered pages. */
+    private RenderedPageCache renderedPageCache;
+
+    @Before
+    public void setUp() throws Exception {
+        RequestorRegistry requestorRegistry = new RequestorRegistry(new OkHttpClient(), new ThreadPoolTaskScheduler(),
+                                                                    new SimpleMeterRegistry(), 100, 2, true, 600_000, 10, 500, 5,
+                                                                    30_000, 10);
+        long now = System.currentTimeMillis();
+        CoinInfo coinInfo = new CoinInfo.Builder().setCoinType(CoinType.ETH).build();
+        requestorRegistry.getCoinInfoCache(CoinInfoDescription.WHAT_TO_MINE)
+                         .get(CoinType.ETH, () -> new Snapshot<>(coinInfo, new Date(now), new Date(now + 60_000)));
+        marketTicker = new MarketTicker(requestorRegistry, null, 60_000);
+        marketTicker.rebuild();
+        pageVersions = new PageVersions(requestorRegistry, marketTicker, 2, true);
+        MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext applicationContext = new StaticWebApplicationContext();
+        applicationContext.setServletContext(servletContext);
+        applicationContext.refresh();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, applicationContext);
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode("HTML5");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        renderedPageCache = new RenderedPageCache(templateEngine, servletContext, applicationContext, requestorRegistry, pageVersions,
+                                                  true, true);
+    }
+
+    @Test
+    public void testPageIsCachedWithVersion() throws Exception {
+        PageVersion version = pageVersions.getCoinInfoVersion(CoinTypeDescription.ETH);
+        assertNotNull(version);
+        assertNull(renderedPageCache.get(CoinTypeDescription.ETH, version));
+        RenderedPage page = render(version);
+        assertEquals(version.getETag(), page.getVersion().getETag());
+        assertSame(page, renderedPageCache.get(CoinTypeDescription.ETH, version));
+        assertNull(renderedPageCache.get(CoinTypeDescription.ETH, null));
+        assertNull(renderedPageCache.get(CoinTypeDescription.ETC, version));
+        Thread.sleep(2);
+        marketTicker.rebuild();
+        PageVersion newVersion = pageVersions.getCoinInfoVersion(CoinTypeDescription.ETH);
+        assertNull(renderedPageCache.get(CoinTypeDescription.ETH, newVersion));
+    }
+
+    @Test
+    public void testPageIsNotCachedIfVersionIsChanged() throws Exception {
+        PageVersion version = pageVersions.getCoinInfoVersion(CoinTypeDescription.ETH);
+        Thread.sleep(2);
+        marketTicker.rebuild();
+        RenderedPage page = render(version);
+        assertNull(page.getVersion());
+        assertEquals(0, renderedPageCache.getSize());
+        assertNull(render(null).getVersion());
+        assertEquals(0, renderedPageCache.getSize());
+    }
+
+    @Test
+    public void testCompressedPageIsSentToAcceptingClient() throws Exception {
+        RenderedPage page = render(pageVersions.getCoinInfoVersion(CoinTypeDescription.ETH));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<byte[]> plainResponse = page.toResponse(request, response);
+        assertEquals(HTML, new String(plainResponse.getBody(), StandardCharsets.UTF_8));
+        assertNull(plainResponse.getHeaders().getFirst("Content-Encoding"));
+        assertEquals("Accept-Encoding", plainResponse.getHeaders().getFirst("Vary"));
+        assertEquals(page.getVersion().getETag(), response.getHeader("ETag"));
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        ResponseEntity<byte[]> gzipResponse = page.toResponse(request, new MockHttpServletResponse());
+        assertEquals("gzip", gzipResponse.getHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(plainResponse.getBody(), decompress(gzipResponse.getBody()));
+    }
+
+    @Test
+    public void testRenderingIsTraced() throws Exception {
+        Tracer tracer = new Tracer(60_000, 10);
+        TraceInterceptor traceInterceptor = new TraceInterceptor(tracer);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ETH");
+        traceInterceptor.preHandle(request, new MockHttpServletResponse(), new HandlerMethod(this, getClass().getMethod("setUp")));
+        tracer.detach();
+        renderedPageCache.render(TEMPLATE, new ExtendedModelMap(), request, new MockHttpServletResponse());
+        assertTrue(TraceInterceptor.getTrace(request).getStages().containsKey(TraceStage.RENDER.getName()));
+    }
+
+    private RenderedPage render(PageVersion version) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        return renderedPageCache.render(CoinTypeDescription.ETH, version, TEMPLATE, new ExtendedModelMap(), request,
+                                        new MockHttpServletResponse());
+    }
+
+    private static byte[] decompress(byte[] data) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, length);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.tverdokhlebd.minedin.web.site;
+
+import static java.math.RoundingMode.DOWN;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.tverdokhlebd.coin.info.CoinInfo;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestor;
+import com.tverdokhlebd.coin.info.requestor.CoinInfoRequestorException;
+import com.tverdokhlebd.coin.market.CoinMarket;
+import com.tverdokhlebd.coin.market.requestor.CoinMarketRequestor;
+import com.tverdokhlebd.coin.reward.CoinReward;
+import com.tverdokhlebd.minedin.description.CoinInfoDescription;
+import com.tverdokhlebd.minedin.description.CoinMarketDescription;
+import com.tverdokhlebd.minedin.description.CoinRewardDescription;
+import com.tverdokhlebd.minedin.description.CoinTypeDescription;
+import com.tverdokhlebd.minedin.description.PoolTypeDescription;
+import com.tverdokhlebd.minedin.earnings.Earnings;
+import com.tverdokhlebd.minedin.earnings.worker.EarningsWorker;
+import com.tverdokhlebd.minedin.earnings.worker.EarningsWorkerFactory;
+import com.tverdokhlebd.minedin.requestor.RequestorRegistry;
+import com.tverdokhlebd.minedin.ticker.MarketTicker;
+import com.tverdokhlebd.mining.commons.coin.CoinType;
+import com.tverdokhlebd.mining.commons.http.ErrorCode;
+import com.tverdokhlebd.mining.pool.Account;
+
+import nz.net.ultraq.thymeleaf.LayoutDialect;
+
+/**
+ * Tests of asynchronous pages of site controller.
+ *
+ * @author Dmitry Tverdokhleb
+ *
+ */
+@SpringBootTest
+public class SiteControllerTest {
+
+    /** Wallet address. */
+    private static final String WALLET_ADDRESS = "0x0000000000000000000000000000000000000000";
+    /** Path of calculation page. */
+    private static final String CALCULATE_PATH = "/ETH/NANOPOOL/" + WALLET_ADDRESS;
+    /** Marker of rendered error message. */
+    private static final String ERROR_MARKER = "id=\"errorMessage\"";
+    /** Price of BTC in USD. */
+    private static final BigDecimal BTC_PRICE = new BigDecimal("8123.45");
+    /** Price of ETH in USD. */
+    private static final BigDecimal ETH_PRICE = new BigDecimal("512.34");
+    /** Site controller. */
+    private SiteController siteController;
+    /** Requestor of coin info. */
+    private CoinInfoRequestor coinInfoRequestor;
+    /** Requestor of coin market. */
+    private CoinMarketRequestor coinMarketRequestor;
+    /** Earnings worker. */
+    private EarningsWorker earningsWorker;
+    /** Factory for creating earnings worker. */
+    private EarningsWorkerFactory earningsWorkerFactory;
+    /** Versions of pages. */
+    private PageVersions pageVersions;
+    /** MockMvc of site controller. */
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() throws Exception {
+        coinInfoRequestor = mock(CoinInfoRequestor.class);
+        coinMarketRequestor = mock(CoinMarketRequestor.class);
+        RequestorRegistry requestorRegistry = mock(RequestorRegistry.class);
+        when(requestorRegistry.getCoinInfoRequestor(CoinInfoDescription.WHAT_TO_MINE)).thenReturn(coinInfoRequestor);
+        when(requestorRegistry.getCoinMarketRequestor(CoinMarketDescription.COIN_MARKET_CAP)).thenReturn(coinMarketRequestor);
+        earningsWorker = mock(EarningsWorker.class);
+        earningsWorkerFactory = mock(EarningsWorkerFactory.class);
+        when(earningsWorkerFactory.create(any(PoolTypeDescription.class),
+                                          any(CoinInfoDescription.class),
+                                          any(CoinMarketDescription.class),
+                                          any(CoinRewardDescription.class),
+                                          anyLong())).thenReturn(earningsWorker);
+        MarketTicker marketTicker = mock(MarketTicker.class);
+        when(marketTicker.getCoinMarketList()).thenReturn(Collections.emptyList());
+        pageVersions = mock(PageVersions.class);
+        MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext applicationContext = new StaticWebApplicationContext();
+        applicationContext.setServletContext(servletContext);
+        applicationContext.refresh();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, applicationContext);
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode("HTML5");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.addDialect(new LayoutDialect());
+        RenderedPageCache renderedPageCache = new RenderedPageCache(templateEngine, servletContext, applicationContext,
+                                                                    requestorRegistry, pageVersions, true, false);
+        siteController = new SiteController();
+        ReflectionTestUtils.setField(siteController, "earningsWorkerFactory", earningsWorkerFactory);
+        ReflectionTestUtils.setField(siteController, "requestorRegistry", requestorRegistry);
+        ReflectionTestUtils.setField(siteController, "marketTicker", marketTicker);
+        ReflectionTestUtils.setField(siteController, "pageVersions", pageVersions);
+        ReflectionTestUtils.setField(siteController, "renderedPageCache", renderedPageCache);
+        setSiteExecutor(Runnable::run);
+        mockMvc = MockMvcBuilders.standaloneSetup(siteController).build();
+    }
+
+    @Test
+    public void testCoinInfoPageIsRendered() throws Exception {
+        when(coinInfoRequestor.requestCoinInfo(CoinType.ETH)).thenReturn(createCoinInfo());
+        MvcResult result = mockMvc.perform(get("/ETH")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(content().string(containsString("calculateButton")))
+               .andExpect(content().string(not(containsString(ERROR_MARKER))));
+    }
+
+    @Test
+    public void testCoinInfoPageDoesNotDependOnLanguageOfVisitor() throws Exception {
+        when(coinInfoRequestor.requestCoinInfo(CoinType.ETH)).thenReturn(createCoinInfo());
+        MvcResult result = mockMvc.perform(get("/ETH").locale(Locale.GERMANY)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(content().string(containsString(">3.00<")))
+               .andExpect(content().string(not(containsString(">3,00<"))));
+    }
+
+    @Test
+    public void testCoinInfoErrorIsRendered() throws Exception {
+        when(coinInfoRequestor.requestCoinInfo(CoinType.ETH)).thenThrow(new CoinInfoRequestorException(ErrorCode.HTTP_ERROR,
+                                                                                                       "Bad gateway"));
+        MvcResult result = mockMvc.perform(get("/ETH")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(content().string(containsString(ERROR_MARKER)))
+               .andExpect(content().string(containsString("Bad gateway")));
+    }
+
+    @Test
+    public void testCalculationPageIsRendered() throws Exception {
+        CompletableFuture<Earnings> earnings = CompletableFuture.completedFuture(createEarnings());
+        when(earningsWorker.calculateAsync(CoinTypeDescription.ETH, WALLET_ADDRESS)).thenReturn(earnings);
+        CoinMarket btcCoinMarket = new CoinMarket.Builder().setCoin(CoinType.BTC).setPrice(BTC_PRICE).build();
+        when(coinMarketRequestor.requestCoinMarket(CoinType.BTC)).thenReturn(btcCoinMarket);
+        MvcResult result = mockMvc.perform(get(CALCULATE_PATH)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(view().name("template"))
+               .andExpect(model().attribute("page", "earnings"))
+               .andExpect(model().attribute("coin_in_btc", BTC_PRICE.divide(ETH_PRICE, DOWN)))
+               .andExpect(model().attributeDoesNotExist("error_message"));
+    }
+
+    @Test
+    public void testRejectedCalculationIsRenderedAsError() throws Exception {
+        setSiteExecutor(command -> {
+            throw new RejectedExecutionException("Site executor is full");
+        });
+        CompletableFuture<Earnings> earnings = CompletableFuture.completedFuture(createEarnings());
+        when(earningsWorker.calculateAsync(CoinTypeDescription.ETH, WALLET_ADDRESS)).thenReturn(earnings);
+        MvcResult result = mockMvc.perform(get(CALCULATE_PATH)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(view().name("template"))
+               .andExpect(model().attribute("page", "earnings"))
+               .andExpect(model().attributeExists("error_message"));
+    }
+
+    @Test
+    public void testNotModifiedPagesAreNotRequested() throws Exception {
+        long now = System.currentTimeMillis();
+        PageVersion version = new PageVersion("\"v1\"", now, now + 60_000);
+        when(pageVersions.getCoinInfoVersion(CoinTypeDescription.ETH)).thenReturn(version);
+        when(pageVersions.getEarningsVersion(CoinTypeDescription.ETH, PoolTypeDescription.NANOPOOL, WALLET_ADDRESS)).thenReturn(version);
+        mockMvc.perform(get("/ETH").header("If-None-Match", "\"v1\""))
+               .andExpect(request().asyncNotStarted())
+               .andExpect(status().isNotModified())
+               .andExpect(header().string("ETag", "\"v1\""));
+        mockMvc.perform(get(CALCULATE_PATH).header("If-None-Match", "\"v1\""))
+               .andExpect(request().asyncNotStarted())
+               .andExpect(status().isNotModified())
+               .andExpect(header().string("ETag", "\"v1\""));
+        verify(coinInfoRequestor, never()).requestCoinInfo(any(CoinType.class));
+        verify(earningsWorker, never()).calculateAsync(any(CoinTypeDescription.class), any(String.class));
+    }
+
+    private void setSiteExecutor(Executor siteExecutor) {
+        ReflectionTestUtils.setField(siteController, "siteExecutor", siteExecutor);
+    }
+
+    private static CoinInfo createCoinInfo() {
+        return new CoinInfo.Builder().setCoinType(CoinType.ETH)
+                                     .setBlockTime(new BigDecimal("14.5"))
+                                     .setBlockReward(new BigDecimal("3"))
+                                     .setBlockCount(new BigDecimal("5700000"))
+                                     .setDifficulty(new BigDecimal("3300000000000000"))
+                                     .setNetworkHashrate(new BigDecimal("250000000000000"))
+                                     .build();
+    }
+
+    private static Earnings createEarnings() {
+        Account account = new Account.Builder().setWalletAddress(WALLET_ADDRESS)
+                                               .setWalletBalance(new BigDecimal("2.5"))
+                                               .setReportedHashrate(new BigDecimal("185000000"))
+                                               .build();
+        CoinMarket coinMarket = new CoinMarket.Builder().setCoin(CoinType.ETH).setPrice(ETH_PRICE).build();
+        CoinReward coinReward = new CoinReward(CoinType.ETH,
+                                               new BigDecimal("185000000"),
+                                               new BigDecimal("0.0001"),
+                                               new BigDecimal("0.0024"),
+                                               new BigDecimal("0.0168"),
+                                               new BigDecimal("0.072"),
+                                               new BigDecimal("0.876"));
+        return new Earnings(account.getWalletBalance().multiply(ETH_PRICE), account, createCoinInfo(), coinMarket, coinReward);
+    }
+
+}